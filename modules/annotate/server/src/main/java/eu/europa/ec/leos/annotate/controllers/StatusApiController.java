@@ -13,6 +13,7 @@
  */
 package eu.europa.ec.leos.annotate.controllers;
 
+import eu.europa.ec.leos.annotate.model.CacheStatistics;
 import eu.europa.ec.leos.annotate.model.PublishContributionsResult;
 import eu.europa.ec.leos.annotate.model.ResponseStatusUpdateResult;
 import eu.europa.ec.leos.annotate.model.SimpleMetadata;
@@ -26,7 +27,10 @@ import eu.europa.ec.leos.annotate.services.StatusUpdateService;
 import eu.europa.ec.leos.annotate.services.exceptions.CannotPublishContributionsException;
 import eu.europa.ec.leos.annotate.services.exceptions.CannotUpdateAnnotationStatusException;
 import eu.europa.ec.leos.annotate.services.exceptions.MissingPermissionException;
+import eu.europa.ec.leos.annotate.services.impl.AnnotationCountCache;
 import eu.europa.ec.leos.annotate.services.impl.AuthenticatedUserStore;
+import eu.europa.ec.leos.annotate.services.impl.GroupMembershipCache;
+import eu.europa.ec.leos.annotate.services.impl.UserDetailsCache;
 import eu.europa.ec.leos.annotate.websockets.MessageBroker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +45,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
@@ -61,6 +67,15 @@ public class StatusApiController {
     @Autowired
     private MessageBroker messageBroker;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private GroupMembershipCache membershipCache;
+
+    @Autowired
+    private AnnotationCountCache countCache;
+
     // -------------------------------------
     // API endpoints
     // -------------------------------------
@@ -190,4 +205,63 @@ public class StatusApiController {
         LOG.warn("There was a problem while publishing annotation of a contributor, return and failure notice");
         return new ResponseEntity<Object>(new JsonFailureResponse("The contributor annotations could not be published: " + errorMsg), httpStatusToSend);
     }
+
+    /**
+     * Endpoint for retrieving the usage statistics of the caches for user details, group memberships and annotation counts
+     * 
+     * @param request 
+     *        Incoming request
+     * @param response 
+     *        Outgoing response
+     * @return
+     * HTTP status 200, JSON based response containing the statistics of each cache (size, hits, misses, loads, load times, evictions)
+     * 
+     * @throws IOException
+     * @throws ServletException
+     */
+    @RequestMapping(value = "/cacheStatistics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Object> getCacheStatistics(final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException, ServletException {
+
+        LOG.debug("Received request to retrieve cache statistics");
+
+        final Map<String, CacheStatistics> statistics = new LinkedHashMap<String, CacheStatistics>();
+        statistics.put("userDetails", userDetailsCache.getStatistics());
+        statistics.put("groupMemberships", membershipCache.getMembershipStatistics());
+        statistics.put("groupsOfUsers", membershipCache.getGroupsOfUserStatistics());
+        statistics.put("annotationCounts", countCache.getStatistics());
+
+        return new ResponseEntity<Object>(statistics, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for retrieving the statistics of the websocket notifications
+     * 
+     * @param request 
+     *        Incoming request
+     * @param response 
+     *        Outgoing response
+     * @return
+     * HTTP status 200, JSON based response containing the number of pending messages, and the number of messages,
+     * notifications and sessions dropped since the dispatching or the clients did not keep up
+     * 
+     * @throws IOException
+     * @throws ServletException
+     */
+    @RequestMapping(value = "/notificationStatistics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Object> getNotificationStatistics(final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException, ServletException {
+
+        LOG.debug("Received request to retrieve notification statistics");
+
+        final Map<String, Number> statistics = new LinkedHashMap<String, Number>();
+        statistics.put("pendingMessages", messageBroker.getPendingMessages());
+        statistics.put("droppedMessages", messageBroker.getDroppedMessages());
+        statistics.put("droppedNotifications", messageBroker.getDroppedNotifications());
+        statistics.put("closedSessions", messageBroker.getClosedSessions());
+
+        return new ResponseEntity<Object>(statistics, HttpStatus.OK);
+    }
 }
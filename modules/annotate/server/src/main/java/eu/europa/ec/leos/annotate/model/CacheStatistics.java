@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.model;
+
+import eu.europa.ec.leos.annotate.Generated;
+
+import java.util.Objects;
+
+/**
+ * POJO representing a snapshot of the usage statistics of a cache
+ */
+public class CacheStatistics {
+
+    // -------------------------------------
+    // private properties
+    // -------------------------------------
+
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long totalLoadTime; // in milliseconds
+    private final long evictions;
+
+    // -------------------------------------
+    // Constructors
+    // -------------------------------------
+
+    public CacheStatistics(final int size, final long hits, final long misses, final long loads, final long totalLoadTime,
+            final long evictions) {
+
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.totalLoadTime = totalLoadTime;
+        this.evictions = evictions;
+    }
+
+    // -------------------------------------
+    // Useful getters (exceeding plain POJOs)
+    // -------------------------------------
+
+    // ratio of requests served from the cache
+    public double getHitRate() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    // average time in milliseconds for loading a value
+    public double getAverageLoadTime() {
+        return loads == 0 ? 0 : (double) totalLoadTime / loads;
+    }
+
+    // -------------------------------------
+    // Getters & setters
+    // -------------------------------------
+
+    @Generated
+    public int getSize() {
+        return size;
+    }
+
+    @Generated
+    public long getHits() {
+        return hits;
+    }
+
+    @Generated
+    public long getMisses() {
+        return misses;
+    }
+
+    @Generated
+    public long getLoads() {
+        return loads;
+    }
+
+    @Generated
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    @Generated
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // -------------------------------------
+    // equals and hashCode
+    // -------------------------------------
+
+    @Generated
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, hits, misses, loads, totalLoadTime, evictions);
+    }
+
+    @Generated
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final CacheStatistics other = (CacheStatistics) obj;
+        return this.size == other.size &&
+                this.hits == other.hits &&
+                this.misses == other.misses &&
+                this.loads == other.loads &&
+                this.totalLoadTime == other.totalLoadTime &&
+                this.evictions == other.evictions;
+    }
+}
@@ -52,6 +52,10 @@ public class Metadata {
     public static final String PROP_ISC_REF = "ISCReference";
     private static final List<String> PROPS_OWN_COLS = Arrays.asList(PROP_SYSTEM_ID, PROP_RESPONSE_STATUS, PROP_VERSION);
 
+    // maximum lengths of the KV_KEY and KV_VALUE columns of the key-value table
+    public static final int MAX_KEY_LENGTH_IN_TABLE = 255;
+    public static final int MAX_VALUE_LENGTH_IN_TABLE = 1000;
+
     // -------------------------------------
     // column definitions
     // -------------------------------------
@@ -101,6 +105,14 @@ public class Metadata {
     @Column(name = "KEYVALUES")
     private String keyValuePairs;
 
+    // the same key-value pairs, normalised into an indexed table to allow matching them in the database
+    // note: always derived from the KEYVALUES column, which remains the reference for reading the pairs
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "METADATA_KEYVALUES", joinColumns = @JoinColumn(name = "METADATA_ID"))
+    @MapKeyColumn(name = "KV_KEY")
+    @Column(name = "KV_VALUE")
+    private Map<String, String> keyValueItems = new HashMap<String, String>();
+
     // track the datetime of modification of the response status
     // note: NOT auto-filled by DB trigger as this would require different implementations for Oracle and H2
     @Column(name = "RESPONSE_STATUS_UPDATED", nullable = true)
@@ -142,6 +154,7 @@ public class Metadata {
         this.responseStatus = other.responseStatus;
         this.responseStatusUpdated = other.responseStatusUpdated;
         this.responseStatusUpdatedBy = other.responseStatusUpdatedBy;
+        this.syncKeyValueItems(); // built from the copied key-values; the collection must not be shared
     }
     
     // -----------------------------------------------------------
@@ -208,6 +221,22 @@ public class Metadata {
             }
         });
         this.keyValuePairs = dbKeyValueList.toString();
+        syncKeyValueItems();
+    }
+
+    /**
+     * updates the normalised key-value items from the key-values column
+     * note: empty keys and items exceeding the column lengths cannot be stored in the key-value table and are thus skipped
+     */
+    private void syncKeyValueItems() {
+
+        final SimpleMetadata items = getKeyValuePropertyAsSimpleMetadata();
+        items.entrySet().removeIf(entry -> !isStorableInKeyValueTable(entry.getKey(), entry.getValue()));
+
+        if (!items.equals(this.keyValueItems)) {
+            this.keyValueItems.clear();
+            this.keyValueItems.putAll(items);
+        }
     }
 
     /**
@@ -419,6 +448,26 @@ public class Metadata {
     @Generated
     public void setKeyValuePairs(final String keyValuePairs) {
         this.keyValuePairs = keyValuePairs;
+        syncKeyValueItems();
+    }
+
+    /**
+     * check whether a key-value pair can be stored in the normalised key-value table
+     * 
+     * @param key the key of the item
+     * @param value the value of the item
+     * 
+     * @return {@literal true} if the key is not empty and neither key nor value exceed the column lengths
+     */
+    public static boolean isStorableInKeyValueTable(final String key, final String value) {
+
+        return !StringUtils.isEmpty(key) && key.length() <= MAX_KEY_LENGTH_IN_TABLE &&
+                (value == null || value.length() <= MAX_VALUE_LENGTH_IN_TABLE);
+    }
+
+    // read-only view; the items are maintained via the key-values setters only
+    public Map<String, String> getKeyValueItems() {
+        return Collections.unmodifiableMap(keyValueItems);
     }
 
     // -------------------------------------
@@ -16,6 +16,7 @@ package eu.europa.ec.leos.annotate.model.search;
 import eu.europa.ec.leos.annotate.Generated;
 import eu.europa.ec.leos.annotate.model.MetadataIdsAndStatuses;
 import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
 import eu.europa.ec.leos.annotate.model.search.Consts.SearchModelMode;
 import eu.europa.ec.leos.annotate.repository.impl.AnnotationSearchSpec;
 import org.springframework.data.jpa.domain.Specification;
@@ -78,6 +79,19 @@ public class SearchModel {
         
         return foundItems;
     }
+
+    /**
+     * provide the post-filtering as a search specification to be matched in addition, so that the database can apply it
+     * not possible by default, will be overridden only in search models able to do so
+     * 
+     * @param metadataOfFoundItems
+     *        the metadata sets of the items found by the search specification
+     * @return specification, or {@literal null} if the post-filtering can only be applied on the found items
+     */
+    public Specification<Annotation> getPostFilterSpecification(final List<Metadata> metadataOfFoundItems) {
+
+        return null;
+    }
     
     // -------------------------------------
     // Getters
@@ -17,6 +17,8 @@ import eu.europa.ec.leos.annotate.Authorities;
 import eu.europa.ec.leos.annotate.model.MetadataIdsAndStatuses;
 import eu.europa.ec.leos.annotate.model.SimpleMetadataWithStatuses;
 import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import eu.europa.ec.leos.annotate.model.entity.Metadata.ResponseStatus;
+import eu.europa.ec.leos.annotate.repository.impl.MetadataCandidatesSearchSpec;
 import eu.europa.ec.leos.annotate.services.GroupService;
 import eu.europa.ec.leos.annotate.services.MetadataMatchingService;
 import eu.europa.ec.leos.annotate.services.MetadataService;
@@ -24,6 +26,8 @@ import eu.europa.ec.leos.annotate.services.impl.MetadataListHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -31,8 +35,6 @@ import org.springframework.util.CollectionUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Component
 public class SearchModelFactory {
@@ -144,21 +146,23 @@ public class SearchModelFactory {
 
         // desired annotations may
         // a) belong to LEOS system, any group of the user
-        final List<Metadata> metaLeos = metadataService.findMetadataOfDocumentSystemidGroupIds(rso.getDocument(), Authorities.EdiT, groupIds);
+        final Specification<Metadata> metaLeos = new MetadataCandidatesSearchSpec(rso.getDocument(), Authorities.EdiT, null, groupIds, null);
 
         // b) belong to ISC system, any group (independent of the user), and have responseStatus SENT
-        final List<Metadata> metaIsc = metadataService.findMetadataOfDocumentSystemidSent(rso.getDocument(), Authorities.ISC);
+        final Specification<Metadata> metaIsc = new MetadataCandidatesSearchSpec(rso.getDocument(), Authorities.ISC, null, null,
+                ResponseStatus.SENT);
 
         final List<MetadataIdsAndStatuses> resolvedCandidates = new ArrayList<MetadataIdsAndStatuses>();
 
         // note: we want all LEOS and all ISC items matching the given metadata sets, so we have to multiply them all
+        // note: the candidates are matched against the given metadata in the database, without loading them first
         for (final SimpleMetadataWithStatuses smws : rso.getMetadataWithStatusesList()) {
-            final List<Long> metadataIdsLeos = metadataMatchingService.getIdsOfMatchingMetadatas(metaLeos, smws.getMetadata());
+            final List<Long> metadataIdsLeos = metadataMatchingService.findIdsOfMatchingMetadatas(metaLeos, smws.getMetadata());
             if (metadataIdsLeos != null) { // our function returns {@literal null} or a list with content, but no empty list
                 resolvedCandidates.add(new MetadataIdsAndStatuses(metadataIdsLeos, smws.getStatuses()));
             }
 
-            final List<Long> metadataIdsIsc = metadataMatchingService.getIdsOfMatchingMetadatas(metaIsc, smws.getMetadata());
+            final List<Long> metadataIdsIsc = metadataMatchingService.findIdsOfMatchingMetadatas(metaIsc, smws.getMetadata());
             if (metadataIdsIsc != null) { // our function returns {@literal null} or a list with content, but no empty list
                 resolvedCandidates.add(new MetadataIdsAndStatuses(metadataIdsIsc, smws.getStatuses()));
             }
@@ -228,34 +232,31 @@ public class SearchModelFactory {
         // counterexample: DIGIT user runs search for EMPL, but is not member of EMPL
         
         // find matching metadata - search for candidates associated to document and authority and being SENT
-        final List<Metadata> metaCandidatesSent = metadataService.findMetadataOfDocumentSystemidSent(rso.getDocument(), Authorities.ISC);
+        Specifications<Metadata> metaCandidates = Specifications.where(
+                new MetadataCandidatesSearchSpec(rso.getDocument(), Authorities.ISC, null, null, ResponseStatus.SENT));
 
         // retrieve the same, but being IN_PREPARATION
-        List<Metadata> metaCandidatesInPrep = new ArrayList<Metadata>();
         if(rso.isUserIsMemberOfGroup()) {
-            metaCandidatesInPrep = metadataService.findMetadataOfDocumentGroupSystemidInPreparation(rso.getDocument(), rso.getGroup(), Authorities.ISC);
+            metaCandidates = metaCandidates.or(
+                    new MetadataCandidatesSearchSpec(rso.getDocument(), Authorities.ISC, rso.getGroup(), null, ResponseStatus.IN_PREPARATION));
         }
-        
-        if (metaCandidatesSent.isEmpty() && metaCandidatesInPrep.isEmpty()) {
-            LOG.info("No corresponding metadata fulfilling search model ISC.1/ISC.2 found in DB (based on document/group/systemId");
-            return null;
-        }
-        
-        // there are candidates -> merge the lists
-        final List<Metadata> metaCandidates = Stream.of(metaCandidatesSent, metaCandidatesInPrep).flatMap(item -> item == null ? null : item.stream())
-                .collect(Collectors.toList());
 
         final List<MetadataIdsAndStatuses> resolvedCandidates = new ArrayList<MetadataIdsAndStatuses>();
         for (final SimpleMetadataWithStatuses smws : rso.getMetadataWithStatusesList()) {
 
-            // now check if these candidates have at least the metadata received via the search options
-            final List<Long> metadataIds = metadataMatchingService.getIdsOfMatchingMetadatas(metaCandidates, smws.getMetadata());
+            // now find the candidates having at least the metadata received via the search options
+            final List<Long> metadataIds = metadataMatchingService.findIdsOfMatchingMetadatas(metaCandidates, smws.getMetadata());
             if (metadataIds == null) { // our function returns {@literal null} or a list with content, but no empty list
                 continue;
             }
             resolvedCandidates.add(new MetadataIdsAndStatuses(metadataIds, smws.getStatuses()));
         }
 
+        if (resolvedCandidates.isEmpty()) {
+            LOG.info("No corresponding metadata fulfilling search model ISC.1/ISC.2 found in DB (based on document/group/systemId/metadata)");
+            return null;
+        }
+
         // when this point is reached, all requested metadata matches - feed the search model
         return new SearchModelIscSingleGroup(rso, resolvedCandidates);
     }
@@ -267,25 +268,24 @@ public class SearchModelFactory {
         // -> retrieve all groups of the user...
         final List<Long> groupIds = groupService.getGroupIdsOfUser(rso.getExecutingUser()); // won't be empty as at least the default group is present
 
-        // ... find all associate metadata sets...
-        final List<Metadata> metaIsc = metadataService.findMetadataOfDocumentSystemidGroupIds(rso.getDocument(),
-                Authorities.ISC, groupIds);
-        if (metaIsc.isEmpty()) { // service returns empty list when nothing is found, but not {@literal null}
-            LOG.info("No metadata to the document of any of the user's groups found");
-            return null;
-        }
+        // ... and find those associate metadata sets that match the given criteria...
+        final Specification<Metadata> metaIsc = new MetadataCandidatesSearchSpec(rso.getDocument(), Authorities.ISC, null, groupIds, null);
 
         final List<MetadataIdsAndStatuses> resolvedCandidates = new ArrayList<MetadataIdsAndStatuses>();
         for (final SimpleMetadataWithStatuses smws : rso.getMetadataWithStatusesList()) {
 
-            // ... filter out those sets that match the given criteria...
-            final List<Long> metadataIds = metadataMatchingService.getIdsOfMatchingMetadatas(metaIsc, smws.getMetadata());
+            final List<Long> metadataIds = metadataMatchingService.findIdsOfMatchingMetadatas(metaIsc, smws.getMetadata());
             if (metadataIds == null) { // our function returns {@literal null} or a list with content, but no empty list
                 continue;
             }
             resolvedCandidates.add(new MetadataIdsAndStatuses(metadataIds, smws.getStatuses()));
         }
 
+        if (resolvedCandidates.isEmpty()) {
+            LOG.info("No metadata to the document of any of the user's groups found matching the given criteria");
+            return null;
+        }
+
         return new SearchModelIscAllGroups(rso, resolvedCandidates);
     }
 }
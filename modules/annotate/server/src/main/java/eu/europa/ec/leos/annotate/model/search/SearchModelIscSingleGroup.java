@@ -16,8 +16,10 @@ package eu.europa.ec.leos.annotate.model.search;
 import eu.europa.ec.leos.annotate.model.MetadataIdsAndStatuses;
 import eu.europa.ec.leos.annotate.model.entity.Annotation;
 import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import eu.europa.ec.leos.annotate.repository.impl.LinkedAnnotationsFilterSpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
@@ -97,6 +99,28 @@ public class SearchModelIscSingleGroup extends SearchModel {
         return filteredItems;
     }
 
+    /**
+     *  same filtering as {@link #postFilterSearchResults(List)}, but applied by the database:
+     *  the annotations linked by found items having the highest responseVersion v_high and responseStatus IN_PREPARATION are filtered out
+     */
+    @Override
+    public Specification<Annotation> getPostFilterSpecification(final List<Metadata> metadataOfFoundItems) {
+
+        final long maxVersion = metadataOfFoundItems.stream().mapToLong(Metadata::getResponseVersion).max().orElse(-1L);
+
+        final List<Long> linkingMetadataIds = new ArrayList<Long>();
+        if (maxVersion > 0) { // see above, -1 shouldn't be in the database
+            for (final Metadata meta : metadataOfFoundItems) {
+                if (meta.getResponseVersion() == maxVersion &&
+                        meta.getResponseStatus() == Metadata.ResponseStatus.IN_PREPARATION) {
+                    linkingMetadataIds.add(meta.getId());
+                }
+            }
+        }
+
+        return new LinkedAnnotationsFilterSpec(getSearchSpecification(), linkingMetadataIds);
+    }
+
     // identify the items that should be removed (=filtered out)
     private List<String> getItemIdsToRemove(final List<Annotation> foundItems, final long maxVersion) {
 
@@ -13,8 +13,13 @@
  */
 package eu.europa.ec.leos.annotate.repository;
 
+import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 /**
  * custom repository extension of the {@link AnnotationRepository}
  * needed for functionality bypassing the {@link CrudRepository} implementation, e.g. to circumvent alleged hibernate cleverness
@@ -26,4 +31,26 @@ public interface AnnotationRepositoryCustom {
      * in order to assure that the custom implementation is called instead of the default implementation
      */
     void deleteAll();
+
+    /**
+     * count the shared annotations matching a given search specification, not counting highlights
+     * the counting is done by a single query in the database, no annotation is loaded
+     * 
+     * @param spec 
+     *        the search {@link Specification} to be matched, e.g. of a search model
+     * 
+     * @return number of matching shared annotations that are not highlights
+     */
+    long countSharedWithoutHighlights(Specification<Annotation> spec);
+
+    /**
+     * retrieve the metadata sets of the annotations matching a given search specification
+     * the annotations themselves are not loaded
+     * 
+     * @param spec 
+     *        the search {@link Specification} to be matched, e.g. of a search model
+     * 
+     * @return list of distinct {@link Metadata} assigned to matching annotations; empty list if there is no match
+     */
+    List<Metadata> findMetadataOfMatches(Specification<Annotation> spec);
 }
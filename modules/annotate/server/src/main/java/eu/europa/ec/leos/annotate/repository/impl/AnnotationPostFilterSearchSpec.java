@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.repository.impl;
+
+import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.CollectionUtils;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import java.util.List;
+
+/**
+ * Search specification class combining the search specification of a search model with its post-filtering
+ * and with additional items (e.g. deleted items of historical response versions);
+ * this way, the DB can do the paging without all items being loaded before
+ */
+public class AnnotationPostFilterSearchSpec implements Specification<Annotation> {
+
+    // -------------------------------------
+    // Private variables
+    // -------------------------------------
+
+    private final Specification<Annotation> searchSpec;
+    private final Specification<Annotation> postFilterSpec;
+    private final List<String> additionalIds;
+
+    // -------------------------------------
+    // Constructor
+    // -------------------------------------
+
+    /**
+     * receives the following parameters:
+     * 
+     * @param searchSpec
+     *        the search specification of the search model
+     * @param postFilterSpec
+     *        optional specification the found items must match in addition
+     * @param additionalIds
+     *        optional IDs of items to be added to the found items
+     */
+    public AnnotationPostFilterSearchSpec(final Specification<Annotation> searchSpec, final Specification<Annotation> postFilterSpec,
+            final List<String> additionalIds) {
+
+        this.searchSpec = searchSpec;
+        this.postFilterSpec = postFilterSpec;
+        this.additionalIds = additionalIds;
+    }
+
+    // -------------------------------------
+    // Search predicate
+    // -------------------------------------
+    @Override
+    public Predicate toPredicate(final Root<Annotation> root, final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        Predicate found = this.searchSpec.toPredicate(root, query, critBuilder);
+        if (this.postFilterSpec != null) {
+            found = critBuilder.and(found, this.postFilterSpec.toPredicate(root, query, critBuilder));
+        }
+
+        if (CollectionUtils.isEmpty(this.additionalIds)) {
+            return found;
+        }
+        return critBuilder.or(found, root.<String>get("id").in(this.additionalIds));
+    }
+}
@@ -13,16 +13,75 @@
  */
 package eu.europa.ec.leos.annotate.repository.impl;
 
+import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import eu.europa.ec.leos.annotate.model.entity.Tag;
 import eu.europa.ec.leos.annotate.repository.AnnotationRepositoryCustom;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import java.util.ArrayList;
+import java.util.List;
 
 // note: class name is important here, it must be the Impl to the 
 // original repository, otherwise Spring won't be able to make the link 
 public class AnnotationRepositoryImpl implements AnnotationRepositoryCustom {
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     // this is an override of the CrudRepository interface function, which should not be used due to problems;
     // see comment on the customDeleteAll function in AnnotationRepository
     @SuppressWarnings("PMD.AvoidThrowingRawExceptionTypes")
     public void deleteAll() {
         throw new RuntimeException("This method must not be called; call the customDeleteAll method instead.");
     }
+
+    @Override
+    public long countSharedWithoutHighlights(final Specification<Annotation> spec) {
+
+        final CriteriaBuilder critBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Long> query = critBuilder.createQuery(Long.class);
+        final Root<Annotation> root = query.from(Annotation.class);
+
+        // highlights are annotations having the highlight tag
+        final Subquery<Long> highlightTags = query.subquery(Long.class);
+        final Root<Tag> tag = highlightTags.from(Tag.class);
+        highlightTags.select(tag.<Long>get("id")).where(
+                critBuilder.equal(tag.<Annotation>get("annotation"), root),
+                critBuilder.equal(tag.<String>get("name"), Annotation.ANNOTATION_HIGHLIGHT));
+
+        query.select(critBuilder.count(root)).where(
+                spec.toPredicate(root, query, critBuilder),
+                critBuilder.isTrue(root.<Boolean>get("shared")),
+                critBuilder.not(critBuilder.exists(highlightTags)));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public List<Metadata> findMetadataOfMatches(final Specification<Annotation> spec) {
+
+        final CriteriaBuilder critBuilder = entityManager.getCriteriaBuilder();
+
+        // first the IDs only - the metadata's key/value column is not suited for a DISTINCT
+        final CriteriaQuery<Long> idQuery = critBuilder.createQuery(Long.class);
+        final Root<Annotation> root = idQuery.from(Annotation.class);
+        idQuery.select(root.<Long>get("metadataId")).distinct(true).where(spec.toPredicate(root, idQuery, critBuilder));
+        final List<Long> metadataIds = entityManager.createQuery(idQuery).getResultList();
+        if (metadataIds.isEmpty()) {
+            return new ArrayList<Metadata>();
+        }
+
+        final CriteriaQuery<Metadata> metaQuery = critBuilder.createQuery(Metadata.class);
+        final Root<Metadata> metaRoot = metaQuery.from(Metadata.class);
+        metaQuery.select(metaRoot).where(metaRoot.<Long>get("id").in(metadataIds));
+        return entityManager.createQuery(metaQuery).getResultList();
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.repository.impl;
+
+import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.Assert;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import java.util.List;
+
+/**
+ * Search specification class filtering out annotations that are linked by other annotations found by a search,
+ * if those other annotations belong to one of given metadata sets (e.g. a newer response version still in preparation)
+ * 
+ * this allows the database to do the post-filtering of a search model, and thus also the paging
+ * 
+ * note: the search specification is applied to the root of a subquery, but receives the outer query, as the JPA criteria API
+ * does not provide a query for a subquery; it may only use the query for creating further subqueries, and must not modify
+ * its selection, grouping or ordering (which is verified)
+ */
+public class LinkedAnnotationsFilterSpec implements Specification<Annotation> {
+
+    // -------------------------------------
+    // Private variables
+    // -------------------------------------
+
+    private final Specification<Annotation> searchSpec;
+    private final List<Long> linkingMetadataIds;
+
+    // -------------------------------------
+    // Constructor
+    // -------------------------------------
+
+    /**
+     * receives the following parameters:
+     * 
+     * @param searchSpec
+     *        the search specification denoting the annotations found
+     * @param linkingMetadataIds
+     *        IDs of the metadata sets whose found annotations hide their linked annotations
+     */
+    public LinkedAnnotationsFilterSpec(final Specification<Annotation> searchSpec, final List<Long> linkingMetadataIds) {
+
+        this.searchSpec = searchSpec;
+        this.linkingMetadataIds = linkingMetadataIds;
+    }
+
+    // -------------------------------------
+    // Search predicate
+    // -------------------------------------
+    @Override
+    public Predicate toPredicate(final Root<Annotation> root, final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        if (this.linkingMetadataIds.isEmpty()) {
+            // nothing to be filtered out
+            return critBuilder.conjunction();
+        }
+
+        // the IDs linked by found annotations of the given metadata sets
+        final Subquery<String> linkedIds = query.subquery(String.class);
+        final Root<Annotation> linking = linkedIds.from(Annotation.class);
+        final Predicate linkingFound = toSubqueryPredicate(linking, query, critBuilder);
+        linkedIds.select(linking.<String>get("linkedAnnotationId")).where(
+                linkingFound,
+                linking.<Long>get("metadataId").in(this.linkingMetadataIds),
+                critBuilder.isNotNull(linking.<String>get("linkedAnnotationId")),
+                critBuilder.notEqual(linking.<String>get("linkedAnnotationId"), ""));
+
+        return critBuilder.not(root.<String>get("id").in(linkedIds));
+    }
+
+    // applies the search specification to the root of the subquery, making sure that the outer query is not modified
+    private Predicate toSubqueryPredicate(final Root<Annotation> linking, final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        final boolean distinct = query.isDistinct();
+        final int groupings = query.getGroupList().size();
+        final int orderings = query.getOrderList().size();
+
+        final Predicate linkingFound = this.searchSpec.toPredicate(linking, query, critBuilder);
+
+        Assert.state(distinct == query.isDistinct() && groupings == query.getGroupList().size() && orderings == query.getOrderList().size(),
+                "Search specification used for linked annotations must not modify the query");
+        return linkingFound;
+    }
+}
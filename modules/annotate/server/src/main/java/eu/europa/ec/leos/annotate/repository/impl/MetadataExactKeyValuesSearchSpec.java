@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.repository.impl;
+
+import eu.europa.ec.leos.annotate.model.SimpleMetadata;
+import eu.europa.ec.leos.annotate.model.entity.Document;
+import eu.europa.ec.leos.annotate.model.entity.Group;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * search specification for metadata sets of a document, group and system having exactly the given key/value pairs;
+ * the key/value pairs are matched against the normalised METADATA_KEYVALUES table
+ * 
+ * note: properties having their own columns (systemId, version, responseStatus) are not considered 
+ *       apart from the systemId, neither are items exceeding the column lengths of the key/value table
+ *       (see {@link Metadata#isStorableInKeyValueTable(String, String)}); the remaining items thus have to be checked by the caller
+ */
+public class MetadataExactKeyValuesSearchSpec implements Specification<Metadata> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataExactKeyValuesSearchSpec.class);
+
+    private static final List<String> PROPS_OWN_COLS = Arrays.asList("systemId", Metadata.PROP_RESPONSE_STATUS, "version");
+
+    // -------------------------------------
+    // Private variables
+    // -------------------------------------
+
+    private final Document document;
+    private final Group group;
+    private final String systemId;
+    private final SimpleMetadata keyValues;
+    private final List<String> ignoredKeys;
+
+    // -------------------------------------
+    // Constructor
+    // -------------------------------------
+
+    /**
+     * receives the following parameters:
+     * 
+     * @param document
+     *        the document to which the metadata sets belong
+     * @param group
+     *        the group to which the metadata sets belong
+     * @param systemId
+     *        the system ID of the metadata sets
+     * @param keyValues
+     *        the key/value pairs the metadata sets must have exactly; may be {@literal null}
+     * @param ignoredKeys
+     *        keys not to be considered in the metadata sets (e.g. responseVersion)
+     */
+    public MetadataExactKeyValuesSearchSpec(final Document document, final Group group, final String systemId,
+            final SimpleMetadata keyValues, final List<String> ignoredKeys) {
+
+        this.document = document;
+        this.group = group;
+        this.systemId = systemId;
+        this.keyValues = keyValues == null ? new SimpleMetadata() : keyValues;
+        this.ignoredKeys = ignoredKeys;
+    }
+
+    // -------------------------------------
+    // Search predicate
+    // -------------------------------------
+    @Override
+    @SuppressWarnings("PMD.OptimizableToArrayCall")
+    public Predicate toPredicate(final Root<Metadata> root, final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(critBuilder.equal(root.get("document"), this.document));
+        predicates.add(critBuilder.equal(root.get("group"), this.group));
+        predicates.add(critBuilder.equal(root.get("systemId"), this.systemId));
+
+        // keys that are not stored in the key/value table or not to be compared
+        final List<String> excludedKeys = new ArrayList<>(PROPS_OWN_COLS);
+        excludedKeys.addAll(this.ignoredKeys);
+
+        // each of the requested items must be present...
+        long numberOfItems = 0;
+        for (final Map.Entry<String, String> entry : this.keyValues.entrySet()) {
+            if (isMatchedInKeyValueTable(entry.getKey(), entry.getValue(), excludedKeys)) {
+                predicates.add(MetadataKeyValuesSearchSpec.getKeyValuePredicate(entry.getKey(), entry.getValue(), root, query, critBuilder));
+                numberOfItems++;
+            }
+        }
+        LOG.trace("filter for metadata sets having {} key/value items", numberOfItems);
+
+        // ... and there may not be any others
+        predicates.add(getNumberOfItemsPredicate(numberOfItems, excludedKeys, root, query, critBuilder));
+
+        return critBuilder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * check whether a requested item is matched against the key/value table;
+     * items too long for the table are neither stored in it nor required here
+     */
+    private static boolean isMatchedInKeyValueTable(final String key, final String value, final List<String> excludedKeys) {
+
+        if (StringUtils.isEmpty(key) || excludedKeys.contains(key)) {
+            return false;
+        }
+        return value == null || Metadata.isStorableInKeyValueTable(key, value);
+    }
+
+    /**
+     * creates a predicate requiring a metadata set to have a given number of key/value items, not counting the excluded keys
+     */
+    private Predicate getNumberOfItemsPredicate(final long numberOfItems, final List<String> excludedKeys, final Root<Metadata> root,
+            final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        final Subquery<Long> subquery = query.subquery(Long.class);
+        final Root<Metadata> subRoot = subquery.from(Metadata.class);
+        final MapJoin<Metadata, String, String> items = subRoot.joinMap("keyValueItems");
+
+        subquery.select(subRoot.get("id")).where(critBuilder.not(items.key().in(excludedKeys)));
+
+        if (numberOfItems == 0) {
+            // metadata sets without any items don't appear in the key/value table
+            return critBuilder.not(root.get("id").in(subquery));
+        }
+
+        subquery.groupBy(subRoot.get("id")).having(critBuilder.equal(critBuilder.count(items.key()), numberOfItems));
+        return root.get("id").in(subquery);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.repository.impl;
+
+import eu.europa.ec.leos.annotate.model.SimpleMetadata;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import eu.europa.ec.leos.annotate.model.entity.Metadata.ResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * search specification for metadata sets containing (at least) all key/value pairs of one of several requested sets;
+ * the key/value pairs are matched against the normalised METADATA_KEYVALUES table
+ * 
+ * note: the requested sets must only contain items that can be stored in the key/value table, 
+ *       see {@link Metadata#isStorableInKeyValueTable(String, String)}
+ */
+public class MetadataKeyValuesSearchSpec implements Specification<Metadata> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataKeyValuesSearchSpec.class);
+
+    private static final String SYSTEM_ID = "systemId";
+    private static final String VERSION = "version";
+    private static final String VERSION_SEARCH_UP_TO = "<=";
+    private static final String KEY_VALUE_ITEMS = "keyValueItems";
+
+    // -------------------------------------
+    // Private variables
+    // -------------------------------------
+
+    private final List<SimpleMetadata> requested;
+    private final Specification<Metadata> candidates;
+
+    // -------------------------------------
+    // Constructor
+    // -------------------------------------
+
+    /**
+     * receives the following parameters:
+     * 
+     * @param requested
+     *        list of requested metadata sets; a metadata set matches if it contains all items of any of these sets
+     * @param metadataIds
+     *        list of IDs of the candidate metadata sets
+     */
+    public MetadataKeyValuesSearchSpec(final List<SimpleMetadata> requested,
+            final List<Long> metadataIds) {
+
+        this(requested, (root, query, critBuilder) -> {
+            LOG.trace("filter metadataIds={}", metadataIds.toString());
+            return root.get("id").in(metadataIds);
+        });
+    }
+
+    /**
+     * receives the following parameters:
+     * 
+     * @param requested
+     *        list of requested metadata sets; a metadata set matches if it contains all items of any of these sets
+     * @param candidates
+     *        specification of the candidate metadata sets, combined with the requested items in the same query
+     */
+    public MetadataKeyValuesSearchSpec(final List<SimpleMetadata> requested,
+            final Specification<Metadata> candidates) {
+
+        this.requested = requested;
+        this.candidates = candidates;
+    }
+
+    // -------------------------------------
+    // Search predicate
+    // -------------------------------------
+    @Override
+    @SuppressWarnings("PMD.OptimizableToArrayCall")
+    public Predicate toPredicate(final Root<Metadata> root, final CriteriaQuery<?> query, final CriteriaBuilder critBuilder) {
+
+        final Predicate candidatesPred = this.candidates.toPredicate(root, query, critBuilder);
+
+        final List<Predicate> requestedPreds = new ArrayList<>();
+        for (final SimpleMetadata requestedMeta : this.requested) {
+            requestedPreds.add(getRequestedSetPredicate(requestedMeta, root, query, critBuilder));
+        }
+
+        return critBuilder.and(candidatesPred, critBuilder.or(requestedPreds.toArray(new Predicate[0])));
+    }
+
+    /**
+     * creates the predicate for a single requested metadata set, 
+     * i.e. all of its items are required to be contained in the metadata set
+     */
+    @SuppressWarnings("PMD.OptimizableToArrayCall")
+    private Predicate getRequestedSetPredicate(final SimpleMetadata requestedMeta, final Root<Metadata> root, final CriteriaQuery<?> query,
+            final CriteriaBuilder critBuilder) {
+
+        final List<Predicate> predicates = new ArrayList<>();
+
+        for (final Map.Entry<String, String> entry : requestedMeta.entrySet()) {
+
+            final String key = entry.getKey();
+            final String value = entry.getValue();
+
+            if (SYSTEM_ID.equals(key)) {
+                predicates.add(critBuilder.equal(root.get(SYSTEM_ID), value));
+            } else if (Metadata.PROP_RESPONSE_STATUS.equals(key)) {
+                predicates.add(getResponseStatusPredicate(value, root, critBuilder));
+            } else if (VERSION.equals(key)) {
+                if (!StringUtils.isEmpty(value)) {
+                    predicates.add(getVersionPredicate(value, root, critBuilder));
+                }
+            } else {
+                predicates.add(getKeyValuePredicate(key, value, root, query, critBuilder));
+            }
+        }
+
+        return critBuilder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    private Predicate getResponseStatusPredicate(final String value, final Root<Metadata> root, final CriteriaBuilder critBuilder) {
+
+        try {
+            return critBuilder.equal(root.get("responseStatus"), ResponseStatus.valueOf(value));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            LOG.debug("Invalid response status requested; no metadata set can match");
+            return critBuilder.disjunction();
+        }
+    }
+
+    private Predicate getVersionPredicate(final String version, final Root<Metadata> root, final CriteriaBuilder critBuilder) {
+
+        if (version.startsWith(VERSION_SEARCH_UP_TO)) {
+            return critBuilder.lessThanOrEqualTo(root.get(VERSION), version.substring(VERSION_SEARCH_UP_TO.length()));
+        }
+        return critBuilder.equal(root.get(VERSION), version);
+    }
+
+    /**
+     * creates a predicate requiring a metadata set to have a certain key/value pair
+     * (i.e. its ID is in the list of metadata sets having this pair, which is resolved using the index of the key/value table)
+     * 
+     * @param key the required key
+     * @param value the required value
+     * @param root the metadata set to be checked
+     * 
+     * @return {@link Predicate} 
+     */
+    static Predicate getKeyValuePredicate(final String key, final String value, final Root<Metadata> root, final CriteriaQuery<?> query,
+            final CriteriaBuilder critBuilder) {
+
+        if (!Metadata.isStorableInKeyValueTable(key, value) || value == null) {
+            // cannot be contained in the key/value table
+            return critBuilder.disjunction();
+        }
+
+        final Subquery<Long> subquery = query.subquery(Long.class);
+        final Root<Metadata> subRoot = subquery.from(Metadata.class);
+        final MapJoin<Metadata, String, String> items = subRoot.joinMap(KEY_VALUE_ITEMS);
+
+        // note: Oracle stores empty strings as NULL
+        final Predicate valuePred = value.isEmpty()
+                ? critBuilder.or(critBuilder.isNull(items.value()), critBuilder.equal(items.value(), value))
+                : critBuilder.equal(items.value(), value);
+
+        subquery.select(subRoot.get("id")).where(critBuilder.equal(items.key(), key), valuePred);
+        return root.get("id").in(subquery);
+    }
+}
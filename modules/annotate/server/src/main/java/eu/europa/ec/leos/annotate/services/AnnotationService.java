@@ -77,6 +77,17 @@ public interface AnnotationService {
      */
     Annotation findAnnotationById(String annotId);
 
+    /**
+     * simple function that just looks up an annotation based on its ID WITHOUT permission checks, whatever its status
+     * to be used only from tests or from services layer
+     *  
+     * @param annotId
+     *        the ID of the wanted annotation
+     *        
+     * @return returns the found annotation object (which may be deleted), or {@literal null}
+     */
+    Annotation findAnnotationByIdInAnyStatus(String annotId);
+
     /**
      * look up an annotation based on its ID, taking permissions into account
      * 
@@ -18,6 +18,7 @@ import eu.europa.ec.leos.annotate.model.entity.Annotation;
 import eu.europa.ec.leos.annotate.model.entity.Document;
 import eu.europa.ec.leos.annotate.model.entity.Group;
 import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import org.springframework.data.jpa.domain.Specification;
 
 import javax.annotation.Nonnull;
 
@@ -130,6 +131,20 @@ public interface MetadataMatchingService {
      */
     List<Long> getIdsOfMatchingMetadatas(List<Metadata> candidates, SimpleMetadata requested);
 
+    /**
+     * find the {@link Metadata} objects fulfilling a given specification and containing the requested items;
+     * contrary to {@link #getIdsOfMatchingMetadatas(List, SimpleMetadata)}, the candidates are not loaded beforehand, 
+     * but selected and matched in a single database query whenever the requested items allow it
+     *  
+     * @param candidates 
+     *        specification of the candidate {@link Metadata} items
+     * @param requested
+     *        requested set of metadata that must match at least; may be {@literal null}
+     * 
+     * @return {@literal null} if no candidate matches; list of IDs of the matching candidates otherwise 
+     */
+    List<Long> findIdsOfMatchingMetadatas(Specification<Metadata> candidates, SimpleMetadata requested);
+
     /**
      * determines the current highest response version assigned to an annotation' ISC procedure
      * 
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.services.impl;
+
+import eu.europa.ec.leos.annotate.model.CacheStatistics;
+import eu.europa.ec.leos.annotate.model.entity.Document;
+import eu.europa.ec.leos.annotate.model.entity.Group;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Cache for temporarily storing the number of annotations of a document, as requested for each document badge by ISC
+ * Cached counts expire after a short lifetime; the counts of a document are removed from the cache
+ * whenever one of its annotations is notified as being changed
+ */
+@Component
+public class AnnotationCountCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final ExpiringCache<CountKey, Integer> counts;
+
+    // -------------------------------------
+    // Constructors
+    // -------------------------------------
+
+    // constructor e.g. used for testing
+    public AnnotationCountCache(final long lifetimeSeconds) {
+        this(lifetimeSeconds, DEFAULT_MAX_ENTRIES);
+    }
+
+    @Autowired
+    public AnnotationCountCache(@Value("${annotation.count.cache.seconds:30}") final long lifetimeSeconds,
+            @Value("${annotation.count.cache.maxEntries:10000}") final int maxEntries) {
+
+        this.counts = new ExpiringCache<CountKey, Integer>("annotationCounts", lifetimeSeconds, 0, maxEntries, null);
+    }
+
+    // -------------------------------------
+    // Service functionality
+    // -------------------------------------
+
+    /**
+     * compute the cache key for given counting options
+     * 
+     * @param document the document whose annotations are counted
+     * @param group the group in which the annotations are counted
+     * @param metadatasets the metadata sets requested, as given by the client
+     * @param login optional login of the user, if the count depends on the user's group memberships
+     *        (i.e. counts in the default group, which cover all groups of the user)
+     * @return cache key
+     */
+    public static CountKey getKey(final Document document, final Group group, final String metadatasets, final String login) {
+        return new CountKey(document.getId(), group.getId(), metadatasets, login);
+    }
+
+    public boolean isEnabled() {
+        return counts.isEnabled();
+    }
+
+    /**
+     * retrieve a count previously cached and not yet expired
+     * 
+     * @param key the key computed by {@link #getKey(Document, Group, String, String)}
+     * @return cached count, or {@literal null}
+     */
+    public Integer getCachedCount(final CountKey key) {
+        return counts.get(key);
+    }
+
+    /**
+     * add a count to the cache
+     * 
+     * @param key the key computed by {@link #getKey(Document, Group, String, String)}
+     * @param count the number of annotations
+     */
+    public void cache(final CountKey key, final int count) {
+        counts.put(key, count);
+    }
+
+    /**
+     * remove the cached counts affected by a change of an annotation, i.e. the counts of its document in its group
+     * and the counts of its document covering all groups of a user
+     * 
+     * @param documentId the ID of the annotation's document
+     * @param groupId the ID of the annotation's group
+     */
+    public void invalidate(final long documentId, final long groupId) {
+        counts.invalidateIf(key -> key.documentId == documentId && (key.groupId == groupId || key.login != null));
+    }
+
+    /**
+     * clean the cache
+     */
+    public void clear() {
+        counts.clear();
+    }
+
+    /**
+     * report the number of cached items
+     * 
+     * @return number of cached items
+     */
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * @return usage statistics of the cached counts
+     */
+    public CacheStatistics getStatistics() {
+        return counts.getStatistics();
+    }
+
+    /**
+     * key of a cached count: document, group, requested metadata sets and optionally the user
+     */
+    public static final class CountKey {
+
+        private final long documentId;
+        private final long groupId;
+        private final String metadatasets;
+        private final String login;
+
+        private CountKey(final long documentId, final long groupId, final String metadatasets, final String login) {
+            this.documentId = documentId;
+            this.groupId = groupId;
+            this.metadatasets = metadatasets;
+            this.login = login;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final CountKey other = (CountKey) obj;
+            return documentId == other.documentId && groupId == other.groupId &&
+                    Objects.equals(metadatasets, other.metadatasets) && Objects.equals(login, other.login);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentId, groupId, metadatasets, login);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import eu.europa.ec.leos.annotate.model.web.annotation.JsonAnnotation;
 import eu.europa.ec.leos.annotate.model.web.annotation.JsonAnnotationPermissions;
 import eu.europa.ec.leos.annotate.repository.AnnotationRepository;
 import eu.europa.ec.leos.annotate.repository.impl.AnnotationByIdSearchSpec;
+import eu.europa.ec.leos.annotate.repository.impl.AnnotationPostFilterSearchSpec;
 import eu.europa.ec.leos.annotate.repository.impl.AnnotationReplySearchSpec;
 import eu.europa.ec.leos.annotate.services.*;
 import eu.europa.ec.leos.annotate.services.exceptions.*;
@@ -36,6 +37,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -97,6 +99,9 @@ public class AnnotationServiceImpl implements AnnotationService {
     @Autowired
     private SearchModelFactory searchModelFactory;
 
+    @Autowired
+    private AnnotationCountCache countCache;
+
     // -------------------------------------
     // Constructors
     // -------------------------------------
@@ -124,6 +129,15 @@ public class AnnotationServiceImpl implements AnnotationService {
         return annotRepos.findByIdAndStatus(annotId, AnnotationStatus.NORMAL);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Annotation findAnnotationByIdInAnyStatus(final String annotId) {
+
+        return annotRepos.findOne(annotId);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -801,15 +815,7 @@ public class AnnotationServiceImpl implements AnnotationService {
         final Pageable pageable = new OffsetBasedPageRequest(options.getItemOffset(), options.getItemLimit(), options.getSort());
 
         try {
-            // wrap up all available information in order to retrieve matching search model
-            final ResolvedSearchOptions rso = new ResolvedSearchOptions();
-            rso.setDocument(doc);
-            rso.setGroup(group);
-            rso.setExecutingUserToken(userInfo.getCurrentToken());
-            rso.setExecutingUser(executingUser);
-            rso.setFilterUser(user);
-            rso.setMetadataWithStatusesList(options.getMetadataMapsWithStatusesList());
-            rso.setUserIsMemberOfGroup(groupService.isUserMemberOfGroup(executingUser, group));
+            final ResolvedSearchOptions rso = resolveSearchOptions(options, doc, group, executingUser, user, userInfo);
 
             return executeSearch(rso, pageable);
 
@@ -819,6 +825,37 @@ public class AnnotationServiceImpl implements AnnotationService {
         }
     }
 
+    /**
+     * wrap up all available information in order to retrieve matching search model
+     * 
+     * @param options 
+     *        {@link AnnotationSearchOptions} containing the requested metadata sets
+     * @param doc 
+     *        the {@link Document} searched in
+     * @param group 
+     *        the {@link Group} searched in
+     * @param executingUser 
+     *        the {@link User} running the search
+     * @param filterUser 
+     *        optional {@link User} whose annotations are wanted
+     * @param userInfo 
+     *        {@link UserInformation} containing the user's token
+     * @return filled {@link ResolvedSearchOptions}
+     */
+    private ResolvedSearchOptions resolveSearchOptions(final AnnotationSearchOptions options, final Document doc, final Group group,
+            final User executingUser, final User filterUser, final UserInformation userInfo) {
+
+        final ResolvedSearchOptions rso = new ResolvedSearchOptions();
+        rso.setDocument(doc);
+        rso.setGroup(group);
+        rso.setExecutingUserToken(userInfo.getCurrentToken());
+        rso.setExecutingUser(executingUser);
+        rso.setFilterUser(filterUser);
+        rso.setMetadataWithStatusesList(options.getMetadataMapsWithStatusesList());
+        rso.setUserIsMemberOfGroup(groupService.isUserMemberOfGroup(executingUser, group));
+        return rso;
+    }
+
     /**
      * determine the {@link User} running the search - and check if he is member of the requested group at all
      * 
@@ -867,8 +904,10 @@ public class AnnotationServiceImpl implements AnnotationService {
 
         // search
         Page<Annotation> resultPage;
-        if (searchModel.isHasPostFiltering()) {
+        final Specification<Annotation> filteredSpec = getFilteredSearchSpecification(searchModel, rso);
+        if (filteredSpec == null) {
 
+            // the post-filtering can only be done on the loaded items
             // note: if the post-filtering removes some items, paging is torpedoed - a single page request would return less items
             // therefore, we apply the page only after the post-filtering took place
             final List<Annotation> rawData = annotRepos.findAll(searchModel.getSearchSpecification());
@@ -894,8 +933,8 @@ public class AnnotationServiceImpl implements AnnotationService {
             }
         } else {
 
-            // hand over the desired pageable directly
-            resultPage = annotRepos.findAll(searchModel.getSearchSpecification(), pageable);
+            // filtering is done by the DB, so hand over the desired pageable directly
+            resultPage = annotRepos.findAll(filteredSpec, pageable);
             result.setItems(resultPage.getContent());
             result.setTotalItems(resultPage.getTotalElements());
         }
@@ -903,6 +942,42 @@ public class AnnotationServiceImpl implements AnnotationService {
         return result;
     }
 
+    /**
+     * provide the search specification of a search model completed by its post-filtering and the deleted history items to be added,
+     * so that the database can do filtering and paging without all found items being loaded
+     * 
+     * @param searchModel
+     *        the search model used
+     * @param rso
+     *        search parameters
+     * @return {@link Specification}, or {@literal null} if the post-filtering of the search model can only be done on the loaded items
+     */
+    private Specification<Annotation> getFilteredSearchSpecification(final SearchModel searchModel, final ResolvedSearchOptions rso) {
+
+        final Specification<Annotation> searchSpec = searchModel.getSearchSpecification();
+        if (!searchModel.isHasPostFiltering()) {
+            return searchSpec;
+        }
+
+        // the post-filtering depends on the metadata of the found items only; these are few compared to the items
+        final List<Metadata> metadataOfFoundItems = annotRepos.findMetadataOfMatches(searchSpec);
+        if (metadataOfFoundItems.isEmpty()) {
+            // nothing found, so there is nothing to be filtered or to be added
+            return searchSpec;
+        }
+
+        final Specification<Annotation> postFilterSpec = searchModel.getPostFilterSpecification(metadataOfFoundItems);
+        if (postFilterSpec == null) {
+            return null;
+        }
+
+        List<String> historicalIds = null;
+        if (searchModel.isAddDeletedHistoryItems()) {
+            historicalIds = addDeletedHistoryItems(searchModel, rso).stream().map(Annotation::getId).collect(Collectors.toList());
+        }
+        return new AnnotationPostFilterSearchSpec(searchSpec, postFilterSpec, historicalIds);
+    }
+
     /**
      * add annotations that were already soft-deleted (and are sentDeleted), e.g. when considering historical response versions in ISC
      * 
@@ -1137,12 +1212,65 @@ public class AnnotationServiceImpl implements AnnotationService {
             throwIfNonIscRequested(metadataHelp, searchOptions.getMetadataMapsWithStatusesList());
         }
 
-        // 3) finally search
-        final AnnotationSearchResult asr = searchAnnotations(searchOptions, userInfo);
+        // 3) counts are requested for each document badge, so recent counts are served from cache
+        // note: in the default group, the search model considers all groups of the user, so the count depends on the user
+        final AnnotationCountCache.CountKey cacheKey = AnnotationCountCache.getKey(doc, group, options.getMetadatasets(),
+                groupService.getDefaultGroupName().equals(group.getName()) ? executingUser.getLogin() : null);
+        final Integer cachedCount = countCache.getCachedCount(cacheKey);
+        if (cachedCount != null) {
+            return cachedCount;
+        }
+
+        // 4) finally count, using the search model of the "real search"
+        final int count;
+        try {
+            count = countAnnotations(resolveSearchOptions(searchOptions, doc, group, executingUser, null, userInfo));
+        } catch (Exception ex) {
+            LOG.error("Counting in annotation repository produced unexpected error!");
+            throw ex;
+        }
+        countCache.cache(cacheKey, count);
+        return count;
+    }
+
+    /**
+     * count the annotations found by the search model matching given options, without highlights and private items
+     * 
+     * @param rso 
+     *        {@link ResolvedSearchOptions} containing all query parameters
+     * 
+     * @return number of shared annotations, without highlights
+     */
+    private int countAnnotations(final ResolvedSearchOptions rso) {
+
+        final SearchModel searchModel = searchModelFactory.getSearchModel(rso);
+        if (searchModel == null) {
+            LOG.warn("No suitable search model found or no matching DB content found");
+            return 0;
+        }
+
+        final Specification<Annotation> filteredSpec = getFilteredSearchSpecification(searchModel, rso);
+        if (filteredSpec != null) {
+            // the specification covers everything: let the database count
+            return (int) annotRepos.countSharedWithoutHighlights(filteredSpec);
+        }
+
+        // post-filtering requires the items, just like searching (see executeSearch) - but no paging is needed for counting
+        final List<Annotation> rawData = annotRepos.findAll(searchModel.getSearchSpecification());
+        if (rawData.isEmpty()) {
+            return 0;
+        }
+
+        final List<Annotation> filtered = searchModel.postFilterSearchResults(rawData);
+        if (searchModel.isAddDeletedHistoryItems()) {
+            final List<Annotation> historicalItems = addDeletedHistoryItems(searchModel, rso);
+            if (!CollectionUtils.isEmpty(historicalItems)) {
+                filtered.addAll(historicalItems);
+            }
+        }
 
-        // 4) post-filtering: we remove all highlights and all private items
-        final List<Annotation> withoutHighlight = asr.getItems().stream().filter(ann -> !isHighlight(ann) && ann.isShared()).collect(Collectors.toList());
-        return withoutHighlight.size();
+        // we remove all highlights and all private items; historical items might have been found already
+        return (int) filtered.stream().filter(ann -> !isHighlight(ann) && ann.isShared()).map(Annotation::getId).distinct().count();
     }
 
     /**
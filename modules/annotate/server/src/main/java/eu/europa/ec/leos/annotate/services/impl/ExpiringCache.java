@@ -0,0 +1,363 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.services.impl;
+
+import eu.europa.ec.leos.annotate.model.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Thread-safe cache whose entries expire after a given lifetime, used as basis of our caches
+ * - the number of entries is bounded; when full, expired entries and then the oldest entries are evicted
+ *   (a tenth of the capacity at once, so that the following additions do not need to go over all entries again)
+ * - when an executor is given, entries being used after a certain age are reloaded in the background,
+ *   so that frequently used entries do not expire
+ * - hits, misses and loading times are recorded
+ * - a value whose key is invalidated while it is being loaded is not cached, so that outdated data is not put back
+ * 
+ * {@literal null} values are not cached.
+ */
+public class ExpiringCache<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpiringCache.class);
+
+    // part of the capacity evicted at once when the cache is full
+    private static final int EVICTION_BATCH_DIVISOR = 10;
+
+    // number of generation counters the keys are spread over (power of two)
+    private static final int GENERATION_STRIPES = 64;
+
+    private final String name;
+    private final long lifetimeMillis;
+    private final long refreshAfterMillis;
+    private final int maxEntries;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    private final Map<K, CachedValue<V>> entries = new ConcurrentHashMap<K, CachedValue<V>>();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    // generation counters bumped when keys are invalidated; a key uses the counter of its hash stripe,
+    // so keys sharing a stripe at worst skip caching a value loaded during the other key's invalidation
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // invalidations (write lock) must not interleave with checking the generation and storing a loaded value (read lock)
+    private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // -------------------------------------
+    // Constructor
+    // -------------------------------------
+
+    /**
+     * @param name name of the cache, used for logging
+     * @param lifetimeSeconds time in seconds after which an entry expires; 0 disables the cache
+     * @param refreshAfterSeconds age in seconds after which a used entry is reloaded in the background; 0 disables refreshing
+     * @param maxEntries maximum number of entries
+     * @param refreshExecutor executor running the background reloads; may be {@literal null} if refreshing is disabled
+     */
+    public ExpiringCache(final String name, final long lifetimeSeconds, final long refreshAfterSeconds, final int maxEntries,
+            final Executor refreshExecutor) {
+
+        this(name, lifetimeSeconds, refreshAfterSeconds, maxEntries, refreshExecutor, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock clock giving the current time, e.g. a fixed or adjustable one for testing
+     * @see #ExpiringCache(String, long, long, int, Executor)
+     */
+    public ExpiringCache(final String name, final long lifetimeSeconds, final long refreshAfterSeconds, final int maxEntries,
+            final Executor refreshExecutor, final Clock clock) {
+
+        this.name = name;
+        this.lifetimeMillis = TimeUnit.SECONDS.toMillis(Math.max(lifetimeSeconds, 0));
+        this.refreshAfterMillis = TimeUnit.SECONDS.toMillis(Math.max(refreshAfterSeconds, 0));
+        this.maxEntries = maxEntries;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    // -------------------------------------
+    // Cache functionality
+    // -------------------------------------
+
+    public boolean isEnabled() {
+        return lifetimeMillis > 0 && maxEntries > 0;
+    }
+
+    /**
+     * retrieve a cached value that is not yet expired
+     * 
+     * @param key the cache key
+     * @return cached value, or {@literal null}
+     */
+    public V get(final K key) {
+
+        final CachedValue<V> cached = getValid(key, clock.millis());
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.getValue();
+    }
+
+    /**
+     * retrieve a cached value; if there is none, it is loaded and cached
+     * if the cached value is due for being refreshed, it is returned and reloaded in the background
+     * 
+     * @param key the cache key
+     * @param loader function loading the value for a key; may return {@literal null}
+     * @return cached or loaded value, may be {@literal null}
+     */
+    public V get(final K key, final Function<K, V> loader) {
+
+        final long now = clock.millis();
+        final CachedValue<V> cached = getValid(key, now);
+        if (cached == null) {
+            misses.increment();
+            return load(key, loader);
+        }
+
+        hits.increment();
+        if (refreshAfterMillis > 0 && now - cached.getLoaded() >= refreshAfterMillis) {
+            refreshInBackground(key, loader);
+        }
+        return cached.getValue();
+    }
+
+    /**
+     * add a value to the cache
+     * 
+     * @param key the cache key
+     * @param value the value to be cached; {@literal null} is ignored
+     */
+    public void put(final K key, final V value) {
+
+        if (!isEnabled() || key == null || value == null) {
+            return;
+        }
+
+        final long now = clock.millis();
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            makeRoom(now);
+        }
+        entries.put(key, new CachedValue<V>(value, now, now + lifetimeMillis));
+    }
+
+    /**
+     * remove the entry of a given key
+     */
+    public void invalidate(final K key) {
+
+        invalidationLock.writeLock().lock();
+        try {
+            generations.incrementAndGet(stripeOf(key));
+            entries.remove(key);
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * remove all entries whose keys match a given condition
+     */
+    public void invalidateIf(final Predicate<K> keyCondition) {
+
+        invalidationLock.writeLock().lock();
+        try {
+            nextGenerationOfAllKeys(); // keys being loaded are not known yet
+            entries.keySet().removeIf(keyCondition);
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * clean the cache
+     */
+    public void clear() {
+
+        invalidationLock.writeLock().lock();
+        try {
+            nextGenerationOfAllKeys();
+            entries.clear();
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * report the number of cached items (including expired items not yet removed)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return snapshot of the usage statistics of the cache
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(entries.size(), hits.sum(), misses.sum(), loads.sum(),
+                TimeUnit.NANOSECONDS.toMillis(loadTimeNanos.sum()), evictions.sum());
+    }
+
+    // -------------------------------------
+    // Internal functionality
+    // -------------------------------------
+
+    private CachedValue<V> getValid(final K key, final long now) {
+
+        if (key == null) {
+            return null;
+        }
+        final CachedValue<V> cached = entries.get(key);
+        if (cached != null && cached.isExpired(now)) {
+            entries.remove(key, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private V load(final K key, final Function<K, V> loader) {
+
+        final long generation = generations.get(stripeOf(key));
+        final long start = System.nanoTime();
+        try {
+            final V value = loader.apply(key);
+            putIfNotInvalidated(key, value, generation);
+            return value;
+        } finally {
+            loads.increment();
+            loadTimeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    // store a loaded value unless its key was invalidated since the loading started
+    private void putIfNotInvalidated(final K key, final V value, final long generation) {
+
+        invalidationLock.readLock().lock();
+        try {
+            if (generations.get(stripeOf(key)) == generation) {
+                put(key, value);
+            } else {
+                LOG.debug("Value loaded for cache '{}' discarded, its key was invalidated meanwhile", name);
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+    }
+
+    private int stripeOf(final K key) {
+        final int hash = key == null ? 0 : key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private void nextGenerationOfAllKeys() {
+        for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void refreshInBackground(final K key, final Function<K, V> loader) {
+
+        if (refreshExecutor == null || !refreshing.add(key)) {
+            return; // no refreshing or already being refreshed
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader); // note: in case nothing is found, the current value is kept until it expires
+                } catch (RuntimeException e) {
+                    LOG.warn("Refreshing entry of cache '{}' failed: {}", name, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Refreshing entry of cache '{}' postponed, too many pending refreshes", name);
+            refreshing.remove(key);
+        }
+    }
+
+    // remove expired entries first; if this is not sufficient, a batch of the oldest entries is evicted
+    private void makeRoom(final long now) {
+
+        entries.values().removeIf(cached -> cached.isExpired(now));
+        final int excess = entries.size() - maxEntries;
+        if (excess < 0) {
+            return;
+        }
+
+        final List<K> oldest = entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().getLoaded()))
+                .limit(excess + Math.max(1, maxEntries / EVICTION_BATCH_DIVISOR))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        for (final K key : oldest) {
+            if (entries.remove(key) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static class CachedValue<V> {
+
+        private final V value;
+        private final long loaded;
+        private final long expiry;
+
+        public CachedValue(final V value, final long loaded, final long expiry) {
+            this.value = value;
+            this.loaded = loaded;
+            this.expiry = expiry;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getLoaded() {
+            return loaded;
+        }
+
+        public boolean isExpired(final long now) {
+            return expiry < now;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.services.impl;
+
+import eu.europa.ec.leos.annotate.model.CacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.LongFunction;
+
+/**
+ * Cache for temporarily storing the group memberships of users, which are checked several times per search
+ * Cached memberships expire after a short lifetime; the memberships of a user are removed from the cache
+ * when the user is assigned to or removed from a group
+ */
+@Component
+public class GroupMembershipCache {
+
+    // cached membership flags, key: "userId/groupId"
+    private final ExpiringCache<String, Boolean> memberships;
+
+    // cached IDs of the groups of a user, key: user ID
+    private final ExpiringCache<Long, List<Long>> groupIdsOfUsers;
+
+    // -------------------------------------
+    // Constructors
+    // -------------------------------------
+    public GroupMembershipCache() {
+        // without configuration (e.g. for tests with mocked repositories), nothing is cached
+        this(0, 0);
+    }
+
+    @Autowired
+    public GroupMembershipCache(@Value("${group.membership.cache.seconds:60}") final long lifetimeSeconds,
+            @Value("${group.membership.cache.maxEntries:10000}") final int maxEntries) {
+
+        this.memberships = new ExpiringCache<String, Boolean>("groupMemberships", lifetimeSeconds, 0, maxEntries, null);
+        this.groupIdsOfUsers = new ExpiringCache<Long, List<Long>>("groupsOfUsers", lifetimeSeconds, 0, maxEntries, null);
+    }
+
+    // -------------------------------------
+    // Service functionality
+    // -------------------------------------
+
+    /**
+     * check if a user is member of a group; the membership is retrieved and cached if not cached yet
+     * 
+     * @param userId the user's ID
+     * @param groupId the group's ID
+     * @param loader function checking the membership (e.g. in the database)
+     * @return flag indicating if user is member of the group
+     */
+    public boolean isUserMemberOfGroup(final long userId, final long groupId, final BiPredicate<Long, Long> loader) {
+
+        return memberships.get(getKey(userId, groupId), key -> loader.test(userId, groupId));
+    }
+
+    /**
+     * retrieve the IDs of the groups of a user; the IDs are retrieved and cached if not cached yet
+     * 
+     * @param userId the user's ID
+     * @param loader function retrieving the group IDs (e.g. from the database); may return {@literal null}
+     * @return list of group IDs (which may be modified by the caller), or {@literal null}
+     */
+    public List<Long> getGroupIdsOfUser(final long userId, final LongFunction<List<Long>> loader) {
+
+        final List<Long> groupIds = groupIdsOfUsers.get(userId, key -> loader.apply(key));
+        return groupIds == null ? null : new ArrayList<Long>(groupIds);
+    }
+
+    /**
+     * remove all cached memberships of a user, e.g. since the user was assigned to a group
+     * 
+     * @param userId the user's ID
+     */
+    public void invalidateUser(final long userId) {
+
+        final String keyPrefix = userId + "/";
+        memberships.invalidateIf(key -> key.startsWith(keyPrefix));
+        groupIdsOfUsers.invalidate(userId);
+    }
+
+    /**
+     * clean the cache
+     */
+    public void clear() {
+        memberships.clear();
+        groupIdsOfUsers.clear();
+    }
+
+    /**
+     * @return usage statistics of the membership flags
+     */
+    public CacheStatistics getMembershipStatistics() {
+        return memberships.getStatistics();
+    }
+
+    /**
+     * @return usage statistics of the group IDs of users
+     */
+    public CacheStatistics getGroupsOfUserStatistics() {
+        return groupIdsOfUsers.getStatistics();
+    }
+
+    private static String getKey(final long userId, final long groupId) {
+        return userId + "/" + groupId;
+    }
+}
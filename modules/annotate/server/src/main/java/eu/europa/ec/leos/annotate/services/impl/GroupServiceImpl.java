@@ -60,6 +60,9 @@ public class GroupServiceImpl implements GroupService {
     @Autowired
     private UserGroupRepository userGroupRepos;
 
+    @Autowired
+    private GroupMembershipCache membershipCache;
+
     // -------------------------------------
     // Service functionality
     // -------------------------------------
@@ -214,6 +217,7 @@ public class GroupServiceImpl implements GroupService {
         final long groupId = group.getId();
         final UserGroup foundUserGroup = new UserGroup(userId, groupId);
         userGroupRepos.save(foundUserGroup);
+        membershipCache.invalidateUser(userId);
         LOG.info("Saved user '{}' (id {}) as member of group '{}' (id {})", user.getLogin(), userId, group.getName(), groupId);
 
         return true;
@@ -243,6 +247,7 @@ public class GroupServiceImpl implements GroupService {
         final long userId = user.getId();
         final long groupId = group.getId();
         userGroupRepos.deleteByUserIdAndGroupId(userId, groupId);
+        membershipCache.invalidateUser(userId);
         LOG.info("Removed user '{}' (id {}) as member of group '{}' (id {})", user.getLogin(), userId, group.getName(), groupId);
 
         return true;
@@ -278,9 +283,10 @@ public class GroupServiceImpl implements GroupService {
         Assert.notNull(user, "Cannot check if user is group member when no user is given");
         Assert.notNull(group, "Cannot check if user is group member when no group is given");
 
-        final UserGroup membership = userGroupRepos.findByUserIdAndGroupId(user.getId(), group.getId());
-        LOG.debug("User '{}' (id {}) is member of group '{}' (id {}): {}", user.getLogin(), user.getId(), group.getName(), group.getId(), membership != null);
-        return membership != null;
+        final boolean isMember = membershipCache.isUserMemberOfGroup(user.getId(), group.getId(),
+                (userId, groupId) -> userGroupRepos.findByUserIdAndGroupId(userId, groupId) != null);
+        LOG.debug("User '{}' (id {}) is member of group '{}' (id {}): {}", user.getLogin(), user.getId(), group.getName(), group.getId(), isMember);
+        return isMember;
     }
 
     /**
@@ -296,15 +302,15 @@ public class GroupServiceImpl implements GroupService {
 
         Assert.notNull(user, "Cannot search for groups of undefined User (null)");
 
-        final List<UserGroup> foundUserGroups = userGroupRepos.findByUserId(user.getId());
-        LOG.debug("Found {} groups in which user '{}' is member", foundUserGroups == null ? 0 : foundUserGroups.size(), user.getLogin());
+        final List<Long> foundGroupIds = membershipCache.getGroupIdsOfUser(user.getId(), this::findGroupIdsOfUser);
+        LOG.debug("Found {} groups in which user '{}' is member", foundGroupIds == null ? 0 : foundGroupIds.size(), user.getLogin());
 
-        if (foundUserGroups == null) {
+        if (foundGroupIds == null) {
             return null;
         }
 
-        // extract groupIds of found assignments and get corresponding groups
-        return groupRepos.findByIdIn(foundUserGroups.stream().map(usergroup -> usergroup.getGroupId()).collect(Collectors.toList()));
+        // get the groups corresponding to the groupIds of found assignments
+        return groupRepos.findByIdIn(foundGroupIds);
     }
 
     /**
@@ -321,7 +327,18 @@ public class GroupServiceImpl implements GroupService {
             return null;
         }
 
-        final List<UserGroup> userGroups = userGroupRepos.findByUserId(user.getId());
+        return membershipCache.getGroupIdsOfUser(user.getId(), this::findGroupIdsOfUser);
+    }
+
+    /**
+     * retrieve the IDs of the groups a user is member of from the database
+     * 
+     * @param userId the ID of the user whose groups are wanted
+     * @return list of group IDs, or {@literal null}
+     */
+    private List<Long> findGroupIdsOfUser(final long userId) {
+
+        final List<UserGroup> userGroups = userGroupRepos.findByUserId(userId);
         if (userGroups == null) return null;
 
         // extract the groupIds
@@ -22,6 +22,8 @@ import eu.europa.ec.leos.annotate.model.entity.Group;
 import eu.europa.ec.leos.annotate.model.entity.Metadata;
 import eu.europa.ec.leos.annotate.model.entity.Metadata.ResponseStatus;
 import eu.europa.ec.leos.annotate.repository.MetadataRepository;
+import eu.europa.ec.leos.annotate.repository.impl.MetadataExactKeyValuesSearchSpec;
+import eu.europa.ec.leos.annotate.repository.impl.MetadataKeyValuesSearchSpec;
 import eu.europa.ec.leos.annotate.repository.impl.MetadataVersionUpToSearchSpec;
 import eu.europa.ec.leos.annotate.services.AnnotationService;
 import eu.europa.ec.leos.annotate.services.MetadataMatchingService;
@@ -29,6 +31,7 @@ import eu.europa.ec.leos.annotate.services.MetadataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -52,6 +55,12 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
 
     private static final String VERSION_SEARCH_UP_TO = "<=";
 
+    // below this number of candidates, matching the already loaded candidates is cheaper than querying the database
+    private static final int MIN_CANDIDATES_FOR_DB_MATCHING = 20;
+
+    // maximum number of IDs in a single IN clause (limitation of Oracle)
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private enum VersionSearchType {
         EQUALITY, UP_TO
     }
@@ -63,9 +72,6 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
     @Autowired
     private MetadataRepository metadataRepos;
 
-    @Autowired
-    private MetadataService metadataService;
-
     @Autowired
     private AnnotationService annotService;
 
@@ -175,6 +181,10 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
             return MetadataListHelper.getMetadataSetIds(candidates);
         }
 
+        if (candidates.size() >= MIN_CANDIDATES_FOR_DB_MATCHING && canBeMatchedInDb(requested)) {
+            return getIdsOfMatchingMetadatasFromDb(candidates, requested);
+        }
+
         final List<Metadata> semifilteredMetadata = new ArrayList<Metadata>();
         for (final SimpleMetadata requestedMeta : requested) {
 
@@ -187,6 +197,27 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
         return MetadataListHelper.getMetadataSetIds(semifilteredMetadata);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> findIdsOfMatchingMetadatas(final Specification<Metadata> candidates, final SimpleMetadata requested) {
+
+        // no restriction given -> all candidates match!
+        if (requested == null || requested.isEmpty()) {
+            return MetadataListHelper.getMetadataSetIds(metadataRepos.findAll(candidates));
+        }
+
+        final List<SimpleMetadata> requestedList = Arrays.asList(requested);
+        if (canBeMatchedInDb(requestedList)) {
+            // the candidates are selected and matched in the same query
+            return MetadataListHelper.getMetadataSetIds(metadataRepos.findAll(new MetadataKeyValuesSearchSpec(requestedList, candidates)));
+        }
+
+        // items not contained in the key/value table can only be matched on the loaded candidates
+        return getIdsOfMatchingMetadatas(metadataRepos.findAll(candidates), requestedList);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -215,7 +246,9 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
             return null;
         }
 
-        final List<Metadata> candidates = metadataService.findMetadataOfDocumentGroupSystemid(document, group, systemId);
+        // the database already sorts out all metadata sets not having the same key/value items
+        final List<Metadata> candidates = metadataRepos.findAll(
+                new MetadataExactKeyValuesSearchSpec(document, group, systemId, otherMetadataProps, Collections.emptyList()));
         if (candidates.isEmpty()) {
             LOG.debug("Did not find any metadata sets matching given document/group/systemId");
             return null;
@@ -260,7 +293,8 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
         }
         otherMetadataProps.remove(Metadata.PROP_RESPONSE_VERSION);
 
-        final List<Metadata> candidates = metadataService.findMetadataOfDocumentGroupSystemid(document, group, systemId);
+        final List<Metadata> candidates = metadataRepos.findAll(new MetadataExactKeyValuesSearchSpec(document, group, systemId,
+                otherMetadataProps, Arrays.asList(Metadata.PROP_RESPONSE_VERSION)));
         if (candidates.isEmpty()) {
             LOG.debug("Did not find any metadata sets matching given document/group/systemId");
             return null;
@@ -588,6 +622,39 @@ public class MetadataMatchingServiceImpl implements MetadataMatchingService {
         return filtered;
     }
 
+    /**
+     * check whether the requested metadata sets can be matched using the normalised key/value table
+     * (which does not contain items having empty keys or values, or exceeding the column lengths)
+     * 
+     * @param requested list of requested metadata sets
+     * @return {@literal true} if the sets do not contain such items
+     */
+    private boolean canBeMatchedInDb(final List<SimpleMetadata> requested) {
+
+        return requested.stream().allMatch(requestedMeta -> requestedMeta.entrySet().stream()
+                .allMatch(entry -> entry.getValue() != null && Metadata.isStorableInKeyValueTable(entry.getKey(), entry.getValue())));
+    }
+
+    /**
+     * determine the candidates containing all items of any of the requested metadata sets
+     * by querying the normalised key/value table
+     * 
+     * @param candidates list of candidate metadata sets
+     * @param requested list of requested metadata sets
+     * @return list of IDs of matching candidates; {@literal null} if there are none
+     */
+    private List<Long> getIdsOfMatchingMetadatasFromDb(final List<Metadata> candidates, final List<SimpleMetadata> requested) {
+
+        final List<Long> candidateIds = MetadataListHelper.getNonNullMetadataSetIds(candidates);
+        final List<Metadata> matches = new ArrayList<Metadata>();
+
+        for (int start = 0; start < candidateIds.size(); start += MAX_IDS_PER_QUERY) {
+            final List<Long> idsChunk = candidateIds.subList(start, Math.min(start + MAX_IDS_PER_QUERY, candidateIds.size()));
+            matches.addAll(metadataRepos.findAll(new MetadataKeyValuesSearchSpec(requested, idsChunk)));
+        }
+        return MetadataListHelper.getMetadataSetIds(matches);
+    }
+
     /**
      *  extract the type of version search by looking at the version string
      * 
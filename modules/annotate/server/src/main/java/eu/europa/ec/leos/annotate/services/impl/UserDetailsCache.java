@@ -13,37 +13,82 @@
  */
 package eu.europa.ec.leos.annotate.services.impl;
 
+import eu.europa.ec.leos.annotate.model.CacheStatistics;
 import eu.europa.ec.leos.annotate.model.UserDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PreDestroy;
+
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * Cache for temporarily storing user detail information to avoid unnecessarily repeating calls to
  *   the external UD-repo within a short time frame
- * The cache cleans itself during first access after a given time period  
+ * Each entry expires after a given lifetime; entries still being used before are reloaded in the background
  */
 @Component
 public class UserDetailsCache {
 
     private static final Logger LOG = LoggerFactory.getLogger(UserDetailsCache.class);
 
-    private final Map<String, UserDetails> udcache;
-    private LocalDateTime nextCacheCleanupTime; // time after which cache should be wiped
+    // default time in seconds after which cached user details expire
+    private final static long DEFAULT_LIFETIME_SECONDS = 600;
+
+    // default age in seconds after which used user details are reloaded in the background
+    private final static long DEFAULT_REFRESH_AFTER_SECONDS = 480;
+
+    // default maximum number of cached user details
+    private final static int DEFAULT_MAX_ENTRIES = 10000;
 
-    // time in minutes after which cache should be wiped
-    private final static int CLEANUP_TIME_MINUTES = 10;
+    private final ExpiringCache<String, UserDetails> udcache;
+    private final Executor refreshExecutor; // executor reloading entries in the background, null if disabled
+    private final Clock clock;
+    private volatile LocalDateTime nextCacheCleanupTime; // time after which cache should be wiped, if set
 
     // -------------------------------------
-    // Constructor
+    // Constructors
     // -------------------------------------
     public UserDetailsCache() {
-        this.udcache = new HashMap<String, UserDetails>();
+        // without configuration (e.g. when not created by Spring), entries are not reloaded in the background
+        this(DEFAULT_LIFETIME_SECONDS, 0, DEFAULT_MAX_ENTRIES);
+    }
+
+    @Autowired
+    public UserDetailsCache(@Value("${user.details.cache.seconds:600}") final long lifetimeSeconds,
+            @Value("${user.details.cache.refreshAfterSeconds:480}") final long refreshAfterSeconds,
+            @Value("${user.details.cache.maxEntries:10000}") final int maxEntries) {
+
+        this(lifetimeSeconds, refreshAfterSeconds, maxEntries, Clock.systemDefaultZone(),
+                refreshAfterSeconds > 0 ? refreshExecutor() : null);
+    }
+
+    // constructor e.g. used for testing
+    public UserDetailsCache(final long lifetimeSeconds, final long refreshAfterSeconds, final int maxEntries,
+            final Clock clock, final Executor refreshExecutor) {
+
+        this.udcache = new ExpiringCache<String, UserDetails>("userDetails", lifetimeSeconds, refreshAfterSeconds, maxEntries,
+                refreshExecutor, clock);
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * stop the threads reloading entries in the background
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) refreshExecutor).shutdown();
+        }
     }
 
     // -------------------------------------
@@ -52,7 +97,7 @@ public class UserDetailsCache {
 
     /**
      * retrieve a {@link UserDetails} object previously cached
-     * note: might initiate a cache clean, if necessary
+     * note: might initiate a cache clean, if scheduled
      * 
      * @param login the login serving as cache key
      * @return found UserDetails object, or null
@@ -64,19 +109,27 @@ public class UserDetailsCache {
             return null;
         }
 
-        if (nextCacheCleanupTime == null) {
-            // initially schedule the first cleanup
-            setNextCacheCleanupInterval();
+        cleanupIfScheduled();
+        return udcache.get(login);
+    }
 
-        } else if (nextCacheCleanupTime.isBefore(LocalDateTime.now())) {
+    /**
+     * retrieve a {@link UserDetails} object from the cache; if not cached yet, it is loaded and cached
+     * note: might initiate a cache clean, if scheduled
+     * 
+     * @param login the login serving as cache key
+     * @param loader function retrieving the user details of a login (e.g. from the UD-repo)
+     * @return found UserDetails object, or null
+     */
+    public UserDetails getUserDetails(final String login, final Function<String, UserDetails> loader) {
 
-            // time for cleaning the cache (we do not want it to grow forever)
-            LOG.debug("User details cache will be cleared now");
-            clear();
-            setNextCacheCleanupInterval();
+        if (StringUtils.isEmpty(login)) {
+            LOG.warn("Cannot cache user details based on empty login");
+            return loader.apply(login);
         }
 
-        return udcache.get(login);
+        cleanupIfScheduled();
+        return udcache.get(login, loader);
     }
 
     /**
@@ -117,7 +170,14 @@ public class UserDetailsCache {
     }
 
     /**
-     * set the next cleanup time to a certain timestamp
+     * @return usage statistics of the cache
+     */
+    public CacheStatistics getStatistics() {
+        return udcache.getStatistics();
+    }
+
+    /**
+     * schedule the cache to be wiped completely upon first access after a certain timestamp
      * 
      * @param nextTime date/time of next scheduled cleanup
      */
@@ -127,12 +187,27 @@ public class UserDetailsCache {
             nextCacheCleanupTime = nextTime;
         }
     }
+
     /**
-     *  schedule next time after which user details cache should be cleaned
+     *  wipe the cache if a scheduled cleanup time has passed
      */
-    private void setNextCacheCleanupInterval() {
+    private void cleanupIfScheduled() {
+
+        final LocalDateTime cleanupTime = nextCacheCleanupTime;
+        if (cleanupTime != null && cleanupTime.isBefore(LocalDateTime.now(clock))) {
+            LOG.debug("User details cache will be cleared now");
+            nextCacheCleanupTime = null;
+            clear();
+        }
+    }
 
-        nextCacheCleanupTime = LocalDateTime.now().plusMinutes(CLEANUP_TIME_MINUTES);
-        LOG.debug("Next user cache cleanup time scheduled for {}", nextCacheCleanupTime);
+    private static ThreadPoolTaskExecutor refreshExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("UserDetailsRefresh-");
+        executor.setCorePoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
     }
 }
@@ -458,8 +458,8 @@ public class UserServiceImpl implements UserService, UserServiceWithTestFunction
 
     /**
      * retrieve user details (email address, name, DG, display name, ...) from the external user repository (via REST
-     * interface) note: information is cached in order to avoid too many unnecessary calls; cache will be wiped after a
-     * few minutes
+     * interface) note: information is cached in order to avoid too many unnecessary calls; cached information expires after a
+     * few minutes, but is refreshed in the background when still being used
      *
      * @param login the login of the user for which details are required
      * @return {@link UserDetails} object containing all user properties
@@ -468,16 +468,21 @@ public class UserServiceImpl implements UserService, UserServiceWithTestFunction
     public UserDetails getUserDetailsFromUserRepo(final String login) {
 
         // check cache first - especially useful when returning search result with multiple annotations from save user!
-        final UserDetails cachedDetails = userDetailsCache.getCachedUserDetails(login);
-        if (cachedDetails != null) {
-            LOG.debug("User details for user '{}' still cached, use cached info", login);
-            return cachedDetails;
-        }
+        return userDetailsCache.getUserDetails(login, this::loadUserDetailsFromUserRepo);
+    }
+
+    /**
+     * retrieve user details from the external user repository (via REST interface), without caching
+     *
+     * @param login the login of the user for which details are required
+     * @return {@link UserDetails} object containing all user properties, or {@literal null}
+     */
+    private UserDetails loadUserDetailsFromUserRepo(final String login) {
 
         final Map<String, String> params = new ConcurrentHashMap<String, String>();
         params.put("userId", login);
 
-        // contact the ud-repo and cache the result
+        // contact the ud-repo
         try {
             LOG.debug("Searching for user '{}' in user repository", login);
             final UserDetails foundUser = restOperations.getForObject(repositoryUrl, UserDetails.class, params);
@@ -496,7 +501,6 @@ public class UserServiceImpl implements UserService, UserServiceWithTestFunction
                 }
             }
 
-            userDetailsCache.cache(login, foundUser);
             return foundUser;
         } catch (RestClientException e) {
             LOG.warn("Exception while getting user by login: {}", e.getMessage());
@@ -13,50 +13,99 @@
  */
 package eu.europa.ec.leos.annotate.websockets;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europa.ec.leos.annotate.Generated;
 import eu.europa.ec.leos.annotate.model.UserInformation;
 import eu.europa.ec.leos.annotate.model.entity.Annotation;
+import eu.europa.ec.leos.annotate.model.search.Consts;
 import eu.europa.ec.leos.annotate.model.web.annotation.JsonDeleteSuccessResponse;
 import eu.europa.ec.leos.annotate.model.web.websocket.*;
 import eu.europa.ec.leos.annotate.services.AnnotationConversionService;
 import eu.europa.ec.leos.annotate.services.AnnotationService;
+import eu.europa.ec.leos.annotate.services.impl.AnnotationCountCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Notifies the websocket subscribers about created, updated and deleted annotations.
+ * 
+ * Subscriptions are indexed by the document URIs of their filters; published messages are dispatched
+ * one after the other, in the order of their publication, to the subscriptions of the annotation's document.
+ * The annotation is loaded once per message and converted to JSON once per permission class of the subscribed users.
+ * Each session has a bounded queue of notifications, sent in order; when a client does not keep up,
+ * the configured {@link OverflowPolicy} applies. When the executor is busy, the work is done on the calling thread
+ * instead; notifications are only dropped when a client or the dispatching do not keep up, which is counted.
+ * Published changes also invalidate the cached annotation counts of the annotation's document.
+ */
 @Component
 public class MessageBroker {
     private static final Logger LOG = LoggerFactory.getLogger(MessageBroker.class);
-    private final AbstractQueue<Subscription> subscriptions = new ConcurrentLinkedQueue<>();
-    private final AbstractQueue<Message> pendingMessages = new ConcurrentLinkedQueue<>();
+    private static final int DEFAULT_SEND_QUEUE_CAPACITY = 100;
+    private static final int PENDING_MESSAGES_CAPACITY = 1000;
+
+    // subscriptions by document URI of their filter clauses
+    private final ConcurrentMap<String, Set<Subscription>> subscriptionsByUri = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WebSocketSession, Subscriber> subscribers = new ConcurrentHashMap<>();
     private final ThreadPoolTaskExecutor threadPoolTaskExecutor = messageExecutor();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // published messages, dispatched one after the other
+    private final BlockingQueue<Message> pendingMessages = new LinkedBlockingQueue<>(PENDING_MESSAGES_CAPACITY);
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    // overflow metrics
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder droppedNotifications = new LongAdder();
+    private final LongAdder closedSessions = new LongAdder();
 
     final private AnnotationService annotationService;
 
     final private AnnotationConversionService conversionService;
-    
+
+    final private AnnotationCountCache countCache;
+
+    @Value("${notification.sendQueue.capacity:100}")
+    private int sendQueueCapacity = DEFAULT_SEND_QUEUE_CAPACITY;
+
+    @Value("${notification.sendQueue.overflow:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
     @Autowired
-    public MessageBroker(final AnnotationService annotationService, final AnnotationConversionService conversionService) {
+    public MessageBroker(final AnnotationService annotationService, final AnnotationConversionService conversionService,
+            final AnnotationCountCache countCache) {
         this.annotationService = annotationService;
         this.conversionService = conversionService;
+        this.countCache = countCache;
     }
 
     public enum ACTION {
         CREATE, UPDATE, DELETE
     }
 
-//    @PostConstruct
-//    public void init() {
-//    }
+    /**
+     * behaviour when the notification queue of a session is full
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST, // discard the oldest queued notification
+        CLOSE        // close the session; the client reconnects and reloads its annotations
+    }
 
     public void subscribe(final SubscriptionRequest subscriptionRequest, final WebSocketSession subscriber, final UserInformation userInformation)
             throws IllegalArgumentException {
@@ -74,68 +123,190 @@ public class MessageBroker {
                 throw new IllegalArgumentException("No subscription supported for null url");
             }
         });
-        subscriptions.add(new Subscription(filter, subscriber, userInformation));
+
+        final Subscription subscription = new Subscription(filter, subscriber, userInformation);
+        subscribers.computeIfAbsent(subscriber, Subscriber::new).getSubscriptions().add(subscription);
+        for (final String uri : subscription.getUris()) {
+            subscriptionsByUri.computeIfAbsent(uri, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
     }
 
     public void unsubscribe(final String sessionId) {
-        for (final Subscription subs : subscriptions) {
-            if (subs.getSubscriber().getId().equals(sessionId)) {
-                subscriptions.remove(subs);
+        for (final Subscriber subscriber : subscribers.values()) {
+            if (subscriber.getSession().getId().equals(sessionId)) {
+                remove(subscriber);
             }
         }
     }
 
     public void publish(final String annotationId, final ACTION action, final String sender) {
         if (action != null && annotationId != null) {
-            pendingMessages.add(new Message(action, annotationId, sender));
+            invalidateCounts(annotationId);
+            if (!pendingMessages.offer(new Message(action, annotationId, sender))) {
+                droppedMessages.increment();
+                LOG.warn("Too many pending notifications, dropping {} of annotation {}", action, annotationId);
+                return;
+            }
+            scheduleDispatch();
         }
     }
 
-    @Scheduled(fixedDelay = 3000, initialDelay = 15000)
-    public void updateSubscribers() {
-        for (final Message message : pendingMessages) {
-            LOG.debug("updating clients for pending messages");
-            pendingMessages.remove(message);
+    /**
+     * @return number of published messages not dispatched yet
+     */
+    public int getPendingMessages() {
+        return pendingMessages.size();
+    }
+
+    /**
+     * @return number of published messages dropped since too many messages were pending
+     */
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * @return number of notifications dropped since their client did not keep up (see {@link OverflowPolicy#DROP_OLDEST})
+     */
+    public long getDroppedNotifications() {
+        return droppedNotifications.sum();
+    }
 
-            // Create the message in format
-            final JsonNotification notification = new JsonNotification(message.getAction().toString().toLowerCase(Locale.ENGLISH));
-            Annotation annotation = null;
-            if (message.getAction().equals(ACTION.DELETE)) {
-                notification.addPayload(new JsonDeleteSuccessResponse(message.getId()));
-            } else {
-                annotation = annotationService.findAnnotationById(message.getId());
+    /**
+     * @return number of sessions closed since their client did not keep up (see {@link OverflowPolicy#CLOSE})
+     */
+    public long getClosedSessions() {
+        return closedSessions.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        threadPoolTaskExecutor.shutdown();
+    }
+
+    // only one dispatching runs at a time, so that the messages are notified in the order of their publication
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            try {
+                threadPoolTaskExecutor.execute(this::dispatchPending);
+            } catch (TaskRejectedException e) {
+                LOG.debug("Too many pending tasks, dispatching notifications on the publishing thread");
+                dispatchPending();
             }
+        }
+    }
 
-            for (final Subscription subs : subscriptions) {
-                if (checkSubscription(subs, message, annotation)) {
-                    if (annotation != null) {
-                        // the conversion of the annotation to JSON was moved here for two reasons:
-                        // a) we only do it when it is actually required
-                        // b) we need the subscriber's authority and user info
-                        notification.addPayload(conversionService.convertToJsonAnnotation(annotation, subs.getUser()));
-                    }
-                    threadPoolTaskExecutor.submit(new SendTask(notification, subs.getSubscriber()));
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void dispatchPending() {
+        try {
+            Message message = pendingMessages.poll();
+            while (message != null) {
+                try {
+                    dispatch(message);
+                } catch (RuntimeException ex) {
+                    LOG.error("Failure while dispatching notification", ex);
+                }
+                message = pendingMessages.poll();
+            }
+        } finally {
+            dispatching.set(false);
+        }
+        // a message may have been published after the last poll
+        if (!pendingMessages.isEmpty()) {
+            scheduleDispatch();
+        }
+    }
+
+    // done right away, so that counts requested after the change (e.g. refreshed badges) are up to date
+    private void invalidateCounts(final String annotationId) {
+        if (!countCache.isEnabled() || countCache.size() == 0) {
+            return;
+        }
+        final Annotation annotation = annotationService.findAnnotationByIdInAnyStatus(annotationId);
+        if (annotation == null) {
+            countCache.clear(); // document unknown
+        } else {
+            countCache.invalidate(annotation.getDocument().getId(), annotation.getGroup().getId());
+        }
+    }
+
+    private void remove(final Subscriber subscriber) {
+        if (subscribers.remove(subscriber.getSession(), subscriber)) {
+            for (final Subscription subs : subscriber.getSubscriptions()) {
+                for (final String uri : subs.getUris()) {
+                    subscriptionsByUri.computeIfPresent(uri, (key, subscriptions) -> {
+                        subscriptions.remove(subs);
+                        return subscriptions.isEmpty() ? null : subscriptions;
+                    });
+                }
+            }
+            subscriber.discard();
+        }
+    }
+
+    private void dispatch(final Message message) {
+        LOG.debug("updating clients for {} of annotation {}", message.getAction(), message.getId());
+
+        final Collection<Subscription> candidates;
+        final Annotation annotation;
+        if (message.getAction().equals(ACTION.DELETE)) {
+            // the annotation is gone, so its document is unknown: all subscribers are notified
+            annotation = null;
+            candidates = new ArrayList<>();
+            subscribers.values().forEach(subscriber -> candidates.addAll(subscriber.getSubscriptions()));
+        } else {
+            annotation = annotationService.findAnnotationById(message.getId());
+            if (annotation == null || !annotation.isShared()) {
+                return;
+            }
+            candidates = subscriptionsByUri.getOrDefault(annotation.getDocument().getUri(), Collections.emptySet());
+        }
+
+        // the JSON only depends on the permissions of the user, so it is created once per permission class
+        final Map<PermissionClass, TextMessage> notifications = new HashMap<>();
+        final Set<WebSocketSession> notified = new HashSet<>();
+        for (final Subscription subs : candidates) {
+            if (checkSubscription(subs, message, annotation) && notified.add(subs.getSubscriber())) {
+                final PermissionClass permissionClass = annotation == null ? null : new PermissionClass(subs.getUser());
+                final TextMessage notification = notifications.computeIfAbsent(permissionClass,
+                        key -> createNotification(message, annotation, subs.getUser()));
+                final Subscriber subscriber = subscribers.get(subs.getSubscriber());
+                if (notification != null && subscriber != null) {
+                    subscriber.send(notification);
                 }
             }
         }
     }
 
+    private TextMessage createNotification(final Message message, final Annotation annotation, final UserInformation user) {
+        final JsonNotification notification = new JsonNotification(message.getAction().toString().toLowerCase(Locale.ENGLISH));
+        if (annotation == null) {
+            notification.addPayload(new JsonDeleteSuccessResponse(message.getId()));
+        } else {
+            notification.addPayload(conversionService.convertToJsonAnnotation(annotation, user));
+        }
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(notification), true);
+        } catch (JsonProcessingException e) {
+            LOG.error("Failure while creating message", e);
+            return null;
+        }
+    }
+
     // annotation would be null for delete case
     @SuppressWarnings("PMD.ConfusingTernary")
     private boolean checkSubscription(final Subscription subscription, final Message message, final Annotation annotation) {
         // order of checks is important as we are using elimination method to simplify checks
-        if (message.getClientId().equals(subscription.getUser().getClientId())) {
+        if (message.getClientId() != null && message.getClientId().equals(subscription.getUser().getClientId())) {
             return false;
         } else if (message.getAction().equals(ACTION.DELETE)) {
             return true;
-        } else if (annotation != null && !annotation.isShared()) {
-            return false;
         } else
             return annotation != null && subscription.getFilter().matches(annotation);
     }
 
     private ThreadPoolTaskExecutor messageExecutor() {
-        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();// we can use scheduler also to send notifications in batch
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setThreadNamePrefix("MessageBroker-");
         executor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
         executor.setQueueCapacity(1000);
@@ -143,26 +314,129 @@ public class MessageBroker {
         return executor;
     }
 
-    // This is async not to block the main http request
+    // This is async not to block the dispatching of other sessions; a session is only sent one message at a time
     @SuppressWarnings("PMD.DoNotUseThreads")
-    private static class SendTask implements Runnable {
+    private class Subscriber implements Runnable {
+
+        private final WebSocketSession session;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private final BlockingQueue<TextMessage> sendQueue = new ArrayBlockingQueue<>(sendQueueCapacity);
+        private final AtomicBoolean sending = new AtomicBoolean();
 
-        private final JsonNotification inputMessage;
-        private final WebSocketSession messageHandler;
+        public Subscriber(final WebSocketSession session) {
+            this.session = session;
+        }
+
+        @Generated
+        public WebSocketSession getSession() {
+            return session;
+        }
 
-        public SendTask(final JsonNotification message, final WebSocketSession messageHandler) {
-            this.inputMessage = message;
-            this.messageHandler = messageHandler;
+        @Generated
+        public List<Subscription> getSubscriptions() {
+            return subscriptions;
         }
 
-        @SuppressWarnings("PMD.AccessorMethodGeneration")
+        public void send(final TextMessage message) {
+            while (!sendQueue.offer(message)) {
+                if (overflowPolicy == OverflowPolicy.CLOSE) {
+                    LOG.warn("Client does not keep up with notifications, closing session {}", session.getId());
+                    closedSessions.increment();
+                    close();
+                    return;
+                }
+                LOG.debug("Client does not keep up with notifications, dropping oldest of session {}", session.getId());
+                if (sendQueue.poll() != null) {
+                    droppedNotifications.increment();
+                }
+            }
+            schedule();
+        }
+
+        public void discard() {
+            sendQueue.clear();
+        }
+
+        private void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    threadPoolTaskExecutor.execute(this);
+                } catch (TaskRejectedException e) {
+                    LOG.debug("Too many pending tasks, sending notifications of session {} on the dispatching thread", session.getId());
+                    run();
+                }
+            }
+        }
+
+        private void close() {
+            remove(this);
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ex) {
+                LOG.error("Failure while closing session", ex);
+            }
+        }
+
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
         @Override
         public void run() {
             try {
-                this.messageHandler.sendMessage(new TextMessage(new ObjectMapper().writeValueAsString(this.inputMessage), true));
-            } catch (Exception ex) {
-                LOG.error("Failure while sending message", ex);
+                TextMessage message = sendQueue.poll();
+                while (message != null) {
+                    try {
+                        session.sendMessage(message);
+                    } catch (Exception ex) {
+                        LOG.error("Failure while sending message", ex);
+                    }
+                    message = sendQueue.poll();
+                }
+            } finally {
+                sending.set(false);
+            }
+            // a notification may have been queued after the last poll
+            if (!sendQueue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * the user properties the JSON of an annotation depends on, see AnnotationPermissionService
+     */
+    private static class PermissionClass {
+        private final String authority;
+        private final Consts.SearchUserType searchUser;
+        private final String connectedEntity;
+        private final Long contributorId;
+
+        public PermissionClass(final UserInformation user) {
+            this.authority = user.getAuthority();
+            this.searchUser = user.getSearchUser();
+            this.connectedEntity = user.getConnectedEntity();
+            // contributors have permissions on their own annotations
+            this.contributorId = searchUser == Consts.SearchUserType.Contributor && user.getUser() != null ? user.getUser().getId() : null;
+        }
+
+        @Generated
+        @Override
+        public int hashCode() {
+            return Objects.hash(authority, searchUser, connectedEntity, contributorId);
+        }
+
+        @Generated
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
             }
+            final PermissionClass other = (PermissionClass) obj;
+            return Objects.equals(this.authority, other.authority) &&
+                    Objects.equals(this.searchUser, other.searchUser) &&
+                    Objects.equals(this.connectedEntity, other.connectedEntity) &&
+                    Objects.equals(this.contributorId, other.contributorId);
         }
     }
 
@@ -191,6 +465,12 @@ public class MessageBroker {
         public UserInformation getUser() {
             return user;
         }
+
+        public Set<String> getUris() {
+            final Set<String> uris = new HashSet<>();
+            filter.getClauses().forEach(clause -> uris.addAll(clause.getValue()));
+            return uris;
+        }
     }
 
     private static class Message {
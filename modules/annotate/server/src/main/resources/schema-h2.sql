@@ -137,6 +137,24 @@ COMMENT ON COLUMN "METADATA"."RESPONSE_STATUS_UPDATED_BY" IS 'User id of user th
 CREATE INDEX IF NOT EXISTS "METADATA_IX_RESPONSE_STATUS" ON "METADATA" ("RESPONSE_STATUS");
 CREATE INDEX IF NOT EXISTS "METADATA_IX_SYSTEM_ID" ON "METADATA" ("SYSTEM_ID");
 CREATE INDEX IF NOT EXISTS "METADATA_IX_VERSION" ON "METADATA" ("VERSION");
+
+
+------------------------------------
+-- table METADATA_KEYVALUES
+------------------------------------
+CREATE TABLE IF NOT EXISTS METADATA_KEYVALUES (
+  METADATA_ID                      NUMBER NOT NULL,
+  KV_KEY                           VARCHAR2(255 CHAR) NOT NULL,
+  KV_VALUE                         VARCHAR2(1000 CHAR),
+  CONSTRAINT "METADATA_KEYVALUES_PK" PRIMARY KEY ("METADATA_ID", "KV_KEY"),
+  CONSTRAINT "METADATA_KEYVALUES_FK_METADATA" FOREIGN KEY ("METADATA_ID") REFERENCES "METADATA" ("ID") ON DELETE CASCADE
+);
+
+COMMENT ON COLUMN "METADATA_KEYVALUES"."METADATA_ID" IS 'ID of the metadata set to which the key-value pair belongs';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_KEY" IS 'Key of the metadata item';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_VALUE" IS 'Value of the metadata item';
+
+CREATE INDEX IF NOT EXISTS "METADATA_KEYVALUES_IX_KV" ON "METADATA_KEYVALUES" ("KV_KEY", "KV_VALUE");
   
 -- note: for Oracle, we have to create a trigger to update the ID using sequence; this is not needed for H2
 
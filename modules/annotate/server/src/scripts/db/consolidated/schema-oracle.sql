@@ -210,6 +210,25 @@ END;
 ALTER TRIGGER "METADATA_TRG" ENABLE;
 
 
+------------------------------------
+-- METADATA_KEYVALUES
+-- requires table, index
+------------------------------------
+CREATE TABLE "METADATA_KEYVALUES" (
+  "METADATA_ID" NUMBER NOT NULL ENABLE,
+  "KV_KEY" VARCHAR2(255 CHAR) NOT NULL ENABLE,
+  "KV_VALUE" VARCHAR2(1000 CHAR),
+  CONSTRAINT "METADATA_KEYVALUES_PK" PRIMARY KEY ("METADATA_ID", "KV_KEY") USING INDEX ENABLE,
+  CONSTRAINT "METADATA_KEYVALUES_FK_METADATA" FOREIGN KEY ("METADATA_ID") REFERENCES "METADATA" ("ID") ON DELETE CASCADE ENABLE
+);
+
+COMMENT ON COLUMN "METADATA_KEYVALUES"."METADATA_ID" IS 'ID of the metadata set to which the key-value pair belongs';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_KEY" IS 'Key of the metadata item';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_VALUE" IS 'Value of the metadata item';
+
+CREATE INDEX "METADATA_KEYVALUES_IX_KV" ON "METADATA_KEYVALUES" ("KV_KEY", "KV_VALUE");
+
+
 ------------------------------------
 -- ANNOTATIONS
 -- requires table, indexes
@@ -0,0 +1,80 @@
+--
+-- Copyright 2019 European Commission
+--
+-- Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+-- You may not use this work except in compliance with the Licence.
+-- You may obtain a copy of the Licence at:
+--
+--     https://joinup.ec.europa.eu/software/page/eupl
+--
+-- Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the Licence for the specific language governing permissions and limitations under the Licence.
+--
+
+------------------------------------
+-- Changes to initial Oracle 
+-- database creation scripts
+--
+-- add a new table METADATA_KEYVALUES containing the key-value pairs
+-- of the KEYVALUES column of METADATA table in normalised form;
+-- this allows matching metadata sets in the database
+--
+-- the existing content of the KEYVALUES column is migrated
+-- (the column itself remains unchanged)
+------------------------------------
+CREATE TABLE "METADATA_KEYVALUES" (
+  "METADATA_ID" NUMBER NOT NULL ENABLE,
+  "KV_KEY" VARCHAR2(255 CHAR) NOT NULL ENABLE,
+  "KV_VALUE" VARCHAR2(1000 CHAR),
+  CONSTRAINT "METADATA_KEYVALUES_PK" PRIMARY KEY ("METADATA_ID", "KV_KEY") USING INDEX ENABLE,
+  CONSTRAINT "METADATA_KEYVALUES_FK_METADATA" FOREIGN KEY ("METADATA_ID") REFERENCES "METADATA" ("ID") ON DELETE CASCADE ENABLE
+);
+
+COMMENT ON COLUMN "METADATA_KEYVALUES"."METADATA_ID" IS 'ID of the metadata set to which the key-value pair belongs';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_KEY" IS 'Key of the metadata item';
+COMMENT ON COLUMN "METADATA_KEYVALUES"."KV_VALUE" IS 'Value of the metadata item';
+
+CREATE INDEX "METADATA_KEYVALUES_IX_KV" ON "METADATA_KEYVALUES" ("KV_KEY", "KV_VALUE");
+
+-- each line of the KEYVALUES column has the format key:value;
+-- like the application, split at the first colon and ignore carriage returns
+-- (in case a key occurs several times, the last occurrence wins);
+-- also like the application, pairs exceeding the column lengths are not copied
+DECLARE
+  l_length NUMBER;
+  l_start  NUMBER;
+  l_end    NUMBER;
+  l_line   VARCHAR2(32767);
+  l_sep    NUMBER;
+BEGIN
+  FOR rec IN (SELECT "ID", "KEYVALUES" FROM "METADATA" WHERE "KEYVALUES" IS NOT NULL) LOOP
+    l_length := DBMS_LOB.GETLENGTH(rec."KEYVALUES");
+    l_start := 1;
+    WHILE l_start <= l_length LOOP
+      l_end := DBMS_LOB.INSTR(rec."KEYVALUES", CHR(10), l_start);
+      IF l_end = 0 THEN
+        l_end := l_length + 1;
+      END IF;
+
+      -- longer lines cannot hold a pair fitting into the columns (255 + 1 + 1000 characters, plus carriage return)
+      IF l_end - l_start <= 1257 THEN
+        l_line := REPLACE(DBMS_LOB.SUBSTR(rec."KEYVALUES", l_end - l_start, l_start), CHR(13), '');
+        l_sep := INSTR(l_line, ':');
+      ELSE
+        l_sep := 0;
+      END IF;
+      IF l_sep > 1 AND l_sep <= 256 AND LENGTH(l_line) - l_sep <= 1000 THEN
+        MERGE INTO "METADATA_KEYVALUES" kv
+          USING (SELECT rec."ID" AS "METADATA_ID", SUBSTR(l_line, 1, l_sep - 1) AS "KV_KEY", SUBSTR(l_line, l_sep + 1) AS "KV_VALUE" FROM DUAL) src
+          ON (kv."METADATA_ID" = src."METADATA_ID" AND kv."KV_KEY" = src."KV_KEY")
+          WHEN MATCHED THEN UPDATE SET kv."KV_VALUE" = src."KV_VALUE"
+          WHEN NOT MATCHED THEN INSERT ("METADATA_ID", "KV_KEY", "KV_VALUE") VALUES (src."METADATA_ID", src."KV_KEY", src."KV_VALUE");
+      END IF;
+
+      l_start := l_end + 1;
+    END LOOP;
+  END LOOP;
+  COMMIT;
+END;
+/
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate;
+
+import eu.europa.ec.leos.annotate.model.entity.Document;
+import eu.europa.ec.leos.annotate.model.entity.Group;
+import eu.europa.ec.leos.annotate.services.impl.AnnotationCountCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+
+public class AnnotationCountCacheTest {
+
+    /**
+     * tests for checking proper working of our cache of annotation counts
+     */
+
+    private static final String METADATASETS = "[{responseVersion:1}]";
+
+    private Document document;
+    private Document otherDocument;
+    private Group group;
+    private Group otherGroup;
+
+    // -------------------------------------
+    // Preparation
+    // -------------------------------------
+    @Before
+    public void setupTestData() throws Exception {
+
+        document = new Document(new URI("http://some.url"), "a");
+        document.setId(1L);
+        otherDocument = new Document(new URI("http://other.url"), "b");
+        otherDocument.setId(2L);
+        group = new Group("thegroup", true);
+        group.setId(1L);
+        otherGroup = new Group("othergroup", true);
+        otherGroup.setId(2L);
+    }
+
+    // -------------------------------------
+    // Tests
+    // -------------------------------------
+
+    /**
+     * test basic cache functionality
+     */
+    @Test
+    public void testAnnotationCountCache() throws Exception {
+
+        final AnnotationCountCache countCache = new AnnotationCountCache(60);
+        final AnnotationCountCache.CountKey key = AnnotationCountCache.getKey(document, group, METADATASETS, null);
+
+        Assert.assertEquals(0, countCache.size());
+        Assert.assertNull(countCache.getCachedCount(key));
+
+        countCache.cache(key, 4);
+        Assert.assertEquals(1, countCache.size());
+        Assert.assertEquals(Integer.valueOf(4), countCache.getCachedCount(AnnotationCountCache.getKey(document, group, METADATASETS, null)));
+
+        // other metadata sets or users have their own counts
+        Assert.assertNotEquals(key, AnnotationCountCache.getKey(document, group, METADATASETS, "demo"));
+        Assert.assertNull(countCache.getCachedCount(AnnotationCountCache.getKey(document, group, "[{responseVersion:2}]", null)));
+
+        Assert.assertEquals(1, countCache.getStatistics().getHits());
+        Assert.assertEquals(2, countCache.getStatistics().getMisses());
+
+        countCache.clear();
+        Assert.assertNull(countCache.getCachedCount(key));
+        Assert.assertEquals(0, countCache.size());
+    }
+
+    /**
+     * test that only the counts of a changed document are removed: those of the annotation's group
+     * and those covering all groups of a user
+     */
+    @Test
+    public void testAnnotationCountCacheInvalidation() throws Exception {
+
+        final AnnotationCountCache countCache = new AnnotationCountCache(60);
+        final AnnotationCountCache.CountKey groupKey = AnnotationCountCache.getKey(document, group, METADATASETS, null);
+        final AnnotationCountCache.CountKey otherGroupKey = AnnotationCountCache.getKey(document, otherGroup, METADATASETS, null);
+        final AnnotationCountCache.CountKey userKey = AnnotationCountCache.getKey(document, otherGroup, METADATASETS, "demo");
+        final AnnotationCountCache.CountKey otherDocumentKey = AnnotationCountCache.getKey(otherDocument, group, METADATASETS, null);
+        countCache.cache(groupKey, 1);
+        countCache.cache(otherGroupKey, 2);
+        countCache.cache(userKey, 3);
+        countCache.cache(otherDocumentKey, 4);
+
+        countCache.invalidate(document.getId(), group.getId());
+
+        Assert.assertNull(countCache.getCachedCount(groupKey));
+        Assert.assertNull(countCache.getCachedCount(userKey));
+        Assert.assertEquals(Integer.valueOf(2), countCache.getCachedCount(otherGroupKey));
+        Assert.assertEquals(Integer.valueOf(4), countCache.getCachedCount(otherDocumentKey));
+    }
+
+    /**
+     * test that expired and disabled counts are not served
+     */
+    @Test
+    public void testAnnotationCountCacheExpiry() throws Exception {
+
+        final AnnotationCountCache.CountKey key = AnnotationCountCache.getKey(document, group, METADATASETS, null);
+
+        // lifetime 0: cache disabled
+        final AnnotationCountCache disabledCache = new AnnotationCountCache(0);
+        Assert.assertFalse(disabledCache.isEnabled());
+        disabledCache.cache(key, 1);
+        Assert.assertNull(disabledCache.getCachedCount(key));
+
+        // counts expire after their lifetime
+        final AnnotationCountCache countCache = new AnnotationCountCache(1);
+        countCache.cache(key, 1);
+        Assert.assertEquals(Integer.valueOf(1), countCache.getCachedCount(key));
+
+        Thread.sleep(1100);
+        Assert.assertNull(countCache.getCachedCount(key));
+        Assert.assertEquals(0, countCache.size());
+    }
+}
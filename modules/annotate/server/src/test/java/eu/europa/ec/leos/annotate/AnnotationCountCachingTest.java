@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate;
+
+import eu.europa.ec.leos.annotate.helper.TestData;
+import eu.europa.ec.leos.annotate.helper.TestDbHelper;
+import eu.europa.ec.leos.annotate.model.UserInformation;
+import eu.europa.ec.leos.annotate.model.entity.*;
+import eu.europa.ec.leos.annotate.model.search.AnnotationSearchCountOptions;
+import eu.europa.ec.leos.annotate.model.web.annotation.JsonAnnotation;
+import eu.europa.ec.leos.annotate.repository.*;
+import eu.europa.ec.leos.annotate.services.AnnotationService;
+import eu.europa.ec.leos.annotate.services.impl.AnnotationCountCache;
+import eu.europa.ec.leos.annotate.websockets.MessageBroker;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.config.name=anot", "annotation.count.cache.seconds=600"})
+@ActiveProfiles("test")
+public class AnnotationCountCachingTest {
+
+    /**
+     * This class contains tests for the caching of annotation counts, which is disabled in the other tests
+     */
+
+    // -------------------------------------
+    // Required services and repositories
+    // -------------------------------------
+    @Autowired
+    private AnnotationService annotService;
+
+    @Autowired
+    private AnnotationCountCache countCache;
+
+    @Autowired
+    private MessageBroker messageBroker;
+
+    @Autowired
+    private AnnotationRepository annotRepos;
+
+    @Autowired
+    private DocumentRepository documentRepos;
+
+    @Autowired
+    private GroupRepository groupRepos;
+
+    @Autowired
+    private UserRepository userRepos;
+
+    @Autowired
+    private UserGroupRepository userGroupRepos;
+
+    @Autowired
+    private MetadataRepository metadataRepos;
+
+    // -------------------------------------
+    // Help variables
+    // -------------------------------------
+    private final static String LOGIN = "demo";
+
+    private UserInformation userInfo;
+    private String hypoAccount;
+    private URI dummyUri;
+    private URI otherUri;
+
+    // -------------------------------------
+    // Cleanup of database content before running new test
+    // -------------------------------------
+    @Before
+    public void cleanDatabaseBeforeTests() throws Exception {
+
+        TestDbHelper.cleanupRepositories(this);
+        countCache.clear();
+        final Group defaultGroup = TestDbHelper.insertDefaultGroup(groupRepos);
+
+        final User theUser = userRepos.save(new User(LOGIN));
+        userGroupRepos.save(new UserGroup(theUser.getId(), defaultGroup.getId()));
+
+        hypoAccount = "acct:" + theUser.getLogin() + "@" + Authorities.ISC;
+        userInfo = new UserInformation(LOGIN, Authorities.ISC);
+        userInfo.setCurrentToken(new Token(theUser, userInfo.getAuthority(), "a", LocalDateTime.now().plusMinutes(1),
+                "r", LocalDateTime.now().plusMinutes(1)));
+
+        dummyUri = new URI("http://some.url");
+        otherUri = new URI("http://other.url");
+    }
+
+    @After
+    public void cleanDatabaseAfterTests() {
+        TestDbHelper.cleanupRepositories(this);
+        countCache.clear();
+    }
+
+    // -------------------------------------
+    // Tests
+    // -------------------------------------
+
+    /**
+     * a count is served from the cache until a change of an annotation of the document is published
+     */
+    @Test
+    public void testCachedCountRefreshedAfterPublishedChanges() throws Exception {
+
+        Assert.assertTrue(countCache.isEnabled());
+
+        createComment(dummyUri);
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+
+        // a new annotation which is not published yet is not counted, as the count is cached
+        final String newId = createComment(dummyUri);
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+        Assert.assertEquals(1, countCache.getStatistics().getHits());
+
+        // once published, the annotation is counted
+        messageBroker.publish(newId, MessageBroker.ACTION.CREATE, null);
+        Assert.assertEquals(0, countCache.size());
+        Assert.assertEquals(2, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+
+        // same for deleted annotations, which are still found to invalidate the counts of their document
+        annotService.deleteAnnotationById(newId, userInfo);
+        messageBroker.publish(newId, MessageBroker.ACTION.DELETE, null);
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+    }
+
+    /**
+     * changes of annotations of another document keep the cached counts
+     */
+    @Test
+    public void testCachedCountKeptAfterChangesOfOtherDocument() throws Exception {
+
+        createComment(dummyUri);
+        createComment(otherUri);
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(otherUri), userInfo));
+        Assert.assertEquals(2, countCache.size());
+
+        final String otherId = createComment(otherUri);
+        messageBroker.publish(otherId, MessageBroker.ACTION.CREATE, null);
+
+        // only the count of the other document was removed
+        Assert.assertEquals(1, countCache.size());
+        Assert.assertEquals(1, annotService.getAnnotationsCount(getOptions(dummyUri), userInfo));
+        Assert.assertEquals(2, annotService.getAnnotationsCount(getOptions(otherUri), userInfo));
+        Assert.assertEquals(1, countCache.getStatistics().getHits());
+    }
+
+    // -------------------------------------
+    // Helper functions
+    // -------------------------------------
+    private String createComment(final URI uri) throws Exception {
+
+        final JsonAnnotation comment = TestData.getTestAnnotationObject(hypoAccount);
+        comment.setUri(uri);
+        comment.setTags(Arrays.asList(Annotation.ANNOTATION_COMMENT));
+        return annotService.createAnnotation(comment, userInfo).getId();
+    }
+
+    private AnnotationSearchCountOptions getOptions(final URI uri) {
+
+        final AnnotationSearchCountOptions options = new AnnotationSearchCountOptions();
+        options.setUri(uri);
+        options.setGroup("__world__");
+        options.setMetadatasets("[]");
+        return options;
+    }
+}
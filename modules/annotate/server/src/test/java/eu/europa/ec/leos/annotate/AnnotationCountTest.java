@@ -419,6 +419,42 @@ public class AnnotationCountTest {
         Assert.assertEquals(2, runCountAnnotationSeveralMatchingMetadata(sbMeta.toString()));
     }
 
+    /**
+     * retrieving number of annotations in the default group: counted by the database
+     * -> highlights and private annotations should not be counted
+     */
+    @Test
+    public void testCountAnnotation_DefaultGroup_NoHighlightsNoPrivate() throws Exception {
+
+        final String hypoAccount = "acct:" + theUser.getLogin() + "@" + Authorities.ISC;
+        final UserInformation userInfo = new UserInformation(LOGIN, Authorities.ISC);
+        userInfo.setCurrentToken(new Token(userRepos.findByLogin(LOGIN), userInfo.getAuthority(), "a", LocalDateTime.now().plusMinutes(1),
+            "r", LocalDateTime.now().plusMinutes(1)));
+
+        final JsonAnnotation comment = TestData.getTestAnnotationObject(hypoAccount);
+        comment.setUri(dummyUri);
+        comment.setTags(Arrays.asList(Annotation.ANNOTATION_COMMENT));
+        annotService.createAnnotation(comment, userInfo);
+
+        final JsonAnnotation highlight = TestData.getTestAnnotationObject(hypoAccount);
+        highlight.setUri(dummyUri);
+        highlight.setTags(Arrays.asList(Annotation.ANNOTATION_HIGHLIGHT));
+        annotService.createAnnotation(highlight, userInfo);
+
+        final JsonAnnotation privateComment = TestData.getTestPrivateAnnotationObject(hypoAccount);
+        privateComment.setUri(dummyUri);
+        privateComment.setTags(Arrays.asList(Annotation.ANNOTATION_COMMENT));
+        annotService.createAnnotation(privateComment, userInfo);
+
+        final AnnotationSearchCountOptions options = new AnnotationSearchCountOptions();
+        options.setUri(dummyUri);
+        options.setGroup("__world__");
+        options.setMetadatasets("[]");
+
+        // only the shared comment is counted
+        Assert.assertEquals(1, annotService.getAnnotationsCount(options, userInfo));
+    }
+
     @SuppressFBWarnings(value = SpotBugsAnnotations.FieldNotInitialized, justification = SpotBugsAnnotations.FieldNotInitializedReason)
     private long runCountAnnotationSeveralMatchingMetadata(final String metadataWithStatus)
             throws CannotCreateAnnotationException, MissingPermissionException, CannotDeleteAnnotationException, CannotDeleteSentAnnotationException {
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate;
+
+import eu.europa.ec.leos.annotate.services.impl.GroupMembershipCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GroupMembershipCacheTest {
+
+    /**
+     * tests for checking proper working of our cache of group memberships
+     */
+
+    // -------------------------------------
+    // Tests
+    // -------------------------------------
+
+    /**
+     * test that memberships are only loaded once, until they are invalidated
+     */
+    @Test
+    public void testMembershipsCached() {
+
+        final GroupMembershipCache cache = new GroupMembershipCache(60, 100);
+        final AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertTrue(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> loads.incrementAndGet() > 0));
+        Assert.assertTrue(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> loads.incrementAndGet() < 0));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.getMembershipStatistics().getHits());
+        Assert.assertEquals(1, cache.getMembershipStatistics().getMisses());
+
+        // other users or groups are loaded separately
+        Assert.assertFalse(cache.isUserMemberOfGroup(1, 3, (userId, groupId) -> loads.incrementAndGet() < 0));
+        Assert.assertFalse(cache.isUserMemberOfGroup(11, 2, (userId, groupId) -> loads.incrementAndGet() < 0));
+        Assert.assertEquals(3, loads.get());
+
+        // invalidating the user's memberships requires loading them again; other users are not affected
+        cache.invalidateUser(1);
+        Assert.assertFalse(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> loads.incrementAndGet() < 0));
+        Assert.assertFalse(cache.isUserMemberOfGroup(11, 2, (userId, groupId) -> loads.incrementAndGet() > 0));
+        Assert.assertEquals(4, loads.get());
+    }
+
+    /**
+     * test that the group IDs of a user are cached and can't be modified by callers
+     */
+    @Test
+    public void testGroupIdsCached() {
+
+        final GroupMembershipCache cache = new GroupMembershipCache(60, 100);
+        final AtomicInteger loads = new AtomicInteger();
+
+        final List<Long> groupIds = cache.getGroupIdsOfUser(1, userId -> {
+            loads.incrementAndGet();
+            return new ArrayList<Long>(Arrays.asList(4L, 5L));
+        });
+        groupIds.clear();
+
+        Assert.assertEquals(Arrays.asList(4L, 5L), cache.getGroupIdsOfUser(1, userId -> null));
+        Assert.assertEquals(1, loads.get());
+
+        // nothing found is not cached
+        Assert.assertNull(cache.getGroupIdsOfUser(2, userId -> null));
+        Assert.assertEquals(Arrays.asList(7L), cache.getGroupIdsOfUser(2, userId -> Arrays.asList(7L)));
+
+        cache.invalidateUser(1);
+        Assert.assertNull(cache.getGroupIdsOfUser(1, userId -> null));
+    }
+
+    /**
+     * test that memberships loaded while the user's memberships are invalidated are not cached,
+     * as they may have been read before the change that caused the invalidation
+     */
+    @Test
+    public void testInvalidationDuringConcurrentLoad() throws Exception {
+
+        final GroupMembershipCache cache = new GroupMembershipCache(60, 100);
+        final CountDownLatch loading = new CountDownLatch(2);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final ExecutorService loaders = Executors.newFixedThreadPool(2);
+
+        final CompletableFuture<Boolean> membership = CompletableFuture.supplyAsync(
+                () -> cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> awaitInvalidation(loading, invalidated)), loaders);
+        final CompletableFuture<List<Long>> groupIds = CompletableFuture.supplyAsync(
+                () -> cache.getGroupIdsOfUser(1, userId -> awaitInvalidation(loading, invalidated) ? Arrays.asList(4L) : null), loaders);
+        loaders.shutdown();
+
+        Assert.assertTrue(loading.await(10, TimeUnit.SECONDS));
+        cache.invalidateUser(1);
+        invalidated.countDown();
+
+        // the outdated values are still returned to the callers having loaded them...
+        Assert.assertTrue(membership.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(4L), groupIds.get(10, TimeUnit.SECONDS));
+
+        // ... but they were not put into the cache
+        Assert.assertEquals(0, cache.getMembershipStatistics().getSize());
+        Assert.assertFalse(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> false));
+        Assert.assertNull(cache.getGroupIdsOfUser(1, userId -> null));
+
+        // values loaded afterwards are cached again
+        Assert.assertTrue(cache.isUserMemberOfGroup(3, 2, (userId, groupId) -> true));
+        Assert.assertTrue(cache.isUserMemberOfGroup(3, 2, (userId, groupId) -> false));
+    }
+
+    /**
+     * test that nothing is cached when the cache is disabled
+     */
+    @Test
+    public void testCacheDisabled() {
+
+        final GroupMembershipCache cache = new GroupMembershipCache();
+        final AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertTrue(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> loads.incrementAndGet() > 0));
+        Assert.assertTrue(cache.isUserMemberOfGroup(1, 2, (userId, groupId) -> loads.incrementAndGet() > 0));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    // -------------------------------------
+    // Help functions
+    // -------------------------------------
+
+    // simulates a slow loading that is overtaken by an invalidation
+    private static boolean awaitInvalidation(final CountDownLatch loading, final CountDownLatch invalidated) {
+
+        loading.countDown();
+        try {
+            return invalidated.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate;
+
+import eu.europa.ec.leos.annotate.helper.TestDbHelper;
+import eu.europa.ec.leos.annotate.model.SimpleMetadata;
+import eu.europa.ec.leos.annotate.model.SimpleMetadataWithStatuses;
+import eu.europa.ec.leos.annotate.model.UserDetails;
+import eu.europa.ec.leos.annotate.model.UserEntity;
+import eu.europa.ec.leos.annotate.model.UserInformation;
+import eu.europa.ec.leos.annotate.model.entity.*;
+import eu.europa.ec.leos.annotate.model.entity.Annotation.AnnotationStatus;
+import eu.europa.ec.leos.annotate.model.search.*;
+import eu.europa.ec.leos.annotate.repository.*;
+import eu.europa.ec.leos.annotate.services.AnnotationService;
+import eu.europa.ec.leos.annotate.services.impl.UserDetailsCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.config.name=anot")
+@WebAppConfiguration
+@ActiveProfiles("test")
+public class IscSearchPostFilterTest {
+
+    /**
+     * test for the "ISC single group" search model having its post-filtering applied by the database:
+     * results and total number of items must be the same as when the post-filtering is applied on the loaded items
+     * (see {@link SearchModelIscSingleGroup#postFilterSearchResults(List)})
+     */
+
+    private static final String uriString = "uri://LEOS/dummy_bill_for_test";
+    private static final String dummySelector = "[{\"selector\":null,\"source\":\"" + uriString + "\"}]";
+    private static final String DIGIT = "DIGIT";
+    private static final String ASC = "asc";
+    private static final String CREATED = "created";
+    private static final String ANNOT_A = "idA", ANNOT_B = "idB", ANNOT_C = "idC", ANNOT_D = "idD";
+    private static final String ANNOT_E = "idE", ANNOT_F = "idF", ANNOT_G = "idG", ANNOT_X = "idX";
+
+    private User digitWorldUser;
+
+    // -------------------------------------
+    // Required services and repositories
+    // -------------------------------------
+
+    @Autowired
+    private AnnotationService annotService;
+
+    @Autowired
+    private SearchModelFactory searchModelFactory;
+
+    @Autowired
+    @Qualifier("annotationTestRepos")
+    private AnnotationTestRepository annotRepos;
+
+    @Autowired
+    private DocumentRepository documentRepos;
+
+    @Autowired
+    private MetadataRepository metadataRepos;
+
+    @Autowired
+    private GroupRepository groupRepos;
+
+    @Autowired
+    private UserGroupRepository userGroupRepos;
+
+    @Autowired
+    private UserRepository userRepos;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    // -------------------------------------
+    // Cleanup of database content
+    // -------------------------------------
+    @Before
+    public void setupTests() {
+
+        TestDbHelper.cleanupRepositories(this);
+
+        createTestData();
+    }
+
+    @After
+    public void cleanDatabaseAfterTests() {
+
+        ReflectionTestUtils.setField(annotService, "searchModelFactory", searchModelFactory);
+        TestDbHelper.cleanupRepositories(this);
+    }
+
+    // -------------------------------------
+    // Test data
+    // -------------------------------------
+
+    private void createTestData() {
+
+        final Group groupWorld = TestDbHelper.insertDefaultGroup(groupRepos);
+        final Group groupDigit = new Group(DIGIT, DIGIT, DIGIT, true);
+        groupRepos.save(groupDigit);
+
+        final String digitWorldUserLogin = "digitAndWorld";
+
+        // create user and assign to the group
+        digitWorldUser = new User(digitWorldUserLogin);
+        userRepos.save(digitWorldUser);
+
+        final List<UserEntity> entitiesDigit = Arrays.asList(new UserEntity("2", DIGIT, DIGIT));
+
+        // cache info for users in order to speed up test execution
+        userDetailsCache.cache(digitWorldUser.getLogin(), new UserDetails(digitWorldUser.getLogin(), Long.valueOf(2), DIGIT, "user2", entitiesDigit, "", null));
+
+        userGroupRepos.save(new UserGroup(digitWorldUser.getId(), groupWorld.getId()));
+        userGroupRepos.save(new UserGroup(digitWorldUser.getId(), groupDigit.getId()));
+
+        // create a document
+        final Document document = new Document(URI.create(uriString), "title");
+        documentRepos.save(document);
+
+        // we want to create the following annotations/metadata, all created by DIGIT:
+        // always: SENT -> responseVersion 1; IN_PREPARATION -> responseVersion 2
+        // A: SENT
+        // B: IN_PREPARATION, linked to C
+        // C: SENT, linked to B -> filtered out
+        // D: SENT
+        // E: SENT, linked to F -> filtered out
+        // F: IN_PREPARATION, linked to E
+        // G: IN_PREPARATION
+        // X: SENT, deleted in responseVersion 3 -> historical item added
+
+        final SimpleMetadata metaHelpSentV1 = new SimpleMetadata(Metadata.PROP_RESPONSE_VERSION, "1");
+        metaHelpSentV1.put(Metadata.PROP_RESPONSE_STATUS, Metadata.ResponseStatus.SENT.toString());
+
+        final SimpleMetadata metaHelpInPrepV2 = new SimpleMetadata(Metadata.PROP_RESPONSE_VERSION, "2");
+        metaHelpInPrepV2.put(Metadata.PROP_RESPONSE_STATUS, Metadata.ResponseStatus.IN_PREPARATION.toString());
+
+        final Metadata metaSent = new Metadata(document, groupDigit, Authorities.ISC, metaHelpSentV1);
+        addResponseId(metaSent, DIGIT);
+        metadataRepos.save(metaSent);
+
+        final Metadata metaInPrep = new Metadata(document, groupDigit, Authorities.ISC, metaHelpInPrepV2);
+        addResponseId(metaInPrep, DIGIT);
+        metadataRepos.save(metaInPrep);
+
+        // create annotations, linking needs to be done later
+        createAnnotation(ANNOT_A, digitWorldUser, metaSent, 8);
+        final Annotation annotB = createAnnotation(ANNOT_B, digitWorldUser, metaInPrep, 7);
+        final Annotation annotC = createAnnotation(ANNOT_C, digitWorldUser, metaSent, 6);
+        createAnnotation(ANNOT_D, digitWorldUser, metaSent, 5);
+        final Annotation annotE = createAnnotation(ANNOT_E, digitWorldUser, metaSent, 4);
+        final Annotation annotF = createAnnotation(ANNOT_F, digitWorldUser, metaInPrep, 3);
+        createAnnotation(ANNOT_G, digitWorldUser, metaInPrep, 2);
+        final Annotation annotX = createAnnotation(ANNOT_X, digitWorldUser, metaSent, 1);
+
+        annotB.setLinkedAnnotationId(annotC.getId());
+        annotC.setLinkedAnnotationId(annotB.getId());
+        annotE.setLinkedAnnotationId(annotF.getId());
+        annotF.setLinkedAnnotationId(annotE.getId());
+
+        annotX.setStatus(AnnotationStatus.DELETED);
+        annotX.setSentDeleted(true);
+        annotX.setRespVersionSentDeleted(3);
+
+        annotRepos.save(Arrays.asList(annotB, annotC, annotE, annotF, annotX));
+    }
+
+    // creation of annotation
+    // the {@param minBeforeNow} serves for having a well-defined order of the annotations in the result
+    private Annotation createAnnotation(final String annotId, final User user, final Metadata meta, final int minBeforeNow) {
+
+        final Annotation annot = new Annotation();
+        annot.setId(annotId);
+        annot.setUser(user);
+        annot.setMetadata(meta);
+
+        // mandatory fields
+        annot.setCreated(LocalDateTime.now().minusMinutes(minBeforeNow));
+        annot.setUpdated(LocalDateTime.now());
+        annot.setTargetSelectors(dummySelector);
+
+        annot.setShared(true);
+
+        return annotRepos.save(annot);
+    }
+
+    private void addResponseId(final Metadata meta, final String respId) {
+
+        final SimpleMetadata kvPairs = meta.getKeyValuePropertyAsSimpleMetadata();
+        kvPairs.put(Metadata.PROP_RESPONSE_ID, respId);
+        meta.setKeyValuePropertyFromSimpleMetadata(kvPairs);
+    }
+
+    // -------------------------------------
+    // Tests
+    // -------------------------------------
+
+    // the linked SENT items are filtered out, the deleted historical item is added
+    @Test
+    public void testLinkedItemsFilteredOutAndHistoryAdded() {
+
+        final AnnotationSearchResult annots = annotService.searchAnnotations(getOptions(10, 0), getUserInfoWithToken());
+
+        Assert.assertTrue(annots.getSearchModelUsed() instanceof SearchModelIscSingleGroup);
+        Assert.assertEquals(6, annots.getTotalItems());
+        Assert.assertEquals(Arrays.asList(ANNOT_A, ANNOT_B, ANNOT_D, ANNOT_F, ANNOT_G, ANNOT_X), getIds(annots));
+    }
+
+    // each page found by the database is the one of the post-filtered items
+    @Test
+    public void testPagesMatchPostFiltering() {
+
+        for (final int[] limitAndOffset : new int[][]{{2, 0}, {2, 2}, {2, 4}, {2, 6}, {4, 1}, {3, 5}, {10, 0}}) {
+
+            final AnnotationSearchOptions options = getOptions(limitAndOffset[0], limitAndOffset[1]);
+            final AnnotationSearchResult filteredByDb = annotService.searchAnnotations(options, getUserInfoWithToken());
+            final AnnotationSearchResult filteredInMemory = searchWithPostFilteringInMemory(options);
+
+            final String page = "limit " + limitAndOffset[0] + ", offset " + limitAndOffset[1];
+            Assert.assertEquals(page, getIds(filteredInMemory), getIds(filteredByDb));
+            Assert.assertEquals(page, filteredInMemory.getTotalItems(), filteredByDb.getTotalItems());
+        }
+    }
+
+    // the post-filtering is the same when no item of the highest responseVersion is linked
+    @Test
+    public void testNoLinkedItemsMatchesPostFiltering() {
+
+        for (final String annotId : Arrays.asList(ANNOT_B, ANNOT_C, ANNOT_E, ANNOT_F)) {
+            final Annotation annot = annotRepos.findById(annotId);
+            annot.setLinkedAnnotationId(null);
+            annotRepos.save(annot);
+        }
+
+        final AnnotationSearchOptions options = getOptions(3, 3);
+        final AnnotationSearchResult filteredByDb = annotService.searchAnnotations(options, getUserInfoWithToken());
+        final AnnotationSearchResult filteredInMemory = searchWithPostFilteringInMemory(options);
+
+        Assert.assertEquals(getIds(filteredInMemory), getIds(filteredByDb));
+        Assert.assertEquals(8, filteredByDb.getTotalItems());
+        Assert.assertEquals(filteredInMemory.getTotalItems(), filteredByDb.getTotalItems());
+    }
+
+    // -------------------------------------
+    // Helper functions
+    // -------------------------------------
+
+    // runs the search with a search model that can only apply its post-filtering on the loaded items
+    private AnnotationSearchResult searchWithPostFilteringInMemory(final AnnotationSearchOptions options) {
+
+        final SearchModelFactory inMemoryFactory = Mockito.spy(searchModelFactory);
+        Mockito.doAnswer(invocation -> {
+            final ResolvedSearchOptions rso = (ResolvedSearchOptions) invocation.getArguments()[0];
+            final SearchModel model = (SearchModel) invocation.callRealMethod();
+            return new SearchModelIscSingleGroup(rso, model.getMetadataAndStatusesList()) {
+                @Override
+                public Specification<Annotation> getPostFilterSpecification(final List<Metadata> metadataOfFoundItems) {
+                    return null;
+                }
+            };
+        }).when(inMemoryFactory).getSearchModel(Mockito.any(ResolvedSearchOptions.class));
+
+        ReflectionTestUtils.setField(annotService, "searchModelFactory", inMemoryFactory);
+        try {
+            return annotService.searchAnnotations(options, getUserInfoWithToken());
+        } finally {
+            ReflectionTestUtils.setField(annotService, "searchModelFactory", searchModelFactory);
+        }
+    }
+
+    // the metadata asked for: both response versions, only NORMAL items (deleted items are added as historical items only)
+    private AnnotationSearchOptions getOptions(final int limit, final int offset) {
+
+        final AnnotationSearchOptions options = new AnnotationSearchOptions(
+                uriString, DIGIT, // URI, group
+                false,            // provide separate replies
+                limit, offset,    // limit, offset
+                ASC, CREATED);    // order, sort column
+        options.setMetadataMapsWithStatusesList(Arrays.asList(
+                new SimpleMetadataWithStatuses(new SimpleMetadata(Metadata.PROP_RESPONSE_VERSION, "1"), Arrays.asList(AnnotationStatus.NORMAL)),
+                new SimpleMetadataWithStatuses(new SimpleMetadata(Metadata.PROP_RESPONSE_VERSION, "2"), Arrays.asList(AnnotationStatus.NORMAL))));
+        return options;
+    }
+
+    private UserInformation getUserInfoWithToken() {
+
+        return new UserInformation(new Token(digitWorldUser, Authorities.ISC, "acc1",
+                LocalDateTime.now().plusMinutes(5), "ref1", LocalDateTime.now().plusMinutes(5)));
+    }
+
+    private List<String> getIds(final AnnotationSearchResult result) {
+        return result.getItems().stream().map(Annotation::getId).collect(Collectors.toList());
+    }
+}
@@ -25,7 +25,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(properties = "spring.config.name=anot")
@@ -119,4 +124,128 @@ public class UserDetailsCacheTest {
         Assert.assertNull(userCache.getCachedUserDetails(LOGIN));
         Assert.assertEquals(0, userCache.size());
     }
+
+    /**
+     * test that user details are loaded once only and that statistics are recorded
+     */
+    @Test
+    public void testUserDetailsLoadedOnce() {
+
+        final String LOGIN = "loadeduser";
+        final UserDetails details = new UserDetails(LOGIN, (long) 48, "Santa", "Clause", null, "santa@clause.europa.eu", null);
+        final AtomicInteger loads = new AtomicInteger();
+
+        final UserDetailsCache cache = new UserDetailsCache(60, 0, 100);
+        Assert.assertEquals(details, cache.getUserDetails(LOGIN, login -> {
+            loads.incrementAndGet();
+            return details;
+        }));
+        Assert.assertEquals(details, cache.getUserDetails(LOGIN, login -> null));
+        Assert.assertEquals(1, loads.get());
+
+        Assert.assertEquals(1, cache.getStatistics().getHits());
+        Assert.assertEquals(1, cache.getStatistics().getMisses());
+        Assert.assertEquals(1, cache.getStatistics().getLoads());
+        Assert.assertEquals(1, cache.getStatistics().getSize());
+    }
+
+    /**
+     * test that used user details are reloaded in the background when reaching a certain age
+     */
+    @Test
+    public void testUserDetailsRefreshedAhead() {
+
+        final String LOGIN = "refresheduser";
+        final UserDetails details = new UserDetails(LOGIN, (long) 49, "Santa", "Clause", null, "santa@clause.europa.eu", null);
+        final UserDetails newDetails = new UserDetails(LOGIN, (long) 49, "Santa", "Claus", null, "santa@claus.europa.eu", null);
+        final AtomicInteger refreshes = new AtomicInteger();
+
+        // background reloads are run right away
+        final AdjustableClock clock = new AdjustableClock();
+        final UserDetailsCache cache = new UserDetailsCache(60, 30, 100, clock, task -> {
+            refreshes.incrementAndGet();
+            task.run();
+        });
+        cache.cache(LOGIN, details);
+
+        // before the refresh age, the cached details are returned
+        clock.advanceSeconds(29);
+        Assert.assertEquals(details, cache.getUserDetails(LOGIN, login -> newDetails));
+        Assert.assertEquals(0, refreshes.get());
+
+        // once the refresh age is reached, the cached details are returned, but reloaded in the background
+        clock.advanceSeconds(2);
+        Assert.assertEquals(details, cache.getUserDetails(LOGIN, login -> newDetails));
+        Assert.assertEquals(1, refreshes.get());
+        Assert.assertEquals(newDetails, cache.getCachedUserDetails(LOGIN));
+
+        // without being used, the details expire after their lifetime
+        clock.advanceSeconds(61);
+        Assert.assertNull(cache.getCachedUserDetails(LOGIN));
+    }
+
+    /**
+     * test that a scheduled cleanup wipes the cache once its time has passed
+     */
+    @Test
+    public void testUserDetailsCacheScheduledCleanup() {
+
+        final String LOGIN = "cleaneduser";
+        final AdjustableClock clock = new AdjustableClock();
+        final UserDetailsCache cache = new UserDetailsCache(600, 0, 100, clock, null);
+        cache.cache(LOGIN, new UserDetails(LOGIN, (long) 50, "Santa", "Clause", null, "santa@clause.europa.eu", null));
+
+        cache.setNextCacheCleanupTime(LocalDateTime.now(clock).plusMinutes(5));
+        Assert.assertNotNull(cache.getCachedUserDetails(LOGIN));
+
+        clock.advanceSeconds(301);
+        Assert.assertNull(cache.getCachedUserDetails(LOGIN));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    /**
+     * test that the number of cached user details is bounded
+     */
+    @Test
+    public void testUserDetailsCacheBounded() {
+
+        final UserDetailsCache cache = new UserDetailsCache(60, 0, 2);
+        for (int i = 0; i < 5; i++) {
+            cache.cache("user" + i, new UserDetails("user" + i, (long) i, "first", "last", null, "", null));
+        }
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, cache.getStatistics().getEvictions());
+    }
+
+    // -------------------------------------
+    // Helper classes
+    // -------------------------------------
+
+    /**
+     * clock whose time only changes when advanced explicitly
+     */
+    private static class AdjustableClock extends Clock {
+
+        private Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        public void advanceSeconds(final long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
 }
@@ -144,4 +144,39 @@ public class MetadataTest {
         Assert.assertEquals(4, meta.getResponseVersion());
         Assert.assertEquals("4", meta.getAllMetadataAsSimpleMetadata().get(Metadata.PROP_RESPONSE_VERSION));
     }
+
+    @Test
+    public void testKeyValueItemsFollowKeyValuePairs() {
+
+        final Metadata meta = new Metadata();
+        meta.setKeyValuePairs("ISCReference:ISC/1\r\n:novalue\nresponseVersion:2");
+
+        // the empty key is not kept, the carriage return is removed
+        Assert.assertEquals(2, meta.getKeyValueItems().size());
+        Assert.assertEquals("ISC/1", meta.getKeyValueItems().get(Metadata.PROP_ISC_REF));
+
+        meta.removeResponseVersion();
+        Assert.assertEquals(1, meta.getKeyValueItems().size());
+
+        // copies have the same items
+        final Metadata copy = new Metadata(meta);
+        Assert.assertEquals(meta.getKeyValueItems(), copy.getKeyValueItems());
+    }
+
+    @Test
+    public void testKeyValueItemsSkipTooLongItems() {
+
+        final StringBuilder longText = new StringBuilder();
+        while (longText.length() <= Metadata.MAX_VALUE_LENGTH_IN_TABLE) {
+            longText.append("abcdefghij");
+        }
+
+        final Metadata meta = new Metadata();
+        meta.setKeyValuePairs("longValue:" + longText + "\n" + longText + ":longKey\nshort:value");
+
+        // the items remain in the key-values, but are not stored in the key-value table
+        Assert.assertEquals(3, meta.getKeyValuePropertyAsSimpleMetadata().size());
+        Assert.assertEquals(1, meta.getKeyValueItems().size());
+        Assert.assertEquals("value", meta.getKeyValueItems().get("short"));
+    }
 }
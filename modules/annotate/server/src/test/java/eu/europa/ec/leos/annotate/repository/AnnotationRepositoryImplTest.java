@@ -13,7 +13,9 @@
  */
 package eu.europa.ec.leos.annotate.repository;
 
+import eu.europa.ec.leos.annotate.repository.impl.AnnotationByIdSearchSpec;
 import eu.europa.ec.leos.annotate.repository.impl.AnnotationRepositoryImpl;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,8 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
+import java.util.Arrays;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest(properties = "spring.config.name=anot")
 @WebAppConfiguration
@@ -43,4 +47,10 @@ public class AnnotationRepositoryImplTest {
 
         annotRepos.deleteAll();
     }
+
+    @Test
+    public void testNoMetadataOfNoMatches() {
+
+        Assert.assertTrue(annotRepos.findMetadataOfMatches(new AnnotationByIdSearchSpec(Arrays.asList("unknownId"))).isEmpty());
+    }
 }
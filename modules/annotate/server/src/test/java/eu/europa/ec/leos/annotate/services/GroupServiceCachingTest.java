@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.services;
+
+import eu.europa.ec.leos.annotate.helper.TestDbHelper;
+import eu.europa.ec.leos.annotate.model.entity.Group;
+import eu.europa.ec.leos.annotate.model.entity.User;
+import eu.europa.ec.leos.annotate.model.entity.UserGroup;
+import eu.europa.ec.leos.annotate.repository.GroupRepository;
+import eu.europa.ec.leos.annotate.repository.UserGroupRepository;
+import eu.europa.ec.leos.annotate.repository.UserRepository;
+import eu.europa.ec.leos.annotate.services.impl.GroupMembershipCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.config.name=anot", "group.membership.cache.seconds=600"})
+@ActiveProfiles("test")
+public class GroupServiceCachingTest {
+
+    /**
+     * Test cases on the caching of group memberships by the GroupService, which is disabled in the other tests
+     */
+
+    // -------------------------------------
+    // Required services and repositories
+    // -------------------------------------
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private GroupMembershipCache membershipCache;
+
+    @Autowired
+    private UserRepository userRepos;
+
+    @Autowired
+    private GroupRepository groupRepos;
+
+    @Autowired
+    private UserGroupRepository userGroupRepos;
+
+    private User user;
+    private Group group;
+
+    // -------------------------------------
+    // Cleanup of database content
+    // -------------------------------------
+    @Before
+    public void cleanDatabaseBeforeTests() {
+
+        TestDbHelper.cleanupRepositories(this);
+        membershipCache.clear();
+
+        user = userRepos.save(new User("demo"));
+        group = groupRepos.save(new Group("thegroup", true));
+    }
+
+    @After
+    public void cleanDatabaseAfterTests() {
+
+        TestDbHelper.cleanupRepositories(this);
+        membershipCache.clear();
+    }
+
+    // -------------------------------------
+    // Tests
+    // -------------------------------------
+
+    /**
+     * memberships are read from the database once, later changes of the database are not seen until they expire
+     */
+    @Test
+    public void testMembershipsCached() {
+
+        Assert.assertFalse(groupService.isUserMemberOfGroup(user, group));
+        Assert.assertTrue(groupService.getGroupIdsOfUser(user).isEmpty());
+
+        // membership saved directly, bypassing the service
+        userGroupRepos.save(new UserGroup(user.getId(), group.getId()));
+
+        Assert.assertFalse(groupService.isUserMemberOfGroup(user, group));
+        Assert.assertTrue(groupService.getGroupIdsOfUser(user).isEmpty());
+        Assert.assertEquals(1, membershipCache.getMembershipStatistics().getHits());
+        Assert.assertEquals(1, membershipCache.getMembershipStatistics().getLoads());
+    }
+
+    /**
+     * assigning a user to a group and removing him from it update his cached memberships
+     */
+    @Test
+    public void testMembershipsInvalidatedByAssignAndRemove() {
+
+        final Group otherGroup = groupRepos.save(new Group("othergroup", true));
+        userGroupRepos.save(new UserGroup(user.getId(), otherGroup.getId()));
+
+        Assert.assertFalse(groupService.isUserMemberOfGroup(user, group));
+        Assert.assertEquals(Arrays.asList(otherGroup.getId()), groupService.getGroupIdsOfUser(user));
+
+        Assert.assertTrue(groupService.assignUserToGroup(user, group));
+        Assert.assertTrue(groupService.isUserMemberOfGroup(user, group));
+        Assert.assertEquals(2, groupService.getGroupIdsOfUser(user).size());
+        Assert.assertEquals(2, groupService.getGroupsOfUser(user).size());
+
+        Assert.assertTrue(groupService.removeUserFromGroup(user, group));
+        Assert.assertFalse(groupService.isUserMemberOfGroup(user, group));
+        Assert.assertEquals(Arrays.asList(otherGroup.getId()), groupService.getGroupIdsOfUser(user));
+        Assert.assertTrue(groupService.isUserMemberOfGroup(user, otherGroup));
+    }
+}
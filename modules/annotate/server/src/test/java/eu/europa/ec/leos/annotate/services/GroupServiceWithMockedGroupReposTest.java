@@ -17,6 +17,7 @@ import eu.europa.ec.leos.annotate.helper.TestDbHelper;
 import eu.europa.ec.leos.annotate.model.entity.Group;
 import eu.europa.ec.leos.annotate.repository.GroupRepository;
 import eu.europa.ec.leos.annotate.services.exceptions.GroupAlreadyExistingException;
+import eu.europa.ec.leos.annotate.services.impl.GroupMembershipCache;
 import eu.europa.ec.leos.annotate.services.impl.GroupServiceImpl;
 import org.junit.After;
 import org.junit.Before;
@@ -26,6 +27,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -49,6 +51,10 @@ public class GroupServiceWithMockedGroupReposTest {
     @Mock
     private GroupRepository groupRepos;
 
+    // the membership cache is created without configuration, and thus does not cache anything
+    @Spy
+    private GroupMembershipCache membershipCache = new GroupMembershipCache();
+
     @InjectMocks
     private GroupServiceImpl groupService;
 
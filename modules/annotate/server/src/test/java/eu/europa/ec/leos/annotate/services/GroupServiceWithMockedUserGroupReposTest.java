@@ -18,6 +18,7 @@ import eu.europa.ec.leos.annotate.model.UserInformation;
 import eu.europa.ec.leos.annotate.model.entity.Group;
 import eu.europa.ec.leos.annotate.model.entity.User;
 import eu.europa.ec.leos.annotate.repository.*;
+import eu.europa.ec.leos.annotate.services.impl.GroupMembershipCache;
 import eu.europa.ec.leos.annotate.services.impl.GroupServiceImpl;
 import org.junit.After;
 import org.junit.Assert;
@@ -28,6 +29,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -47,6 +49,10 @@ public class GroupServiceWithMockedUserGroupReposTest {
     @Mock
     private UserGroupRepository userGroupRepos;
 
+    // the membership cache is created without configuration, and thus does not cache anything
+    @Spy
+    private GroupMembershipCache membershipCache = new GroupMembershipCache();
+
     @InjectMocks
     private GroupServiceImpl groupService;
 
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.annotate.services;
+
+import eu.europa.ec.leos.annotate.Authorities;
+import eu.europa.ec.leos.annotate.helper.TestDbHelper;
+import eu.europa.ec.leos.annotate.model.SimpleMetadata;
+import eu.europa.ec.leos.annotate.model.entity.Document;
+import eu.europa.ec.leos.annotate.model.entity.Group;
+import eu.europa.ec.leos.annotate.model.entity.Metadata;
+import eu.europa.ec.leos.annotate.repository.AnnotationTestRepository;
+import eu.europa.ec.leos.annotate.repository.DocumentRepository;
+import eu.europa.ec.leos.annotate.repository.GroupRepository;
+import eu.europa.ec.leos.annotate.repository.MetadataRepository;
+import eu.europa.ec.leos.annotate.repository.UserRepository;
+import eu.europa.ec.leos.annotate.repository.impl.MetadataCandidatesSearchSpec;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the metadata matching in the database with the former matching of the loaded candidates, on 100 000 metadata sets.
+ * The benchmark only runs with -Dannotate.metadataBenchmark=true, as inserting the metadata sets takes several minutes.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.config.name=anot")
+@ActiveProfiles("test")
+public class MetadataMatchingBenchmarkTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataMatchingBenchmarkTest.class);
+
+    private static final String BENCHMARK_PROPERTY = "annotate.metadataBenchmark";
+    private static final int METADATA_COUNT = 100000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int ISC_REFERENCES = 1000;
+    private static final int RESPONSE_IDS = 20;
+    private static final int MEASURED_RUNS = 10;
+
+    // -------------------------------------
+    // Required services and repositories
+    // -------------------------------------
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired
+    private MetadataMatchingService metadataMatchingService;
+
+    @Autowired
+    @Qualifier("annotationTestRepos")
+    private AnnotationTestRepository annotRepos;
+
+    @Autowired
+    private UserRepository userRepos;
+
+    @Autowired
+    private DocumentRepository documentRepos;
+
+    @Autowired
+    private GroupRepository groupRepos;
+
+    @Autowired
+    private MetadataRepository metadataRepos;
+
+    private Group defaultGroup;
+    private Document document;
+
+    // -------------------------------------
+    // Setup and cleanup of database content
+    // -------------------------------------
+    @BeforeClass
+    public static void checkBenchmarkEnabled() {
+
+        Assume.assumeTrue("Run with -D" + BENCHMARK_PROPERTY + "=true", Boolean.getBoolean(BENCHMARK_PROPERTY));
+    }
+
+    @Before
+    public void insertMetadata() throws Exception {
+
+        TestDbHelper.cleanupRepositories(this);
+        defaultGroup = TestDbHelper.insertDefaultGroup(groupRepos);
+        document = new Document(new URI("leos://benchmark"), "benchmark");
+        documentRepos.save(document);
+
+        final long start = System.nanoTime();
+        final List<Metadata> batch = new ArrayList<Metadata>();
+        for (int i = 0; i < METADATA_COUNT; i++) {
+            final Metadata meta = new Metadata(document, defaultGroup, Authorities.ISC);
+            meta.setKeyValuePairs(keyValuePairs(i));
+            batch.add(meta);
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                metadataRepos.save(batch);
+                batch.clear();
+            }
+        }
+        metadataRepos.save(batch);
+        LOG.info("{} metadata sets inserted in {} ms", METADATA_COUNT, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @After
+    public void cleanDatabaseAfterTests() {
+
+        TestDbHelper.cleanupRepositories(this);
+    }
+
+    // -------------------------------------
+    // Benchmarks
+    // -------------------------------------
+
+    // matching the candidates given as specification, in the database and on the loaded candidates
+    @Test
+    public void benchmarkFindIdsOfMatchingMetadatas() {
+
+        final MetadataCandidatesSearchSpec candidates = new MetadataCandidatesSearchSpec(document, Authorities.ISC, defaultGroup, null, null);
+        final SimpleMetadata requested = new SimpleMetadata();
+        requested.put("ISCReference", "ISC/2020/42");
+        requested.put("responseId", "SG-2");
+
+        final List<Long> inDatabase = measure("findIdsOfMatchingMetadatas, database",
+                () -> metadataMatchingService.findIdsOfMatchingMetadatas(candidates, requested));
+        final List<Long> inMemory = measure("findIdsOfMatchingMetadatas, loaded candidates",
+                () -> metadataRepos.findAll(candidates).stream()
+                        .filter(meta -> metadataMatchingService.areAllMetadataContainedInDbMetadata(requested, meta))
+                        .map(Metadata::getId)
+                        .collect(Collectors.toList()));
+
+        Assert.assertEquals(METADATA_COUNT / ISC_REFERENCES, inDatabase.size());
+        Assert.assertEquals(new HashSet<Long>(inMemory), new HashSet<Long>(inDatabase));
+    }
+
+    // finding the metadata set having exactly the given items, in the database and on the loaded candidates
+    @Test
+    public void benchmarkFindExactMetadata() {
+
+        final int index = METADATA_COUNT / 2;
+        final SimpleMetadata requested = new SimpleMetadata();
+        requested.put("ISCReference", "ISC/2020/" + index % ISC_REFERENCES);
+        requested.put("responseId", "SG-" + index % RESPONSE_IDS);
+        requested.put("index", Integer.toString(index));
+
+        final Metadata inDatabase = measure("findExactMetadata, database",
+                () -> metadataMatchingService.findExactMetadata(document, defaultGroup, Authorities.ISC, requested));
+        final Metadata inMemory = measure("findExactMetadata, loaded candidates",
+                () -> findExactMetadataInMemory(requested));
+
+        Assert.assertNotNull(inDatabase);
+        Assert.assertEquals(inMemory.getId(), inDatabase.getId());
+    }
+
+    // -------------------------------------
+    // Helper functions
+    // -------------------------------------
+
+    private static String keyValuePairs(final int index) {
+        return "ISCReference:ISC/2020/" + index % ISC_REFERENCES + "\nresponseId:SG-" + index % RESPONSE_IDS + "\nindex:" + index;
+    }
+
+    // former implementation of findExactMetadata: all metadata sets of the document, group and system are compared
+    private Metadata findExactMetadataInMemory(final SimpleMetadata requested) {
+
+        final Metadata metaHelp = new Metadata(document, defaultGroup, Authorities.ISC);
+        metaHelp.setKeyValuePropertyFromSimpleMetadata(requested);
+
+        return metadataService.findMetadataOfDocumentGroupSystemid(document, defaultGroup, Authorities.ISC).stream()
+                .filter(meta -> metadataMatchingService.areAllMetadataContainedInDbMetadata(requested, meta))
+                .filter(meta -> metadataMatchingService.areAllMetadataContainedInDbMetadata(meta.getKeyValuePropertyAsSimpleMetadata(), metaHelp))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private <T> T measure(final String name, final Supplier<T> search) {
+
+        T result = search.get(); // warm up
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            result = search.get();
+        }
+        LOG.info("{}: {} ms per search on {} metadata sets", name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / MEASURED_RUNS, METADATA_COUNT);
+        return result;
+    }
+}
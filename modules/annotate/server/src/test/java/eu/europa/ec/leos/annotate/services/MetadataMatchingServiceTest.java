@@ -21,6 +21,7 @@ import eu.europa.ec.leos.annotate.model.SimpleMetadata;
 import eu.europa.ec.leos.annotate.model.entity.*;
 import eu.europa.ec.leos.annotate.model.entity.Annotation.AnnotationStatus;
 import eu.europa.ec.leos.annotate.repository.*;
+import eu.europa.ec.leos.annotate.repository.impl.MetadataCandidatesSearchSpec;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -421,6 +422,146 @@ public class MetadataMatchingServiceTest {
         Assert.assertTrue(result.contains(thirdMeta.getId()));
     }
 
+    // test the getIdsOfMatchingMetadatas method for many (persisted) candidates, which are matched in the database
+    @Test
+    public void testGetIdsOfMatchingMetadatasInDatabase() throws Exception {
+
+        final Document document = new Document(new URI("leos://9"), "title9");
+        documentRepos.save(document);
+
+        // create candidates: every second one has the "common" property; versions 1.0 to 1.9 (twice)
+        final List<Metadata> metaList = new ArrayList<Metadata>();
+        final List<Long> expectedIds = new ArrayList<Long>();
+        for (int i = 0; i < 20; i++) {
+            final Metadata meta = new Metadata(document, defaultGroup, Authorities.EdiT);
+            meta.setVersion("1." + i / 2);
+            meta.setKeyValuePairs(i % 2 == 0 ? "common:commonval\nindex:" + i : "index:" + i);
+            metadataService.saveMetadata(meta);
+            metaList.add(meta);
+
+            if (i % 2 == 0 && i < 10) {
+                expectedIds.add(meta.getId());
+            }
+        }
+
+        // first set: "common" property and version up to 1.4; second set: unknown property
+        final SimpleMetadata firstMap = new SimpleMetadata();
+        firstMap.put("common", "commonval");
+        firstMap.put(VERSION, "<=1.4");
+
+        final SimpleMetadata secondMap = new SimpleMetadata();
+        secondMap.put("un", "known");
+
+        // act
+        List<Long> result = metadataMatchingService.getIdsOfMatchingMetadatas(metaList, Arrays.asList(firstMap, secondMap));
+        Assert.assertNotNull(result);
+        Assert.assertEquals(expectedIds.size(), result.size());
+        Assert.assertTrue(result.containsAll(expectedIds));
+
+        // a single property and the system ID
+        final SimpleMetadata thirdMap = new SimpleMetadata();
+        thirdMap.put("index", "3");
+        thirdMap.put(SYS_ID, Authorities.EdiT);
+
+        result = metadataMatchingService.getIdsOfMatchingMetadatas(metaList, thirdMap);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(metaList.get(3).getId(), result.get(0).longValue());
+
+        // no match for wrong response status
+        thirdMap.put(Metadata.PROP_RESPONSE_STATUS, "SENT");
+        Assert.assertNull(metadataMatchingService.getIdsOfMatchingMetadatas(metaList, thirdMap));
+    }
+
+    // test the findIdsOfMatchingMetadatas method, which selects and matches the candidates in a single query
+    @Test
+    public void testFindIdsOfMatchingMetadatasByCandidateSpecification() throws Exception {
+
+        final Document document = new Document(new URI("leos://10"), "title10");
+        documentRepos.save(document);
+
+        // create candidates: SENT ones having even indexes, IN_PREPARATION ones having odd indexes
+        final List<Metadata> metaList = new ArrayList<Metadata>();
+        for (int i = 0; i < 6; i++) {
+            final Metadata meta = new Metadata(document, defaultGroup, Authorities.ISC);
+            meta.setResponseStatus(i % 2 == 0 ? Metadata.ResponseStatus.SENT : Metadata.ResponseStatus.IN_PREPARATION);
+            meta.setKeyValuePairs("common:commonval\nindex:" + i);
+            metadataService.saveMetadata(meta);
+            metaList.add(meta);
+        }
+
+        final MetadataCandidatesSearchSpec sentSpec = new MetadataCandidatesSearchSpec(document, Authorities.ISC, defaultGroup, null,
+                Metadata.ResponseStatus.SENT);
+
+        // no restriction: all SENT candidates
+        List<Long> result = metadataMatchingService.findIdsOfMatchingMetadatas(sentSpec, null);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(3, result.size());
+
+        // restriction on a key/value pair
+        final SimpleMetadata requested = new SimpleMetadata();
+        requested.put("index", "2");
+        result = metadataMatchingService.findIdsOfMatchingMetadatas(sentSpec, requested);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(metaList.get(2).getId(), result.get(0).longValue());
+
+        // the pair is found, but not among the candidates
+        requested.put("index", "3");
+        Assert.assertNull(metadataMatchingService.findIdsOfMatchingMetadatas(sentSpec, requested));
+
+        // other system: no candidates
+        Assert.assertNull(metadataMatchingService.findIdsOfMatchingMetadatas(
+                new MetadataCandidatesSearchSpec(document, Authorities.EdiT, null, null, null), null));
+    }
+
+    // test that values exceeding the length of the key/value table are stored and matched without the table
+    @Test
+    public void testMatchLongValuesOutsideKeyValueTable() throws Exception {
+
+        final Document document = new Document(new URI("leos://11"), "title11");
+        documentRepos.save(document);
+
+        final StringBuilder longValue = new StringBuilder();
+        while (longValue.length() <= Metadata.MAX_VALUE_LENGTH_IN_TABLE) {
+            longValue.append("0123456789");
+        }
+
+        // create enough candidates for being matched in the database; the first one has the long value
+        final List<Metadata> metaList = new ArrayList<Metadata>();
+        for (int i = 0; i < 20; i++) {
+            final Metadata meta = new Metadata(document, defaultGroup, Authorities.EdiT);
+            meta.setKeyValuePairs(i == 0 ? "long:" + longValue + "\nindex:0" : "long:short\nindex:" + i);
+            metadataService.saveMetadata(meta); // the long value must not be written to the key/value table
+            metaList.add(meta);
+        }
+
+        final SimpleMetadata requested = new SimpleMetadata();
+        requested.put("long", longValue.toString());
+
+        // matched on the loaded candidates...
+        List<Long> result = metadataMatchingService.getIdsOfMatchingMetadatas(metaList, requested);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(metaList.get(0).getId(), result.get(0).longValue());
+
+        // ... also when the candidates are given as specification
+        result = metadataMatchingService.findIdsOfMatchingMetadatas(
+                new MetadataCandidatesSearchSpec(document, Authorities.EdiT, defaultGroup, null, null), requested);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(metaList.get(0).getId(), result.get(0).longValue());
+
+        // the exact search ignores the long value in the database, but still checks it
+        requested.put("index", "0");
+        final Metadata exact = metadataMatchingService.findExactMetadata(document, defaultGroup, Authorities.EdiT, requested);
+        Assert.assertNotNull(exact);
+        Assert.assertEquals(metaList.get(0).getId(), exact.getId());
+
+        requested.put("long", longValue.toString() + "x");
+        Assert.assertNull(metadataMatchingService.findExactMetadata(document, defaultGroup, Authorities.EdiT, requested));
+    }
+
     // tests retrieval of Metadata without other reference metadata
     @Test
     @SuppressFBWarnings(value = SpotBugsAnnotations.KnownNullValue, justification = SpotBugsAnnotations.KnownNullValueReason)
@@ -28,6 +28,7 @@ import eu.europa.ec.leos.annotate.services.AnnotationConversionService;
 import eu.europa.ec.leos.annotate.services.AnnotationPermissionService;
 import eu.europa.ec.leos.annotate.services.AnnotationService;
 import eu.europa.ec.leos.annotate.services.UserService;
+import eu.europa.ec.leos.annotate.services.impl.AnnotationCountCache;
 import eu.europa.ec.leos.annotate.services.impl.AnnotationConversionServiceImpl;
 import eu.europa.ec.leos.annotate.services.impl.AnnotationPermissionServiceImpl;
 import org.junit.Before;
@@ -38,14 +39,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MessageBrokerTest {
@@ -58,6 +62,9 @@ public class MessageBrokerTest {
     
     @Mock
     private UserService userService;
+
+    @Mock
+    private AnnotationCountCache countCache;
     
     @InjectMocks
     private MessageBroker messageBroker;
@@ -120,8 +127,7 @@ public class MessageBrokerTest {
         messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x1");
         messageBroker.publish(ANN2, MessageBroker.ACTION.CREATE, "x2");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
 
         // verify
@@ -188,8 +194,7 @@ public class MessageBrokerTest {
         messageBroker.subscribe(subscriptionRequest2, subscriber2, userInformation2);
         messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x1");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
 
         // verify that sent annotation was the anonymised one
@@ -243,8 +248,7 @@ public class MessageBrokerTest {
 
         messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x1");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
 
         // verify
@@ -294,8 +298,7 @@ public class MessageBrokerTest {
         messageBroker.publish(ANN1, MessageBroker.ACTION.DELETE, "x1");
         messageBroker.publish(ANN2, MessageBroker.ACTION.DELETE, "x2");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
 
         // verify
@@ -352,8 +355,7 @@ public class MessageBrokerTest {
         messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x1");
         messageBroker.publish(ANN2, MessageBroker.ACTION.CREATE, "x2");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
 
         // verify
@@ -450,17 +452,120 @@ public class MessageBrokerTest {
         messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x1");
         messageBroker.publish(ANN2, MessageBroker.ACTION.CREATE, "x2");
 
-        // call
-        messageBroker.updateSubscribers();
+        // wait for the notifications to be dispatched
         Thread.sleep(1000);
         messageBroker.unsubscribe("s1");
         messageBroker.publish(ANN2, MessageBroker.ACTION.UPDATE, "x2");
+        Thread.sleep(1000);
 
         // verify
         Mockito.verify(subscriber, Mockito.times(1)).sendMessage(Mockito.any(TextMessage.class));
         Mockito.verify(subscriber2, Mockito.times(1)).sendMessage(Mockito.any(TextMessage.class));
     }
 
+    @Test
+    public void testBroadcast_Annotation_converted_once_per_permission_class() throws Exception {
+        // setup
+        final SubscriptionRequest subscriptionRequest = Mockito.mock(SubscriptionRequest.class);
+        final Clause clause1 = new Clause(URI, ONEOF, Collections.singleton(TESTURI), false, Collections.emptyList());
+        final Filter filter1 = new Filter(INCL_ANY, Collections.singletonMap(CREATE, Boolean.TRUE), Collections.singletonList(clause1));
+        Mockito.when(subscriptionRequest.getFilter()).thenReturn(filter1);
+
+        // two LEOS users and one ISC user
+        final WebSocketSession subscriber = Mockito.mock(WebSocketSession.class);
+        final UserInformation userInformation = new UserInformation("login", Authorities.EdiT);
+        userInformation.setClientId("x1");
+        final WebSocketSession subscriber2 = Mockito.mock(WebSocketSession.class);
+        final UserInformation userInformation2 = new UserInformation("login2", Authorities.EdiT);
+        userInformation2.setClientId("x2");
+        final WebSocketSession subscriber3 = Mockito.mock(WebSocketSession.class);
+        final UserInformation userInformation3 = new UserInformation("login3", Authorities.ISC);
+        userInformation3.setClientId("x3");
+
+        final Annotation annotation1 = Mockito.mock(Annotation.class);
+        final Document doc = new Document(new URI(TESTURI), TITLE);
+        Mockito.when(annotation1.getDocument()).thenReturn(doc);
+        Mockito.when(annotation1.isShared()).thenReturn(true);
+        Mockito.when(anotService.findAnnotationById(ANN1)).thenReturn(annotation1);
+        final JsonAnnotation jsonAnnotation1 = new JsonAnnotation();
+        jsonAnnotation1.setId(ANN1);
+        Mockito.when(conversionService.convertToJsonAnnotation(Mockito.eq(annotation1), Mockito.any(UserInformation.class))).thenReturn(jsonAnnotation1);
+
+        messageBroker.subscribe(subscriptionRequest, subscriber, userInformation);
+        messageBroker.subscribe(subscriptionRequest, subscriber2, userInformation2);
+        messageBroker.subscribe(subscriptionRequest, subscriber3, userInformation3);
+        messageBroker.publish(ANN1, MessageBroker.ACTION.CREATE, "x0");
+
+        // wait for the notifications to be dispatched
+        Thread.sleep(1000);
+
+        // verify: all are notified, the annotation was loaded once and converted once per authority
+        Mockito.verify(subscriber).sendMessage(Mockito.any(TextMessage.class));
+        Mockito.verify(subscriber2).sendMessage(Mockito.any(TextMessage.class));
+        Mockito.verify(subscriber3).sendMessage(Mockito.any(TextMessage.class));
+        Mockito.verify(anotService, Mockito.times(1)).findAnnotationById(ANN1);
+        Mockito.verify(conversionService, Mockito.times(2)).convertToJsonAnnotation(Mockito.eq(annotation1), Mockito.any(UserInformation.class));
+    }
+
+    @Test
+    public void testBroadcast_notifications_sent_in_order_of_publication() throws Exception {
+        // setup
+        final WebSocketSession subscriber = subscribeToTestUri("s1", "x1");
+        final int numberOfMessages = 50;
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            messageBroker.publish("an" + i, MessageBroker.ACTION.DELETE, "x2");
+        }
+
+        // verify
+        final ArgumentCaptor<TextMessage> argument = ArgumentCaptor.forClass(TextMessage.class);
+        Mockito.verify(subscriber, Mockito.timeout(5000).times(numberOfMessages)).sendMessage(argument.capture());
+        for (int i = 0; i < numberOfMessages; i++) {
+            assertEquals("an" + i, getId(argument.getAllValues().get(i)));
+        }
+    }
+
+    @Test
+    public void testBroadcast_dropped_notifications_counted() throws Exception {
+        // setup: the client only receives one notification at a time, and does not keep up
+        ReflectionTestUtils.setField(messageBroker, "sendQueueCapacity", 1);
+        final CountDownLatch clientBlocked = new CountDownLatch(1);
+        final WebSocketSession subscriber = subscribeToTestUri("s1", "x1");
+        Mockito.doAnswer(invocation -> {
+            clientBlocked.await();
+            return null;
+        }).when(subscriber).sendMessage(Mockito.any());
+
+        for (int i = 0; i < 5; i++) {
+            messageBroker.publish("an" + i, MessageBroker.ACTION.DELETE, "x2");
+        }
+
+        // verify: besides the notification being sent (if any) and the one queued, all are dropped
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (messageBroker.getDroppedNotifications() < 3 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        clientBlocked.countDown();
+        assertTrue(messageBroker.getDroppedNotifications() >= 3);
+        assertEquals(0, messageBroker.getDroppedMessages());
+        assertEquals(0, messageBroker.getClosedSessions());
+    }
+
+    private WebSocketSession subscribeToTestUri(final String sessionId, final String clientId) {
+        final SubscriptionRequest subscriptionRequest = Mockito.mock(SubscriptionRequest.class);
+        final Clause clause = new Clause(URI, ONEOF, Collections.singleton(TESTURI), false, Collections.emptyList());
+        final Filter filter = new Filter(INCL_ANY, Collections.singletonMap(CREATE, Boolean.TRUE), Collections.singletonList(clause));
+        Mockito.when(subscriptionRequest.getFilter()).thenReturn(filter);
+
+        final WebSocketSession subscriber = Mockito.mock(WebSocketSession.class);
+        Mockito.when(subscriber.getId()).thenReturn(sessionId);
+        final UserInformation userInformation = Mockito.mock(UserInformation.class);
+        Mockito.when(userInformation.getClientId()).thenReturn(clientId);
+
+        messageBroker.subscribe(subscriptionRequest, subscriber, userInformation);
+        return subscriber;
+    }
+
     @SuppressWarnings("unchecked")
     private String getId(final TextMessage textMessage) throws JsonParseException, JsonMappingException, IOException {
         final ObjectMapper objMapper = new ObjectMapper();
@@ -14,6 +14,7 @@
 package eu.europa.ec.leos.domain.cmis;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface Content {
 
@@ -29,5 +30,11 @@ public interface Content {
         InputStream getInputStream();
 
         byte[] getBytes();
+
+        /** Content shared by all readers without copying it, it must not be modified: use {@link #getBytes()} to get a copy to modify. */
+        byte[] getSharedBytes();
+
+        /** Read-only view of the content, without copying it. */
+        ByteBuffer getByteBuffer();
     }
 }
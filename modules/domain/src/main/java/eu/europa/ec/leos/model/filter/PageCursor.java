@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.model.filter;
+
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Position after the last document of a page, used for keyset pagination.
+ * The next page is searched from the sort date of that document instead of skipping all the previous results.
+ * The ids of the documents already returned with that same date are kept, to be skipped on the next page.
+ */
+public final class PageCursor {
+
+    private final String sortKey;
+    private final boolean descending;
+    private final Instant value;
+    private final Set<String> ids;
+
+    private PageCursor(String sortKey, boolean descending, Instant value, Set<String> ids) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.value = value;
+        this.ids = Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Returns the cursor following the given page
+     *
+     * @param previous the cursor the page was searched from, null for the first page.
+     * @param page the documents of the page, in the sort order.
+     * @param sortOrder the sort order of the search, on a {@link #isKeysetSortOrder keyset} key.
+     * @return the cursor of the next page, the previous cursor if the page is empty.
+     */
+    public static PageCursor after(PageCursor previous, List<? extends LeosDocument> page, QueryFilter.SortOrder sortOrder) {
+        if (!isKeysetSortOrder(sortOrder)) {
+            throw new IllegalArgumentException("Keyset pagination is not supported on " + (sortOrder != null ? sortOrder.key : null));
+        }
+        if (page.isEmpty()) {
+            return previous;
+        }
+        Instant value = getSortValue(page.get(page.size() - 1), sortOrder.key);
+        Set<String> ids = new HashSet<>();
+        if (previous != null && value.equals(previous.value)) {
+            ids.addAll(previous.ids);
+        }
+        for (LeosDocument document : page) {
+            if (value.equals(getSortValue(document, sortOrder.key))) {
+                ids.add(document.getId());
+            }
+        }
+        return new PageCursor(sortOrder.key, QueryFilter.SORT_DESCENDING.equalsIgnoreCase(sortOrder.direction), value, ids);
+    }
+
+    /**
+     * Keyset pagination is possible on the creation and the last modification dates
+     */
+    public static boolean isKeysetSortOrder(QueryFilter.SortOrder sortOrder) {
+        return sortOrder != null && (QueryFilter.FilterType.creationDate.name().equals(sortOrder.key) ||
+                QueryFilter.FilterType.lastModificationDate.name().equals(sortOrder.key));
+    }
+
+    private static Instant getSortValue(LeosDocument document, String sortKey) {
+        return QueryFilter.FilterType.creationDate.name().equals(sortKey)
+                ? document.getCreationInstant()
+                : document.getLastModificationInstant();
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public Instant getValue() {
+        return value;
+    }
+
+    /**
+     * Returns true if the document with the given id was already returned in the previous pages
+     */
+    public boolean isReturned(String id) {
+        return ids.contains(id);
+    }
+
+    public int getReturnedCount() {
+        return ids.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PageCursor that = (PageCursor) o;
+        return descending == that.descending &&
+                Objects.equals(sortKey, that.sortKey) &&
+                Objects.equals(value, that.value) &&
+                Objects.equals(ids, that.ids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortKey, descending, value, ids);
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor{sortKey=" + sortKey + ", descending=" + descending + ", value=" + value + ", ids=" + ids + '}';
+    }
+}
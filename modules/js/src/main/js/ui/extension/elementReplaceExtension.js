@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+; // jshint ignore:line
+define(function elementReplaceExtensionModule(require) {
+    "use strict";
+
+    // load module dependencies
+    var $ = require("jquery");
+    var log = require("logger");
+    var UTILS = require("core/leosUtils");
+
+    function _initElementReplace(connector) {
+        log.debug("Initializing ElementReplace extension...");
+        connector.target = UTILS.getParentElement(connector);
+        connector.replaceElement = _replaceElement;
+
+        log.debug("Registering ElementReplace extension unregistration listener...");
+        connector.onUnregister = _connectorUnregistrationListener;
+    }
+
+    function _replaceElement(elementId, elementHtml) {
+        var connector = this;
+        var $element = $(connector.target).find("[id='" + elementId + "']").first();
+        if ($element.length) {
+            log.debug("Replacing element " + elementId + "...");
+            $element.replaceWith(elementHtml);
+        } else {
+            log.warn("Element " + elementId + " to replace not found");
+        }
+        connector.elementReplaced(elementId, $element.length > 0);
+    }
+
+    // handle connector unregistration on client-side
+    function _connectorUnregistrationListener() {
+        var connector = this;
+        log.debug("Unregistering ElementReplace extension...");
+        // clean connector
+        connector.target = null;
+    }
+
+    return {
+        init: _initElementReplace
+    };
+});
@@ -18,36 +18,85 @@ import eu.europa.ec.leos.domain.cmis.Content;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
-import static java.util.Arrays.copyOf;
 import static org.apache.commons.io.IOUtils.toByteArray;
 
+/**
+ * Content source read from the repository.
+ *
+ * The stream is only drained on first access, so documents fetched for their metadata never pay for their content.
+ * Once loaded the content is shared between all callers: {@link #getSharedBytes()}, {@link #getByteBuffer()} and
+ * {@link #getInputStream()} do not copy it, {@link #getBytes()} returns a copy the caller may modify.
+ */
 public class SourceImpl implements Content.Source {
 
-    private final byte[] content;
+    private final Supplier<InputStream> loader;
+
+    private volatile byte[] bytes;
 
     public SourceImpl(InputStream inputStream) {
-        try {
-            this.content = toByteArray(inputStream);
-            inputStream.close();
-        } catch (IOException e) {
-            throw new IllegalStateException("Could not read the content of the cmis", e);
-        }
+        this(() -> inputStream);
+        content();
+    }
+
+    public SourceImpl(Supplier<InputStream> loader) {
+        this.loader = loader;
     }
 
     @Override
     public InputStream getInputStream() {
-        return new ByteArrayInputStream(content);
+        return new ByteArrayInputStream(content());
     }
 
+    /**
+     * Returns a copy of the content, prefer {@link #getSharedBytes()} to read it without copying.
+     */
     @Override
     public byte[] getBytes() {
-        return copyOf(content, content.length);
+        return content().clone();
+    }
+
+    @Override
+    public byte[] getSharedBytes() {
+        return content();
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return ByteBuffer.wrap(content()).asReadOnlyBuffer();
+    }
+
+    boolean isLoaded() {
+        return bytes != null;
     }
 
     @Override
     public String toString() {
-        return new String(content, Charset.forName("UTF-8"));
+        return new String(content(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] content() {
+        byte[] content = bytes;
+        if (content == null) {
+            synchronized (this) {
+                content = bytes;
+                if (content == null) {
+                    content = load();
+                    bytes = content;
+                }
+            }
+        }
+        return content;
+    }
+
+    private byte[] load() {
+        try (InputStream inputStream = loader.get()) {
+            return toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the content of the cmis", e);
+        }
     }
 }
@@ -38,7 +38,10 @@ import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.time.Instant;
 import java.util.GregorianCalendar;
@@ -48,6 +51,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.UnknownFormatConversionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static eu.europa.ec.leos.cmis.extensions.CmisMetadataExtensions.getAnnexMetadataOption;
 import static eu.europa.ec.leos.cmis.extensions.CmisMetadataExtensions.getBillMetadataOption;
@@ -248,16 +252,47 @@ public class CmisDocumentExtensions {
     private static Option<Content> contentOption(Document document, boolean fetchContent) {
         Content content = null;
         if (fetchContent) {
-            ContentStream contentStream = document.getContentStream();
-            if (contentStream != null) {
-                content = new ContentImpl(contentStream.getFileName(), contentStream.getMimeType(),
-                        contentStream.getLength(), new SourceImpl(contentStream.getStream()));
+            long length = document.getContentStreamLength();
+            if (length > 0) {
+                // the stream itself is only requested when the content is first read
+                content = new ContentImpl(document.getContentStreamFileName(), document.getContentStreamMimeType(),
+                        length, new SourceImpl(contentLoader(document)));
+            } else {
+                // unknown or empty length: only the stream tells whether there is a content
+                ContentStream contentStream = document.getContentStream();
+                if (contentStream != null) {
+                    content = new ContentImpl(contentStream.getFileName(), contentStream.getMimeType(),
+                            contentStream.getLength(), new SourceImpl(contentStream.getStream()));
+                }
             }
         }
 
         return Option.option(content);
     }
 
+    private static Supplier<InputStream> contentLoader(Document document) {
+        // the content may first be read on another thread (prefetching, cached documents), but the repository
+        // authenticates the request with the current security context: keep the one of the user reading the document
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        return () -> {
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                return getContentStream(document);
+            } finally {
+                SecurityContextHolder.setContext(previousContext);
+            }
+        };
+    }
+
+    private static InputStream getContentStream(Document document) {
+        ContentStream contentStream = document.getContentStream();
+        if (contentStream == null) {
+            throw new IllegalStateException("Content stream not found for document " + document.getId());
+        }
+        return contentStream.getStream();
+    }
+
     static Map<String, String> getCollaborators(Document document) {
 
         Property<String> collaboratorsProperty = document.getProperty(CmisProperties.COLLABORATORS.getId());
@@ -13,14 +13,18 @@
  */
 package eu.europa.ec.leos.cmis.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import eu.europa.ec.leos.cmis.extensions.CmisDocumentExtensions;
 import eu.europa.ec.leos.cmis.mapping.CmisProperties;
 import eu.europa.ec.leos.cmis.search.SearchStrategy;
 import eu.europa.ec.leos.cmis.search.SearchStrategyProvider;
+import eu.europa.ec.leos.cmis.support.DocumentLockManager;
 import eu.europa.ec.leos.cmis.support.OperationContextProvider;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.LeosLegStatus;
 import eu.europa.ec.leos.domain.cmis.common.VersionType;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
@@ -35,18 +39,21 @@ import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static eu.europa.ec.leos.cmis.support.OperationContextProvider.getMinimalContext;
@@ -57,13 +64,27 @@ public class CmisRepository {
     private static final Logger logger = LoggerFactory.getLogger(CmisRepository.class);
 
     private final Session cmisSession;
-    private static final Map<String, Long> synchronizedKeys = new ConcurrentHashMap<>();
+    private final LeosDocumentCache documentCache;
+    private final DocumentLockManager lockManager;
 
-    CmisRepository(Session cmisSession) {
+    // folders resolved recently, by path and by id, dropped when folders are deleted through this node only:
+    // the other nodes of a cluster keep them until they expire, so the expiration bounds how long a folder
+    // deleted elsewhere can still be returned
+    private final Cache<String, Folder> foldersByPath;
+    private final Cache<String, Folder> foldersById;
+
+    CmisRepository(Session cmisSession, LeosDocumentCache documentCache, DocumentLockManager lockManager,
+                   @Value("${leos.repository.folderCache.expireAfterWriteInSeconds:60}") long folderExpireAfterWriteInSeconds) {
         this.cmisSession = cmisSession;
+        this.documentCache = documentCache;
+        this.lockManager = lockManager;
+        this.foldersByPath = CacheBuilder.newBuilder().maximumSize(1000)
+                .expireAfterWrite(folderExpireAfterWriteInSeconds, TimeUnit.SECONDS).build();
+        this.foldersById = CacheBuilder.newBuilder().maximumSize(1000)
+                .expireAfterWrite(folderExpireAfterWriteInSeconds, TimeUnit.SECONDS).build();
     }
 
-    private SearchStrategy getSearchStrategy() {
+    SearchStrategy getSearchStrategy() {
         return SearchStrategyProvider.getSearchStrategy(cmisSession);
     }
 
@@ -76,7 +97,9 @@ public class CmisRepository {
         properties.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
         properties.put(PropertyIds.NAME, name);
 
-        return parentFolder.createFolder(properties, null, null, null, context);
+        Folder folder = parentFolder.createFolder(properties, null, null, null, context);
+        cacheFolder(folder.getPath(), folder);
+        return folder;
     }
 
     void deleteFolder(final String path) {
@@ -84,6 +107,9 @@ public class CmisRepository {
         OperationContext context = getMinimalContext(cmisSession);
         Folder folder = findFolderByPath(path, context);
         folder.deleteTree(true, UnfileObject.DELETE, true);
+        foldersByPath.invalidateAll();
+        foldersById.invalidateAll();
+        documentCache.invalidateAll();
     }
 
     Document createDocumentFromContent(final String path, final String name, Map<String, ?> properties, final String mimeType, byte[] contentBytes) {
@@ -123,34 +149,41 @@ public class CmisRepository {
         CmisObject cmisObject = cmisSession.getObject(id, context);
         require(cmisObject instanceof Document, "CMIS object referenced by id [" + id + "] is not a Document!");
         cmisObject.delete(true);
+        documentCache.invalidateSeries(((Document) cmisObject).getVersionSeriesId());
     }
 
     Document updateDocument(final String id, Map<String, ?> properties) {
         logger.trace("Updating document properties... [id=" + id + "]");
         OperationContext context = getMinimalContext(cmisSession);
         Document document = findDocumentById(id, true, context);
-        return (Document) document.updateProperties(properties);
+        Document updatedDocument = (Document) document.updateProperties(properties);
+        documentCache.invalidateSeries(document.getVersionSeriesId());
+        return updatedDocument;
     }
 
     public Document updateDocument(String id, Map<String, ?> properties, byte[] updatedDocumentBytes, VersionType versionType, String comment) {
-        try {
-            synchronized (getSyncKey(id)) {
-                logger.trace("Updating document properties and content... [id=" + id + ']');
-                Document pwc = checkOutWorkingCopy(id);
-                Document udpatedDocument = checkInWorkingCopy(pwc, properties, updatedDocumentBytes, versionType, comment);
-                logger.trace("Updated document properties and content...");
-                if (udpatedDocument == null) {
-                    throw new IllegalStateException("Update not successful for document:" + id);
-                } else {
-                    return udpatedDocument;
-                }
+        OperationContext context = getMinimalContext(cmisSession);
+        // the version id changes at every check in, the writers of a document are serialised on its version series
+        String versionSeriesId = findDocumentById(id, true, context).getVersionSeriesId();
+        try (DocumentLockManager.DocumentLock lock = lockManager.lock(versionSeriesId)) {
+            logger.trace("Updating document properties and content... [id=" + id + ']');
+            // read again within the lock, another writer may have checked in a new version meanwhile
+            Document document = findDocumentById(id, true, context);
+            // the latest checked in version holds the last version label, no need to load the whole version series
+            String lastVersionLabel = CmisDocumentExtensions.getLeosVersionLabel(document);
+            Document pwc = checkOutWorkingCopy(document);
+            Document udpatedDocument = checkInWorkingCopy(pwc, lastVersionLabel, properties, updatedDocumentBytes, versionType, comment);
+            logger.trace("Updated document properties and content...");
+            if (udpatedDocument == null) {
+                throw new IllegalStateException("Update not successful for document:" + id);
+            } else {
+                documentCache.invalidateSeries(udpatedDocument.getVersionSeriesId());
+                return udpatedDocument;
             }
-        } finally {
-            cleanSyncKey(id);
         }
     }
 
-    private Document checkInWorkingCopy(Document pwc, Map<String, ?> properties, byte[] updatedDocumentBytes, VersionType versionType, String comment) {
+    private Document checkInWorkingCopy(Document pwc, String lastVersionLabel, Map<String, ?> properties, byte[] updatedDocumentBytes, VersionType versionType, String comment) {
         Map<String, Object> updatedProperties = new LinkedHashMap<>();
         // KLUGE LEOS-2408 workaround for issue related to reset properties values with OpenCMIS In-Memory server
         logger.trace("KLUGE LEOS-2408 workaround for reset properties values...");
@@ -176,8 +209,7 @@ public class CmisRepository {
                         updatedDocumentBytes.length, pwcContentStream.getMimeType(), byteStream);
 
                 updatedProperties.put(CmisProperties.VERSION_TYPE.getId(), versionType.value());
-                updatedProperties.put(CmisProperties.VERSION_LABEL.getId(),
-                        getNextVersionLabel(versionType, pwc.getAllVersions().size() > 1 ? CmisDocumentExtensions.getLeosVersionLabel(pwc.getAllVersions().get(1)) : null));
+                updatedProperties.put(CmisProperties.VERSION_LABEL.getId(), getNextVersionLabel(versionType, lastVersionLabel));
 
                 updatedDocId = pwc.checkIn(versionType.equals(VersionType.MAJOR) || versionType.equals(VersionType.INTERMEDIATE), updatedProperties, contentStream, comment);
                 logger.trace("Document checked-in successfully...[updated document id:" + updatedDocId.getId() + ']');
@@ -193,9 +225,9 @@ public class CmisRepository {
         }
     }
 
-    private Document checkOutWorkingCopy(String id) {
+    private Document checkOutWorkingCopy(Document document) {
+        String id = document.getId();
         OperationContext context = getMinimalContext(cmisSession);
-        Document document = findDocumentById(id, true, context);
 
         String pwcId;
         if (document.isVersionSeriesCheckedOut()) {
@@ -257,6 +289,36 @@ public class CmisRepository {
         return getSearchStrategy().findDocumentsByStatus(status, primaryType, context);
     }
 
+    /**
+     * Populates the leos:versionLabel property of the latest versions where it is missing,
+     * so that the label of the next version can be computed without loading the version series.
+     * The properties are updated in place, if the repository creates a new version on update
+     * the backfill stops after the first document, the labels are then written at the next checkin.
+     * @return the number of updated documents
+     */
+    int backfillVersionLabels(String primaryType) {
+        logger.trace("Backfilling version labels... [primaryType=" + primaryType + ']');
+        OperationContext context = getMinimalContext(cmisSession);
+        List<Document> documents = getSearchStrategy().findDocumentsWithoutVersionLabel(primaryType, context);
+        int updated = 0;
+        for (Document document : documents) {
+            try {
+                String versionLabel = CmisDocumentExtensions.getLeosVersionLabel(document);
+                CmisObject updatedDocument = document.updateProperties(Collections.singletonMap(CmisProperties.VERSION_LABEL.getId(), versionLabel));
+                documentCache.invalidateSeries(document.getVersionSeriesId());
+                if (updatedDocument != null && !document.getId().equals(updatedDocument.getId())) {
+                    logger.error("Version label backfill stopped, the update created version " + updatedDocument.getId() + " of document " + document.getId());
+                    break;
+                }
+                updated++;
+            } catch (CmisBaseException e) {
+                logger.error("Version label backfill failed for document " + document.getId(), e);
+            }
+        }
+        logger.trace("Backfilled version label of " + updated + " CMIS document(s).");
+        return updated;
+    }
+
     List<Document> findAllVersions(final String id) {
         logger.trace("Finding all document versions... [id=" + id + ']');
         OperationContext context = getMinimalContext(cmisSession);
@@ -280,36 +342,48 @@ public class CmisRepository {
     }
 
     private Folder findFolderByPath(String path, OperationContext context) {
-        boolean pathAvailable = cmisSession.existsPath(path);
-        require(pathAvailable, "Path [" + path + "] is not available in CMIS repository!");
-        CmisObject cmisObject = cmisSession.getObjectByPath(path, context);
-        require(cmisObject instanceof Folder, "CMIS object referenced by path [" + path + "] is not a Folder!");
-        return (Folder) cmisObject;
+        Folder folder = foldersByPath.getIfPresent(path);
+        if (folder == null) {
+            CmisObject cmisObject;
+            try {
+                cmisObject = cmisSession.getObjectByPath(path, context);
+            } catch (CmisObjectNotFoundException e) {
+                throw new IllegalArgumentException("Path [" + path + "] is not available in CMIS repository!", e);
+            }
+            require(cmisObject instanceof Folder, "CMIS object referenced by path [" + path + "] is not a Folder!");
+            folder = (Folder) cmisObject;
+            cacheFolder(path, folder);
+        }
+        return folder;
     }
 
     private Folder findFolderById(String id, OperationContext context) {
-        boolean idAvailable = cmisSession.exists(id);
-        require(idAvailable, "Id [" + id + "] is not available in CMIS repository!");
-        CmisObject cmisObject = cmisSession.getObject(id, context);
-        require(cmisObject instanceof Folder, "CMIS object referenced by id [" + id + "] is not a Folder!");
-        return (Folder) cmisObject;
-    }
-
-    private void require(boolean requiredCondition, String message) {
-        if (!requiredCondition) {
-            throw new IllegalArgumentException(message);
+        Folder folder = foldersById.getIfPresent(id);
+        if (folder == null) {
+            CmisObject cmisObject;
+            try {
+                cmisObject = cmisSession.getObject(id, context);
+            } catch (CmisObjectNotFoundException e) {
+                throw new IllegalArgumentException("Id [" + id + "] is not available in CMIS repository!", e);
+            }
+            require(cmisObject instanceof Folder, "CMIS object referenced by id [" + id + "] is not a Folder!");
+            folder = (Folder) cmisObject;
+            cacheFolder(folder.getPath(), folder);
         }
+        return folder;
     }
 
-    private static synchronized Long getSyncKey(String key) {
-        if (!synchronizedKeys.containsKey(key) ) {
-            synchronizedKeys.put(key, new Long(System.currentTimeMillis()));
+    private void cacheFolder(String path, Folder folder) {
+        if (path != null) {
+            foldersByPath.put(path, folder);
         }
-        return synchronizedKeys.get(key);
+        foldersById.put(folder.getId(), folder);
     }
 
-    private static void cleanSyncKey(String key) {
-        synchronizedKeys.remove(key);
+    private void require(boolean requiredCondition, String message) {
+        if (!requiredCondition) {
+            throw new IllegalArgumentException(message);
+        }
     }
 
     private String getNextVersionLabel(VersionType versionType, String oldVersion) {
@@ -349,6 +423,14 @@ public class CmisRepository {
         return documents;
     }
 
+    Stream<Document> findPagedDocumentsByParentPath(String path, String primaryType, Set<LeosCategory> categories, boolean descendants, PageCursor cursor, int maxResults, QueryFilter workspaceFilter) {
+        logger.trace("Finding documents page by parent path... [path=" + path + ", primaryType=" + primaryType + ", cursor=" + cursor + ']');
+        OperationContext context = OperationContextProvider.getOperationContext(cmisSession, maxResults);
+
+        Folder folder = findFolderByPath(path, context);
+        return getSearchStrategy().findDocumentPage(folder, primaryType, categories, descendants, false, context, cursor, workspaceFilter);
+    }
+
     int findDocumentCountByParentPath(String path, String primaryType, Set<LeosCategory> categories, boolean descendants, QueryFilter workspaceFilter) {
         logger.trace("Finding documents by parent path... [path=$path, primaryType=$primaryType, categories=$categories, descendants=$descendants]");
         OperationContext context = OperationContextProvider.getMinimalContext(cmisSession);
@@ -373,6 +455,11 @@ public class CmisRepository {
         return documents;
     }
     
+    public Stream<Document> findAllMinorsForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, PageCursor cursor, int maxResults) {
+        OperationContext context = OperationContextProvider.getOperationContext(cmisSession, maxResults);
+        return getSearchStrategy().findAllMinorsForIntermediate(primaryType, docRef, currIntVersion, prevIntVersion, cursor, context);
+    }
+
     public int findAllMinorsCountForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion) {
         OperationContext context = getMinimalContext(cmisSession);
         return getSearchStrategy().findAllMinorsCountForIntermediate(primaryType, docRef, currIntVersion, prevIntVersion, context);
@@ -388,6 +475,16 @@ public class CmisRepository {
         return getSearchStrategy().findAllMajors(primaryType, docRef, startIndex, context);
     }
 
+    public Stream<Document> findAllMajors(String primaryType, String docRef, PageCursor cursor, int maxResult) {
+        OperationContext context = OperationContextProvider.getOperationContext(cmisSession, maxResult);
+        return getSearchStrategy().findAllMajors(primaryType, docRef, cursor, context);
+    }
+
+    public Stream<Document> findRecentMinorVersions(String primaryType, String documentRef, String lastMajorId, PageCursor cursor, int maxResults) {
+        OperationContext context = OperationContextProvider.getOperationContext(cmisSession, maxResults);
+        return getSearchStrategy().findRecentMinorVersions(primaryType, documentRef, lastMajorId, cursor, context);
+    }
+
     public Stream<Document> findRecentMinorVersions(String primaryType, String documentRef, String lastMajorId, int startIndex, int maxResults) {
         OperationContext context = OperationContextProvider.getOperationContext(cmisSession, maxResults);
         return getSearchStrategy().findRecentMinorVersions(primaryType, documentRef, lastMajorId, startIndex, context);
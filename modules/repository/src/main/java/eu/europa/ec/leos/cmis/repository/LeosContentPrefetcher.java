@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import eu.europa.ec.leos.domain.cmis.Content;
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads the content of a batch of documents concurrently, on a bounded pool.
+ * The content of the documents read from the repository is only fetched on first access, one blocking call per
+ * document; loading a whole package up front avoids paying these calls one after the other.
+ * A content that fails to load is left to be fetched, and to fail, on its first access.
+ */
+@Component
+public class LeosContentPrefetcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeosContentPrefetcher.class);
+
+    private final ExecutorService executor;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder prefetchedDocuments = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalBatchTimeInNanos = new LongAdder();
+    private final AtomicLong maxBatchTimeInNanos = new AtomicLong();
+
+    @Autowired
+    public LeosContentPrefetcher(@Value("${leos.repository.contentPrefetch.threads:4}") int threads) {
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("content-prefetch-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Loads the content of the given documents, returning once all of them are loaded.
+     */
+    public void prefetch(List<? extends LeosDocument> documents) {
+        List<Content.Source> sources = documents.stream()
+                .filter(document -> document.getContent().isDefined())
+                .map(document -> document.getContent().get().getSource())
+                .collect(Collectors.toList());
+        if (sources.size() < 2) {
+            return;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<Future<Integer>> results = new ArrayList<>(sources.size());
+        for (Content.Source source : sources) {
+            results.add(executor.submit(new DelegatingSecurityContextCallable<>(() -> source.getSharedBytes().length)));
+        }
+
+        long size = 0;
+        int failed = 0;
+        try {
+            for (Future<Integer> result : results) {
+                try {
+                    size += result.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    LOG.warn("Could not prefetch document content, it will be fetched on access", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.forEach(result -> result.cancel(true));
+            return;
+        }
+        long batchTimeNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+        batches.increment();
+        prefetchedDocuments.add(sources.size());
+        failures.add(failed);
+        bytes.add(size);
+        totalBatchTimeInNanos.add(batchTimeNanos);
+        maxBatchTimeInNanos.accumulateAndGet(batchTimeNanos, Math::max);
+        LOG.debug("Prefetched {} document contents ({} bytes, {} failed) in {} ms",
+                sources.size(), size, failed, TimeUnit.NANOSECONDS.toMillis(batchTimeNanos));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getDocuments() {
+        return prefetchedDocuments.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getAverageBatchTimeInMillis() {
+        long count = batches.sum();
+        return count != 0 ? TimeUnit.NANOSECONDS.toMillis(totalBatchTimeInNanos.sum() / count) : 0;
+    }
+
+    public long getMaxBatchTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBatchTimeInNanos.get());
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import eu.europa.ec.leos.domain.cmis.Content;
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the documents read from the CMIS repository, with their metadata and content.
+ * Checked in versions other than the latest one never change, they are kept by object id until they are evicted.
+ * The latest version of a series can still be updated, it is only kept for a few seconds and is invalidated
+ * by the updates of its series done through the {@link CmisRepository}.
+ * The documents are kept per user, as the repository decides which documents a user may read.
+ * Both caches are bounded by the size of the cached contents.
+ */
+@Component
+public class LeosDocumentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeosDocumentCache.class);
+
+    private static final int DOCUMENT_OVERHEAD_IN_BYTES = 2048;//estimated size of the metadata of a document
+
+    private final SeriesIndexedCache versions;
+    private final SeriesIndexedCache latestVersions;
+
+    @Autowired
+    public LeosDocumentCache(@Value("${leos.document.cache.maxSizeInMb:64}") long maxSizeInMb,
+                             @Value("${leos.document.cache.expireAfterAccessInMinutes:30}") long expireAfterAccessInMinutes,
+                             @Value("${leos.document.cache.latestVersionExpireAfterWriteInSeconds:10}") long latestVersionExpireAfterWriteInSeconds) {
+        versions = new SeriesIndexedCache(CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInMb * 1024 * 1024)
+                .weigher((Key key, LeosDocument document) -> weigh(document))
+                .softValues()
+                .expireAfterAccess(expireAfterAccessInMinutes, TimeUnit.MINUTES)
+                .recordStats());
+        latestVersions = new SeriesIndexedCache(CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInMb * 1024 * 1024 / 4)
+                .weigher((Key key, LeosDocument document) -> weigh(document))
+                .softValues()
+                .expireAfterWrite(latestVersionExpireAfterWriteInSeconds, TimeUnit.SECONDS)
+                .recordStats());
+    }
+
+    /**
+     * Returns the document version with the given object id, loading it if it is not cached for the current user.
+     */
+    public <D extends LeosDocument> D getVersion(String id, Class<? extends D> type, Supplier<D> loader) {
+        Key key = new Key(currentUser(), id);
+        LeosDocument document = versions.get(key);
+        if (document == null) {
+            document = latestVersions.get(key);
+            if (document != null && !id.equals(document.getId())) {
+                document = null;//latest version of the series of an older version
+            }
+        }
+        if (type.isInstance(document)) {
+            return type.cast(document);
+        }
+        D loaded = loader.get();
+        if (loaded != null && id.equals(loaded.getId())) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the latest version of the series of the given document id, loading it if it is not cached for the current user.
+     */
+    public <D extends LeosDocument> D getLatestVersion(String id, Class<? extends D> type, Supplier<D> loader) {
+        Key key = new Key(currentUser(), id);
+        LeosDocument document = latestVersions.get(key);
+        if (type.isInstance(document)) {
+            return type.cast(document);
+        }
+        D loaded = loader.get();
+        if (loaded != null && loaded.isLatestVersion()) {
+            latestVersions.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Keeps a document loaded with its content by another search of the current user
+     */
+    public void put(LeosDocument document) {
+        put(new Key(currentUser(), document.getId()), document);
+    }
+
+    /**
+     * Invalidates the cached documents of a version series for all users, called when the series is updated or deleted.
+     */
+    public void invalidateSeries(String versionSeriesId) {
+        if (versionSeriesId != null) {
+            latestVersions.invalidateSeries(versionSeriesId);
+            versions.invalidateSeries(versionSeriesId);
+        }
+    }
+
+    public void invalidateAll() {
+        latestVersions.invalidateAll();
+        versions.invalidateAll();
+    }
+
+    public long getVersionCount() {
+        return versions.size();
+    }
+
+    public long getLatestVersionCount() {
+        return latestVersions.size();
+    }
+
+    public CacheStats getVersionStats() {
+        return versions.stats();
+    }
+
+    public CacheStats getLatestVersionStats() {
+        return latestVersions.stats();
+    }
+
+    private void put(Key key, LeosDocument document) {
+        if (document.isLatestVersion()) {
+            latestVersions.put(key, document);
+        } else {
+            versions.put(key, document);
+        }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Document cache: versions hit rate {}, latest versions hit rate {}", versions.stats().hitRate(), latestVersions.stats().hitRate());
+        }
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    private static int weigh(LeosDocument document) {
+        long contentLength = document.getContent().map(Content::getLength).getOrElse(0L);
+        return (int) Math.min(Integer.MAX_VALUE, DOCUMENT_OVERHEAD_IN_BYTES + Math.max(contentLength, 0L));
+    }
+
+    private static final class Key {
+        private final String user;
+        private final String id;
+
+        private Key(String user, String id) {
+            this.user = user;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return user.equals(key.user) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, id);
+        }
+    }
+
+    /**
+     * A cache with the keys of its documents indexed by version series, so that a series is invalidated without
+     * going through the whole cache. The index follows the removals from the cache, evictions included.
+     */
+    private static final class SeriesIndexedCache {
+        private final Cache<Key, LeosDocument> cache;
+        private final Map<Key, String> seriesByKey = new ConcurrentHashMap<>();
+        private final Map<String, Set<Key>> keysBySeries = new ConcurrentHashMap<>();//sets only modified while computing their entry
+
+        private SeriesIndexedCache(CacheBuilder<Key, LeosDocument> builder) {
+            cache = builder.removalListener(this::onRemoval).build();
+        }
+
+        private LeosDocument get(Key key) {
+            return cache.getIfPresent(key);
+        }
+
+        private void put(Key key, LeosDocument document) {
+            String versionSeriesId = document.getVersionSeriesId();
+            if (versionSeriesId != null) {
+                seriesByKey.put(key, versionSeriesId);
+                keysBySeries.compute(versionSeriesId, (series, keys) -> {
+                    Set<Key> seriesKeys = keys != null ? keys : new HashSet<>();
+                    seriesKeys.add(key);
+                    return seriesKeys;
+                });
+            }
+            cache.put(key, document);
+        }
+
+        private void invalidateSeries(String versionSeriesId) {
+            Set<Key> keys = keysBySeries.remove(versionSeriesId);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+
+        private void invalidateAll() {
+            cache.invalidateAll();
+        }
+
+        private long size() {
+            return cache.size();
+        }
+
+        private CacheStats stats() {
+            return cache.stats();
+        }
+
+        private void onRemoval(RemovalNotification<Key, LeosDocument> notification) {
+            if (notification.getCause() == RemovalCause.REPLACED) {
+                return;
+            }
+            Key key = notification.getKey();
+            String versionSeriesId = key != null ? seriesByKey.remove(key) : null;
+            if (versionSeriesId != null) {
+                keysBySeries.computeIfPresent(versionSeriesId, (series, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@
  */
 package eu.europa.ec.leos.cmis.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import eu.europa.ec.leos.cmis.extensions.CmisDocumentExtensions;
 import eu.europa.ec.leos.cmis.extensions.CmisFolderExtensions;
 import eu.europa.ec.leos.cmis.extensions.LeosMetadataExtensions;
@@ -26,6 +28,7 @@ import eu.europa.ec.leos.domain.cmis.document.LegDocument;
 import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
 import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
 import eu.europa.ec.leos.domain.cmis.metadata.LeosMetadata;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import eu.europa.ec.leos.repository.LeosRepository;
 import eu.europa.ec.leos.security.LeosPermissionAuthorityMapHelper;
@@ -46,6 +49,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -65,16 +70,27 @@ public class LeosRepositoryImpl implements LeosRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(LeosRepositoryImpl.class);
 
+    private static final QueryFilter.SortOrder VERSIONS_SORT_ORDER = new QueryFilter.SortOrder(QueryFilter.FilterType.creationDate.name(), QueryFilter.SORT_DESCENDING);
+
     private final String legMimeType;
     private final String leosDocMimeType;
     private final CmisRepository cmisRepository;
     private final SecurityContext securityContext;
     private final LeosPermissionAuthorityMapHelper authorityMapHelper;
+    private final LeosDocumentCache documentCache;
+    private final LeosContentPrefetcher contentPrefetcher;
+
+    // cursors following the pages recently returned, by user, query and offset of the next page
+    private final Cache<String, PageCursor> pageCursors = CacheBuilder.newBuilder().maximumSize(1000)
+            .expireAfterAccess(5, TimeUnit.MINUTES).build();
 
-    public LeosRepositoryImpl(CmisRepository cmisRepository, SecurityContext securityContext, LeosPermissionAuthorityMapHelper authorityMapHelper) {
+    public LeosRepositoryImpl(CmisRepository cmisRepository, SecurityContext securityContext, LeosPermissionAuthorityMapHelper authorityMapHelper,
+                              LeosDocumentCache documentCache, LeosContentPrefetcher contentPrefetcher) {
         this.cmisRepository = cmisRepository;
         this.securityContext = securityContext;
         this.authorityMapHelper = authorityMapHelper;
+        this.documentCache = documentCache;
+        this.contentPrefetcher = contentPrefetcher;
         legMimeType = "application/octet-stream";
         leosDocMimeType = "application/akn+xml";
     }
@@ -93,6 +109,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.INITIAL_CREATION_DATE.getId(), Date.from(Instant.now()));
 
         Document doc = cmisRepository.createDocumentFromSource(templateId, path, properties);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document creation took " + time + " milliseconds.");
 
@@ -116,6 +133,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.INITIAL_CREATION_DATE.getId(), Date.from(Instant.now()));
 
         Document doc = cmisRepository.createDocumentFromContent(path, name, properties, leosDocMimeType, contentBytes);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document creation took " + time + " milliseconds.");
 
@@ -143,6 +161,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.CONTAINED_DOCUMENTS.getId(), containedDocuments);
 
         Document doc = cmisRepository.createDocumentFromContent(path, name, properties, legMimeType, contentBytes);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository Leg document creation from content took " + time + " milliseconds.");
 
@@ -159,6 +178,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.STATUS.getId(), status.name());
 
         Document doc = cmisRepository.updateDocument(id, properties);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository Leg document status update took " + time + " milliseconds.");
 
@@ -175,6 +195,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.STATUS.getId(), status.name());
 
         Document doc = cmisRepository.updateDocument(id, properties, contentBytes, versionType, comment);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository Leg document status and content update took " + time + " milliseconds.");
 
@@ -188,6 +209,7 @@ public class LeosRepositoryImpl implements LeosRepository {
 
         long startTimeNanos = System.nanoTime();
         Document doc = cmisRepository.updateDocument(id, updateDocumentProperties(metadata));
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -202,6 +224,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         long startTimeNanos = System.nanoTime();
 
         Document doc = cmisRepository.updateDocument(id, updateDocumentProperties(metadata), content, versionType, comment);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -216,6 +239,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         long startTimeNanos = System.nanoTime();
 
         Document doc = cmisRepository.updateDocument(id, updateMilestoneCommentsProperties(emptyList()), content, versionType, comment);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -238,6 +262,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         properties.put(CmisProperties.COLLABORATORS.getId(), collaboratorUsers);
 
         Document doc = cmisRepository.updateDocument(id, properties);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -253,6 +278,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         Map<String, List<String>> properties = updateMilestoneCommentsProperties(milestoneComments);
 
         Document doc = cmisRepository.updateDocument(id, properties, content, versionType, comment);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -268,6 +294,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         Map<String, List<String>> properties = updateMilestoneCommentsProperties(milestoneComments);
 
         Document doc = cmisRepository.updateDocument(id, properties);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document update took " + time + " milliseconds.");
 
@@ -279,13 +306,16 @@ public class LeosRepositoryImpl implements LeosRepository {
     public <D extends LeosDocument> D findDocumentById(String id, Class<? extends D> type, boolean latest) {
         logger.trace("Finding document by ID... [id=" + id + ", latest=" + latest + ']');
 
-        long startTimeNanos = System.nanoTime();
-        Document doc = cmisRepository.findDocumentById(id, latest);
-        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
-        logger.trace("CMIS Repository document search took " + time + " milliseconds.");
+        Supplier<D> loader = () -> {
+            long startTimeNanos = System.nanoTime();
+            Document doc = cmisRepository.findDocumentById(id, latest);
+            long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+            logger.trace("CMIS Repository document search took " + time + " milliseconds.");
 
-        return toLeosDocument(doc, type, true)
-                .orElseThrow(() -> new IllegalArgumentException("Document not found! [id=" + id + ", latest=" + latest + ']'));
+            return toLeosDocument(doc, type, true)
+                    .orElseThrow(() -> new IllegalArgumentException("Document not found! [id=" + id + ", latest=" + latest + ']'));
+        };
+        return latest ? documentCache.getLatestVersion(id, type, loader) : documentCache.getVersion(id, type, loader);
     }
 
     @Override
@@ -346,6 +376,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         logger.trace("Deleting Document... [id=" + id + ']');
         long startTimeNanos = System.nanoTime();
         cmisRepository.deleteDocumentById(id);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository document deletion took " + time + " milliseconds.");
     }
@@ -356,6 +387,7 @@ public class LeosRepositoryImpl implements LeosRepository {
 
         long startTimeNanos = System.nanoTime();
         Folder folder = cmisRepository.createFolder(path, name);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository package creation took " + time + " milliseconds.");
         if (folder != null) {
@@ -370,6 +402,7 @@ public class LeosRepositoryImpl implements LeosRepository {
         logger.trace("Deleting package... [path=" + path + ']');
         long startTimeNanos = System.nanoTime();
         cmisRepository.deleteFolder(path);
+        invalidatePages();
         long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
         logger.trace("CMIS Repository package deletion took " + time + " milliseconds.");
     }
@@ -429,12 +462,54 @@ public class LeosRepositoryImpl implements LeosRepository {
         return Optional.ofNullable(leosDocument);
     }
 
+    /**
+     * Pages requested one after the other by offset, as the lazy loaded grids do, are searched from the cursor
+     * following the previous page, so that the deep pages cost the same as the first one.
+     * Other pages are searched by offset.
+     * The cursors are kept per user, as the results depend on the documents the user can access, and are dropped
+     * on every write made through this repository, after which the offsets of the following pages may have moved.
+     */
+    <D extends LeosDocument> List<D> findPage(String query, int startIndex, QueryFilter.SortOrder sortOrder,
+                                              Function<PageCursor, List<D>> keysetSearch, Supplier<List<D>> offsetSearch) {
+        if (!PageCursor.isKeysetSortOrder(sortOrder)) {
+            return offsetSearch.get();
+        }
+        String key = securityContext.getUser().getLogin() + '|' + query;
+        PageCursor cursor = null;
+        if (startIndex > 0) {
+            cursor = pageCursors.getIfPresent(key + '#' + startIndex);
+            if (cursor == null) {
+                return offsetSearch.get();
+            }
+        }
+        List<D> page = keysetSearch.apply(cursor);
+        if (!page.isEmpty()) {
+            pageCursors.put(key + '#' + (startIndex + page.size()), PageCursor.after(cursor, page, sortOrder));
+        }
+        return page;
+    }
+
+    private void invalidatePages() {
+        pageCursors.invalidateAll();
+    }
+
+    private static String describe(QueryFilter filter) {
+        StringBuilder description = new StringBuilder();
+        filter.getFilters().forEach(f -> description.append(f.key).append(' ').append(f.operator).append(' ').append(f.nullCheck)
+                .append(' ').append(String.join(",", f.value)).append(';'));
+        filter.getSortOrders().forEach(sortOrder -> description.append(sortOrder.key).append(' ').append(sortOrder.direction).append(';'));
+        return description.toString();
+    }
+
     private <D extends LeosDocument> List<D> toLeosDocuments(List<Document> docs, Class<? extends D> type, boolean fetchContent) {
         List<D> leosDocuments = emptyList();
         if (docs != null) {
             leosDocuments = docs.stream()
-                    .map(doc -> CmisDocumentExtensions.toLeosDocument(doc, type, fetchContent))
+                    .map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, fetchContent))
                     .collect(toList());
+            if (fetchContent) {
+                contentPrefetcher.prefetch(leosDocuments);
+            }
         }
         return leosDocuments;
     }
@@ -445,9 +520,25 @@ public class LeosRepositoryImpl implements LeosRepository {
         logger.trace("Finding documents by parent path... [path=$path, type=${type.simpleName}]");
         String primaryType = CmisMapper.cmisPrimaryType(type);
         Set<LeosCategory> categories = CmisMapper.cmisCategories(type);
-        Stream<Document> docs = cmisRepository.findPagedDocumentsByParentPath(path, primaryType, categories, descendants, startIndex, maxResults, workspaceFilter);
+        QueryFilter.SortOrder sortOrder = workspaceFilter.getSortOrders().isEmpty() ? null : workspaceFilter.getSortOrders().get(0);
+        String query = "documents|" + path + '|' + type.getName() + '|' + descendants + '|' + fetchContent + '|' + maxResults + '|' + describe(workspaceFilter);
+        List<D> documents = findPage(query, startIndex, sortOrder,
+                cursor -> this.<D>findPagedDocumentsByParentPath(path, type, descendants, fetchContent, cursor, maxResults, workspaceFilter).collect(toList()),
+                () -> cmisRepository.findPagedDocumentsByParentPath(path, primaryType, categories, descendants, startIndex, maxResults, workspaceFilter)
+                        .map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, fetchContent))
+                        .collect(toList()));
 
         logger.trace("CMIS Repository document search took $time milliseconds.");
+        return documents.stream();
+    }
+
+    @Override
+    public <D extends LeosDocument> Stream<D> findPagedDocumentsByParentPath(String path, Class<? extends D> type, boolean descendants, boolean fetchContent,
+                                                                             PageCursor cursor, int maxResults, QueryFilter workspaceFilter) {
+        logger.trace("Finding documents page by parent path... [path=" + path + ", type=" + type.getSimpleName() + ", cursor=" + cursor + ']');
+        String primaryType = CmisMapper.cmisPrimaryType(type);
+        Set<LeosCategory> categories = CmisMapper.cmisCategories(type);
+        Stream<Document> docs = cmisRepository.findPagedDocumentsByParentPath(path, primaryType, categories, descendants, cursor, maxResults, workspaceFilter);
         return docs.map(doc -> CmisDocumentExtensions.toLeosDocument(doc, type, fetchContent));
     }
 
@@ -476,16 +567,28 @@ public class LeosRepositoryImpl implements LeosRepository {
         if (docs.isEmpty() || (docs.size() > 1)) {
             throw new IllegalStateException("Error occurred retrieving document! [=" + ref + ']');
         } else {
-            return toLeosDocument(docs.get(0), type, true)
-                .orElseThrow(() -> new IllegalStateException("Error occurred retrieving document! [=" + ref + ']'));
+            Document doc = docs.get(0);
+            return documentCache.getVersion(doc.getId(), type, () -> toLeosDocument(doc, type, true)
+                .orElseThrow(() -> new IllegalStateException("Error occurred retrieving document! [=" + ref + ']')));
         }
     }
     
     @Override
     public <D extends LeosDocument> List<D> findAllMinorsForIntermediate(Class<? extends D> type, String docRef, String currIntVersion, String prevIntVersion, int startIndex, int maxResults) {
         String primaryType = CmisMapper.cmisPrimaryType(type);
-        Stream<Document> documents = cmisRepository.findAllMinorsForIntermediate(primaryType, docRef, currIntVersion, prevIntVersion, startIndex, maxResults);
-        return documents.map(doc -> CmisDocumentExtensions.toLeosDocument(doc, type, false))
+        String query = "minorsForIntermediate|" + type.getName() + '|' + docRef + '|' + currIntVersion + '|' + prevIntVersion + '|' + maxResults;
+        return findPage(query, startIndex, VERSIONS_SORT_ORDER,
+                cursor -> this.<D>findAllMinorsForIntermediate(type, docRef, currIntVersion, prevIntVersion, cursor, maxResults),
+                () -> cmisRepository.findAllMinorsForIntermediate(primaryType, docRef, currIntVersion, prevIntVersion, startIndex, maxResults)
+                        .map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public <D extends LeosDocument> List<D> findAllMinorsForIntermediate(Class<? extends D> type, String docRef, String currIntVersion, String prevIntVersion, PageCursor cursor, int maxResults) {
+        String primaryType = CmisMapper.cmisPrimaryType(type);
+        Stream<Document> documents = cmisRepository.findAllMinorsForIntermediate(primaryType, docRef, currIntVersion, prevIntVersion, cursor, maxResults);
+        return documents.map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
                 .collect(Collectors.toList());
     }
     
@@ -504,8 +607,19 @@ public class LeosRepositoryImpl implements LeosRepository {
     @Override
     public <D extends LeosDocument> List<D> findAllMajors(Class<? extends D> type, String docRef, int startIndex, int maxResult) {
         String primaryType = CmisMapper.cmisPrimaryType(type);
-        Stream<Document> documents = cmisRepository.findAllMajors(primaryType, docRef, startIndex, maxResult);
-        return documents.map(doc -> CmisDocumentExtensions.toLeosDocument(doc, type, false))
+        String query = "majors|" + type.getName() + '|' + docRef + '|' + maxResult;
+        return findPage(query, startIndex, VERSIONS_SORT_ORDER,
+                cursor -> this.<D>findAllMajors(type, docRef, cursor, maxResult),
+                () -> cmisRepository.findAllMajors(primaryType, docRef, startIndex, maxResult)
+                        .map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public <D extends LeosDocument> List<D> findAllMajors(Class<? extends D> type, String docRef, PageCursor cursor, int maxResult) {
+        String primaryType = CmisMapper.cmisPrimaryType(type);
+        Stream<Document> documents = cmisRepository.findAllMajors(primaryType, docRef, cursor, maxResult);
+        return documents.map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
                 .collect(Collectors.toList());
     }
     
@@ -518,8 +632,19 @@ public class LeosRepositoryImpl implements LeosRepository {
     @Override
     public <D extends LeosDocument> List<D> findRecentMinorVersions(Class<? extends D> type, String documentRef, String lastMajorId, int startIndex, int maxResults) {
         String primaryType = CmisMapper.cmisPrimaryType(type);
-        Stream<Document> documents = cmisRepository.findRecentMinorVersions(primaryType, documentRef, lastMajorId, startIndex, maxResults);
-        return documents.map(doc -> CmisDocumentExtensions.toLeosDocument(doc, type, false))
+        String query = "recentMinors|" + type.getName() + '|' + documentRef + '|' + lastMajorId + '|' + maxResults;
+        return findPage(query, startIndex, VERSIONS_SORT_ORDER,
+                cursor -> this.<D>findRecentMinorVersions(type, documentRef, lastMajorId, cursor, maxResults),
+                () -> cmisRepository.findRecentMinorVersions(primaryType, documentRef, lastMajorId, startIndex, maxResults)
+                        .map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public <D extends LeosDocument> List<D> findRecentMinorVersions(Class<? extends D> type, String documentRef, String lastMajorId, PageCursor cursor, int maxResults) {
+        String primaryType = CmisMapper.cmisPrimaryType(type);
+        Stream<Document> documents = cmisRepository.findRecentMinorVersions(primaryType, documentRef, lastMajorId, cursor, maxResults);
+        return documents.map(doc -> CmisDocumentExtensions.<D>toLeosDocument(doc, type, false))
                 .collect(Collectors.toList());
     }
     
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import eu.europa.ec.leos.cmis.mapping.CmisMapper;
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One-off migration populating the leos:versionLabel property of the latest version of the existing documents.
+ * Documents created before this property was introduced compute their label from the whole version series,
+ * this is done once here instead of on every checkin.
+ * It runs on startup when enabled, with the technical user of the CMIS repository, and stops at the first
+ * document if the repository creates a new version when the properties are updated.
+ */
+@Component
+class VersionLabelMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionLabelMigration.class);
+
+    private final CmisRepository cmisRepository;
+    private final boolean enabled;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    @Autowired
+    VersionLabelMigration(CmisRepository cmisRepository, @Value("${leos.migration.versionLabel.enabled:false}") boolean enabled) {
+        this.cmisRepository = cmisRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void migrate() {
+        if (enabled && done.compareAndSet(false, true)) {
+            LOG.info("Backfilling the version label of the existing documents...");
+            int updated = cmisRepository.backfillVersionLabels(CmisMapper.cmisPrimaryType(LeosDocument.class));
+            LOG.info("Version label backfilled for {} document(s)", updated);
+        }
+    }
+}
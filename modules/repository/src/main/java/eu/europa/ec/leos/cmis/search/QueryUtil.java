@@ -16,6 +16,7 @@ package eu.europa.ec.leos.cmis.search;
 import eu.europa.ec.leos.cmis.mapping.CmisProperties;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.common.VersionType;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import eu.europa.ec.leos.model.filter.QueryFilter.Filter;
 import eu.europa.ec.leos.model.filter.QueryFilter.FilterType;
@@ -24,6 +25,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,6 +34,8 @@ class QueryUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(QueryUtil.class);
 
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+
     static String formFilterClause(QueryFilter workspaceFilter) {
         LOG.trace("Form where clause for filter...");
         StringBuilder whereClauseFilter = new StringBuilder();
@@ -105,12 +110,31 @@ class QueryUtil {
     }
     
     static String getMajorVersionQueryString(String docRef) {
-       StringBuilder queryBuilder =  new StringBuilder(CmisProperties.METADATA_REF.getId()).append(" = '").append(docRef)
-               .append("' ")
-               .append(" AND cmis:isMajorVersion = true ")
-               .append(" order by cmis:creationDate DESC");
+       StringBuilder queryBuilder =  new StringBuilder(getMajorVersionWhereClause(docRef))
+               .append(" order by ").append(getMajorVersionSortClause());
        return queryBuilder.toString();
     }
+
+    static String getMajorVersionWhereClause(String docRef) {
+        StringBuilder queryBuilder = new StringBuilder(CmisProperties.METADATA_REF.getId()).append(" = '").append(docRef)
+                .append("' ")
+                .append(" AND cmis:isMajorVersion = true ");
+        return queryBuilder.toString();
+    }
+
+    static String getMajorVersionSortClause() {
+        return FilterType.getColumnName(FilterType.creationDate.name()) + " " + QueryFilter.SORT_DESCENDING;
+    }
+
+    /**
+     * Restricts the search to the documents at or after the cursor in the sort order,
+     * the documents already returned with the cursor date are skipped by the caller.
+     */
+    static String getSeekClause(PageCursor cursor) {
+        return FilterType.getColumnName(cursor.getSortKey()) +
+                (cursor.isDescending() ? " <= " : " >= ") +
+                "TIMESTAMP '" + TIMESTAMP_FORMATTER.format(cursor.getValue()) + "'";
+    }
     
     static QueryFilter getRecentVersionsQuery(String docRef, String versionLabel) {
         QueryFilter filter = new QueryFilter();
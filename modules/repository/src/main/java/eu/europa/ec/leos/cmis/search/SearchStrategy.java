@@ -15,6 +15,7 @@ package eu.europa.ec.leos.cmis.search;
 
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.LeosLegStatus;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
@@ -33,11 +34,17 @@ public interface SearchStrategy {
 
     Stream<Document> findDocumentPage(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion, OperationContext context, int startIndex, QueryFilter workspaceFilter);
 
+    Stream<Document> findDocumentPage(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion, OperationContext context, PageCursor cursor, QueryFilter workspaceFilter);
+
     int findDocumentCount(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion, OperationContext context, QueryFilter workspaceFilter);
 
     List<Document> findDocumentsByRef(String ref, String primaryType, OperationContext context);
+
+    List<Document> findDocumentsWithoutVersionLabel(String primaryType, OperationContext context);
     
     Stream<Document> findAllMinorsForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, int startIndex, OperationContext context);
+
+    Stream<Document> findAllMinorsForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, PageCursor cursor, OperationContext context);
    
     int findAllMinorsCountForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, OperationContext context);
 
@@ -45,7 +52,11 @@ public interface SearchStrategy {
 
     Stream<Document> findAllMajors(String primaryType, String docRef, int startIndex, OperationContext context);
 
+    Stream<Document> findAllMajors(String primaryType, String docRef, PageCursor cursor, OperationContext context);
+
     Stream<Document> findRecentMinorVersions(String primaryType, String documentRef, String versionLabel, int startIndex, OperationContext context);
+
+    Stream<Document> findRecentMinorVersions(String primaryType, String documentRef, String versionLabel, PageCursor cursor, OperationContext context);
     
     Integer findRecentMinorVersionsCount(String primaryType, String documentRef, String versionLabel, OperationContext context);
 
@@ -13,14 +13,11 @@
  */
 package eu.europa.ec.leos.cmis.search;
 
-import eu.europa.ec.leos.cmis.mapping.CmisProperties;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.LeosLegStatus;
 import eu.europa.ec.leos.model.filter.QueryFilter;
-import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
-import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.slf4j.Logger;
@@ -28,9 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 class SearchStrategyDiscoveryServices extends SearchStrategyImpl {
 
@@ -44,23 +39,7 @@ class SearchStrategyDiscoveryServices extends SearchStrategyImpl {
     public List<Document> findDocuments(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion,
             OperationContext context) {
         logger.trace("Finding documents...");
-        String categoryStr = categories.stream()
-                .map(leosCategory -> "'" + leosCategory.name() + "'")
-                .collect(Collectors.joining(", "));
-
-        String whereClause;
-        if (descendants) {
-            whereClause = CmisProperties.DOCUMENT_CATEGORY.getId() + " IN (" + categoryStr + ") AND IN_TREE('" + folder.getId() + "')";
-        } else {
-            whereClause = CmisProperties.DOCUMENT_CATEGORY.getId() + " IN (" + categoryStr + ") AND IN_FOLDER('" + folder.getId() + "')";
-        }
-        logger.trace("Querying CMIS objects... [primaryType=" + primaryType + ", where=" + whereClause + "]");
-
-        // NOTE only the latest version (major or minor) of each document should be returned (searchAllVersions = false)
-        ItemIterable<CmisObject> cmisObjects = cmisSession.queryObjects(primaryType, whereClause, allVersion, context);
-        return StreamSupport.stream(cmisObjects.spliterator(), false)
-                .map(cmisObject -> (Document) cmisObject)
-                .collect(Collectors.toList());
+        return queryDocuments(folder, primaryType, categories, descendants, allVersion, context);
     }
     
     
@@ -16,6 +16,7 @@ package eu.europa.ec.leos.cmis.search;
 import eu.europa.ec.leos.cmis.mapping.CmisProperties;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.LeosLegStatus;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
@@ -43,6 +44,31 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
         this.cmisSession = cmisSession;
     }
     
+    /**
+     * Finds the documents of the folder, or of the whole folder tree, through the query service,
+     * filtering the type and the categories in the repository.
+     */
+    protected List<Document> queryDocuments(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion,
+                                            OperationContext context) {
+        String categoryStr = categories.stream()
+                .map(leosCategory -> "'" + leosCategory.name() + "'")
+                .collect(Collectors.joining(", "));
+
+        String whereClause;
+        if (descendants) {
+            whereClause = CmisProperties.DOCUMENT_CATEGORY.getId() + " IN (" + categoryStr + ") AND IN_TREE('" + folder.getId() + "')";
+        } else {
+            whereClause = CmisProperties.DOCUMENT_CATEGORY.getId() + " IN (" + categoryStr + ") AND IN_FOLDER('" + folder.getId() + "')";
+        }
+        logger.trace("Querying CMIS objects... [primaryType=" + primaryType + ", where=" + whereClause + "]");
+
+        // NOTE only the latest version (major or minor) of each document should be returned (searchAllVersions = false)
+        ItemIterable<CmisObject> cmisObjects = cmisSession.queryObjects(primaryType, whereClause, allVersion, context);
+        return StreamSupport.stream(cmisObjects.spliterator(), false)
+                .map(cmisObject -> (Document) cmisObject)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<Document> findDocumentsForUser(String userId, String primaryType, String leosAuthority, OperationContext context) {
         logger.trace("Finding documents...");
@@ -73,6 +99,14 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
                 .map(cmisObject -> (Document) cmisObject);
     }
 
+    @Override
+    public Stream<Document> findDocumentPage(Folder folder, String primaryType, Set<LeosCategory> categories,
+                                             boolean descendants, boolean allVersion, OperationContext context, PageCursor cursor, QueryFilter workspaceFilter) {
+        String whereClause = QueryUtil.getQuery(folder, categories, descendants, workspaceFilter);
+        context.setOrderBy(QueryUtil.formSortClause(workspaceFilter));
+        return findPageAfter(primaryType, whereClause, allVersion, cursor, context);
+    }
+
     private String getCountStatement(String primaryType, String whereClause) {
         final StringBuilder statement = new StringBuilder(1024);
         statement.append("SELECT cmis:objectId FROM ");
@@ -112,6 +146,16 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public List<Document> findDocumentsWithoutVersionLabel(String primaryType, OperationContext context) {
+        logger.trace("Finding documents without version label...");
+        String whereClause = CmisProperties.VERSION_LABEL.getId() + " IS NULL";
+        ItemIterable<CmisObject> cmisObjects = cmisSession.queryObjects(primaryType, whereClause, false, context);
+        return StreamSupport.stream(cmisObjects.spliterator(), false)
+                .map(cmisObject -> (Document) cmisObject)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Integer findAllMajorsCount(String primaryType, String docRef, OperationContext context) {
         String whereClause = QueryUtil.getMajorVersionQueryString(docRef);
@@ -128,6 +172,12 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
                 .map(cmisObject -> (Document) cmisObject);
     }
     
+    @Override
+    public Stream<Document> findAllMajors(String primaryType, String docRef, PageCursor cursor, OperationContext context) {
+        context.setOrderBy(QueryUtil.getMajorVersionSortClause());
+        return findPageAfter(primaryType, QueryUtil.getMajorVersionWhereClause(docRef), true, cursor, context);
+    }
+
     @Override
     public Integer findRecentMinorVersionsCount(String primaryType, String documentRef, String lastMajorId, OperationContext context) {
         QueryFilter filter = QueryUtil.getRecentVersionsQuery(documentRef, lastMajorId);
@@ -144,6 +194,13 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
                 .map(cmisObject -> (Document) cmisObject);
     }
     
+    @Override
+    public Stream<Document> findRecentMinorVersions(String primaryType, String documentRef, String lastMajorId, PageCursor cursor, OperationContext context) {
+        QueryFilter filter = QueryUtil.getRecentVersionsQuery(documentRef, lastMajorId);
+        context.setOrderBy(QueryUtil.formSortClause(filter));
+        return findPageAfter(primaryType, QueryUtil.formFilterClause(filter), true, cursor, context);
+    }
+
     @Override
     public Stream<Document> findAllMinorsForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, int startIndex, OperationContext context) {
         QueryFilter filter = QueryUtil.getMinorVersionsQueryFilter(docRef, currIntVersion, prevIntVersion);
@@ -153,6 +210,13 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
                 .map(cmisObject -> (Document) cmisObject);
     }
     
+    @Override
+    public Stream<Document> findAllMinorsForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, PageCursor cursor, OperationContext context) {
+        QueryFilter filter = QueryUtil.getMinorVersionsQueryFilter(docRef, currIntVersion, prevIntVersion);
+        context.setOrderBy(QueryUtil.formSortClause(filter));
+        return findPageAfter(primaryType, QueryUtil.formFilterClause(filter), true, cursor, context);
+    }
+
     @Override
     public int findAllMinorsCountForIntermediate(String primaryType, String docRef, String currIntVersion, String prevIntVersion, OperationContext context) {
         QueryFilter filter = QueryUtil.getMinorVersionsQueryFilter(docRef, currIntVersion, prevIntVersion);
@@ -160,6 +224,26 @@ abstract public class SearchStrategyImpl implements SearchStrategy {
         return (int) cmisObjects.getTotalNumItems();
     }
     
+    /**
+     * Keyset pagination: instead of skipping the previous results, the page is searched from the date of the cursor.
+     * The documents of the previous pages having that same date are returned again by the query and skipped here.
+     */
+    private Stream<Document> findPageAfter(String primaryType, String whereClause, boolean allVersion, PageCursor cursor, OperationContext context) {
+        int maxItems = context.getMaxItemsPerPage();
+        if (cursor != null) {
+            String seekClause = QueryUtil.getSeekClause(cursor);
+            whereClause = whereClause.trim().isEmpty() ? seekClause : whereClause + " AND " + seekClause;
+            context.setMaxItemsPerPage(maxItems + cursor.getReturnedCount());
+        }
+        logger.debug("Querying CMIS objects page... [primaryType={}, where={}]", primaryType, whereClause);
+        ItemIterable<CmisObject> cmisObjects = cmisSession.queryObjects(primaryType, whereClause, allVersion, context)
+                .getPage(context.getMaxItemsPerPage());
+        return StreamSupport.stream(cmisObjects.spliterator(), false)
+                .map(cmisObject -> (Document) cmisObject)
+                .filter(document -> cursor == null || !cursor.isReturned(document.getId()))
+                .limit(maxItems);
+    }
+
     private ItemIterable<CmisObject> getObjectIterableByFilter(String primaryType, QueryFilter workspaceFilter, boolean allVersion, OperationContext context) {
         String whereClause = QueryUtil.formFilterClause(workspaceFilter);
         context.setOrderBy(QueryUtil.formSortClause(workspaceFilter));
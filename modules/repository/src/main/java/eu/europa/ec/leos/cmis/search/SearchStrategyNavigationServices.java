@@ -25,6 +25,7 @@ import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +39,8 @@ import java.util.stream.StreamSupport;
 class SearchStrategyNavigationServices extends SearchStrategyImpl {
 
     private static final Logger logger = LoggerFactory.getLogger(SearchStrategyNavigationServices.class);
+
+    private Boolean metadataQuerySupported;
     
     SearchStrategyNavigationServices(Session cmisSession) {
         super(cmisSession);
@@ -47,6 +50,11 @@ class SearchStrategyNavigationServices extends SearchStrategyImpl {
     public List<Document> findDocuments(Folder folder, String primaryType, Set<LeosCategory> categories, boolean descendants, boolean allVersion,
             OperationContext context) {
         logger.trace("Finding documents...");
+        if (!allVersion && isMetadataQuerySupported()) {
+            // the repository cannot search all versions, but it can still filter the latest versions
+            // by type, category and folder, instead of loading the whole folder tree
+            return queryDocuments(folder, primaryType, categories, descendants, false, context);
+        }
         List<String> categoryList = categories.stream().map(LeosCategory::name).collect(Collectors.toList());
         List<Document> documents;
         if (descendants) {
@@ -59,6 +67,14 @@ class SearchStrategyNavigationServices extends SearchStrategyImpl {
                 .collect(Collectors.toList());
     }
 
+    private boolean isMetadataQuerySupported() {
+        if (metadataQuerySupported == null) {
+            CapabilityQuery queryCapability = cmisSession.getRepositoryInfo().getCapabilities().getQueryCapability();
+            metadataQuerySupported = queryCapability != null && queryCapability != CapabilityQuery.NONE && queryCapability != CapabilityQuery.FULLTEXTONLY;
+        }
+        return metadataQuerySupported;
+    }
+
     private List<Document> findChildren(Folder folder, String primaryType, OperationContext context) {
         ItemIterable<CmisObject> children = folder.getChildren(context);
         return StreamSupport.stream(children.spliterator(), false)
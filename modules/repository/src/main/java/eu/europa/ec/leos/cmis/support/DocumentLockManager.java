@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.support;
+
+/**
+ * Serialises the updates of a document.
+ * The default implementation locks the documents within this LEOS instance, another implementation can be provided
+ * as a bean of this type to share the locks between several instances.
+ */
+public interface DocumentLockManager {
+
+    /**
+     * Acquires the write lock of a document, waiting in arrival order for the writers holding or waiting for it.
+     *
+     * @param documentId the version series id of the document to lock, shared by all its versions.
+     * @return the acquired lock, to be released by closing it.
+     * @throws IllegalStateException if the lock could not be acquired within the configured timeout.
+     */
+    DocumentLock lock(String documentId);
+
+    interface DocumentLock extends AutoCloseable {
+        /**
+         * Releases the lock; closing it again has no effect.
+         */
+        @Override
+        void close();
+    }
+}
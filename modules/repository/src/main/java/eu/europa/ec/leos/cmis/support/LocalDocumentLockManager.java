@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair per-document locks within this LEOS instance.
+ * A lock is kept while it is held or waited for, and removed when its last user releases it,
+ * so all the writers of a document always share the same lock.
+ */
+@Component
+public class LocalDocumentLockManager implements DocumentLockManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalDocumentLockManager.class);
+
+    private final Map<String, LockEntry> locks = new ConcurrentHashMap<>();
+    private final long timeoutInMillis;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contentions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitTimeInNanos = new LongAdder();
+    private final AtomicLong maxWaitTimeInNanos = new AtomicLong();
+    private final Cache<String, LongAdder> contentionsByDocument = CacheBuilder.newBuilder().maximumSize(1000)
+            .expireAfterAccess(60, TimeUnit.MINUTES).build();
+
+    @Autowired
+    public LocalDocumentLockManager(@Value("${leos.repository.lock.timeoutInSeconds:60}") long timeoutInSeconds) {
+        this.timeoutInMillis = TimeUnit.SECONDS.toMillis(timeoutInSeconds);
+    }
+
+    @Override
+    public DocumentLock lock(String documentId) {
+        LockEntry entry = locks.compute(documentId, (id, existing) -> {
+            LockEntry lockEntry = existing != null ? existing : new LockEntry();
+            lockEntry.users++;
+            return lockEntry;
+        });
+
+        boolean acquired = false;
+        long startTimeNanos = System.nanoTime();
+        try {
+            // the timed variant honours the fairness of the lock, unlike the untimed one
+            boolean contended = !entry.lock.tryLock(0, TimeUnit.NANOSECONDS);
+            if (contended) {
+                recordContention(documentId);
+                acquired = entry.lock.tryLock(timeoutInMillis, TimeUnit.MILLISECONDS);
+            } else {
+                acquired = true;
+            }
+            if (!acquired) {
+                timeouts.increment();
+                throw new IllegalStateException("Timeout waiting for the lock of document " + documentId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the lock of document " + documentId, e);
+        } finally {
+            if (!acquired) {
+                release(documentId);
+            }
+        }
+
+        long waitTimeNanos = System.nanoTime() - startTimeNanos;
+        acquisitions.increment();
+        totalWaitTimeInNanos.add(waitTimeNanos);
+        maxWaitTimeInNanos.accumulateAndGet(waitTimeNanos, Math::max);
+        LOG.trace("Lock of document {} acquired in {} ms", documentId, TimeUnit.NANOSECONDS.toMillis(waitTimeNanos));
+
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                entry.lock.unlock();
+                release(documentId);
+            }
+        };
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContentions() {
+        return contentions.sum();
+    }
+
+    public long getContentions(String documentId) {
+        LongAdder documentContentions = contentionsByDocument.getIfPresent(documentId);
+        return documentContentions != null ? documentContentions.sum() : 0;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getTotalWaitTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitTimeInNanos.sum());
+    }
+
+    public long getMaxWaitTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitTimeInNanos.get());
+    }
+
+    public int getLockCount() {
+        return locks.size();
+    }
+
+    private void recordContention(String documentId) {
+        contentions.increment();
+        try {
+            contentionsByDocument.get(documentId, LongAdder::new).increment();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        LOG.debug("Waiting for the lock of document {}", documentId);
+    }
+
+    private void release(String documentId) {
+        locks.computeIfPresent(documentId, (id, entry) -> --entry.users == 0 ? null : entry);
+    }
+
+    private static class LockEntry {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int users;//threads holding or waiting for the lock, guarded by the map
+    }
+}
@@ -20,6 +20,7 @@ import eu.europa.ec.leos.domain.cmis.document.Bill;
 import eu.europa.ec.leos.domain.cmis.document.LegDocument;
 import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
 import eu.europa.ec.leos.domain.cmis.metadata.LeosMetadata;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 
 import java.util.List;
@@ -241,6 +242,15 @@ public interface LeosRepository {
     <D extends LeosDocument> Stream<D> findPagedDocumentsByParentPath(String path, Class<? extends D> type, boolean descendants, boolean fetchContent,
                                                                       int startIndex, int maxResults, QueryFilter workspaceFilter);
 
+    /**
+     * Finds the page of documents following the given cursor, without going through the previous pages.
+     * The first sort order of the filter must be on the creation or last modification date.
+     *
+     * @param cursor the cursor following the previous page, see {@link PageCursor#after}, or null for the first page.
+     */
+    <D extends LeosDocument> Stream<D> findPagedDocumentsByParentPath(String path, Class<? extends D> type, boolean descendants, boolean fetchContent,
+                                                                      PageCursor cursor, int maxResults, QueryFilter workspaceFilter);
+
     <D extends LeosDocument> int findDocumentCountByParentPath(String path, Class<? extends D> type, boolean descendants, QueryFilter workspaceFilter);
 
     /**
@@ -253,17 +263,23 @@ public interface LeosRepository {
     <D extends LeosDocument> D findDocumentByRef(String ref, Class<? extends D> type);
     
     <D extends LeosDocument> List<D> findAllMinorsForIntermediate(Class<? extends D> type, String docRef, String currIntVersion, String prevIntVersion, int startIndex, int maxResults);
+
+    <D extends LeosDocument> List<D> findAllMinorsForIntermediate(Class<? extends D> type, String docRef, String currIntVersion, String prevIntVersion, PageCursor cursor, int maxResults);
     
     <D extends LeosDocument> int findAllMinorsCountForIntermediate(Class<? extends D> type, String docRef, String currIntVersion, String prevIntVersion);
 
     <D extends LeosDocument> Integer findAllMajorsCount(Class<? extends D> type, String docRef);
 
     <D extends LeosDocument> List<D> findAllMajors(Class<? extends D> type, String docRef, int startIndex, int maxResult);
+
+    <D extends LeosDocument> List<D> findAllMajors(Class<? extends D> type, String docRef, PageCursor cursor, int maxResult);
     
     <D extends LeosDocument> D findLatestMajorVersionById(Class<? extends D> type, String documentId);
 
     <D extends LeosDocument> List<D> findRecentMinorVersions(Class<? extends D> type, String documentRef, String versionLabel, int startIndex, int maxResults);
 
+    <D extends LeosDocument> List<D> findRecentMinorVersions(Class<? extends D> type, String documentRef, String versionLabel, PageCursor cursor, int maxResults);
+
     <D extends LeosDocument> Integer findRecentMinorVersionsCount(Class<? extends D> type, String documentRef, String versionLabel);
 
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.domain;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SourceImplTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void test_source_should_loadOnFirstAccessOnly() {
+        byte[] content = "<akomaNtoso/>".getBytes();
+        SourceImpl source = new SourceImpl(loader(content));
+
+        assertFalse(source.isLoaded());
+        assertEquals(0, loads.get());
+
+        assertArrayEquals(content, source.getBytes());
+        assertEquals("<akomaNtoso/>", source.toString());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void test_getBytes_should_returnCopy() throws Exception {
+        byte[] content = {0, 1, 2};
+        SourceImpl source = new SourceImpl(new ByteArrayInputStream(content));
+
+        assertTrue(source.isLoaded());
+        byte[] bytes = source.getBytes();
+        assertNotSame(bytes, source.getBytes());
+        bytes[0] = 42;
+        assertArrayEquals(content, source.getBytes());
+        assertArrayEquals(content, IOUtils.toByteArray(source.getInputStream()));
+        assertTrue(source.getByteBuffer().isReadOnly());
+    }
+
+    @Test
+    public void test_getSharedBytes_should_notCopy() {
+        byte[] content = "<akomaNtoso/>".getBytes();
+        SourceImpl source = new SourceImpl(loader(content));
+
+        byte[] shared = source.getSharedBytes();
+
+        assertSame(shared, source.getSharedBytes());
+        assertArrayEquals(content, shared);
+        ByteBuffer buffer = source.getByteBuffer();
+        assertEquals(content.length, buffer.remaining());
+        assertTrue(buffer.isReadOnly());
+        assertEquals(1, loads.get());
+    }
+
+    private Supplier<InputStream> loader(byte[] content) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(content);
+        };
+    }
+}
@@ -41,6 +41,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -53,6 +55,7 @@ import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.equalTo;
@@ -274,6 +277,49 @@ public class CmisDocumentExtensionsTest {
         checkLeosDocument(mediaDocument);
     }
 
+    @Test
+    public void test_toLeosDocument_should_fetchContent_when_LengthUnknown() throws IOException {
+        //setup
+        Document cmisDocument = setupLeosDocument(LeosCategory.MEDIA);
+        when(cmisDocument.getContentStreamLength()).thenReturn(-1L);
+
+        //make call
+        MediaDocument mediaDocument = CmisDocumentExtensions.toLeosDocument(cmisDocument, MediaDocument.class, true);
+
+        //verify
+        assertThat(mediaDocument.getContent().isDefined(), is(true));
+        assertThat(mediaDocument.getContent().get().getSource().getBytes(), is(new byte[]{0, 1, 2}));
+    }
+
+    @Test
+    public void test_toLeosDocument_should_loadContent_withSecurityContextOfReader() throws Exception {
+        //setup
+        Document cmisDocument = setupLeosDocument(LeosCategory.MEDIA);
+        ContentStream contentStream = mock(ContentStream.class);
+        when(contentStream.getStream()).thenReturn(new ByteArrayInputStream(new byte[]{0, 1, 2}));
+        AtomicReference<SecurityContext> loadingContext = new AtomicReference<>();
+        when(cmisDocument.getContentStream()).thenAnswer(invocation -> {
+            loadingContext.set(SecurityContextHolder.getContext());
+            return contentStream;
+        });
+        SecurityContext readerContext = SecurityContextHolder.createEmptyContext();
+
+        //make call
+        MediaDocument mediaDocument;
+        SecurityContextHolder.setContext(readerContext);
+        try {
+            mediaDocument = CmisDocumentExtensions.toLeosDocument(cmisDocument, MediaDocument.class, true);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        Thread reader = new Thread(() -> mediaDocument.getContent().get().getSource().getSharedBytes());
+        reader.start();
+        reader.join();
+
+        //verify
+        assertThat(loadingContext.get(), is(sameInstance(readerContext)));
+    }
+
     @Test(expected = IllegalStateException.class)
     public void test_toLeosDocument_IfMediaDocument_when_IncompatibleTypes() {
         //setup
@@ -454,6 +500,9 @@ public class CmisDocumentExtensionsTest {
         when(contentStream.getLength()).thenReturn(DOC_CONTENT.get().getLength());
         when(contentStream.getStream()).thenReturn(DOC_CONTENT.get().getSource().getInputStream());
         when(cmisDocument.getContentStream()).thenReturn(contentStream);
+        when(cmisDocument.getContentStreamFileName()).thenReturn(DOC_CONTENT.get().getFileName());
+        when(cmisDocument.getContentStreamMimeType()).thenReturn(DOC_CONTENT.get().getMimeType());
+        when(cmisDocument.getContentStreamLength()).thenReturn(DOC_CONTENT.get().getLength());
 
         return cmisDocument;
     }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import eu.europa.ec.leos.cmis.mapping.CmisProperties;
+import eu.europa.ec.leos.cmis.search.SearchStrategy;
+import eu.europa.ec.leos.cmis.support.DocumentLockManager;
+import eu.europa.ec.leos.cmis.support.LocalDocumentLockManager;
+import eu.europa.ec.leos.domain.cmis.common.VersionType;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CmisRepositoryTest {
+
+    private Session cmisSession;
+    private LeosDocumentCache documentCache;
+    private CmisRepository cmisRepository;
+    private Folder parentFolder;
+    private Folder childFolder;
+
+    @Before
+    public void setUp() {
+        cmisSession = mock(Session.class);
+        when(cmisSession.createOperationContext()).thenReturn(mock(OperationContext.class));
+        documentCache = mock(LeosDocumentCache.class);
+        cmisRepository = new CmisRepository(cmisSession, documentCache, mock(DocumentLockManager.class), 60);
+
+        parentFolder = folder("parentId", "/leos");
+        childFolder = folder("childId", "/leos/child");
+        when(cmisSession.getObjectByPath(eq("/leos"), any(OperationContext.class))).thenReturn(parentFolder);
+        when(parentFolder.createFolder(anyMap(), any(), any(), any(), any(OperationContext.class))).thenReturn(childFolder);
+        when(childFolder.createFolder(anyMap(), any(), any(), any(), any(OperationContext.class))).thenReturn(folder("grandChildId", "/leos/child/grandChild"));
+    }
+
+    @Test
+    public void test_findFolderByPath_should_resolveFolderOnce() {
+        cmisRepository.createFolder("/leos", "child");
+        cmisRepository.createFolder("/leos", "child");
+
+        verify(cmisSession, times(1)).getObjectByPath(eq("/leos"), any(OperationContext.class));
+        verify(cmisSession, never()).existsPath(anyString());
+    }
+
+    @Test
+    public void test_findFolderByPath_should_resolveFolderAgain_when_cacheIsExpired() {
+        cmisRepository = new CmisRepository(cmisSession, documentCache, mock(DocumentLockManager.class), 0);
+
+        cmisRepository.createFolder("/leos", "child");
+        cmisRepository.createFolder("/leos", "child");
+
+        verify(cmisSession, times(2)).getObjectByPath(eq("/leos"), any(OperationContext.class));
+    }
+
+    @Test
+    public void test_createFolder_should_cacheCreatedFolder() {
+        assertSame(childFolder, cmisRepository.createFolder("/leos", "child"));
+        cmisRepository.createFolder("/leos/child", "grandChild");
+
+        verify(cmisSession, never()).getObjectByPath(eq("/leos/child"), any(OperationContext.class));
+    }
+
+    @Test
+    public void test_deleteFolder_should_invalidateFolders() {
+        cmisRepository.createFolder("/leos", "child");
+        cmisRepository.deleteFolder("/leos");
+        cmisRepository.createFolder("/leos", "child");
+
+        verify(cmisSession, times(2)).getObjectByPath(eq("/leos"), any(OperationContext.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_findFolderByPath_should_fail_when_pathIsNotAvailable() {
+        when(cmisSession.getObjectByPath(eq("/missing"), any(OperationContext.class))).thenThrow(new CmisObjectNotFoundException());
+
+        cmisRepository.createFolder("/missing", "child");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_updateDocument_should_computeNextVersionLabel_from_latestVersionLabel() {
+        Document document = document("docId", "1.2.3");
+        Document pwc = workingCopy(document);
+        when(pwc.checkIn(anyBoolean(), anyMap(), any(ContentStream.class), anyString())).thenReturn(objectId("newId"));
+        when(cmisSession.getLatestDocumentVersion(eq("newId"), any(OperationContext.class))).thenReturn(document("newId", "1.3.0"));
+
+        cmisRepository.updateDocument("docId", Collections.emptyMap(), new byte[]{1}, VersionType.INTERMEDIATE, "comment");
+
+        ArgumentCaptor<Map<String, ?>> properties = ArgumentCaptor.forClass(Map.class);
+        verify(pwc).checkIn(eq(true), properties.capture(), any(ContentStream.class), eq("comment"));
+        assertEquals("1.3.0", properties.getValue().get(CmisProperties.VERSION_LABEL.getId()));
+        assertEquals(VersionType.INTERMEDIATE.value(), properties.getValue().get(CmisProperties.VERSION_TYPE.getId()));
+        verify(document, never()).getAllVersions();
+        verify(documentCache).invalidateSeries("newId");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_updateDocument_should_computeNextVersionLabel_from_versions_when_labelIsMissing() {
+        Document document = document("unlabelledDocId", null);
+        when(document.getAllVersions()).thenReturn(Collections.singletonList(document));
+        Document pwc = workingCopy(document);
+        when(pwc.checkIn(anyBoolean(), anyMap(), any(ContentStream.class), anyString())).thenReturn(objectId("newId"));
+        when(cmisSession.getLatestDocumentVersion(eq("newId"), any(OperationContext.class))).thenReturn(document("newId", "0.0.2"));
+
+        cmisRepository.updateDocument("unlabelledDocId", Collections.emptyMap(), new byte[]{1}, VersionType.MINOR, "comment");
+
+        ArgumentCaptor<Map<String, ?>> properties = ArgumentCaptor.forClass(Map.class);
+        verify(pwc).checkIn(eq(false), properties.capture(), any(ContentStream.class), eq("comment"));
+        assertEquals("0.0.2", properties.getValue().get(CmisProperties.VERSION_LABEL.getId()));
+    }
+
+    @Test
+    public void test_updateDocument_should_serialiseWriters_of_sameVersionSeries() throws Exception {
+        LocalDocumentLockManager lockManager = new LocalDocumentLockManager(60);
+        cmisRepository = new CmisRepository(cmisSession, documentCache, lockManager, 60);
+        Document latest = document("secondVersionId", "0.0.2");
+        when(latest.getVersionSeriesId()).thenReturn("seriesId");
+        Document pwc = workingCopy(latest);
+        when(cmisSession.getLatestDocumentVersion(eq("firstVersionId"), any(OperationContext.class))).thenReturn(latest);
+        when(cmisSession.getLatestDocumentVersion(eq("checkedInId"), any(OperationContext.class))).thenReturn(latest);
+        CountDownLatch checkingIn = new CountDownLatch(1);
+        CountDownLatch checkInReleased = new CountDownLatch(1);
+        when(pwc.checkIn(anyBoolean(), anyMap(), any(ContentStream.class), anyString())).thenAnswer(invocation -> {
+            checkingIn.countDown();
+            assertTrue(checkInReleased.await(10, TimeUnit.SECONDS));
+            return objectId("checkedInId");
+        });
+
+        CompletableFuture<Document> firstWriter = CompletableFuture.supplyAsync(() ->
+                cmisRepository.updateDocument("firstVersionId", Collections.emptyMap(), new byte[]{1}, VersionType.MINOR, "first"));
+        assertTrue(checkingIn.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Document> secondWriter = CompletableFuture.supplyAsync(() ->
+                cmisRepository.updateDocument("secondVersionId", Collections.emptyMap(), new byte[]{2}, VersionType.MINOR, "second"));
+        while (lockManager.getContentions("seriesId") == 0 && !secondWriter.isDone()) {
+            Thread.sleep(10);
+        }
+
+        // the second writer waits for the lock of the series before checking out
+        verify(latest, times(1)).checkOut();
+        checkInReleased.countDown();
+        firstWriter.get(10, TimeUnit.SECONDS);
+        secondWriter.get(10, TimeUnit.SECONDS);
+
+        verify(latest, times(2)).checkOut();
+        assertEquals(0, lockManager.getContentions("firstVersionId"));
+        assertEquals(0, lockManager.getLockCount());
+    }
+
+    @Test
+    public void test_backfillVersionLabels_should_updateLatestVersions_in_place() {
+        Document first = document("firstBackfillId", null);
+        Document second = document("secondBackfillId", null);
+        when(first.getAllVersions()).thenReturn(Collections.singletonList(first));
+        when(second.getAllVersions()).thenReturn(Collections.singletonList(second));
+        doReturn(first).when(first).updateProperties(anyMap());
+        doReturn(second).when(second).updateProperties(anyMap());
+        CmisRepository repository = withDocumentsWithoutVersionLabel(first, second);
+
+        assertEquals(2, repository.backfillVersionLabels("leos:xml"));
+
+        verify(first).updateProperties(Collections.singletonMap(CmisProperties.VERSION_LABEL.getId(), "0.0.1"));
+        verify(second).updateProperties(Collections.singletonMap(CmisProperties.VERSION_LABEL.getId(), "0.0.1"));
+        verify(documentCache).invalidateSeries("firstBackfillId");
+        verify(documentCache).invalidateSeries("secondBackfillId");
+    }
+
+    @Test
+    public void test_backfillVersionLabels_should_stop_when_updateCreatesVersion() {
+        Document first = document("versionedBackfillId", null);
+        Document second = document("skippedBackfillId", null);
+        when(first.getAllVersions()).thenReturn(Collections.singletonList(first));
+        doReturn(document("newVersionId", "0.0.1")).when(first).updateProperties(anyMap());
+        CmisRepository repository = withDocumentsWithoutVersionLabel(first, second);
+
+        assertEquals(0, repository.backfillVersionLabels("leos:xml"));
+
+        verify(second, never()).updateProperties(anyMap());
+    }
+
+    private CmisRepository withDocumentsWithoutVersionLabel(Document... documents) {
+        SearchStrategy searchStrategy = mock(SearchStrategy.class);
+        when(searchStrategy.findDocumentsWithoutVersionLabel(eq("leos:xml"), any(OperationContext.class))).thenReturn(Arrays.asList(documents));
+        CmisRepository repository = spy(cmisRepository);
+        doReturn(searchStrategy).when(repository).getSearchStrategy();
+        return repository;
+    }
+
+    private Document workingCopy(Document document) {
+        String pwcId = document.getId() + "-pwc";
+        ObjectId checkedOutId = objectId(pwcId);
+        when(document.checkOut()).thenReturn(checkedOutId);
+        when(cmisSession.getLatestDocumentVersion(eq(document.getId()), any(OperationContext.class))).thenReturn(document);
+
+        Document pwc = document(pwcId, null);
+        ContentStream pwcContentStream = mock(ContentStream.class);
+        when(pwcContentStream.getFileName()).thenReturn("document.xml");
+        when(pwcContentStream.getMimeType()).thenReturn("application/xml");
+        when(pwc.getContentStream()).thenReturn(pwcContentStream);
+        when(cmisSession.getObject(eq(pwcId), any(OperationContext.class))).thenReturn(pwc);
+
+        ObjectFactory objectFactory = mock(ObjectFactory.class);
+        when(objectFactory.createContentStream(anyString(), anyLong(), anyString(), any())).thenReturn(mock(ContentStream.class));
+        when(cmisSession.getObjectFactory()).thenReturn(objectFactory);
+        return pwc;
+    }
+
+    private Document document(String id, String versionLabel) {
+        Document document = mock(Document.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getVersionSeriesId()).thenReturn(id);
+        when(document.getPropertyValue(CmisProperties.VERSION_LABEL.getId())).thenReturn(versionLabel);
+        return document;
+    }
+
+    private ObjectId objectId(String id) {
+        ObjectId objectId = mock(ObjectId.class);
+        when(objectId.getId()).thenReturn(id);
+        return objectId;
+    }
+
+    private Folder folder(String id, String path) {
+        Folder folder = mock(Folder.class);
+        when(folder.getId()).thenReturn(id);
+        when(folder.getPath()).thenReturn(path);
+        return folder;
+    }
+}
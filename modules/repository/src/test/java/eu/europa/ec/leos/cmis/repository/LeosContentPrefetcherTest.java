@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import eu.europa.ec.leos.cmis.domain.ContentImpl;
+import eu.europa.ec.leos.cmis.domain.SourceImpl;
+import eu.europa.ec.leos.domain.cmis.Content;
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import io.atlassian.fugue.Option;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeosContentPrefetcherTest {
+
+    private final LeosContentPrefetcher contentPrefetcher = new LeosContentPrefetcher(2);
+    private final Set<String> loadingThreads = ConcurrentHashMap.newKeySet();
+
+    @Test
+    public void test_prefetch_should_loadAllContentsOnThePool() {
+        LeosDocument first = document(loader(new byte[]{1}));
+        LeosDocument second = document(loader(new byte[]{2}));
+        LeosDocument withoutContent = mock(LeosDocument.class);
+        when(withoutContent.getContent()).thenReturn(Option.none());
+
+        contentPrefetcher.prefetch(Arrays.asList(first, withoutContent, second));
+
+        assertEquals(2, loadingThreads.size());
+        assertTrue(loadingThreads.stream().allMatch(name -> name.startsWith("content-prefetch-")));
+        assertArrayEquals(new byte[]{1}, first.getContent().get().getSource().getBytes());
+        assertArrayEquals(new byte[]{2}, second.getContent().get().getSource().getBytes());
+    }
+
+    @Test
+    public void test_prefetch_should_ignoreFailedContents() {
+        LeosDocument failing = document(() -> {
+            throw new IllegalStateException("Content stream not found");
+        });
+        LeosDocument other = document(loader(new byte[]{1}));
+
+        contentPrefetcher.prefetch(Arrays.asList(failing, other));
+
+        assertEquals(1, loadingThreads.size());
+        assertEquals(1, contentPrefetcher.getFailures());
+    }
+
+    @Test
+    public void test_prefetch_should_recordBatchStatistics() {
+        contentPrefetcher.prefetch(Arrays.asList(document(loader(new byte[]{1})), document(loader(new byte[]{2}))));
+        contentPrefetcher.prefetch(Arrays.asList(document(loader(new byte[]{3}))));
+
+        assertEquals(1, contentPrefetcher.getBatches());
+        assertEquals(2, contentPrefetcher.getDocuments());
+        assertEquals(2, contentPrefetcher.getBytes());
+        assertEquals(0, contentPrefetcher.getFailures());
+        assertTrue(contentPrefetcher.getMaxBatchTimeInMillis() >= contentPrefetcher.getAverageBatchTimeInMillis());
+    }
+
+    @After
+    public void tearDown() {
+        contentPrefetcher.shutdown();
+    }
+
+    private Supplier<InputStream> loader(byte[] content) {
+        return () -> {
+            loadingThreads.add(Thread.currentThread().getName() + " loading " + content[0]);
+            return new ByteArrayInputStream(content);
+        };
+    }
+
+    private static LeosDocument document(Supplier<InputStream> loader) {
+        Content content = new ContentImpl("file", "application/xml", 1, new SourceImpl(loader));
+        LeosDocument document = mock(LeosDocument.class);
+        when(document.getContent()).thenReturn(Option.some(content));
+        return document;
+    }
+}
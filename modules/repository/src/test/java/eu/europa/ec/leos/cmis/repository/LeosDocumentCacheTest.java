@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import io.atlassian.fugue.Option;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeosDocumentCacheTest {
+
+    private LeosDocumentCache documentCache;
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        documentCache = new LeosDocumentCache(1, 30, 10);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void test_getVersion_should_loadOnce() {
+        LeosDocument version = document("id1", "series", false);
+
+        assertSame(version, documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        assertSame(version, documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, documentCache.getVersionStats().hitCount());
+    }
+
+    @Test
+    public void test_getLatestVersion_should_notBeServedForAnotherVersionId() {
+        LeosDocument latest = document("id2", "series", true);
+        LeosDocument version = document("id1", "series", false);
+
+        assertSame(latest, documentCache.getLatestVersion("id1", LeosDocument.class, loader(latest)));
+        assertSame(version, documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        assertSame(latest, documentCache.getLatestVersion("id1", LeosDocument.class, loader(latest)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_invalidateSeries_should_reloadLatestVersion() {
+        LeosDocument latest = document("id1", "series", true);
+        LeosDocument other = document("id3", "otherSeries", true);
+        documentCache.getLatestVersion("id1", LeosDocument.class, loader(latest));
+        documentCache.getLatestVersion("id3", LeosDocument.class, loader(other));
+
+        documentCache.invalidateSeries("series");
+        documentCache.getLatestVersion("id1", LeosDocument.class, loader(latest));
+        documentCache.getLatestVersion("id3", LeosDocument.class, loader(other));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void test_invalidateSeries_should_invalidateVersionsOfAllUsers() {
+        LeosDocument version = document("id1", "series", false);
+        LeosDocument other = document("id3", "otherSeries", false);
+        asUser("user1", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        asUser("user2", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        asUser("user1", () -> documentCache.getVersion("id3", LeosDocument.class, loader(other)));
+        assertEquals(3, documentCache.getVersionCount());
+
+        documentCache.invalidateSeries("series");
+
+        assertEquals(1, documentCache.getVersionCount());
+        asUser("user2", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void test_getVersion_should_notServeDocumentOfAnotherUser() {
+        LeosDocument version = document("id1", "series", false);
+
+        asUser("user1", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        asUser("user1", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        assertEquals(1, loads.get());
+
+        // the repository decides whether the other user can read it
+        asUser("user2", () -> documentCache.getVersion("id1", LeosDocument.class, loader(version)));
+        assertEquals(2, loads.get());
+    }
+
+    private static void asUser(String user, Runnable action) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null));
+        try {
+            action.run();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Supplier<LeosDocument> loader(LeosDocument document) {
+        return () -> {
+            loads.incrementAndGet();
+            return document;
+        };
+    }
+
+    private static LeosDocument document(String id, String versionSeriesId, boolean latest) {
+        LeosDocument document = mock(LeosDocument.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getVersionSeriesId()).thenReturn(versionSeriesId);
+        when(document.isLatestVersion()).thenReturn(latest);
+        when(document.getContent()).thenReturn(Option.none());
+        return document;
+    }
+}
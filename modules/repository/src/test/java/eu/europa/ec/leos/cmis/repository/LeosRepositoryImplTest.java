@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.repository;
+
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import eu.europa.ec.leos.model.filter.PageCursor;
+import eu.europa.ec.leos.model.filter.QueryFilter;
+import eu.europa.ec.leos.model.user.User;
+import eu.europa.ec.leos.security.LeosPermissionAuthorityMapHelper;
+import eu.europa.ec.leos.security.SecurityContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeosRepositoryImplTest {
+
+    private static final QueryFilter.SortOrder SORT_ORDER = new QueryFilter.SortOrder(QueryFilter.FilterType.creationDate.name(), QueryFilter.SORT_DESCENDING);
+
+    private CmisRepository cmisRepository;
+    private SecurityContext securityContext;
+    private LeosRepositoryImpl leosRepository;
+
+    private List<PageCursor> keysetSearches;
+    private int offsetSearches;
+
+    @Before
+    public void setUp() {
+        cmisRepository = mock(CmisRepository.class);
+        securityContext = mock(SecurityContext.class);
+        leosRepository = new LeosRepositoryImpl(cmisRepository, securityContext, mock(LeosPermissionAuthorityMapHelper.class),
+                mock(LeosDocumentCache.class), mock(LeosContentPrefetcher.class));
+        keysetSearches = new ArrayList<>();
+        offsetSearches = 0;
+        asUser("user1");
+    }
+
+    @Test
+    public void test_findPage_should_searchFirstPageFromNoCursor() {
+        List<LeosDocument> page = findPage(0, SORT_ORDER, document("id1", 2), document("id2", 1));
+
+        assertEquals(2, page.size());
+        assertEquals(1, keysetSearches.size());
+        assertNull(keysetSearches.get(0));
+        assertEquals(0, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_searchNextPageFromCursorOfPreviousPage() {
+        findPage(0, SORT_ORDER, document("id1", 2), document("id2", 1));
+        findPage(2, SORT_ORDER, document("id3", 0));
+
+        assertEquals(2, keysetSearches.size());
+        PageCursor cursor = keysetSearches.get(1);
+        assertNotNull(cursor);
+        assertEquals(Instant.ofEpochSecond(1), cursor.getValue());
+        assertEquals(0, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_searchByOffset_when_previousPageNotReturned() {
+        findPage(0, SORT_ORDER, document("id1", 2), document("id2", 1));
+        findPage(4, SORT_ORDER, document("id5", 0));
+
+        assertEquals(1, keysetSearches.size());
+        assertEquals(1, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_searchByOffset_when_sortOrderNotSupported() {
+        QueryFilter.SortOrder sortOrder = new QueryFilter.SortOrder(QueryFilter.FilterType.actType.name(), QueryFilter.SORT_ASCENDING);
+
+        findPage(0, sortOrder, document("id1", 2));
+
+        assertEquals(0, keysetSearches.size());
+        assertEquals(1, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_notFollowCursorOfAnotherUser() {
+        findPage(0, SORT_ORDER, document("id1", 2), document("id2", 1));
+        asUser("user2");
+        findPage(2, SORT_ORDER, document("id3", 0));
+
+        assertEquals(1, keysetSearches.size());
+        assertEquals(1, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_searchByOffset_after_write() {
+        findPage(0, SORT_ORDER, document("id1", 2), document("id2", 1));
+        leosRepository.deleteDocumentById("id1");
+        findPage(2, SORT_ORDER, document("id3", 0));
+
+        assertEquals(1, keysetSearches.size());
+        assertEquals(1, offsetSearches);
+    }
+
+    @Test
+    public void test_findPage_should_notStoreCursor_when_pageEmpty() {
+        findPage(0, SORT_ORDER);
+        findPage(0, SORT_ORDER, document("id1", 2));
+        findPage(1, SORT_ORDER);
+        findPage(1, SORT_ORDER);
+
+        assertEquals(4, keysetSearches.size());
+        assertEquals(0, offsetSearches);
+    }
+
+    private List<LeosDocument> findPage(int startIndex, QueryFilter.SortOrder sortOrder, LeosDocument... documents) {
+        List<LeosDocument> page = documents.length == 0 ? emptyList() : Arrays.asList(documents);
+        return leosRepository.findPage("query", startIndex, sortOrder,
+                cursor -> {
+                    keysetSearches.add(cursor);
+                    return page;
+                },
+                () -> {
+                    offsetSearches++;
+                    return page;
+                });
+    }
+
+    private void asUser(String login) {
+        when(securityContext.getUser()).thenReturn(new User(1L, login, login, emptyList(), null, emptyList()));
+    }
+
+    private static LeosDocument document(String id, long creationSecond) {
+        LeosDocument document = mock(LeosDocument.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getCreationInstant()).thenReturn(Instant.ofEpochSecond(creationSecond));
+        return document;
+    }
+}
@@ -14,14 +14,35 @@
 package eu.europa.ec.leos.cmis.search;
 
 import eu.europa.ec.leos.domain.cmis.common.VersionType;
+import eu.europa.ec.leos.domain.cmis.document.LeosDocument;
+import eu.europa.ec.leos.model.filter.PageCursor;
 import eu.europa.ec.leos.model.filter.QueryFilter;
 import eu.europa.ec.leos.model.filter.QueryFilter.Filter;
 import eu.europa.ec.leos.model.filter.QueryFilter.FilterType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class QueryUtilTest {
 
+    @Test
+    public void getSeekClauseTest() {
+        String expected = "cmis:creationDate <= TIMESTAMP '2019-03-01T10:15:30.120Z'";
+        LeosDocument first = mockDocument("id1", Instant.parse("2019-03-01T10:15:31.000Z"));
+        LeosDocument second = mockDocument("id2", Instant.parse("2019-03-01T10:15:30.120Z"));
+        PageCursor cursor = PageCursor.after(null, Arrays.asList(first, second),
+                new QueryFilter.SortOrder(FilterType.creationDate.name(), QueryFilter.SORT_DESCENDING));
+
+        Assert.assertEquals(expected, QueryUtil.getSeekClause(cursor));
+        Assert.assertTrue(cursor.isReturned("id2"));
+        Assert.assertFalse(cursor.isReturned("id1"));
+    }
+
     @Test
     public void createQueryMultiTest() {
         String expected = "metadata:docType = 'REGULATION' AND leos:language IN ('FR', 'NL')";
@@ -173,4 +194,11 @@ public class QueryUtilTest {
         filter.addFilter(f2);
         return filter;
     }
+
+    private LeosDocument mockDocument(String id, Instant creationInstant) {
+        LeosDocument document = mock(LeosDocument.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getCreationInstant()).thenReturn(creationInstant);
+        return document;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.search;
+
+import eu.europa.ec.leos.cmis.mapping.CmisProperties;
+import eu.europa.ec.leos.domain.cmis.LeosCategory;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SearchStrategyNavigationServicesTest {
+
+    private static final String PRIMARY_TYPE = "leos:xml";
+    private static final Set<LeosCategory> PROPOSALS = EnumSet.of(LeosCategory.PROPOSAL);
+
+    private Session cmisSession;
+    private RepositoryCapabilities capabilities;
+    private OperationContext context;
+    private Folder folder;
+    private Document proposal;
+    private Document bill;
+
+    @Before
+    public void setUp() {
+        cmisSession = mock(Session.class);
+        RepositoryInfo repositoryInfo = mock(RepositoryInfo.class);
+        capabilities = mock(RepositoryCapabilities.class);
+        when(cmisSession.getRepositoryInfo()).thenReturn(repositoryInfo);
+        when(repositoryInfo.getCapabilities()).thenReturn(capabilities);
+        context = mock(OperationContext.class);
+
+        folder = mock(Folder.class);
+        when(folder.getId()).thenReturn("folderId");
+        proposal = document("proposalId", LeosCategory.PROPOSAL);
+        bill = document("billId", LeosCategory.BILL);
+    }
+
+    @Test
+    public void test_findDocuments_should_queryFolder_when_metadataQueryIsSupported() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.METADATAONLY);
+        ItemIterable<CmisObject> queried = items(proposal);
+        when(cmisSession.queryObjects(PRIMARY_TYPE, "leos:category IN ('PROPOSAL') AND IN_FOLDER('folderId')", false, context)).thenReturn(queried);
+
+        List<Document> documents = new SearchStrategyNavigationServices(cmisSession).findDocuments(folder, PRIMARY_TYPE, PROPOSALS, false, false, context);
+
+        assertEquals(Collections.singletonList(proposal), documents);
+        verify(folder, never()).getChildren(any(OperationContext.class));
+    }
+
+    @Test
+    public void test_findDocuments_should_queryTree_when_descendantsAreRequested() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.BOTHCOMBINED);
+        ItemIterable<CmisObject> queried = items(proposal);
+        when(cmisSession.queryObjects(PRIMARY_TYPE, "leos:category IN ('PROPOSAL') AND IN_TREE('folderId')", false, context)).thenReturn(queried);
+
+        List<Document> documents = new SearchStrategyNavigationServices(cmisSession).findDocuments(folder, PRIMARY_TYPE, PROPOSALS, true, false, context);
+
+        assertEquals(Collections.singletonList(proposal), documents);
+        verify(folder, never()).getDescendants(anyInt(), any(OperationContext.class));
+    }
+
+    @Test
+    public void test_findDocuments_should_filterChildren_when_queryIsNotSupported() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.NONE);
+        assertFilteredChildren(new SearchStrategyNavigationServices(cmisSession), false);
+    }
+
+    @Test
+    public void test_findDocuments_should_filterChildren_when_onlyFullTextQueryIsSupported() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.FULLTEXTONLY);
+        assertFilteredChildren(new SearchStrategyNavigationServices(cmisSession), false);
+    }
+
+    @Test
+    public void test_findDocuments_should_filterChildren_when_queryCapabilityIsUnknown() {
+        when(capabilities.getQueryCapability()).thenReturn(null);
+        assertFilteredChildren(new SearchStrategyNavigationServices(cmisSession), false);
+    }
+
+    @Test
+    public void test_findDocuments_should_filterChildren_when_allVersionsAreRequested() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.METADATAONLY);
+        assertFilteredChildren(new SearchStrategyNavigationServices(cmisSession), true);
+    }
+
+    @Test
+    public void test_isMetadataQuerySupported_should_readCapabilityOnce() {
+        when(capabilities.getQueryCapability()).thenReturn(CapabilityQuery.METADATAONLY);
+        when(cmisSession.queryObjects(anyString(), anyString(), anyBoolean(), any(OperationContext.class))).thenAnswer(invocation -> items(proposal));
+        SearchStrategyNavigationServices searchStrategy = new SearchStrategyNavigationServices(cmisSession);
+
+        searchStrategy.findDocuments(folder, PRIMARY_TYPE, PROPOSALS, false, false, context);
+        searchStrategy.findDocuments(folder, PRIMARY_TYPE, PROPOSALS, true, false, context);
+
+        verify(cmisSession, times(1)).getRepositoryInfo();
+        verify(cmisSession, times(2)).queryObjects(anyString(), anyString(), eq(false), eq(context));
+    }
+
+    private void assertFilteredChildren(SearchStrategyNavigationServices searchStrategy, boolean allVersion) {
+        ItemIterable<CmisObject> children = items(proposal, bill, document("otherTypeId", "cmis:folder", LeosCategory.PROPOSAL));
+        when(folder.getChildren(context)).thenReturn(children);
+
+        List<Document> documents = searchStrategy.findDocuments(folder, PRIMARY_TYPE, PROPOSALS, false, allVersion, context);
+
+        assertEquals(Collections.singletonList(proposal), documents);
+        verify(cmisSession, never()).queryObjects(anyString(), anyString(), anyBoolean(), any(OperationContext.class));
+    }
+
+    private Document document(String id, LeosCategory category) {
+        return document(id, PRIMARY_TYPE, category);
+    }
+
+    private Document document(String id, String typeId, LeosCategory category) {
+        Document document = mock(Document.class);
+        ObjectType type = mock(ObjectType.class);
+        when(type.getId()).thenReturn(typeId);
+        when(document.getId()).thenReturn(id);
+        when(document.getType()).thenReturn(type);
+        when(document.getPropertyValue(CmisProperties.DOCUMENT_CATEGORY.getId())).thenReturn(category.name());
+        return document;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ItemIterable<CmisObject> items(CmisObject... cmisObjects) {
+        List<CmisObject> objects = Arrays.asList(cmisObjects);
+        ItemIterable<CmisObject> items = mock(ItemIterable.class);
+        when(items.iterator()).thenAnswer(invocation -> objects.iterator());
+        when(items.spliterator()).thenAnswer(invocation -> objects.spliterator());
+        return items;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.cmis.support;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocalDocumentLockManagerTest {
+
+    @Test
+    public void test_lock_should_beRemovedWhenReleased() {
+        LocalDocumentLockManager lockManager = new LocalDocumentLockManager(60);
+
+        try (DocumentLockManager.DocumentLock lock = lockManager.lock("doc1")) {
+            assertEquals(1, lockManager.getLockCount());
+        }
+
+        assertEquals(0, lockManager.getLockCount());
+        assertEquals(1, lockManager.getAcquisitions());
+        assertEquals(0, lockManager.getContentions());
+    }
+
+    @Test
+    public void test_close_should_releaseOnlyOnce() {
+        LocalDocumentLockManager lockManager = new LocalDocumentLockManager(0);
+
+        DocumentLockManager.DocumentLock first = lockManager.lock("doc1");
+        try (DocumentLockManager.DocumentLock second = lockManager.lock("doc1")) {
+            first.close();
+            first.close();
+
+            // still held by the second acquisition of this thread
+            assertEquals(1, lockManager.getLockCount());
+            CompletableFuture<Void> otherWriter = CompletableFuture.runAsync(() -> lockManager.lock("doc1").close());
+            try {
+                otherWriter.get();
+                fail("The lock should not be acquired");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+
+        assertEquals(0, lockManager.getLockCount());
+    }
+
+    @Test
+    public void test_lock_should_timeoutWhenHeldByAnotherThread() throws Exception {
+        LocalDocumentLockManager lockManager = new LocalDocumentLockManager(0);
+
+        try (DocumentLockManager.DocumentLock lock = lockManager.lock("doc1")) {
+            CompletableFuture<Void> otherWriter = CompletableFuture.runAsync(() -> lockManager.lock("doc1").close());
+            try {
+                otherWriter.get();
+                fail("The lock should not be acquired");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            lockManager.lock("doc2").close();
+            assertEquals(1, lockManager.getLockCount());
+        }
+
+        assertEquals(0, lockManager.getLockCount());
+        assertEquals(1, lockManager.getContentions("doc1"));
+        assertEquals(1, lockManager.getTimeouts());
+    }
+}
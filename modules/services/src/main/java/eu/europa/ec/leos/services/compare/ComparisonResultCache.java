@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.compare;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of comparison results. The compared versions are immutable once saved, so comparing the same versions
+ * with the same options always gives the same result.
+ * Entries are keyed by digests of the compared contents, the comparator, the comparison mode and the options of the context,
+ * and the least recently used results are evicted first. The cache is bounded by the size of the results.
+ */
+@Component
+public class ComparisonResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ComparisonResultCache.class);
+
+    private final Cache<ComparisonKey, String[]> resultCache;
+
+    enum Mode {
+        SINGLE_COLUMN,
+        TWO_COLUMNS
+    }
+
+    @Autowired
+    public ComparisonResultCache(@Value("${leos.comparison.cache.maxSizeInMb:64}") long maxSizeInMb,
+                                 @Value("${leos.comparison.cache.expireAfterAccessInMinutes:30}") long expireAfterAccessInMinutes) {
+        LOG.info("Comparison results cache limited to {} MB, expiring {} minutes after access", maxSizeInMb, expireAfterAccessInMinutes);
+        resultCache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInMb * 1024 * 1024)
+                .weigher((ComparisonKey key, String[] result) -> Arrays.stream(result).mapToInt(String::length).sum() * Character.BYTES)
+                .expireAfterAccess(expireAfterAccessInMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached result of the comparison, or runs the comparison if it is not cached yet.
+     */
+    String[] get(Class<? extends ContentComparatorService> comparator, Mode mode, ContentComparatorContext context, Supplier<String[]> comparison) {
+        ComparisonKey key = new ComparisonKey(comparator, mode, context);
+        try {
+            return resultCache.get(key, () -> {
+                LOG.trace("Comparison result not cached, {} entries in cache", resultCache.size());
+                return comparison.get();
+            }).clone();
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    public CacheStats getStats() {
+        return resultCache.stats();
+    }
+
+    public long size() {
+        return resultCache.size();
+    }
+
+    private static final class ComparisonKey {
+        private final String comparator;
+        private final Mode mode;
+        private final List<HashCode> versionHashes;
+        private final List<Object> options;
+
+        private ComparisonKey(Class<? extends ContentComparatorService> comparator, Mode mode, ContentComparatorContext context) {
+            this.comparator = comparator.getName();
+            this.mode = mode;
+            this.versionHashes = Arrays.stream(context.getComparedVersions())
+                    .map(version -> version != null ? Hashing.sha256().hashString(version, StandardCharsets.UTF_8) : HashCode.fromInt(0))
+                    .collect(Collectors.toList());
+            this.options = Arrays.asList(context.getStartTagAttrName(), context.getStartTagAttrValue(), context.getIgnoreElements(),
+                    context.getIgnoreRenumbering(), context.getAttrName(), context.getRemovedValue(), context.getAddedValue(),
+                    context.getRemovedOriginalValue(), context.getAddedOriginalValue(), context.getRemovedIntermediateValue(),
+                    context.getAddedIntermediateValue(), context.getRetainOriginalValue(), context.getDisplayRemovedContentAsReadOnly(),
+                    context.getThreeWayDiff());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ComparisonKey that = (ComparisonKey) o;
+            return comparator.equals(that.comparator) &&
+                    mode == that.mode &&
+                    versionHashes.equals(that.versionHashes) &&
+                    options.equals(that.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * comparator.hashCode() + mode.hashCode()) + versionHashes.hashCode()) + options.hashCode();
+        }
+    }
+}
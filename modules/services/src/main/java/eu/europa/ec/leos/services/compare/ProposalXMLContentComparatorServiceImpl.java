@@ -18,6 +18,7 @@ import com.ximpleware.VTDNav;
 import eu.europa.ec.leos.domain.common.InstanceType;
 import eu.europa.ec.leos.instance.Instance;
 import eu.europa.ec.leos.services.support.xml.vtd.Element;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -29,7 +30,12 @@ import static eu.europa.ec.leos.services.support.xml.vtd.VTDHelper.updateElement
 @Service
 @Instance(instances = {InstanceType.COMMISSION, InstanceType.OS})
 public class ProposalXMLContentComparatorServiceImpl extends XMLContentComparatorServiceImpl {
-    
+
+    @Autowired
+    public ProposalXMLContentComparatorServiceImpl(ComparisonResultCache comparisonResultCache) {
+        super(comparisonResultCache);
+    }
+
     @Override
     protected  void appendRemovedElementsContent(ContentComparatorContext context) throws NavException {
         appendChangedElementsContent(Boolean.FALSE, context.getLeftResultBuilder(), context.getRightResultBuilder(), getElementFragmentAsString(context.getOldContentNavigator(), context.getOldElement()));
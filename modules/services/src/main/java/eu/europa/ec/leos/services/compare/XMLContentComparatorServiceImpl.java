@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static eu.europa.ec.leos.services.compare.ComparisonResultCache.Mode.SINGLE_COLUMN;
+import static eu.europa.ec.leos.services.compare.ComparisonResultCache.Mode.TWO_COLUMNS;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.LEOS_DELETABLE_ATTR;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.LEOS_EDITABLE_ATTR;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.EMPTY_STRING;
@@ -46,8 +48,18 @@ public abstract class XMLContentComparatorServiceImpl implements ContentComparat
     
     private static final Logger LOG = LoggerFactory.getLogger(XMLContentComparatorServiceImpl.class);
 
+    private final ComparisonResultCache comparisonResultCache;
+
+    protected XMLContentComparatorServiceImpl(ComparisonResultCache comparisonResultCache) {
+        this.comparisonResultCache = comparisonResultCache;
+    }
+
     @Override
     public String compareContents(ContentComparatorContext context) {
+        return comparisonResultCache.get(getClass(), SINGLE_COLUMN, context, () -> new String[]{doCompareContents(context)})[0];
+    }
+
+    private String doCompareContents(ContentComparatorContext context) {
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
@@ -303,6 +315,10 @@ public abstract class XMLContentComparatorServiceImpl implements ContentComparat
 
     @Override
     public String[] twoColumnsCompareContents(ContentComparatorContext context) {
+        return comparisonResultCache.get(getClass(), TWO_COLUMNS, context, () -> doTwoColumnsCompareContents(context));
+    }
+
+    private String[] doTwoColumnsCompareContents(ContentComparatorContext context) {
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
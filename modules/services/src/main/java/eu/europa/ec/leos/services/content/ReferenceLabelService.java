@@ -16,6 +16,7 @@ package eu.europa.ec.leos.services.content;
 import com.ximpleware.XMLModifier;
 import eu.europa.ec.leos.domain.common.Result;
 import eu.europa.ec.leos.services.support.xml.ref.Ref;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.List;
 
@@ -30,6 +31,8 @@ public interface ReferenceLabelService {
     Result<String> generateLabel(List<Ref> refs, String sourceDocumentRef, String sourceRefId, byte[] sourceBytes, byte[] targetBytes, String targetDocType, boolean withAnchor);
     Result<String> generateLabelStringRef(List<String> refs, String sourceDocumentRef, String sourceRefId, byte[] sourceBytes, String targetDocumentRef, boolean withAnchor);
     
+    List<Result<String>> generateLabels(List<Pair<String, List<Ref>>> mrefs, String sourceDocumentRef, byte[] sourceBytes);
+    
     Result<String> generateSoftmoveLabel(Ref ref, String referenceLocation, XMLModifier xmlModifier, String direction, String documentRefSource) throws Exception;
     
 }
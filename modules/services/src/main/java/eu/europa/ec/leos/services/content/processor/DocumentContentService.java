@@ -29,4 +29,15 @@ public interface DocumentContentService {
     }
 
     String toEditableContent(XmlDocument xmlDocument, String contextPath, SecurityContext securityContext);
+
+    /**
+     * Renders only the element with the given id, if it is the only part of the document that changed since the previous content.
+     *
+     * @param xmlDocument document to be rendered
+     * @param previousContent the content of the document when it was last rendered
+     * @param elementId id of the changed element
+     * @param contextPath the base path to be used while creating HTML for resources
+     * @return the element in html format, or null if the whole document has to be rendered again
+     */
+    String toEditableElement(XmlDocument xmlDocument, byte[] previousContent, String elementId, String contextPath, SecurityContext securityContext);
 }
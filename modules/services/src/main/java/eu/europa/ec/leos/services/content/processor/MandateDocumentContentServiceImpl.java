@@ -77,6 +77,12 @@ public class MandateDocumentContentServiceImpl implements DocumentContentService
                 .build());
     }
 
+    @Override
+    public String toEditableElement(XmlDocument xmlDocument, byte[] previousContent, String elementId, String contextPath, SecurityContext securityContext) {
+        // the marked content is computed against the original version of the whole document
+        return null;
+    }
+
     private XmlDocument getOriginalAnnex(XmlDocument xmlDocument) {
         List<Annex> annexVersions = annexService.findVersions(xmlDocument.getId());
         annexVersions.sort(Comparator.comparing(Annex::getCreationInstant));
@@ -17,6 +17,7 @@ import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
 import eu.europa.ec.leos.domain.common.InstanceType;
 import eu.europa.ec.leos.instance.Instance;
 import eu.europa.ec.leos.security.SecurityContext;
+import eu.europa.ec.leos.services.support.xml.XmlContentProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -24,15 +25,34 @@ import org.springframework.stereotype.Service;
 @Instance(instances = {InstanceType.COMMISSION, InstanceType.OS})
 public class ProposalDocumentContentServiceImpl implements DocumentContentService {
 
+    private static final String AUTHORIAL_NOTE_TAG = "<authorialNote";
+
     private TransformationService transformationService;
+    private XmlContentProcessor xmlContentProcessor;
 
     @Autowired
-    public ProposalDocumentContentServiceImpl(TransformationService transformationService) {
+    public ProposalDocumentContentServiceImpl(TransformationService transformationService, XmlContentProcessor xmlContentProcessor) {
         this.transformationService = transformationService;
+        this.xmlContentProcessor = xmlContentProcessor;
     }
 
     @Override
     public String toEditableContent(XmlDocument xmlDocument, String contextPath, SecurityContext securityContext) {
         return transformationService.toEditableXml(getContentInputStream(xmlDocument), contextPath, xmlDocument.getCategory(), securityContext.getPermissions(xmlDocument));
     }
+
+    @Override
+    public String toEditableElement(XmlDocument xmlDocument, byte[] previousContent, String elementId, String contextPath, SecurityContext securityContext) {
+        final byte[] content = xmlDocument.getContent().getOrError(() -> "Document content is required!").getSource().getBytes();
+        if (previousContent == null || !xmlContentProcessor.isChangeConfinedToElement(previousContent, content, elementId)) {
+            return null;
+        }
+        final String element = xmlContentProcessor.getElementById(content, elementId)[2];
+        final String previousElement = xmlContentProcessor.getElementById(previousContent, elementId)[2];
+        // authorial notes are listed at the end of the document, so their changes are not confined to the element
+        if (element.contains(AUTHORIAL_NOTE_TAG) || previousElement.contains(AUTHORIAL_NOTE_TAG)) {
+            return null;
+        }
+        return transformationService.toEditableXmlFragment(element, contextPath, xmlDocument.getCategory(), securityContext.getPermissions(xmlDocument));
+    }
 }
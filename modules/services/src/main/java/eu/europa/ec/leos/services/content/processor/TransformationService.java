@@ -19,12 +19,31 @@ import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
 import eu.europa.ec.leos.security.LeosPermission;
 
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.List;
 
 public interface TransformationService {
 
     String toEditableXml(InputStream documentStream, String contextPath, LeosCategory category, List<LeosPermission> permissions);
 
+    /**
+     * Transforms a document as {@link #toEditableXml(InputStream, String, LeosCategory, List)} does, writing the html
+     * to the output as it is produced instead of holding it in memory. The rendering is not cached, this is meant for
+     * one-off renderings such as the exports.
+     *
+     * @param output the writer the html is written to, left open
+     */
+    void toEditableXml(InputStream documentStream, Writer output, String contextPath, LeosCategory category, List<LeosPermission> permissions);
+
+    /**
+     * Transforms a single element of a document the same way {@link #toEditableXml} transforms it as part of the whole document
+     *
+     * @param elementFragment xml of the element, as found in the document
+     * @param contextPath the base path to be used while creating HTML for resources
+     * @return element String in html format
+     */
+    String toEditableXmlFragment(String elementFragment, String contextPath, LeosCategory category, List<LeosPermission> permissions);
+
     String toXmlFragmentWrapper(InputStream documentStream, String contextPath, List<LeosPermission> permissions);
     
     String toImportXml(InputStream documentStream, String contextPath, List<LeosPermission> permissions);
@@ -17,21 +17,27 @@ import com.google.common.base.Stopwatch;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
 import eu.europa.ec.leos.security.LeosPermission;
+import eu.europa.ec.leos.services.rendition.RenderedHtmlCache;
 import eu.europa.ec.leos.services.support.xml.freemarker.XmlNodeModelHandler;
 import freemarker.ext.dom.NodeModel;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateHashModel;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -56,14 +62,40 @@ public class TransformationServiceImpl implements TransformationService {
 
     private TemplateHashModel enumModels;
 
+    private RenderedHtmlCache renderedHtmlCache;
+
     @Autowired
-    public TransformationServiceImpl(Configuration freemarkerConfiguration, TemplateHashModel enumModels){
+    public TransformationServiceImpl(Configuration freemarkerConfiguration, TemplateHashModel enumModels, RenderedHtmlCache renderedHtmlCache){
         this.freemarkerConfiguration = freemarkerConfiguration;
         this.enumModels = enumModels;
+        this.renderedHtmlCache = renderedHtmlCache;
     }
     
     @Override
     public String toEditableXml(final InputStream documentStream, String contextPath, LeosCategory category, List<LeosPermission> permissions) {
+        return transform(documentStream, getEditableTemplate(category), contextPath, permissions);
+    }
+
+    @Override
+    public void toEditableXml(InputStream documentStream, Writer output, String contextPath, LeosCategory category, List<LeosPermission> permissions) {
+        try {
+            render(documentStream, output, getEditableTemplate(category), contextPath, permissions, false);
+        } finally {
+            try {
+                documentStream.close();
+            } catch (IOException ioe){
+                 //omitted
+            }
+        }
+    }
+
+    @Override
+    public String toEditableXmlFragment(String elementFragment, String contextPath, LeosCategory category, List<LeosPermission> permissions) {
+        InputStream fragmentStream = new ByteArrayInputStream(wrapXmlFragment(elementFragment).getBytes(StandardCharsets.UTF_8));
+        return transform(fragmentStream, getEditableTemplate(category), contextPath, permissions, true);
+    }
+
+    private String getEditableTemplate(LeosCategory category) {
         String template;
         switch (category){
             case ANNEX:
@@ -78,7 +110,12 @@ public class TransformationServiceImpl implements TransformationService {
             default:
                 throw new UnsupportedOperationException("No transformation supported for this category");
         }
-        return transform(documentStream, template, contextPath, permissions);
+        return template;
+    }
+
+    private String wrapXmlFragment(String xmlFragment) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><aknFragment xmlns=\"http://docs.oasis-open.org/legaldocml/ns/akn/3.0\" xmlns:leos=\"urn:eu:europa:ec:leos\">" +
+                xmlFragment + "</aknFragment>";
     }
 
     @Override
@@ -121,13 +158,58 @@ public class TransformationServiceImpl implements TransformationService {
      * @return
      */
     private String transform(InputStream documentStream, String templateName, String contextPath, List<LeosPermission> permissions) {
+        return transform(documentStream, templateName, contextPath, permissions, false);
+    }
+
+    /**
+     *  Transforms a documentStream using a freemarker template
+     * @param fragment if true, only the first element inside the root of the documentStream is visited by the template
+     */
+    private String transform(InputStream documentStream, String templateName, String contextPath, List<LeosPermission> permissions, boolean fragment) {
+        final byte[] content = readContent(documentStream);
+        if (fragment) {
+            return render(content, templateName, contextPath, permissions, true);
+        }
+        // the same document version is often rendered for several users, e.g. reviewers opening the same proposal
+        return renderedHtmlCache.get(getCacheKey(content, templateName, contextPath, permissions),
+                () -> render(content, templateName, contextPath, permissions, false));
+    }
+
+    private RenderedHtmlCache.RenderingKey getCacheKey(byte[] content, String templateName, String contextPath, List<LeosPermission> permissions) {
+        return RenderedHtmlCache.key(content, templateName, contextPath, RenderedHtmlCache.fingerprint(permissions));
+    }
+
+    private byte[] readContent(InputStream documentStream) {
+        try {
+            return IOUtils.toByteArray(documentStream);
+        } catch (IOException ex) {
+            LOG.error("Transformation error!", ex);
+            throw new RuntimeException(ex);
+        } finally {
+            try {
+                documentStream.close();
+            } catch (IOException ioe){
+                 //omitted
+            }
+        }
+    }
+
+    private String render(byte[] content, String templateName, String contextPath, List<LeosPermission> permissions, boolean fragment) {
+        StringWriter outputWriter = new StringWriter();
+        render(new ByteArrayInputStream(content), outputWriter, templateName, contextPath, permissions, fragment);
+        return outputWriter.getBuffer().toString();
+    }
+
+    private void render(InputStream documentStream, Writer outputWriter, String templateName, String contextPath, List<LeosPermission> permissions, boolean fragment) {
         LOG.trace("Transforming document using {} template...", templateName);
         Stopwatch stopwatch = Stopwatch.createStarted();
         try {
-            StringWriter outputWriter = new StringWriter();
             Template template = freemarkerConfiguration.getTemplate(templateName);
 
             NodeModel nodeModel = XmlNodeModelHandler.parseXmlStream(documentStream);
+            if (fragment) {
+                nodeModel = NodeModel.wrap(getFirstChildElement(((Document) nodeModel.getNode()).getDocumentElement()));
+            }
 
             Map headers = new HashMap<String, Object>();
             headers.put("contextPath", contextPath);
@@ -139,18 +221,21 @@ public class TransformationServiceImpl implements TransformationService {
             root.put("headers", headers);
 
             template.process(root, outputWriter);
-            return outputWriter.getBuffer().toString();
         } catch (Exception ex) {
             LOG.error("Transformation error!", ex);
             throw new RuntimeException(ex);
         } finally {
-            try {
-                documentStream.close();
-            } catch (IOException ioe){
-                 //omitted
-            }
             stopwatch.stop();
             LOG.trace("Transformation finished! ({} milliseconds)", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         }
     }
+
+    private Node getFirstChildElement(Node parent) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                return child;
+            }
+        }
+        throw new IllegalArgumentException("Fragment does not contain any element");
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.controllers;
+
+import com.google.common.cache.CacheStats;
+import eu.europa.ec.leos.cmis.repository.LeosContentPrefetcher;
+import eu.europa.ec.leos.cmis.repository.LeosDocumentCache;
+import eu.europa.ec.leos.cmis.support.LocalDocumentLockManager;
+import eu.europa.ec.leos.services.compare.ComparisonResultCache;
+import eu.europa.ec.leos.services.messaging.UpdateInternalReferencesConsumer;
+import eu.europa.ec.leos.services.rendition.RenderedHtmlCache;
+import eu.europa.ec.leos.services.support.xml.VTDDocumentCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the statistics of the caches and background processing of the application, to follow their efficiency
+ * and tune their limits.
+ */
+@RestController
+public class StatisticsController {
+
+    @Autowired
+    private LeosDocumentCache documentCache;
+
+    @Autowired
+    private LeosContentPrefetcher contentPrefetcher;
+
+    @Autowired
+    private ComparisonResultCache comparisonResultCache;
+
+    @Autowired
+    private RenderedHtmlCache renderedHtmlCache;
+
+    @Autowired
+    private UpdateInternalReferencesConsumer updateInternalReferencesConsumer;
+
+    // absent when the document locks are shared between instances by another implementation
+    @Autowired(required = false)
+    private LocalDocumentLockManager documentLockManager;
+
+    @RequestMapping(value = "/secured/statistics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("documentVersionsCache", cacheStatistics(documentCache.getVersionCount(), documentCache.getVersionStats()));
+        statistics.put("latestDocumentVersionsCache", cacheStatistics(documentCache.getLatestVersionCount(), documentCache.getLatestVersionStats()));
+        statistics.put("parsedDocumentsCache", cacheStatistics(VTDDocumentCache.size(), VTDDocumentCache.getStats()));
+        statistics.put("comparisonResultsCache", cacheStatistics(comparisonResultCache.size(), comparisonResultCache.getStats()));
+        statistics.put("renderedHtmlCache", cacheStatistics(renderedHtmlCache.size(), renderedHtmlCache.getStats()));
+        statistics.put("contentPrefetch", contentPrefetchStatistics());
+        statistics.put("internalReferencesUpdates", internalReferencesStatistics());
+        if (documentLockManager != null) {
+            statistics.put("documentLocks", documentLockStatistics());
+        }
+        return new ResponseEntity<>(statistics, HttpStatus.OK);
+    }
+
+    private Map<String, Object> contentPrefetchStatistics() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("batches", contentPrefetcher.getBatches());
+        values.put("documents", contentPrefetcher.getDocuments());
+        values.put("failures", contentPrefetcher.getFailures());
+        values.put("bytes", contentPrefetcher.getBytes());
+        values.put("averageBatchTimeInMs", contentPrefetcher.getAverageBatchTimeInMillis());
+        values.put("maxBatchTimeInMs", contentPrefetcher.getMaxBatchTimeInMillis());
+        return values;
+    }
+
+    private Map<String, Object> internalReferencesStatistics() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("queueDepth", updateInternalReferencesConsumer.getQueueDepth());
+        values.put("coalesced", updateInternalReferencesConsumer.getCoalescedCount());
+        values.put("averageDocumentUpdateTimeInMs", updateInternalReferencesConsumer.getAverageDocumentProcessingTime());
+        return values;
+    }
+
+    private Map<String, Object> documentLockStatistics() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("locks", documentLockManager.getLockCount());
+        values.put("acquisitions", documentLockManager.getAcquisitions());
+        values.put("contentions", documentLockManager.getContentions());
+        values.put("timeouts", documentLockManager.getTimeouts());
+        values.put("totalWaitTimeInMs", documentLockManager.getTotalWaitTimeInMillis());
+        values.put("maxWaitTimeInMs", documentLockManager.getMaxWaitTimeInMillis());
+        return values;
+    }
+
+    static Map<String, Object> cacheStatistics(long size, CacheStats stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("size", size);
+        values.put("hits", stats.hitCount());
+        values.put("misses", stats.missCount());
+        values.put("hitRate", stats.hitRate());
+        values.put("evictions", stats.evictionCount());
+        values.put("averageLoadTimeInMs", TimeUnit.NANOSECONDS.toMillis((long) stats.averageLoadPenalty()));
+        return values;
+    }
+}
@@ -46,14 +46,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -85,6 +89,7 @@ abstract class ExportServiceImpl implements ExportService {
     private static final String TEMP_FILE_NAME = "tmp";
     private static final String TEMP_FINAL_FILE_NAME = "tmp_final";
     private static final String PDF_EXTENSION = "pdf";
+    private static final String HTML_EXTENSION = "html";
     private static final String CONTENT = "{content}";
     private static final String BASIC_CSS = "{basicCSS}";
 
@@ -161,17 +166,37 @@ abstract class ExportServiceImpl implements ExportService {
         converterProperties.setTagWorkerFactory(new CustomTagWorkerFactory());
         converterProperties.setCssApplierFactory(new CustomCssApplierFactory());
         converterProperties.setFontProvider(new DefaultFontProvider(true, true, true));
+        converterProperties.setCharset(StandardCharsets.UTF_8.name());
 
-        List<String> htmlSourceList = getHTMLContent(proposalId);
-        htmlSourceList.forEach(htmlSource -> {
+        String templateContent = getFileContent(EXPORT_TEMPLATE_FILE);
+        List<Entry<LeosCategory, String>> documentList = getExportedDocuments(proposalId);
+        documentList.forEach(entry -> {
+            String cssFileName = String.format("%s.%s", entry.getKey().name().toLowerCase(), CSS_EXTENSION);
+            // change for include annex, memorandum, report
+            if (!cssFileName.contains("bill")) {
+                return;
+            }
+            LeosDocument document = findDocument(entry.getValue(), entry.getKey());
+            if (document == null) {
+                return;
+            }
             String fileName = String.format("%s_%s.%s", TEMP_FINAL_FILE_NAME, (new Date()).getTime(), PDF_EXTENSION);
             File pdfDest = new File(fileName);
 
+            File htmlSource = null;
             try {
-                HtmlConverter.convertToPdf(htmlSource, new FileOutputStream(pdfDest), converterProperties);
+                String basicCss = getFileContent("META-INF/resources/assets/css/" + cssFileName);
+                htmlSource = writeHtmlContent(document, entry.getKey(), templateContent.replace(BASIC_CSS, basicCss));
+                try (InputStream htmlStream = new FileInputStream(htmlSource)) {
+                    HtmlConverter.convertToPdf(htmlStream, new FileOutputStream(pdfDest), converterProperties);
+                }
                 fileList.add(pdfDest);
             } catch (Exception e) {
                 LOG.error("An error occurred when export to Pdf! {}", e.getMessage(), e);
+            } finally {
+                if (htmlSource != null) {
+                    htmlSource.delete();
+                }
             }
         });
         File file = mergeDocuments(fileList);
@@ -187,45 +212,37 @@ abstract class ExportServiceImpl implements ExportService {
         }
     }
 
-    private List<String> getHTMLContent(String proposalId) {
+    private List<Entry<LeosCategory, String>> getExportedDocuments(String proposalId) {
         LeosPackage leosPackage = packageService.findPackageByDocumentId(proposalId);
         List<XmlDocument> documents = packageService.findDocumentsByPackagePath(leosPackage.getPath(),
                 XmlDocument.class, false);
 
         DocumentVO proposalVO = createViewObject(documents);
-        List<Entry<LeosCategory, String>> documentHtmlList = getHTMLContent(proposalVO, new ArrayList<>());
-
-        return fillTemplate(documentHtmlList);
+        return getExportedDocuments(proposalVO, new ArrayList<>());
     }
 
-    private List<Entry<LeosCategory, String>> getHTMLContent(DocumentVO documentVO, List<Entry<LeosCategory, String>> htmlList) {
+    private List<Entry<LeosCategory, String>> getExportedDocuments(DocumentVO documentVO, List<Entry<LeosCategory, String>> documentList) {
         for (DocumentVO d : documentVO.getChildDocuments()) {
-            String documentId = d.getId();
-            String html = getHtmlContent(documentId, d.getDocumentType());
-            Entry<LeosCategory, String> htmlEntry = new SimpleEntry<>(d.getDocumentType(), html);
-            htmlList.add(htmlEntry);
+            documentList.add(new SimpleEntry<>(d.getDocumentType(), d.getId()));
             if (!d.getChildDocuments().isEmpty()) {
-                htmlList = getHTMLContent(d, htmlList);
+                documentList = getExportedDocuments(d, documentList);
             }
         };
 
-        return htmlList;
+        return documentList;
     }
 
-    private String getHtmlContent(String documentId, LeosCategory category) {
-        String html = "";
+    private LeosDocument findDocument(String documentId, LeosCategory category) {
+        LeosDocument document = null;
         try {
             if (documentId != null) {
                 if (category == LeosCategory.BILL) {
-                    Bill bill = billService.findBill(documentId);
-                    html = getHtmlContent(bill, category);
+                    document = billService.findBill(documentId);
                 } else if (category == LeosCategory.ANNEX) {
-                    Annex annex = annexService.findAnnex(documentId);
-                    html = getHtmlContent(annex, category);
+                    document = annexService.findAnnex(documentId);
                 }
                 // else if (category == LeosCategory.REPORT) {
-                // Report report= reportService.findReport(documentId);
-                // html = getHtmlContent(report, category);
+                // document = reportService.findReport(documentId);
                 // }
                 else if (category == LeosCategory.MEMORANDUM) {
                     // TODO
@@ -235,17 +252,27 @@ abstract class ExportServiceImpl implements ExportService {
             LOG.debug("Document {} cannot be retrieved due to exception {}, Rejecting view", documentId,
                     iae.getMessage(), iae);
         }
-        return html;
-    }
-
-    private String getHtmlContent(LeosDocument document, LeosCategory category) {
-        return transformationService.toEditableXml(new ByteArrayInputStream(getContent(document)), null, category,
-                securityContext.getPermissions(document));
+        return document;
     }
 
-    private byte[] getContent(LeosDocument doc) {
-        final Content content = doc.getContent().getOrError(() -> "Document content is required!");
-        return content.getSource().getBytes();
+    /**
+     * Writes the html of a document into the export template, in a temporary file.
+     * The document is rendered straight into the file, so the html of a large document is never held in memory.
+     */
+    private File writeHtmlContent(LeosDocument document, LeosCategory category, String templateContent) throws IOException {
+        final Content content = document.getContent().getOrError(() -> "Document content is required!");
+        int contentIndex = templateContent.indexOf(CONTENT);
+        File htmlFile = File.createTempFile(TEMP_FILE_NAME, "." + HTML_EXTENSION);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(htmlFile), StandardCharsets.UTF_8))) {
+            writer.write(templateContent, 0, contentIndex);
+            transformationService.toEditableXml(content.getSource().getInputStream(), writer, null, category,
+                    securityContext.getPermissions(document));
+            writer.write(templateContent.substring(contentIndex + CONTENT.length()));
+        } catch (IOException | RuntimeException e) {
+            htmlFile.delete();
+            throw e;
+        }
+        return htmlFile;
     }
 
     private String getFileContent(String fileName) {
@@ -361,25 +388,6 @@ abstract class ExportServiceImpl implements ExportService {
         return new MetadataVO(metadata.getStage(), metadata.getType(), metadata.getPurpose(), metadata.getTemplate(), metadata.getLanguage());
     }
 
-    private List<String> fillTemplate(List<Entry<LeosCategory, String>> htmlContentList) {
-        List<String> templateFilledList = new ArrayList<>();
-
-        htmlContentList.forEach(entry -> {
-            String templateContent = getFileContent(EXPORT_TEMPLATE_FILE);
-            String cssFileName = String.format("%s.%s", entry.getKey().name().toLowerCase(), CSS_EXTENSION);
-            // change for include annex, memorandum, report
-            if (cssFileName.contains("bill")) {
-                String basicCss = getFileContent("META-INF/resources/assets/css/" + cssFileName);
-                if (!"".equals(entry.getValue())) {
-                    templateContent = templateContent.replace(BASIC_CSS, basicCss);
-                    templateContent = templateContent.replace(CONTENT, entry.getValue());
-                    templateFilledList.add(templateContent);
-                }
-            }
-        });
-        return templateFilledList;
-    }
-
     private File mergeDocuments(List<File> files) {
         String fileName = String.format("%s_%s.%s", TEMP_FILE_NAME, (new Date()).getTime(), PDF_EXTENSION);
         File pdfDest = new File(fileName);
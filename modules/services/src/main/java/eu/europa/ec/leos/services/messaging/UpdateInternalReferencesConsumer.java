@@ -1,6 +1,8 @@
 package eu.europa.ec.leos.services.messaging;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import eu.europa.ec.leos.domain.cmis.LeosCategory;
 import eu.europa.ec.leos.domain.cmis.LeosPackage;
 import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
@@ -13,18 +15,46 @@ import eu.europa.ec.leos.services.store.WorkspaceService;
 import eu.europa.ec.leos.services.store.XmlDocumentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static eu.europa.ec.leos.services.messaging.conf.JmsDestinations.QUEUE_UPDATE_INTERNAL_REFERENCE;
 
+/**
+ * Updates the internal references of the documents of a package when one of its documents is saved.
+ * Messages are coalesced per package: within the coalescing window only the latest message of each document is kept.
+ * The packages are processed one pass at a time, in the order the messages arrived. A pass updates each document
+ * of the package once for all its messages, and the documents of a pass are updated in parallel on a bounded pool of workers.
+ * Messages are acknowledged individually once the pass that processed them has finished, or once replaced by a later
+ * message of the same document: an update pending when the application crashes is redelivered at the next start.
+ * On shutdown the pending passes are processed before the workers stop.
+ */
 @Component
 public class UpdateInternalReferencesConsumer {
 
@@ -34,42 +64,182 @@ public class UpdateInternalReferencesConsumer {
     private final XmlDocumentService xmlDocumentService;
     private final WorkspaceService workspaceService;
     private final EventBus leosApplicationEventBus;
+
+    private final long coalescingWindow;
+    private final long shutdownTimeout;
+    private final ScheduledExecutorService packageExecutor;
+    private final ExecutorService documentExecutor;
+    private final Map<String, PackageUpdates> packageUpdates = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong processedDocuments = new AtomicLong();
+    private final AtomicLong documentProcessingTime = new AtomicLong();
     
     public UpdateInternalReferencesConsumer(PackageService packageService,
                                             WorkspaceService workspaceService,
                                             EventBus leosApplicationEventBus,
-                                            XmlDocumentService xmlDocumentService) {
+                                            XmlDocumentService xmlDocumentService,
+                                            @Value("${leos.jms.internalReferences.coalescingWindow:500}") long coalescingWindow,
+                                            @Value("${leos.jms.internalReferences.packageThreads:2}") int packageThreads,
+                                            @Value("${leos.jms.internalReferences.documentThreads:4}") int documentThreads,
+                                            @Value("${leos.jms.internalReferences.shutdownTimeoutInSeconds:60}") long shutdownTimeout) {
         this.packageService = packageService;
         this.workspaceService = workspaceService;
         this.leosApplicationEventBus = leosApplicationEventBus;
         this.xmlDocumentService = xmlDocumentService;
+        this.coalescingWindow = coalescingWindow;
+        this.shutdownTimeout = shutdownTimeout;
+        this.packageExecutor = Executors.newScheduledThreadPool(packageThreads,
+                new ThreadFactoryBuilder().setNameFormat("internal-ref-package-%d").setDaemon(true).build());
+        this.documentExecutor = Executors.newFixedThreadPool(documentThreads,
+                new ThreadFactoryBuilder().setNameFormat("internal-ref-document-%d").setDaemon(true).build());
     }
 
     @JmsListener(destination = QUEUE_UPDATE_INTERNAL_REFERENCE, subscription = "updateInternalReferences", containerFactory = "jmsListenerContainerFactory")
-    public void updateInternalReferences(@Payload UpdateInternalReferencesMessage message, @Header String authcontext) {
-        logger.info("Processing internal references for document {}", message.getDocumentRef());
+    public void updateInternalReferences(@Payload UpdateInternalReferencesMessage message, @Header String authcontext, Message jmsMessage) {
+        logger.info("Received internal references update for document {}", message.getDocumentRef());
         detachAuthenticationContext(authcontext);
-        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
 
         LeosPackage leosPackage = packageService.findPackageByDocumentId(message.getDocumentId());
-        List<XmlDocument> documents = packageService.findDocumentsByPackagePath(leosPackage.getPath(), XmlDocument.class, false);
-        for (XmlDocument document : documents) {
-            String ref = document.getMetadata().get().getRef();
-            boolean isDifferentDocument = !ref.equals(message.getDocumentRef());
-            boolean canProcess = DOCUMENTS_TO_DISCONSIDER.stream().noneMatch(p -> document.getMetadata().get().getCategory().equals(p));
-            if (isDifferentDocument && canProcess) {
+        enqueue(leosPackage.getPath(), new PendingUpdate(message, securityContext.getAuthentication(), jmsMessage));
+    }
+
+    private void enqueue(String packagePath, PendingUpdate update) {
+        while (true) {
+            PackageUpdates updates = packageUpdates.computeIfAbsent(packagePath, PackageUpdates::new);
+            synchronized (updates) {
+                if (updates.retired) {
+                    continue;
+                }
+                // the latest message of a document moves to the end, the pass uses the order of the latest saves
+                PendingUpdate previous = updates.pending.remove(update.message.getDocumentRef());
+                updates.pending.put(update.message.getDocumentRef(), update);
+                if (previous != null) {
+                    // the later message updates the same documents, so the replaced one is not needed anymore
+                    acknowledge(previous);
+                    coalescedCount.incrementAndGet();
+                    logger.debug("Coalesced internal references update for document {}", update.message.getDocumentRef());
+                } else {
+                    queueDepth.incrementAndGet();
+                }
+                if (!updates.scheduled) {
+                    updates.scheduled = true;
+                    packageExecutor.schedule(() -> processPackage(updates), coalescingWindow, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+    }
+
+    private void processPackage(PackageUpdates updates) {
+        while (true) {
+            List<PendingUpdate> batch;
+            synchronized (updates) {
+                batch = new ArrayList<>(updates.pending.values());
+                updates.pending.clear();
+                queueDepth.addAndGet(-batch.size());
+            }
+
+            try {
+                processBatch(updates.packagePath, batch);
+            } catch (Exception e) {
+                logger.error("Error occurred processing internal references for package {}", updates.packagePath, e);
+            }
+            batch.forEach(this::acknowledge);
+
+            // messages received meanwhile are processed after this pass, so the passes of a package never overlap
+            synchronized (updates) {
+                if (updates.pending.isEmpty()) {
+                    updates.retired = true;
+                    packageUpdates.remove(updates.packagePath, updates);
+                    return;
+                }
+                try {
+                    packageExecutor.schedule(() -> processPackage(updates), coalescingWindow, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // the executor no longer accepts new passes during shutdown, the next pass runs right away
+                }
+            }
+        }
+    }
+
+    private void acknowledge(PendingUpdate update) {
+        try {
+            update.jmsMessage.acknowledge();
+        } catch (JMSException | RuntimeException e) {
+            logger.warn("Unable to acknowledge internal references update for document {}, it will be redelivered", update.message.getDocumentRef(), e);
+        }
+    }
+
+    private void processBatch(String packagePath, List<PendingUpdate> batch) throws InterruptedException {
+        logger.info("Processing internal references of package {} for {} saved documents", packagePath, batch.size());
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        SecurityContextHolder.setContext(securityContextOf(batch.get(batch.size() - 1)));
+        try {
+            List<XmlDocument> documents = packageService.findDocumentsByPackagePath(packagePath, XmlDocument.class, false);
+            List<Future<?>> results = new ArrayList<>();
+            for (XmlDocument document : documents) {
+                String ref = document.getMetadata().get().getRef();
+                boolean canProcess = DOCUMENTS_TO_DISCONSIDER.stream().noneMatch(p -> document.getMetadata().get().getCategory().equals(p));
+                // the document is updated once, on behalf of the latest save of another document of the package
+                PendingUpdate trigger = findLatestUpdateOfOtherDocument(batch, ref);
+                if (trigger != null && canProcess) {
+                    User user = (User) trigger.authentication.getPrincipal();
+                    results.add(documentExecutor.submit(new DelegatingSecurityContextCallable<>(() -> {
+                        updateDocument(document.getId(), ref, user, trigger.message);
+                        return null;
+                    }, securityContextOf(trigger))));
+                }
+            }
+            for (Future<?> result : results) {
                 try {
-                    XmlDocument xmlDocument = workspaceService.findDocumentById(document.getId(), XmlDocument.class);
-                    boolean updated = xmlDocumentService.updateInternalReferences(xmlDocument);
-                    logger.debug("updateInternalReferences processed for {}, isXmlChanged {}: ", ref, updated);
-
-                    if (updated) {
-                        leosApplicationEventBus.post(new DocumentUpdatedByCoEditorEvent(user, xmlDocument.getVersionSeriesId(), message.getPresenterId()));
-                    }
-                } catch (Exception e) {
-                    logger.error("Error occurred calling updateInternalRef() for doc {}", ref, e);
+                    result.get();
+                } catch (ExecutionException e) {
+                    logger.error("Unexpected error updating internal references", e.getCause());
                 }
             }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        logger.debug("Internal references of package {} processed in {} ms, {} updates still queued",
+                packagePath, stopwatch.elapsed(TimeUnit.MILLISECONDS), queueDepth.get());
+    }
+
+    private static PendingUpdate findLatestUpdateOfOtherDocument(List<PendingUpdate> batch, String ref) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!batch.get(i).message.getDocumentRef().equals(ref)) {
+                return batch.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static SecurityContext securityContextOf(PendingUpdate update) {
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(update.authentication);
+        return securityContext;
+    }
+
+    private void updateDocument(String documentId, String ref, User user, UpdateInternalReferencesMessage message) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            XmlDocument xmlDocument = workspaceService.findDocumentById(documentId, XmlDocument.class);
+            boolean updated = xmlDocumentService.updateInternalReferences(xmlDocument);
+            logger.debug("updateInternalReferences processed for {}, isXmlChanged {}: ", ref, updated);
+
+            if (updated) {
+                leosApplicationEventBus.post(new DocumentUpdatedByCoEditorEvent(user, xmlDocument.getVersionSeriesId(), message.getPresenterId()));
+            }
+        } catch (Exception e) {
+            logger.error("Error occurred calling updateInternalRef() for doc {}", ref, e);
+        } finally {
+            long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            processedDocuments.incrementAndGet();
+            documentProcessingTime.addAndGet(elapsed);
+            logger.debug("Internal references of {} updated in {} ms", ref, elapsed);
         }
     }
 
@@ -78,4 +248,59 @@ public class UpdateInternalReferencesConsumer {
         SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 
+    /** number of document updates waiting for their coalescing window to end */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /** number of messages replaced by a later message of the same document */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /** average time taken to update the internal references of one document, in ms */
+    public long getAverageDocumentProcessingTime() {
+        long count = processedDocuments.get();
+        return count != 0 ? documentProcessingTime.get() / count : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // the passes already scheduled still run after shutdown(), the documents executor is needed until they end
+        packageExecutor.shutdown();
+        try {
+            if (!packageExecutor.awaitTermination(shutdownTimeout, TimeUnit.SECONDS)) {
+                logger.warn("Internal references updates not finished after {} s, {} updates left to redeliver", shutdownTimeout, queueDepth.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            packageExecutor.shutdownNow();
+            documentExecutor.shutdownNow();
+        }
+    }
+
+    private static class PendingUpdate {
+        private final UpdateInternalReferencesMessage message;
+        private final Authentication authentication;
+        private final Message jmsMessage;
+
+        private PendingUpdate(UpdateInternalReferencesMessage message, Authentication authentication, Message jmsMessage) {
+            this.message = message;
+            this.authentication = authentication;
+            this.jmsMessage = jmsMessage;
+        }
+    }
+
+    private static class PackageUpdates {
+        private final String packagePath;
+        private final Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+        private boolean scheduled;
+        private boolean retired;
+
+        private PackageUpdates(String packagePath) {
+            this.packagePath = packagePath;
+        }
+    }
+
 }
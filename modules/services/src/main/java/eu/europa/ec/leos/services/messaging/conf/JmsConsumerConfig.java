@@ -1,5 +1,6 @@
 package eu.europa.ec.leos.services.messaging.conf;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.annotation.EnableJms;
@@ -10,12 +11,15 @@ import org.springframework.jms.support.converter.MessageConverter;
 
 import javax.jms.ConnectionFactory;
 
-import static javax.jms.Session.CLIENT_ACKNOWLEDGE;
+import static org.apache.activemq.artemis.api.jms.ActiveMQJMSConstants.INDIVIDUAL_ACKNOWLEDGE;
 
 @EnableJms
 @Configuration
 public class JmsConsumerConfig {
 
+    @Value("${leos.jms.consumer.concurrency:1-4}")
+    private String concurrency;
+
     @Bean
     public JmsListenerContainerFactory<DefaultMessageListenerContainer> jmsListenerContainerFactory(ConnectionFactory connectionFactory,
                                                                                                     JmsErrorHandler errorHandler,
@@ -24,7 +28,9 @@ public class JmsConsumerConfig {
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter);
         factory.setErrorHandler(errorHandler);
-        factory.setSessionAcknowledgeMode(CLIENT_ACKNOWLEDGE);
+        // the listeners acknowledge each message themselves, once it has been processed
+        factory.setSessionAcknowledgeMode(INDIVIDUAL_ACKNOWLEDGE);
+        factory.setConcurrency(concurrency);
 
         return factory;
     }
@@ -20,9 +20,13 @@ import freemarker.template.Configuration;
 import freemarker.template.MalformedTemplateNameException;
 import freemarker.template.Template;
 import freemarker.template.TemplateNotFoundException;
+import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,9 +41,11 @@ public class HtmlRenditionProcessor {
     private String renditionJsTocTemplate;
 
     private final Configuration freemarkerConfiguration;
+    private final RenderedHtmlCache renderedHtmlCache;
 
-    public HtmlRenditionProcessor(Configuration freemarkerConfiguration) {
+    public HtmlRenditionProcessor(Configuration freemarkerConfiguration, RenderedHtmlCache renderedHtmlCache) {
         this.freemarkerConfiguration = freemarkerConfiguration;
+        this.renderedHtmlCache = renderedHtmlCache;
     }
 
     public String processTemplate(RenderedDocument document) {
@@ -47,13 +53,23 @@ public class HtmlRenditionProcessor {
     }
     
     public String processTocTemplate(RenderedDocument document, String tocFile) {
+        try (InputStream contentStream = document.getContent()) {
+            final byte[] content = IOUtils.toByteArray(contentStream);
+            return renderedHtmlCache.get(RenderedHtmlCache.key(content, renditionTemplate, tocFile, document.getStyleSheetName()),
+                    () -> processTocTemplate(content, tocFile, document.getStyleSheetName()));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage());
+        }
+    }
+
+    private String processTocTemplate(byte[] content, String tocFile, String styleSheetName) {
         try{
             final Template template = getTemplate(renditionTemplate);
-            final NodeModel nodeModel = XmlNodeModelHandler.parseXmlStream(document.getContent());
+            final NodeModel nodeModel = XmlNodeModelHandler.parseXmlStream(new ByteArrayInputStream(content));
             final Map root = new HashMap<String, Object>();
             root.put("xml_data", nodeModel);
             root.put("toc_file", tocFile);
-            root.put("styleSheetName", document.getStyleSheetName());
+            root.put("styleSheetName", styleSheetName);
             
             return process(template, root);
         } catch (Exception exception) {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.rendition;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of the html rendered by the freemarker templates, so that a document version opened by several users
+ * with the same permissions is rendered only once.
+ * Entries are keyed by a digest of the xml content, the template and the parameters of the rendering.
+ * The cache is bounded by the size of the rendered html and its values are released on memory pressure.
+ */
+@Component
+public class RenderedHtmlCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderedHtmlCache.class);
+
+    private final Cache<RenderingKey, String> cache;
+
+    @Autowired
+    public RenderedHtmlCache(@Value("${leos.rendering.cache.maxSizeInMb:64}") long maxSizeInMb,
+                             @Value("${leos.rendering.cache.expireAfterAccessInMinutes:30}") long expireAfterAccessInMinutes) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInMb * 1024 * 1024)
+                .weigher((RenderingKey key, String html) -> html.length() * Character.BYTES)
+                .softValues()
+                .expireAfterAccess(expireAfterAccessInMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached rendering, or renders it if it is not cached yet.
+     * Concurrent requests of the same rendering wait for the first one instead of rendering it again.
+     */
+    public String get(RenderingKey key, Supplier<String> renderer) {
+        try {
+            return cache.get(key, () -> {
+                LOG.trace("Rendering {} not cached, {} entries in cache", key.templateName, cache.size());
+                return renderer.get();
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Builds the key of a rendering
+     * @param content the xml content to be rendered
+     * @param templateName the freemarker template
+     * @param parameters any other value the rendered html depends on
+     */
+    public static RenderingKey key(byte[] content, String templateName, Object... parameters) {
+        return new RenderingKey(Hashing.sha256().hashBytes(content), templateName, Arrays.asList(parameters));
+    }
+
+    /**
+     * Returns a fingerprint of the permissions, independent of their order and duplicates
+     */
+    public static String fingerprint(Collection<? extends Enum<?>> permissions) {
+        return permissions == null ? "" : permissions.stream()
+                .map(Enum::name)
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    public static final class RenderingKey {
+        private final HashCode contentHash;
+        private final String templateName;
+        private final List<Object> parameters;
+
+        private RenderingKey(HashCode contentHash, String templateName, List<Object> parameters) {
+            this.contentHash = contentHash;
+            this.templateName = templateName;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RenderingKey that = (RenderingKey) o;
+            return contentHash.equals(that.contentHash) &&
+                    templateName.equals(that.templateName) &&
+                    parameters.equals(that.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * contentHash.hashCode() + templateName.hashCode()) + parameters.hashCode();
+        }
+    }
+}
@@ -303,7 +303,7 @@ public class LegServiceImpl implements LegService {
                         proposalRefsMap.get(LeosCategory.BILL.name() + "_href"), Bill.class);
                 
                 Content content = bill.getContent().getOrNull();
-                exportBillResource = buildExportResourceBill(proposalRefsMap, content.getSource().getBytes());
+                exportBillResource = buildExportResourceBill(proposalRefsMap, content.getSource().getSharedBytes());
                 exportBillResource.setExportOptions(exportOptions);
                 exportProposalResource.addChildResource(exportBillResource);
                 legPackage.addContainedFile(bill.getVersionedReference());
@@ -334,7 +334,7 @@ public class LegServiceImpl implements LegService {
     private ExportResource addBillToPackage(final Map<String, Object> contentToZip, ExportResource exportProposalResource,
                                             final Map<String, String> proposalRefsMap, final Bill bill, XmlDocument versionToCompare) {
         Content content = bill.getContent().getOrError(() -> "Bill content is required!");
-        byte[] xmlContent = content.getSource().getBytes();
+        byte[] xmlContent = content.getSource().getSharedBytes();
         return enrichZipWithBill(contentToZip, exportProposalResource, proposalRefsMap, bill, xmlContent, versionToCompare);
     }
     
@@ -352,7 +352,7 @@ public class LegServiceImpl implements LegService {
                                    Annex versionToCompare, ExportResource exportProposalResource, LegPackage legPackage) {
         Content content = bill.getContent().getOrError(() -> "Bill content is required!");
         String annexId = versionToCompare != null ? versionToCompare.getMetadata().get().getRef() : null;
-        byte[] xmlContent = content.getSource().getBytes();
+        byte[] xmlContent = content.getSource().getSharedBytes();
         final Map<String, String> attachmentIds = attachmentProcessor.getAttachmentsIdFromBill(xmlContent);
         final String annexStyleSheet = LeosCategory.ANNEX.name().toLowerCase() + STYLE_SHEET_EXT;
         attachmentIds.forEach((href, id) -> {
@@ -370,7 +370,7 @@ public class LegServiceImpl implements LegService {
     
     private Map<String, String> enrichZipWithProposal(final Map<String, Object> contentToZip, ExportResource exportProposalResource, Proposal proposal) {
         Content content = proposal.getContent().getOrError(() -> "Proposal content is required!");
-        byte[] xmlContent = content.getSource().getBytes();
+        byte[] xmlContent = content.getSource().getSharedBytes();
         xmlContent = addMetadataToProposal(xmlContent, proposal);
         contentToZip.put("main.xml", xmlContent);
         
@@ -389,7 +389,7 @@ public class LegServiceImpl implements LegService {
         Content content = memorandum.getContent().getOrError(() -> "Memorandum content is required!");
         ExportOptions exportOptions = exportProposalResource.getExportOptions();
         
-        byte[] xmlContent = content.getSource().getBytes();
+        byte[] xmlContent = content.getSource().getSharedBytes();
         xmlContent = addMetadataToMemorandum(xmlContent, memorandum);
         contentToZip.put(memorandum.getName(), xmlContent);
         if (exportOptions.isConvertAnnotations()) {
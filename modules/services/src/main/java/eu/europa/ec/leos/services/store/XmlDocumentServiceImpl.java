@@ -8,6 +8,8 @@ import eu.europa.ec.leos.services.support.xml.XmlContentProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+
 import static eu.europa.ec.leos.cmis.support.RepositoryUtil.updateDocumentProperties;
 
 @Service
@@ -25,10 +27,10 @@ public class XmlDocumentServiceImpl implements XmlDocumentService {
     }
     
     public boolean updateInternalReferences(XmlDocument xmlDocument) throws Exception {
-        byte[] content = xmlDocument.getContent().get().getSource().getBytes();
+        byte[] content = xmlDocument.getContent().get().getSource().getSharedBytes();
         byte[] newContent = xmlContentProcessor.updateReferences(content);
     
-        boolean updated = newContent != content;
+        boolean updated = newContent != content && !Arrays.equals(newContent, content);
         if(updated) {
             String message = messageHelper.getMessage("internal.ref.checkinComment");
             cmisRepository.updateDocument(xmlDocument.getId(), updateDocumentProperties(xmlDocument.getMetadata().get()), newContent, VersionType.MINOR, message);
@@ -44,6 +44,7 @@ import static eu.europa.ec.leos.services.support.xml.VTDUtils.LEOS_SOFT_ACTION_A
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.TOGGLED_TO_NUM;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.XMLID;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.buildNumElement;
+import static eu.europa.ec.leos.services.support.xml.VTDUtils.navigateToElementById;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.removeAttribute;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.setupVTDNav;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.toByteArray;
@@ -194,11 +195,8 @@ public class ElementNumberingHelper {
         
         byte[] xmlContent = toByteArray(xmlModifier);
         VTDNav currentNavigator = setupVTDNav(xmlContent);
-        AutoPilot autoPilot = new AutoPilot(currentNavigator);
-        autoPilot.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");// required
-        autoPilot.selectXPath("//*[@xml:id = '" + elementId + "']");
         
-        if(autoPilot.evalXPath() != -1) {
+        if(navigateToElementById(elementId, currentNavigator)) {
             int attributeIndex = currentNavigator.getAttrVal(LEOS_DEPTH_ATTR);
             if (attributeIndex != -1) {
                 String depth = currentNavigator.toNormalizedString(attributeIndex);
@@ -27,6 +27,8 @@ import eu.europa.ec.leos.services.support.xml.ref.Ref;
 import eu.europa.ec.leos.services.support.xml.ref.TreeHelper;
 import eu.europa.ec.leos.services.support.xml.ref.TreeNode;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,7 +36,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -135,8 +139,66 @@ abstract class ReferenceLabelServiceImpl implements ReferenceLabelService {
      */
     @Override
     public Result<String> generateLabel(List<Ref> refs, String sourceDocumentRef, String sourceRefId, byte[] sourceBytes, byte[] targetBytes, String targetDocType, boolean withAnchor) {
+        return generateLabel(refs, sourceDocumentRef, sourceRefId, VTDUtils.setupVTDNav(sourceBytes, true), VTDUtils.setupVTDNav(targetBytes), targetDocType, withAnchor);
+    }
+
+    /**
+     * Generates the labels of all the multi references of one source document.
+     * Source and target documents are fetched and parsed once for the whole batch, instead of once per multi reference.
+     * Each label is generated as {@link #generateLabel(List, String, String, byte[])} would do it.
+     *
+     * @param mrefs             for each multi reference, the element id being edited and the element ids selected by the user
+     * @param sourceDocumentRef document reference of the source document
+     * @param sourceBytes       bytes of the source document
+     * @return: returns the labels, in the order of <code>mrefs</code>. An unexpected error is returned as {@link ErrorCode#EXCEPTION}.
+     */
+    @Override
+    public List<Result<String>> generateLabels(List<Pair<String, List<Ref>>> mrefs, String sourceDocumentRef, byte[] sourceBytes) {
+        VTDNav sourceVtdNav = VTDUtils.setupVTDNav(sourceBytes, true);
+        Map<String, Pair<VTDNav, String>> targets = new HashMap<>();
+        List<Result<String>> labels = new ArrayList<>(mrefs.size());
+        for (Pair<String, List<Ref>> mref : mrefs) {
+            String sourceRefId = mref.getLeft();
+            List<Ref> refs = mref.getRight();
+            String targetDocumentRef = refs.stream()
+                    .map(Ref::getDocumentref)
+                    .filter(documentRef -> !documentRef.equals(sourceDocumentRef))
+                    .findFirst()
+                    .orElse(sourceDocumentRef);
+
+            Pair<VTDNav, String> target;
+            try {
+                target = targets.computeIfAbsent(targetDocumentRef, documentRef -> getTarget(documentRef, sourceDocumentRef, sourceBytes));
+            } catch (Exception e) {
+                LOG.warn("Error fetching target document. {}", e.getMessage());
+                labels.add(new Result<>("", ErrorCode.DOCUMENT_REFERENCE_NOT_VALID));
+                continue;
+            }
+
+            try {
+                labels.add(generateLabel(refs, sourceDocumentRef, sourceRefId, sourceVtdNav, target.getLeft(), target.getRight(), true));
+            } catch (Exception e) {
+                LOG.error("Unexpected error generation Labels for sourceRefId: {} and references: {}", sourceRefId, refs, e);
+                labels.add(new Result<>("", ErrorCode.EXCEPTION));
+            }
+        }
+        return labels;
+    }
+
+    private Pair<VTDNav, String> getTarget(String targetDocumentRef, String sourceDocumentRef, byte[] sourceBytes) {
+        XmlDocument targetDocument = null;
+        if (!targetDocumentRef.equals(sourceDocumentRef)) {
+            targetDocument = workspaceService.findDocumentByRef(targetDocumentRef, XmlDocument.class);
+        }
+        if (targetDocument != null) {
+            byte[] targetBytes = targetDocument.getContent().get().getSource().getBytes();
+            return new ImmutablePair<>(VTDUtils.setupVTDNav(targetBytes), packageService.calculateDocType(targetDocument));
+        }
+        return new ImmutablePair<>(VTDUtils.setupVTDNav(sourceBytes), "");
+    }
+
+    private Result<String> generateLabel(List<Ref> refs, String sourceDocumentRef, String sourceRefId, VTDNav sourceVtdNav, VTDNav targetVtdNav, String targetDocType, boolean withAnchor) {
         try {
-            VTDNav targetVtdNav = VTDUtils.setupVTDNav(targetBytes);
             TreeNode targetTree = createTree(targetVtdNav, null, refs);
             List<TreeNode> targetNodes = getLeaves(targetTree);//in xml order
 
@@ -147,7 +209,6 @@ abstract class ReferenceLabelServiceImpl implements ReferenceLabelService {
                 return new Result<>("", ErrorCode.DOCUMENT_REFERENCE_NOT_VALID);
             }
 
-            VTDNav sourceVtdNav = VTDUtils.setupVTDNav(sourceBytes, true);
             TreeNode sourceTree = createTree(sourceVtdNav, null, Arrays.asList(new Ref("", sourceRefId, sourceDocumentRef)));
             TreeNode sourceNode = TreeHelper.find(sourceTree, TreeNode::getIdentifier, sourceRefId);
     
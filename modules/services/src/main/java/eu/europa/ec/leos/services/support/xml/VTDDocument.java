@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.support.xml;
+
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static eu.europa.ec.leos.services.support.xml.VTDUtils.XMLID;
+
+/**
+ * Parsed handle of one XML content version: the VTD navigator built by {@link com.ximpleware.VTDGen}
+ * and the index of its elements by xml:id.
+ * The navigator kept here is never moved, callers always work on a fresh cursor obtained by {@link #getNavigator()}
+ * which shares the XML, VTD and location cache buffers with it.
+ */
+final class VTDDocument {
+
+    private final byte[] content;
+    private final VTDNav vtdNav;
+    private volatile Map<String, Integer> idIndex;
+
+    VTDDocument(byte[] content, VTDNav vtdNav) {
+        this.content = content;
+        this.vtdNav = vtdNav;
+    }
+
+    byte[] getContent() {
+        return content;
+    }
+
+    VTDNav getNavigator() {
+        return vtdNav.duplicateNav();
+    }
+
+    /**
+     * Returns the VTD token index of the first element, in document order, having the given xml:id, or -1 if none.
+     * The returned index can be used with {@link VTDNav#recoverNode(int)} on any navigator of this document.
+     */
+    int getElementIndex(String id) {
+        Integer elementIndex = getIdIndex().get(id);
+        return elementIndex != null ? elementIndex : -1;
+    }
+
+    private Map<String, Integer> getIdIndex() {
+        Map<String, Integer> index = idIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = idIndex;
+                if (index == null) {
+                    index = buildIdIndex(vtdNav.duplicateNav());
+                    idIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // attribute tokens follow the start tag token of their element, so one pass over the VTD records is enough
+    private static Map<String, Integer> buildIdIndex(VTDNav nav) {
+        Map<String, Integer> index = new HashMap<>();
+        try {
+            int elementIndex = -1;
+            int tokenCount = nav.getTokenCount();
+            for (int i = 0; i < tokenCount; i++) {
+                int tokenType = nav.getTokenType(i);
+                if (tokenType == VTDNav.TOKEN_STARTING_TAG) {
+                    elementIndex = i;
+                } else if (tokenType == VTDNav.TOKEN_ATTR_NAME && nav.matchRawTokenString(i, XMLID)) {
+                    index.putIfAbsent(nav.toString(i + 1), elementIndex);
+                }
+            }
+        } catch (NavException e) {
+            throw new RuntimeException("Unexpected error occurred while indexing element ids", e);
+        }
+        return index;
+    }
+}
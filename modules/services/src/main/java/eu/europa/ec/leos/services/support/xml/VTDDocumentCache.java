@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.support.xml;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.ximpleware.ParseException;
+import com.ximpleware.IByteBuffer;
+import com.ximpleware.VTDGen;
+import com.ximpleware.VTDNav;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared cache of parsed XML contents, so that the successive operations done on the same content version
+ * (update, renumbering, post processing, toc and label generation) parse the document only once.
+ * Entries are keyed by content and bounded by the size of the parsed contents.
+ * The cache keeps its own copy of the parsed contents, its limits are set by {@link #configure(long, long)}.
+ */
+public class VTDDocumentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VTDDocumentCache.class);
+
+    // VTD records and location caches take roughly as much memory as the xml content itself
+    private static final int VTD_WEIGHT_FACTOR = 2;
+    private static final long DEFAULT_MAX_SIZE_IN_MB = 128;
+    private static final long DEFAULT_EXPIRE_AFTER_ACCESS_IN_MINUTES = 10;
+
+    private static volatile Cache<ContentKey, VTDDocument> documentCache = build(DEFAULT_MAX_SIZE_IN_MB, DEFAULT_EXPIRE_AFTER_ACCESS_IN_MINUTES);
+
+    // navigators duplicated from a cached document share its XML buffer, which lets us find the document back
+    private static final Cache<IByteBuffer, VTDDocument> documentsByBuffer = CacheBuilder.newBuilder()
+            .weakKeys()
+            .weakValues()
+            .build();
+
+    private VTDDocumentCache() {
+    }
+
+    /**
+     * Replaces the cache by an empty one with the given limits. Called once by the Spring context at startup.
+     */
+    public static void configure(long maxSizeInMb, long expireAfterAccessInMinutes) {
+        LOG.info("Parsed documents cache limited to {} MB, expiring {} minutes after access", maxSizeInMb, expireAfterAccessInMinutes);
+        documentCache = build(maxSizeInMb, expireAfterAccessInMinutes);
+    }
+
+    private static Cache<ContentKey, VTDDocument> build(long maxSizeInMb, long expireAfterAccessInMinutes) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInMb * 1024 * 1024)
+                .weigher((ContentKey key, VTDDocument document) -> key.content.length * VTD_WEIGHT_FACTOR)
+                .expireAfterAccess(expireAfterAccessInMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    static VTDDocument getDocument(byte[] xmlContent, boolean namespaceEnabled) {
+        Cache<ContentKey, VTDDocument> cache = documentCache;
+        VTDDocument document = cache.getIfPresent(new ContentKey(xmlContent, namespaceEnabled));
+        if (document == null) {
+            // callers may reuse their array, the cached document must not change with it
+            byte[] content = xmlContent.clone();
+            document = parse(content, namespaceEnabled);
+            cache.put(new ContentKey(content, namespaceEnabled), document);
+        }
+        return document;
+    }
+
+    /**
+     * Returns the cached document the given navigator was obtained from, or null if it is not (or no more) cached.
+     */
+    static VTDDocument findDocument(VTDNav vtdNav) {
+        return documentsByBuffer.getIfPresent(vtdNav.getXML());
+    }
+
+    private static VTDDocument parse(byte[] xmlContent, boolean namespaceEnabled) {
+        long startTime = System.currentTimeMillis();
+        try {
+            VTDGen vtdGen = new VTDGen();
+            vtdGen.setDoc(xmlContent);
+            vtdGen.parse(namespaceEnabled);
+            VTDNav vtdNav = vtdGen.getNav();
+            VTDDocument document = new VTDDocument(xmlContent, vtdNav);
+            documentsByBuffer.put(vtdNav.getXML(), document);
+            LOG.trace("Parsed content of {} bytes in {} ms", xmlContent.length, (System.currentTimeMillis() - startTime));
+            return document;
+        } catch (ParseException parseException) {
+            throw new RuntimeException("Exception occured while Vtd generator parsing", parseException);
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error occurred during setup of VTDNav", e);
+        }
+    }
+
+    public static CacheStats getStats() {
+        return documentCache.stats();
+    }
+
+    public static long size() {
+        return documentCache.size();
+    }
+
+    public static void invalidateAll() {
+        documentCache.invalidateAll();
+    }
+
+    private static final class ContentKey {
+        private final byte[] content;
+        private final boolean namespaceEnabled;
+        private final int hash;
+
+        private ContentKey(byte[] content, boolean namespaceEnabled) {
+            this.content = content;
+            this.namespaceEnabled = namespaceEnabled;
+            this.hash = 31 * Arrays.hashCode(content) + Boolean.hashCode(namespaceEnabled);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ContentKey that = (ContentKey) o;
+            return hash == that.hash &&
+                    namespaceEnabled == that.namespaceEnabled &&
+                    Arrays.equals(content, that.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -16,12 +16,12 @@ package eu.europa.ec.leos.services.support.xml;
 import com.ximpleware.AutoPilot;
 import com.ximpleware.ModifyException;
 import com.ximpleware.NavException;
-import com.ximpleware.ParseException;
 import com.ximpleware.PilotException;
 import com.ximpleware.TranscodeException;
-import com.ximpleware.VTDGen;
 import com.ximpleware.VTDNav;
 import com.ximpleware.XMLModifier;
+import com.ximpleware.XPathEvalException;
+import com.ximpleware.XPathParseException;
 import eu.europa.ec.leos.domain.cmis.document.XmlDocument;
 import eu.europa.ec.leos.model.action.SoftActionType;
 import eu.europa.ec.leos.model.user.User;
@@ -96,18 +96,7 @@ public class VTDUtils {
     }
 
     static VTDNav setupVTDNav(byte[] xmlContent, boolean namespaceEnabled) {
-        VTDNav vtdNav = null;
-        try {
-            VTDGen vtdGen = new VTDGen();
-            vtdGen.setDoc(xmlContent);
-            vtdGen.parse(namespaceEnabled);
-            vtdNav = vtdGen.getNav();
-        } catch (ParseException parseException) {
-            throw new RuntimeException("Exception occured while Vtd generator parsing", parseException);
-        } catch (Exception e) {
-            throw new RuntimeException("Unexpected error occurred during setup of VTDNav", e);
-        }
-        return vtdNav;
+        return VTDDocumentCache.getDocument(xmlContent, namespaceEnabled).getNavigator();
     }
 
     static byte[] buildNumElement(VTDNav vtdNav, XMLModifier xmlModifier, byte[] numBytes) throws NavException, ModifyException {
@@ -130,18 +119,8 @@ public class VTDUtils {
         try {
             xmlModifier = new XMLModifier();
             xmlModifier.bind(vtdNav);
-            AutoPilot autoPilot = new AutoPilot(vtdNav);
-
-            autoPilot.selectElement(tagName);
-            while (autoPilot.iterate()) {
-                int attIndex = vtdNav.getAttrVal(XMLID);
-                String elementId;
-                if (attIndex != -1) {
-                    elementId = vtdNav.toString(attIndex);
-                    if (idAttributeValue.equals(elementId)) {
-                        return xmlModifier;
-                    }
-                }
+            if (navigateToElementByNameAndId(tagName, idAttributeValue, vtdNav)) {
+                return xmlModifier;
             }
         } catch (Exception e) {
             throw new RuntimeException("Unexpected error occurred during setup of XML Modifier", e);
@@ -204,6 +183,25 @@ public class VTDUtils {
     }
     
     static boolean navigateToElementByNameAndId(String tagName, String idAttributeValue, VTDNav vtdNav) throws NavException {
+        if (idAttributeValue != null) {
+            VTDDocument document = VTDDocumentCache.findDocument(vtdNav);
+            if (document != null) {
+                int elementIndex = document.getElementIndex(idAttributeValue);
+                if (elementIndex == -1) {
+                    return false;
+                }
+                int currentIndex = vtdNav.getCurrentIndex();
+                if (isDescendantOrSelf(vtdNav, elementIndex)) {
+                    vtdNav.recoverNode(elementIndex);
+                    if (vtdNav.matchElement(tagName)) {
+                        return true;
+                    }
+                    vtdNav.recoverNode(currentIndex);
+                }
+                // same id used more than once, fall back to the scan
+            }
+        }
+
         AutoPilot autoPilot = new AutoPilot(vtdNav);
 
         autoPilot.selectElement(tagName);
@@ -223,6 +221,34 @@ public class VTDUtils {
         return false;
     }
     
+    /**
+     * Moves the cursor to the first element having the given xml:id, as evaluating //*[@xml:id = 'id'] would do.
+     */
+    public static boolean navigateToElementById(String idAttributeValue, VTDNav vtdNav) throws NavException, XPathParseException, XPathEvalException {
+        VTDDocument document = VTDDocumentCache.findDocument(vtdNav);
+        if (document != null) {
+            int elementIndex = document.getElementIndex(idAttributeValue);
+            if (elementIndex != -1) {
+                vtdNav.recoverNode(elementIndex);
+                return true;
+            }
+            return false;
+        }
+
+        AutoPilot autoPilot = new AutoPilot(vtdNav);
+        autoPilot.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
+        autoPilot.selectXPath("//*[@xml:id = '" + idAttributeValue + "']");
+        return autoPilot.evalXPath() != -1;
+    }
+
+    private static boolean isDescendantOrSelf(VTDNav vtdNav, int elementIndex) throws NavException {
+        long fragment = vtdNav.getElementFragment();
+        int offset = (int) fragment;
+        int length = (int) (fragment >> 32);
+        int elementOffset = vtdNav.getTokenOffset(elementIndex);
+        return elementOffset >= offset && elementOffset < offset + length;
+    }
+
     static byte[] setAttribute(byte[] xmlContent, String parentTag, List<String> elementTags, String leosAttribute, String value) throws Exception {
         VTDNav vtdNav = setupVTDNav(xmlContent);
         AutoPilot autoPilot = new AutoPilot(vtdNav);
@@ -23,6 +23,7 @@ import com.ximpleware.VTDNav;
 import com.ximpleware.XMLModifier;
 import com.ximpleware.XPathEvalException;
 import com.ximpleware.XPathParseException;
+import eu.europa.ec.leos.domain.common.ErrorCode;
 import eu.europa.ec.leos.domain.common.Result;
 import eu.europa.ec.leos.i18n.MessageHelper;
 import eu.europa.ec.leos.services.content.ReferenceLabelService;
@@ -32,7 +33,9 @@ import eu.europa.ec.leos.services.toc.StructureContext;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +44,7 @@ import org.springframework.stereotype.Component;
 import javax.inject.Provider;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -58,6 +62,7 @@ import static eu.europa.ec.leos.services.support.xml.VTDUtils.WHITESPACE;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.XMLID;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.getElementAttributes;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.getFragmentAsString;
+import static eu.europa.ec.leos.services.support.xml.VTDUtils.navigateToElementById;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.navigateToElementByNameAndId;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.setAttribute;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.setupVTDNav;
@@ -424,47 +429,78 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
     public byte[] updateReferences(byte[] xmlContent) throws Exception {
         VTDNav vtdNav = setupVTDNav(xmlContent);
         XMLModifier xmlModifier = new XMLModifier(vtdNav);
-        updateReferences(xmlModifier);
+        if (!updateReferences(xmlModifier)) {
+            return xmlContent;
+        }
         return toByteArray(xmlModifier);
     }
     
+    /**
+     * Regenerates the labels of all mrefs of the document.
+     * Only the mrefs whose label or broken state actually changes are modified.
+     *
+     * @return true if at least one mref was modified
+     */
     boolean updateReferences(XMLModifier xmlModifier) throws Exception {
         boolean updated = false;
         VTDNav vtdNav = xmlModifier.outputAndReparse();
         xmlModifier.bind(vtdNav);
         String sourceRef = getRef(vtdNav);
         vtdNav.toElement(VTDNav.ROOT);
+
+        // labels only depend on the structure of the document, not on the mref contents, so all of them
+        // are generated in one batch against the same content and then applied through the same modifier
+        List<Integer> mrefIndexes = new ArrayList<>();
+        List<Pair<String, List<Ref>>> mrefs = new ArrayList<>();
         AutoPilot autoPilot = new AutoPilot(vtdNav);
         autoPilot.selectElement(MREF);
-        int currentIndex;
         while (autoPilot.iterate()) {
-            currentIndex = vtdNav.getCurrentIndex();
             try {
                 List<Ref> refs = findReferences(vtdNav, sourceRef);
-                String updatedMrefContent;
                 if (!refs.isEmpty()) {
-                    Result<String> labelResult = referenceLabelService.generateLabel(refs, sourceRef, getParentId(vtdNav), toByteArray(xmlModifier));
-                    vtdNav.recoverNode(currentIndex);
-                    if (labelResult.isOk()) {
-                        updatedMrefContent = labelResult.get();
-                        long token = vtdNav.getContentFragment();
+                    mrefs.add(new ImmutablePair<>(getParentId(vtdNav), refs));
+                    mrefIndexes.add(vtdNav.getCurrentIndex());
+                }
+            } catch (Exception ex) {
+                String mrefContent = getFragmentAsString(vtdNav, vtdNav.getContentFragment(), false);
+                LOG.error("mref can not be updated.Skipping..Mref Content: {},", mrefContent, ex);
+            }
+        }
+        if (mrefs.isEmpty()) {
+            return false;
+        }
+
+        List<Result<String>> labelResults = referenceLabelService.generateLabels(mrefs, sourceRef, toByteArray(xmlModifier));
+        for (int i = 0; i < mrefIndexes.size(); i++) {
+            vtdNav.recoverNode(mrefIndexes.get(i));
+            Result<String> labelResult = labelResults.get(i);
+            try {
+                if (labelResult.isOk()) {
+                    byte[] updatedMrefContent = labelResult.get().getBytes(VTDUtils.UTF_8);
+                    long token = vtdNav.getContentFragment();
+                    if (!Arrays.equals(getFragmentBytes(vtdNav, token), updatedMrefContent)) {
                         int len = (int) (token >> 32);
                         xmlModifier.removeContent((int) token, len);
-                        xmlModifier.insertBytesAt((int) token, updatedMrefContent.getBytes(VTDUtils.UTF_8));
+                        xmlModifier.insertBytesAt((int) token, updatedMrefContent);
+                        updated = true;
+                    }
 
-                        AutoPilot ap = new AutoPilot(vtdNav);
-                        ap.selectAttr(LEOS_REF_BROKEN_ATTR);
-                        int indexAttr = ap.iterateAttr();
-                        if (indexAttr != -1) {
-                            xmlModifier.removeAttribute(indexAttr);
-                        }
-                    } else {
-                        int brokenRefAttrIndex = vtdNav.getAttrVal(LEOS_REF_BROKEN_ATTR);
-                        if (brokenRefAttrIndex == -1) {// if leos:broken attr is present.
-                            xmlModifier.insertAttribute(new StringBuilder(" ").append(LEOS_REF_BROKEN_ATTR).append("=\"true\"").toString());
-                        }
+                    AutoPilot ap = new AutoPilot(vtdNav);
+                    ap.selectAttr(LEOS_REF_BROKEN_ATTR);
+                    int indexAttr = ap.iterateAttr();
+                    if (indexAttr != -1) {
+                        xmlModifier.removeAttribute(indexAttr);
+                        updated = true;
+                    }
+                } else if (labelResult.getErrorCode().get() == ErrorCode.EXCEPTION) {
+                    String mrefContent = getFragmentAsString(vtdNav, vtdNav.getContentFragment(), false);
+                    LOG.error("mref can not be updated.Skipping..Mref Content: {},", mrefContent);
+                } else {
+                    int brokenRefAttrIndex = vtdNav.getAttrVal(LEOS_REF_BROKEN_ATTR);
+                    if (brokenRefAttrIndex == -1) {// if leos:broken attr is present.
+                        xmlModifier.insertAttribute(new StringBuilder(" ").append(LEOS_REF_BROKEN_ATTR).append("=\"true\"").toString());
+                        updated = true;
                     }
-                    updated = true;
                 }
             } catch (Exception ex) {
                 String mrefContent = getFragmentAsString(vtdNav, vtdNav.getContentFragment(), false);
@@ -475,6 +511,10 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
         return updated;
     }
     
+    private static byte[] getFragmentBytes(VTDNav vtdNav, long fragment) {
+        return fragment != -1 ? vtdNav.getXML().getBytes((int) fragment, (int) (fragment >> 32)) : new byte[0];
+    }
+
     private ImmutableTriple<String, Integer, Integer> getSubstringAvoidingTags(String text, int txtStartOffset, int txtEndOffset) {
         int xmlStartIndex = 0;
         int textCounter = 0;
@@ -527,12 +567,9 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
             XMLModifier xmlModifier = new XMLModifier(vtdNav);
             xmlModifier.bind(vtdNav);
             vtdNav.toElement(VTDNav.ROOT);
-            AutoPilot autoPilot = new AutoPilot(vtdNav);
-            autoPilot.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-            autoPilot.selectXPath("//*[@xml:id = '" + elementId + "']");
 
             String elementContent;
-            if (autoPilot.evalXPath() != -1) {
+            if (navigateToElementById(elementId, vtdNav)) {
                 elementContent = getFragmentAsString(vtdNav, vtdNav.getContentFragment(), false);
             } else {
                 LOG.debug("Element with Id {} not found", elementId);
@@ -822,11 +859,8 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
         try {
             byte[] xmlContent = toByteArray(xmlModifier);
             VTDNav currentNavigator = setupVTDNav(xmlContent);
-            AutoPilot autoPilot = new AutoPilot(currentNavigator);
-            autoPilot.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");// required
-            autoPilot.selectXPath("//*[@xml:id = '" + elementId + "']");
             
-            if(autoPilot.evalXPath() != -1) {
+            if(navigateToElementById(elementId, currentNavigator)) {
                 depth = getElementDepth(currentNavigator, xmlModifier, elementId);
             }
         } catch (ModifyException | TranscodeException | IOException | XPathParseException | XPathEvalException e) {
@@ -1039,10 +1073,7 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
         String[] element = new String[3];
         Stopwatch watch = Stopwatch.createStarted();
         try {
-            AutoPilot ap = new AutoPilot(vtdNav);
-            ap.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-            ap.selectXPath("//*[@xml:id = '" + idAttributeValue + "']");
-            if (ap.evalXPath() != -1) {
+            if (navigateToElementById(idAttributeValue, vtdNav)) {
                 element[0] = idAttributeValue;
                 element[1] = vtdNav.toString(vtdNav.getCurrentIndex());
                 element[2] = getFragmentAsString(vtdNav, vtdNav.getElementFragment(), false);
@@ -1056,6 +1087,43 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
         return element;
     }
 
+    @Override
+    public boolean isChangeConfinedToElement(byte[] oldContent, byte[] newContent, String idAttributeValue) {
+        Validate.isTrue(idAttributeValue != null, "Id can not be null");
+        try {
+            long oldFragment = getElementFragmentById(oldContent, idAttributeValue);
+            long newFragment = getElementFragmentById(newContent, idAttributeValue);
+            if (oldFragment == -1 || newFragment == -1) {
+                return false;
+            }
+            int offset = (int) oldFragment;
+            int oldEnd = offset + (int) (oldFragment >> 32);
+            int newEnd = (int) newFragment + (int) (newFragment >> 32);
+            int tailLength = oldContent.length - oldEnd;
+            return offset == (int) newFragment
+                    && tailLength == newContent.length - newEnd
+                    && regionEquals(oldContent, 0, newContent, 0, offset)
+                    && regionEquals(oldContent, oldEnd, newContent, newEnd, tailLength);
+        } catch (Exception e) {
+            LOG.error("Unexpected error occurred while comparing element {}", idAttributeValue, e);
+        }
+        return false;
+    }
+
+    private long getElementFragmentById(byte[] xmlContent, String idAttributeValue) throws Exception {
+        VTDNav vtdNav = setupVTDNav(xmlContent);
+        return navigateToElementById(idAttributeValue, vtdNav) ? vtdNav.getElementFragment() : -1;
+    }
+
+    private static boolean regionEquals(byte[] first, int firstOffset, byte[] second, int secondOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (first[firstOffset + i] != second[secondOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public List<String> getAncestorsIdsForElementId(byte[] xmlContent,
             String idAttributeValue) {
@@ -1065,9 +1133,7 @@ public abstract class VtdXmlContentProcessor implements XmlContentProcessor {
         try {
             VTDNav vtdNav = setupVTDNav(xmlContent);
             AutoPilot ap = new AutoPilot(vtdNav);
-            ap.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-            ap.selectXPath("//*[@xml:id = '" + idAttributeValue + "']");
-            if (ap.evalXPath() == -1) {
+            if (!navigateToElementById(idAttributeValue, vtdNav)) {
                 String errorMsg = String.format(
                         "Element with id: %s does not exists.",
                         idAttributeValue);
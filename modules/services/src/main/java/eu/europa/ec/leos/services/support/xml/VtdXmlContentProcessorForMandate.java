@@ -70,6 +70,7 @@ import static eu.europa.ec.leos.services.support.xml.VTDUtils.XMLID;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.getFragmentAsString;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.getStartTag;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.insertAffectedAttribute;
+import static eu.europa.ec.leos.services.support.xml.VTDUtils.navigateToElementById;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.removeAttribute;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.restoreOldId;
 import static eu.europa.ec.leos.services.support.xml.VTDUtils.setupVTDNav;
@@ -734,10 +735,7 @@ public class VtdXmlContentProcessorForMandate extends VtdXmlContentProcessor {
             xmlModifier.bind(vtdNav);
             vtdNav.toElement(VTDNav.ROOT);
 
-            AutoPilot autoPilot = new AutoPilot(vtdNav);
-            autoPilot.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-            autoPilot.selectXPath("//*[@xml:id = '" + idAttributeValue + "']");
-            if ((autoPilot.evalXPath() != -1) && vtdNav.toElement(VTDNav.PARENT)) {
+            if (navigateToElementById(idAttributeValue, vtdNav) && vtdNav.toElement(VTDNav.PARENT)) {
                 do {
                     if (ELEMENTS_TO_BE_PROCESSED_FOR_NUMBERING.contains(vtdNav.toString(vtdNav.getCurrentIndex()))) {
                         if (vtdNav.getAttrVal(LEOS_AFFECTED_ATTR) == -1) {
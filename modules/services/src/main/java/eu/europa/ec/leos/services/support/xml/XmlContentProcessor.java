@@ -56,6 +56,10 @@ public interface XmlContentProcessor {
 
     byte[] doXMLPostProcessing(byte[] xmlContent);
     
+    /** regenerates the labels of all mrefs of the document
+     * @param xmlContent
+     * @return updated xml, or the given <code>xmlContent</code> instance itself if no mref changed
+     */
     byte[] updateReferences(byte[] xmlContent) throws Exception;
 
     byte[] updateReferedAttributes(byte[] xmlContent, Map<String, String> referenceValueMap);
@@ -66,6 +70,15 @@ public interface XmlContentProcessor {
      * @return complete Tag or null
      */
     String[] getElementById(byte[] xmlContent, String idAttributeValue);
+
+    /**
+     * Checks if the only differences between the two contents are inside the element with the given id
+     * @param oldContent previous xml
+     * @param newContent updated xml
+     * @param idAttributeValue id Attribute value
+     * @return true if both contents are identical outside of the element, false otherwise or if the element is missing in one of them
+     */
+    boolean isChangeConfinedToElement(byte[] oldContent, byte[] newContent, String idAttributeValue);
     
     /** removes all elements selected by xpath supplied
      * @param xmlContent
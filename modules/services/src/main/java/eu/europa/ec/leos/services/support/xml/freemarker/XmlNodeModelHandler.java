@@ -17,9 +17,12 @@ import java.io.InputStream;
 import java.io.StringReader;
 
 import javax.annotation.Nonnull;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
 import freemarker.ext.dom.NodeModel;
@@ -28,6 +31,26 @@ public class XmlNodeModelHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(XmlNodeModelHandler.class);
 
+    // Xerces specific: the deferred DOM only pays off for partially visited documents,
+    // templates visit the whole tree and would keep both the deferred tables and the expanded nodes
+    private static final String DEFER_NODE_EXPANSION_FEATURE = "http://apache.org/xml/features/dom/defer-node-expansion";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setIgnoringElementContentWhitespace(true);
+        // comments are never rendered, so they are not even created
+        factory.setIgnoringComments(true);
+        try {
+            factory.setFeature(DEFER_NODE_EXPANSION_FEATURE, false);
+        } catch (ParserConfigurationException e) {
+            LOG.debug("XML parser does not support deferred node expansion setting", e);
+        }
+        return factory;
+    }
+
     public static @Nonnull NodeModel parseXmlStream(@Nonnull final InputStream inStream) throws Exception {
         LOG.trace("Parsing XML stream into FreeMarker node model...");
         return parseInputSource(new InputSource(inStream));
@@ -40,7 +63,10 @@ public class XmlNodeModelHandler {
 
     private static @Nonnull NodeModel parseInputSource(@Nonnull final InputSource inputSource) throws Exception {
         try {
-            return NodeModel.parse(inputSource);
+            final Document document = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder().parse(inputSource);
+            // same simplification as NodeModel.parse: merged text nodes, no processing instructions
+            NodeModel.simplify(document);
+            return NodeModel.wrap(document);
         } catch (Exception ex) {
             LOG.error("Exception when parsing XML into FreeMarker node model!", ex);
             throw ex;
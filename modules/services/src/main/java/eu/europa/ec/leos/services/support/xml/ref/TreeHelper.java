@@ -48,11 +48,8 @@ public class TreeHelper {
         Stopwatch watch = Stopwatch.createStarted();
 
         for (Ref ref : refs) {
-            AutoPilot ap = new AutoPilot(vtdNav);
             try {
-                ap.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-                ap.selectXPath(String.format("//*[@%s = '%s']", "xml:id", ref.getHref()));
-                if (ap.evalXPath() == -1) {
+                if (!VTDUtils.navigateToElementById(ref.getHref(), vtdNav)) {
                     //probably it is broken reference
                     LOG.debug("Element with id: {} does not exists. Skipping", ref.getHref());
                     continue;
@@ -200,9 +197,7 @@ public class TreeHelper {
         int currentIndex = vtdNav.getCurrentIndex();
         try {
             AutoPilot ap = new AutoPilot(vtdNav);
-            ap.declareXPathNameSpace("xml", "http://www.w3.org/XML/1998/namespace");
-            ap.selectXPath("//*[@xml:id = '" + idAttributeValue + "']");
-            if (ap.evalXPath() != -1) {
+            if (VTDUtils.navigateToElementById(idAttributeValue, vtdNav)) {
                 ancestorsIds.add(idAttributeValue);
                 /* Skip current element */
                 if (!vtdNav.toElement(VTDNav.PARENT)) {
@@ -13,6 +13,8 @@
  */
 package eu.europa.ec.leos.services.support.xml.vtd;
 
+import com.google.common.hash.HashCode;
+
 import java.util.List;
 
 public final class Element {
@@ -26,6 +28,9 @@ public final class Element {
  	private String fullContent;//only for text matching purpose
 	private Element parent;
 	private List<Element> children;
+	private int fragmentOffset = -1;
+	private int fragmentLength;
+	private HashCode contentHash;//hash of the whole element fragment, including its children
 
 	public Element(int navigationIndex, String tagId, String tagContent, int nodeIndex, boolean hasTextChild, List<Element> children) {
 		this.navigationIndex = navigationIndex;
@@ -81,6 +86,24 @@ public final class Element {
 		return children;
 	}
 
+	void setFragment(int fragmentOffset, int fragmentLength, HashCode contentHash) {
+		this.fragmentOffset = fragmentOffset;
+		this.fragmentLength = fragmentLength;
+		this.contentHash = contentHash;
+	}
+
+	int getFragmentOffset() {
+		return fragmentOffset;
+	}
+
+	int getFragmentLength() {
+		return fragmentLength;
+	}
+
+	public HashCode getContentHash() {
+		return contentHash;
+	}
+
 	@Override
  public boolean equals(Object o) {
   if (this == o) return true;
@@ -19,6 +19,10 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import eu.europa.ec.leos.services.compare.ContentComparatorContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,9 +45,25 @@ public class VTDHelper {
     //text node do not have any name by default in VTD processor.
     //we can not assign the containing node name to text node as that is considered separate node and handled differently.  
     public static final String TEXT_NODE_NAME = "TextNode";
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\\s(xml:)*(id)(\\s)*=(\\s)*\"(.+?)\"");
+
+    private static final HashFunction CONTENT_HASH_FUNCTION = Hashing.murmur3_128();
    
     public static boolean isElementContentEqual(ContentComparatorContext context) throws NavException {
 
+        // the subtree hashes computed while building the elements avoid reading and comparing the whole fragments at each level
+        Boolean equalHashes = isContentHashEqual(context.getOldElement(), context.getNewElement());
+        if (equalHashes != null) {
+            if (!context.getThreeWayDiff() || context.getIntermediateElement() == null) {
+                return equalHashes;
+            }
+            Boolean equalIntermediateHashes = isContentHashEqual(context.getIntermediateElement(), context.getNewElement());
+            if (equalIntermediateHashes != null) {
+                return equalHashes && equalIntermediateHashes;
+            }
+        }
+
         byte[] oldContent = getFragment(context.getOldContentNavigator(), context.getOldElement(), FragmentType.ELEMENT);
         byte[] newContent = getFragment(context.getNewContentNavigator(), context.getNewElement(), FragmentType.ELEMENT);
 
@@ -55,6 +75,13 @@ public class VTDHelper {
         return Arrays.equals(oldContent, newContent);
     }
 
+    private static Boolean isContentHashEqual(Element first, Element second) {
+        if (first == null || second == null || first.getContentHash() == null || second.getContentHash() == null) {
+            return null;
+        }
+        return first.getContentHash().equals(second.getContentHash());
+    }
+
     private static byte[] getFragment(VTDNav contentNavigator, Element element, FragmentType fragmentType) throws NavException {
         int currentIndex = contentNavigator.getCurrentIndex();
         try {
@@ -138,7 +165,8 @@ public class VTDHelper {
     }
 
     public static  Element buildElement(VTDNav contentNavigator, int currentIndex, Map<String, Integer> hmIndex, Map<String, Element> elementsMap) throws NavException {
-        int offset = (int) contentNavigator.getElementFragment();
+        long elementFragment = contentNavigator.getElementFragment();
+        int offset = (int) elementFragment;
         long token = contentNavigator.getContentFragment();
         int offsetContent = (int) token;
         int lengthContent = (int) (token >> 32);
@@ -152,7 +180,7 @@ public class VTDHelper {
         if(tokenType==VTDNav.TOKEN_STARTING_TAG){
             tagName=contentNavigator.toString(currentIndex);
             
-            Matcher idMatcher = Pattern.compile("\\s(xml:)*(id)(\\s)*=(\\s)*\"(.+?)\"").matcher(tagContent);
+            Matcher idMatcher = ID_PATTERN.matcher(tagContent);
             tagId= idMatcher.find()
                             ? tagContent.substring(idMatcher.start(), idMatcher.end()).concat("_").concat(tagName)
                             : null ;
@@ -178,12 +206,42 @@ public class VTDHelper {
             tagId = !TEXT_NODE_NAME.equals(tagName) ? tagName.concat(nodeIndex.toString()) : null;
         }
         Element element = new Element(currentIndex, tagId, tagName, tagContent, nodeIndex, hasText, innerText, children);
+        if (offset != -1) {
+            int length = (int) (elementFragment >> 32);
+            element.setFragment(offset, length, computeContentHash(contentNavigator.getXML(), offset, length, children));
+        }
         if(tagId != null){
             elementsMap.put(tagId, element);
         }
         return element;
     }
     
+    /**
+     * Merkle style hash of an element: the bytes of the element around its children, and the hashes of the children.
+     * Two elements have the same hash when their fragments are identical, but the bytes of each element are only read once.
+     */
+    private static HashCode computeContentHash(IByteBuffer xml, int offset, int length, List<Element> children) {
+        Hasher hasher = CONTENT_HASH_FUNCTION.newHasher();
+        int position = offset;
+        for (Element child : children) {
+            if (child.getContentHash() == null) {
+                return null;
+            }
+            putSegment(hasher, xml, position, child.getFragmentOffset() - position);
+            hasher.putBytes(child.getContentHash().asBytes());
+            position = child.getFragmentOffset() + child.getFragmentLength();
+        }
+        putSegment(hasher, xml, position, offset + length - position);
+        return hasher.hash();
+    }
+
+    private static void putSegment(Hasher hasher, IByteBuffer xml, int offset, int length) {
+        hasher.putInt(length);
+        if (length > 0) {
+            hasher.putBytes(xml.getBytes(offset, length));
+        }
+    }
+
     public static VTDNav buildXMLNavigator(String xmlContent) throws ParseException {
         byte[] xmlBinaryContent = xmlContent.trim().getBytes(Charset.forName("UTF-8"));
         return buildXMLNavigator(xmlBinaryContent);
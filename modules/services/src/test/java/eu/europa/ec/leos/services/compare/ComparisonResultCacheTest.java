@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.compare;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static eu.europa.ec.leos.services.compare.ComparisonResultCache.Mode.SINGLE_COLUMN;
+import static eu.europa.ec.leos.services.compare.ComparisonResultCache.Mode.TWO_COLUMNS;
+import static eu.europa.ec.leos.services.compare.ContentComparatorService.ATTR_NAME;
+import static eu.europa.ec.leos.services.compare.ContentComparatorService.CONTENT_ADDED_CLASS;
+import static eu.europa.ec.leos.services.compare.ContentComparatorService.CONTENT_REMOVED_CLASS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ComparisonResultCacheTest {
+
+    private ComparisonResultCache comparisonResultCache;
+    private AtomicInteger comparisons;
+
+    @Before
+    public void init() {
+        comparisonResultCache = new ComparisonResultCache(1, 1);
+        comparisons = new AtomicInteger();
+    }
+
+    @Test
+    public void test_get_should_compareOnce_when_sameVersionsAndOptions() {
+        String[] first = comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, SINGLE_COLUMN, context("<p>old</p>", "<p>new</p>"), this::compare);
+        String[] second = comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, SINGLE_COLUMN, context("<p>old</p>", "<p>new</p>"), this::compare);
+
+        assertThat(comparisons.get(), is(1));
+        assertThat(second[0], is(first[0]));
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    @Test
+    public void test_get_should_compareAgain_when_versionsModeOrOptionsDiffer() {
+        comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, SINGLE_COLUMN, context("<p>old</p>", "<p>new</p>"), this::compare);
+        comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, SINGLE_COLUMN, context("<p>old</p>", "<p>newer</p>"), this::compare);
+        comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, TWO_COLUMNS, context("<p>old</p>", "<p>new</p>"), this::compare);
+        comparisonResultCache.get(ProposalXMLContentComparatorServiceImpl.class, SINGLE_COLUMN,
+                new ContentComparatorContext.Builder("<p>old</p>", "<p>new</p>").build(), this::compare);
+
+        assertThat(comparisons.get(), is(4));
+        assertThat(comparisonResultCache.size(), is(4L));
+    }
+
+    private ContentComparatorContext context(String oldContent, String newContent) {
+        return new ContentComparatorContext.Builder(oldContent, newContent)
+                .withAttrName(ATTR_NAME)
+                .withRemovedValue(CONTENT_REMOVED_CLASS)
+                .withAddedValue(CONTENT_ADDED_CLASS)
+                .build();
+    }
+
+    private String[] compare() {
+        return new String[]{"result" + comparisons.incrementAndGet()};
+    }
+}
@@ -25,7 +25,7 @@ import static org.junit.Assert.assertEquals;
 public class ContentComparatorServiceTest extends LeosTest {
 
     @InjectMocks
-    private ContentComparatorService contentComparatorService = new ProposalXMLContentComparatorServiceImpl();
+    private ContentComparatorService contentComparatorService = new ProposalXMLContentComparatorServiceImpl(new ComparisonResultCache(1, 1));
 
     @Test
     public void test_img_diff_attributes_values() {
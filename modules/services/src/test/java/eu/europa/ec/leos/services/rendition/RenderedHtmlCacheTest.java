@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.rendition;
+
+import eu.europa.ec.leos.security.LeosPermission;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RenderedHtmlCacheTest {
+
+    private RenderedHtmlCache renderedHtmlCache;
+    private AtomicInteger renderings;
+
+    @Before
+    public void init() {
+        renderedHtmlCache = new RenderedHtmlCache(1, 1);
+        renderings = new AtomicInteger();
+    }
+
+    @Test
+    public void test_get_should_renderOnce_when_sameContentAndParameters() {
+        String first = renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "view.ftl", "/leos", "CAN_READ"), this::render);
+        String second = renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "view.ftl", "/leos", "CAN_READ"), this::render);
+
+        assertThat(first, is("html1"));
+        assertThat(second, is("html1"));
+        assertThat(renderings.get(), is(1));
+        assertThat(renderedHtmlCache.getStats().hitCount(), is(1L));
+    }
+
+    @Test
+    public void test_get_should_renderAgain_when_contentOrParametersDiffer() {
+        renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "view.ftl", "/leos", "CAN_READ"), this::render);
+        renderedHtmlCache.get(RenderedHtmlCache.key("<doc/>".getBytes(UTF_8), "view.ftl", "/leos", "CAN_READ"), this::render);
+        renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "import.ftl", "/leos", "CAN_READ"), this::render);
+        renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "view.ftl", null, "CAN_READ"), this::render);
+        renderedHtmlCache.get(RenderedHtmlCache.key("<bill/>".getBytes(UTF_8), "view.ftl", "/leos", "CAN_UPDATE"), this::render);
+
+        assertThat(renderings.get(), is(5));
+        assertThat(renderedHtmlCache.size(), is(5L));
+    }
+
+    @Test
+    public void test_fingerprint_should_ignoreOrderAndDuplicates() {
+        String fingerprint = RenderedHtmlCache.fingerprint(Arrays.asList(LeosPermission.CAN_UPDATE, LeosPermission.CAN_READ, LeosPermission.CAN_READ));
+
+        assertThat(fingerprint, is(RenderedHtmlCache.fingerprint(Arrays.asList(LeosPermission.CAN_READ, LeosPermission.CAN_UPDATE))));
+        assertThat(RenderedHtmlCache.fingerprint(null), is(""));
+    }
+
+    private String render() {
+        return "html" + renderings.incrementAndGet();
+    }
+}
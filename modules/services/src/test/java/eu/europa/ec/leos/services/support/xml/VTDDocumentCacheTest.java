@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.support.xml;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class VTDDocumentCacheTest {
+
+    @Before
+    public void init() {
+        VTDDocumentCache.invalidateAll();
+    }
+
+    @Test
+    public void test_getDocument_should_parseOnce_when_sameContent() {
+        // the statistics are kept across invalidations, only the difference is specific to this test
+        CacheStats statsBefore = VTDDocumentCache.getStats();
+        VTDDocument first = VTDDocumentCache.getDocument("<doc xml:id=\"a\"/>".getBytes(StandardCharsets.UTF_8), false);
+        VTDDocument second = VTDDocumentCache.getDocument("<doc xml:id=\"a\"/>".getBytes(StandardCharsets.UTF_8), false);
+
+        assertThat(second, is(sameInstance(first)));
+        CacheStats statsAfter = VTDDocumentCache.getStats();
+        assertThat(statsAfter.minus(statsBefore).hitCount(), is(1L));
+        assertThat(statsAfter.minus(statsBefore).missCount(), is(1L));
+    }
+
+    @Test
+    public void test_getDocument_should_keepOwnCopy_when_callerModifiesContent() {
+        byte[] content = "<doc xml:id=\"a\"/>".getBytes(StandardCharsets.UTF_8);
+        VTDDocument document = VTDDocumentCache.getDocument(content, false);
+        content[13] = 'b';
+
+        assertThat(document.getContent(), is(not(sameInstance(content))));
+        assertThat(document.getElementIndex("a"), is(0));
+        assertThat(VTDDocumentCache.getDocument("<doc xml:id=\"a\"/>".getBytes(StandardCharsets.UTF_8), false), is(sameInstance(document)));
+    }
+
+    @Test
+    public void test_configure_should_replaceCache() {
+        VTDDocumentCache.getDocument("<doc/>".getBytes(StandardCharsets.UTF_8), false);
+
+        VTDDocumentCache.configure(1, 1);
+
+        assertThat(VTDDocumentCache.size(), is(0L));
+        VTDDocumentCache.configure(128, 10);
+    }
+}
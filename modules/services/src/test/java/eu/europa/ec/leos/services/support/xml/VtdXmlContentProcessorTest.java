@@ -34,7 +34,9 @@ import eu.europa.ec.leos.vo.toc.TableOfContentItemVO;
 import eu.europa.ec.leos.vo.toc.TocItem;
 import eu.europa.ec.leos.vo.toc.TocItemUtils;
 import org.junit.Before;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -75,6 +77,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.times;
@@ -235,6 +238,18 @@ public class VtdXmlContentProcessorTest extends LeosTest {
                 is(Arrays.asList("part11", "art485", "art485-par2", "con")));
     }
 
+    @Test
+    public void test_isChangeConfinedToElement() {
+        byte[] oldContent = "<bill><article xml:id=\"art1\"><p>one</p></article><article xml:id=\"art2\"><p>two</p></article></bill>".getBytes(UTF_8);
+        byte[] insideContent = "<bill><article xml:id=\"art1\"><p>one updated</p></article><article xml:id=\"art2\"><p>two</p></article></bill>".getBytes(UTF_8);
+        byte[] outsideContent = "<bill><article xml:id=\"art1\"><p>one updated</p></article><article xml:id=\"art2\"><p>three</p></article></bill>".getBytes(UTF_8);
+
+        assertThat(vtdXmlContentProcessor.isChangeConfinedToElement(oldContent, insideContent, "art1"), is(true));
+        assertThat(vtdXmlContentProcessor.isChangeConfinedToElement(oldContent, insideContent, "art2"), is(false));
+        assertThat(vtdXmlContentProcessor.isChangeConfinedToElement(oldContent, outsideContent, "art1"), is(false));
+        assertThat(vtdXmlContentProcessor.isChangeConfinedToElement(oldContent, insideContent, "notExisted"), is(false));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void test_getAncestorsIdsForElementId_should_throwException_when_nonExistedElementPassed()
             throws Exception {
@@ -1369,22 +1384,17 @@ public class VtdXmlContentProcessorTest extends LeosTest {
 
         VTDNav nav = VTDUtils.setupVTDNav(xml.getBytes(UTF_8), true);
         XMLModifier modifier = new XMLModifier(nav);
-        when(referenceLabelService.generateLabel(
-                (List<Ref>) argThat(containsInAnyOrder(new Ref("aid", "ref1", "bill"), new Ref("bid", "ref2", "bill"))),
-                argThat(any(String.class)),
+        when(referenceLabelService.generateLabels(
+                (List<Pair<String, List<Ref>>>) argThat(any(List.class)),
                 argThat(any(String.class)),
                 argThat(any(byte[].class))))
-                        .thenReturn(new Result<String>(
+                        .thenReturn(Arrays.asList(
+                                new Result<String>(
                                 "Article X<ref xml:id=\"aid\" href=\"ref1\" documentRef=\"bill\">updated ref for test onl</ref> and <ref xml:id=\"bid\" href=\"ref2\" documentRef=\"bill\">(b)</ref>",
-                                null));
-
-        when(referenceLabelService.generateLabel(
-                (List<Ref>) argThat(containsInAnyOrder(new Ref("aid2", "ref21", "bill"), new Ref("bid2", "ref22", "bill"))), argThat(any(String.class)),
-                argThat(any(String.class)),
-                argThat(any(byte[].class))))
-                    .thenReturn(new Result<String>(
+                                null),
+                                new Result<String>(
                                 "Article Y<ref xml:id=\"aid2\" href=\"ref21\" documentRef=\"bill\">updated ref for test only</ref> and <ref xml:id=\"bid2\" href=\"ref22\" documentRef=\"bill\">(b)</ref>",
-                                null));
+                                null)));
 
         // make the actual call
         vtdXmlContentProcessor.updateReferences(modifier);
@@ -1394,8 +1404,12 @@ public class VtdXmlContentProcessorTest extends LeosTest {
         modifier.output(baos);
         String result = baos.toString("UTF-8");
         assertEquals(expectedXml, result);
-        verify(referenceLabelService, times(2)).generateLabel(ArgumentMatchers.any(List.class), ArgumentMatchers.any(String.class),
-                ArgumentMatchers.any(String.class), ArgumentMatchers.any(byte[].class));
+        ArgumentCaptor<List<Pair<String, List<Ref>>>> mrefsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(referenceLabelService, times(1)).generateLabels(mrefsCaptor.capture(), ArgumentMatchers.any(String.class), ArgumentMatchers.any(byte[].class));
+        List<Pair<String, List<Ref>>> mrefs = mrefsCaptor.getValue();
+        assertEquals(2, mrefs.size());
+        assertThat(mrefs.get(0).getRight(), containsInAnyOrder(new Ref("aid", "ref1", "bill"), new Ref("bid", "ref2", "bill")));
+        assertThat(mrefs.get(1).getRight(), containsInAnyOrder(new Ref("aid2", "ref21", "bill"), new Ref("bid2", "ref22", "bill")));
     }
 
     @Test
@@ -1425,10 +1439,10 @@ public class VtdXmlContentProcessorTest extends LeosTest {
 
         VTDNav nav = VTDUtils.setupVTDNav(xml.getBytes(UTF_8), true);
         XMLModifier modifier = new XMLModifier(nav);
-        when(referenceLabelService.generateLabel(
-                (List<Ref>) argThat(containsInAnyOrder(new Ref("IDE", "art_1__para_1", "bill"))), argThat(any(String.class)),
-                argThat(any(String.class)), argThat(any(byte[].class))))
-                        .thenReturn(new Result<String>("Article 1<ref xml:id=\"IDE\" href=\"art_1__para_1\" documentRef=\"bill\">(1)</ref>", null));
+        when(referenceLabelService.generateLabels(
+                (List<Pair<String, List<Ref>>>) argThat(any(List.class)), argThat(any(String.class)), argThat(any(byte[].class))))
+                        .thenReturn(Collections.singletonList(
+                                new Result<String>("Article 1<ref xml:id=\"IDE\" href=\"art_1__para_1\" documentRef=\"bill\">(1)</ref>", null)));
 
         // make the actual call
         vtdXmlContentProcessor.updateReferences(modifier);
@@ -1438,8 +1452,34 @@ public class VtdXmlContentProcessorTest extends LeosTest {
         modifier.output(baos);
         String result = baos.toString("UTF-8");
         assertEquals(expectedXml, result);
-        verify(referenceLabelService, times(1)).generateLabel(ArgumentMatchers.any(List.class), ArgumentMatchers.any(String.class),
-                ArgumentMatchers.any(String.class), ArgumentMatchers.any(byte[].class));
+        ArgumentCaptor<List<Pair<String, List<Ref>>>> mrefsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(referenceLabelService, times(1)).generateLabels(mrefsCaptor.capture(), ArgumentMatchers.any(String.class), ArgumentMatchers.any(byte[].class));
+        assertEquals("rec_1__p", mrefsCaptor.getValue().get(0).getLeft());
+        assertThat(mrefsCaptor.getValue().get(0).getRight(), containsInAnyOrder(new Ref("IDE", "art_1__para_1", "bill")));
+    }
+
+    @Test
+    public void test_updateReferences_unchangedLabel_shouldReturnSameContent() throws Exception {
+        // setup
+        String xml = "<root xmlns:leos=\"ec:leos\">" +
+                "<recitals xml:id=\"recs\" leos:editable=\"false\">" +
+                "<recital xml:id=\"rec_1\" leos:editable=\"true\"><num xml:id=\"rec_1__num\">(1)</num>" +
+                "<p xml:id=\"rec_1__p\">Recital...<mref xml:id=\"mrefid\">Article 1<ref xml:id=\"IDE\" href=\"art_1__para_1\" documentRef=\"bill\">(1)</ref></mref></p>" +
+                "</recital>" +
+                "</recitals>" +
+                "</root>";
+        byte[] xmlContent = xml.getBytes(UTF_8);
+
+        when(referenceLabelService.generateLabels(
+                (List<Pair<String, List<Ref>>>) argThat(any(List.class)), argThat(any(String.class)), argThat(any(byte[].class))))
+                        .thenReturn(Collections.singletonList(
+                                new Result<String>("Article 1<ref xml:id=\"IDE\" href=\"art_1__para_1\" documentRef=\"bill\">(1)</ref>", null)));
+
+        // make the actual call
+        byte[] result = vtdXmlContentProcessor.updateReferences(xmlContent);
+
+        // verify
+        assertSame(xmlContent, result);
     }
 
     @Test
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.services.support.xml.vtd;
+
+import com.ximpleware.VTDNav;
+import eu.europa.ec.leos.services.compare.ContentComparatorContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class VTDHelperTest {
+
+    private static final String OLD_CONTENT = "<doc xml:id=\"d\"><p xml:id=\"p1\">same <b>text</b></p><p xml:id=\"p2\">old</p></doc>";
+    private static final String NEW_CONTENT = "<doc xml:id=\"d\">  <p xml:id=\"p1\">same <b>text</b></p><p xml:id=\"p2\">new</p></doc>";
+
+    @Test
+    public void test_buildElement_should_hashSubtreesByContent() throws Exception {
+        Map<String, Element> oldElements = buildElements(OLD_CONTENT);
+        Map<String, Element> newElements = buildElements(NEW_CONTENT);
+
+        assertThat(oldElements.get("p1").getContentHash(), is(notNullValue()));
+        assertThat(newElements.get("p1").getContentHash(), is(oldElements.get("p1").getContentHash()));
+        assertThat(newElements.get("p2").getContentHash(), is(not(oldElements.get("p2").getContentHash())));
+        assertThat(newElements.get("d").getContentHash(), is(not(oldElements.get("d").getContentHash())));
+    }
+
+    @Test
+    public void test_buildElement_should_giveSameHash_when_sameFragmentsInDifferentDocuments() throws Exception {
+        Map<String, Element> elements = buildElements(OLD_CONTENT);
+        Map<String, Element> sameElements = buildElements(OLD_CONTENT);
+
+        assertThat(sameElements.get("d").getContentHash(), is(elements.get("d").getContentHash()));
+    }
+
+    @Test
+    public void test_isElementContentEqual_should_compareHashes_withoutReadingFragments() throws Exception {
+        Map<String, Element> oldElements = buildElements(OLD_CONTENT);
+        Map<String, Element> newElements = buildElements(NEW_CONTENT);
+
+        // no navigator is given, the fragments cannot be read
+        assertThat(VTDHelper.isElementContentEqual(context(oldElements.get("p1"), newElements.get("p1"))), is(true));
+        assertThat(VTDHelper.isElementContentEqual(context(oldElements.get("p2"), newElements.get("p2"))), is(false));
+    }
+
+    private Map<String, Element> buildElements(String content) throws Exception {
+        VTDNav navigator = VTDHelper.buildXMLNavigator(content);
+        Map<String, Element> elements = new HashMap<>();
+        VTDHelper.buildElement(navigator, navigator.getCurrentIndex(), new HashMap<>(), elements);
+        return elements;
+    }
+
+    private ContentComparatorContext context(Element oldElement, Element newElement) {
+        return new ContentComparatorContext.Builder("", "")
+                .withOldElement(oldElement)
+                .withNewElement(newElement)
+                .build();
+    }
+}
@@ -18,12 +18,21 @@ import com.vaadin.shared.ui.ContentMode;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.CustomField;
 import com.vaadin.ui.Label;
+import eu.europa.ec.leos.ui.extension.ElementReplaceExtension;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class LeosDisplayField extends CustomField<String> {
 
     private static final long serialVersionUID = 1L;
 
-    private final Label content = new Label();
+    private static final Pattern TAG_NAME = Pattern.compile("<([^\\s/>]+)");
+
+    private final ContentLabel content = new ContentLabel();
+
+    private ElementReplaceExtension<LeosDisplayField, String> elementReplaceExtension;
+    private String valueBeforeReplacement;
 
     @Override
     protected Component initContent() {
@@ -41,4 +50,89 @@ public class LeosDisplayField extends CustomField<String> {
     public String getValue() {
         return StringEscapeUtils.escapeHtml4(content.getValue());
     }
+
+    /**
+     * Lets {@link #replaceElement(String, String)} send only the html of the replaced element to the client.
+     */
+    public void enableElementReplacement() {
+        if (elementReplaceExtension == null) {
+            elementReplaceExtension = new ElementReplaceExtension<>(this, this::elementReplaced);
+        }
+    }
+
+    /**
+     * Replaces the html of the element with the given id, keeping the rest of the content as it is.
+     * Once the element is replaced on the client, the value change is notified as for a complete update,
+     * so that the extensions of this field are refreshed.
+     *
+     * @return false if the element is not found in the content
+     */
+    public boolean replaceElement(String elementId, String elementContent) {
+        final String text = content.getValue();
+        final int idIndex = (text != null) ? text.indexOf(" id=\"" + elementId + "\"") : -1;
+        final int start = (idIndex != -1) ? text.lastIndexOf('<', idIndex) : -1;
+        if (start == -1) {
+            return false;
+        }
+        final int end = findElementEnd(text, start);
+        if (end == -1) {
+            return false;
+        }
+        final String replacedText = text.substring(0, start) + elementContent + text.substring(end);
+        if (elementReplaceExtension == null) {
+            setValue(replacedText);
+        } else {
+            if (valueBeforeReplacement == null) {
+                valueBeforeReplacement = getValue();
+            }
+            content.setValueWithoutRepaint(replacedText);
+            elementReplaceExtension.replaceElement(elementId, elementContent);
+        }
+        return true;
+    }
+
+    private void elementReplaced(String elementId, boolean replaced) {
+        if (!replaced) {
+            // the displayed content differs from the one of the server, send it again completely
+            content.markAsDirty();
+        }
+        final String oldValue = valueBeforeReplacement;
+        valueBeforeReplacement = null;
+        fireEvent(createValueChange(oldValue, false));
+    }
+
+    private static int findElementEnd(String text, int start) {
+        final Matcher nameMatcher = TAG_NAME.matcher(text).region(start, text.length());
+        if (!nameMatcher.lookingAt()) {
+            return -1;
+        }
+        final Matcher tagMatcher = Pattern.compile("<(/?)" + Pattern.quote(nameMatcher.group(1)) + "[\\s/>]").matcher(text).region(start, text.length());
+        int depth = 0;
+        while (tagMatcher.find()) {
+            final int tagEnd = text.indexOf('>', tagMatcher.start());
+            if (tagEnd == -1) {
+                return -1;
+            }
+            if (tagMatcher.group(1).isEmpty()) {
+                if (text.charAt(tagEnd - 1) != '/') {
+                    depth++;
+                } else if (depth == 0) {
+                    return tagEnd + 1;
+                }
+            } else if (--depth == 0) {
+                return tagEnd + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static class ContentLabel extends Label {
+
+        private static final long serialVersionUID = 1L;
+
+        // updates the value kept on the server side, the client side is updated by the caller
+        private void setValueWithoutRepaint(String value) {
+            getState(false).text = value;
+        }
+    }
 }
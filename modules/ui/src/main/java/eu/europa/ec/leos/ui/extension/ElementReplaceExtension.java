@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 European Commission
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *     https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and limitations under the Licence.
+ */
+package eu.europa.ec.leos.ui.extension;
+
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.ui.AbstractField;
+import eu.europa.ec.leos.web.support.LeosCacheToken;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Replaces a single element of the html displayed by the target, so that only the html of this element is sent to the client.
+ * The listener is called back once the client has replaced the element, with false if the element was not found.
+ */
+@JavaScript({"vaadin://../js/ui/extension/elementReplaceConnector.js" + LeosCacheToken.TOKEN})
+public class ElementReplaceExtension<T extends AbstractField<V>, V> extends LeosJavaScriptExtension {
+
+    private static final long serialVersionUID = 1L;
+
+    public ElementReplaceExtension(T target, BiConsumer<String, Boolean> replacedListener) {
+        super();
+        extend(target);
+        addFunction("elementReplaced", arguments -> {
+            LOG.trace("Element {} replaced on client side", arguments.getString(0));
+            replacedListener.accept(arguments.getString(0), arguments.getBoolean(1));
+        });
+    }
+
+    public void replaceElement(String elementId, String elementHtml) {
+        callFunction("replaceElement", elementId, elementHtml);
+    }
+}
@@ -192,6 +192,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
     private String documentId;
     private String documentRef;
     private Element elementToEditAfterClose;
+    private byte[] renderedContent;
     private boolean comparisonMode;
     
 
@@ -238,7 +239,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
 
     private byte[] getContent(Bill bill) {
         final Content content = bill.getContent().getOrError(() -> "Document content is required!");
-        return content.getSource().getBytes();
+        return content.getSource().getSharedBytes();
     }
 
     @Override
@@ -320,7 +321,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
 
     @Subscribe
     void refreshDocument(RefreshDocumentEvent event) {
-        populateViewWithDocumentDetails(event.getTocMode());
+        populateViewWithDocumentDetails(event.getTocMode(), event.getElementId());
     }
     
     @Subscribe
@@ -422,7 +423,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
         String elementId = event.getElementId();
         coEditionHelper.removeUserEditInfo(id, strDocumentVersionSeriesId, elementId, InfoType.ELEMENT_INFO);
         LOG.debug("User edit information removed");
-        eventBus.post(new RefreshDocumentEvent());
+        eventBus.post(new RefreshDocumentEvent(elementId));
         if (elementToEditAfterClose != null) {
             documentScreen.scrollTo(elementToEditAfterClose.getElementId());
             eventBus.post(new EditElementRequestEvent(elementToEditAfterClose.getElementId(), elementToEditAfterClose.getElementTagName()));
@@ -443,7 +444,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
     }
 
     public String generateLabel(String reference, XmlDocument sourceDocument) {
-        final byte[] sourceXmlContent = sourceDocument.getContent().get().getSource().getBytes();
+        final byte[] sourceXmlContent = sourceDocument.getContent().get().getSource().getSharedBytes();
         Result<String> updatedLabel = referenceLabelService.generateLabelStringRef(Arrays.asList(reference),  sourceDocument.getMetadata().get().getRef(), sourceXmlContent);
         return updatedLabel.get();
     }
@@ -560,7 +561,7 @@ class DocumentPresenter extends AbstractLeosPresenter {
             LOG.error("No reference found in the request from client");
             return;
         }
-        final byte[] sourceXmlContent = getDocument().getContent().get().getSource().getBytes();
+        final byte[] sourceXmlContent = getDocument().getContent().get().getSource().getSharedBytes();
         Result<String> updatedLabel = referenceLabelService.generateLabelStringRef(event.getReferences(), getDocumentRef(), event.getCurrentElementID(), sourceXmlContent, event.getDocumentRef(), true);
         documentScreen.setReferenceLabel(updatedLabel.get(), event.getDocumentRef());
     }
@@ -625,11 +626,15 @@ class DocumentPresenter extends AbstractLeosPresenter {
     }
 
     private void populateViewWithDocumentDetails(TocMode mode) {
+        populateViewWithDocumentDetails(mode, null);
+    }
+
+    private void populateViewWithDocumentDetails(TocMode mode, String changedElementId) {
         Bill bill = getDocument();
         if (bill != null) {
             documentScreen.setDocumentTitle(bill.getTitle());
             documentScreen.setDocumentVersionInfo(getVersionInfo(bill));
-            documentScreen.refreshContent(getEditableXml(bill));
+            refreshContent(bill, changedElementId);
             documentScreen.setToc(getListOfTableOfContent(bill, mode));
             DocumentVO billVO = createLegalTextVO(bill);
             documentScreen.updateUserCoEditionInfo(coEditionHelper.getCurrentEditInfo(bill.getVersionSeriesId()), id);
@@ -637,6 +642,27 @@ class DocumentPresenter extends AbstractLeosPresenter {
         }
     }
     
+    /**
+     * Renders only the changed element when nothing else changed since the last rendering of the document,
+     * the whole document otherwise (e.g. when the siblings have been renumbered).
+     */
+    private void refreshContent(Bill bill, String changedElementId) {
+        String elementContent = null;
+        if (changedElementId != null) {
+            try {
+                elementContent = documentContentService.toEditableElement(bill, renderedContent, changedElementId,
+                        urlBuilder.getWebAppPath(VaadinServletService.getCurrentServletRequest()), securityContext);
+            } catch (Exception e) {
+                // e.g. the element uses namespaces that are not declared for a fragment, the whole document renders it
+                LOG.warn("Unable to render element {} alone, rendering the whole document", changedElementId, e);
+            }
+        }
+        if (elementContent == null || !documentScreen.refreshElementContent(changedElementId, elementContent)) {
+            documentScreen.refreshContent(getEditableXml(bill));
+        }
+        renderedContent = getContent(bill);
+    }
+
     @Subscribe
     void showTimeLineWindow(ShowTimeLineWindowEvent event) {
         List<Bill> documentVersions = billService.findVersions(documentId);
@@ -43,6 +43,12 @@ interface DocumentScreen {
 
     void refreshContent(final String documentContent);
 
+    /**
+     * Replaces the displayed content of a single element, keeping the rest of the document as it is
+     * @return false if the element is not displayed and the whole content has to be refreshed
+     */
+    boolean refreshElementContent(final String elementId, final String elementContent);
+
     void populateMarkedContent(String comparedContent, String comparedInfo);
 
     void populateDoubleComparisonContent(String comparedContent,  String comparedInfo);
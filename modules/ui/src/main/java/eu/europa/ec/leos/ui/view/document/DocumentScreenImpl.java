@@ -247,6 +247,11 @@ abstract class DocumentScreenImpl extends VerticalLayout implements DocumentScre
         legalTextPaneComponent.populateContent(documentContent);
     }
 
+    @Override
+    public boolean refreshElementContent(final String elementId, final String elementContent) {
+        return legalTextPaneComponent.populateElementContent(elementId, elementContent);
+    }
+
     public abstract void showVersion(String content, String versionInfo);
     
     public abstract void populateMarkedContent(String comparedContent, String versionInfo);
@@ -17,6 +17,7 @@ import eu.europa.ec.leos.domain.common.TocMode;
 
 public class RefreshDocumentEvent {
     private TocMode mode;
+    private String elementId;
 
     public RefreshDocumentEvent() {
         this.mode = TocMode.SIMPLIFIED;
@@ -26,7 +27,19 @@ public class RefreshDocumentEvent {
         this.mode = mode;
     }
 
+    /**
+     * Refresh after a change of the given element, so that only this element can be rendered again if nothing else changed
+     */
+    public RefreshDocumentEvent(String elementId) {
+        this.mode = TocMode.SIMPLIFIED;
+        this.elementId = elementId;
+    }
+
     public TocMode getTocMode() {
         return this.mode;
     }
+
+    public String getElementId() {
+        return this.elementId;
+    }
 }
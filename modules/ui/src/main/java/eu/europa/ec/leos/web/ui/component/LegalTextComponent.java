@@ -401,6 +401,7 @@ public class LegalTextComponent extends CustomComponent implements ContentPane {
         docContent.setSizeFull();
         docContent.setStyleName("leos-doc-content");
         docContent.setId("docContainer");
+        docContent.enableElementReplacement();
 
         // create content extensions
         new MathJaxExtension<>(docContent);
@@ -436,6 +437,14 @@ public class LegalTextComponent extends CustomComponent implements ContentPane {
         textRefreshNote.setVisible(false);
     }
 
+    public boolean populateElementContent(String elementId, String elementContentText) {
+        if (docContent.replaceElement(elementId, elementContentText)) {
+            textRefreshNote.setVisible(false);
+            return true;
+        }
+        return false;
+    }
+
     public UserCoEditionExtension<LeosDisplayField, String> getUserCoEditionExtension() {
         return userCoEditionExtension;
     }
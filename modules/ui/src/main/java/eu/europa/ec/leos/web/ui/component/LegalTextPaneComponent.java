@@ -150,6 +150,10 @@ public class LegalTextPaneComponent extends CustomComponent {
         legalTextComponent.populateContent(docContent);
     }
 
+    public boolean populateElementContent(final String elementId, final String elementContent) {
+        return legalTextComponent.populateElementContent(elementId, elementContent);
+    }
+
     public LeosDisplayField getContent() {
         return legalTextComponent.getContent();
     }
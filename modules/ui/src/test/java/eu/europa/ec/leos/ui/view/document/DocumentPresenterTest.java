@@ -99,8 +99,11 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -223,7 +226,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String documentVersion="1.0.0";
         byte[] byteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(byteContent);
+        when(source.getSharedBytes()).thenReturn(byteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
@@ -291,7 +294,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         List<String> selectedNodeId = new ArrayList();
         selectedNodeId.add("xyz");
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
@@ -377,7 +380,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String documentVersion="1.0.0";
         byte[] byteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(byteContent);
+        when(source.getSharedBytes()).thenReturn(byteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
@@ -420,6 +423,77 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         verifyNoMoreInteractions(billService, documentContentService, documentScreen);
     }
 
+    @Test
+    public void testRefreshDocument_afterElementChange_should_refreshOnlyElement() {
+        Content content = mock(Content.class);
+        Source source = mock(Source.class);
+
+        String docRef = "bill_test.xml";
+        byte[] byteContent = new byte[]{1, 2, 3};
+
+        when(source.getSharedBytes()).thenReturn(byteContent);
+        when(content.getSource()).thenReturn(source);
+
+        BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
+        Map<String, String> collaborators = new HashMap<String, String>();
+        collaborators.put("login", "OWNER");
+        final Bill document = getMockedBill(content, "555", "document name", "1.0.0", billMetadata, collaborators);
+
+        String articleId = "7474";
+        String displayableContent = "document displayable content";
+        String displayableArticle = "article displayable content";
+
+        when(httpSession.getAttribute(anyString() + "." + SessionAttribute.BILL_REF.name())).thenReturn(docRef);
+        when(billService.findBillByRef(docRef)).thenReturn(document);
+        when(documentContentService.toEditableContent(isA(XmlDocument.class), any(), any())).thenReturn(displayableContent);
+        when(documentContentService.toEditableElement(isA(XmlDocument.class), eq(byteContent), eq(articleId), any(), any())).thenReturn(displayableArticle);
+        when(documentScreen.refreshElementContent(articleId, displayableArticle)).thenReturn(true);
+
+        // DO THE ACTUAL CALLS
+        documentPresenter.refreshDocument(new RefreshDocumentEvent());
+        documentPresenter.refreshDocument(new RefreshDocumentEvent(articleId));
+
+        verify(documentContentService).toEditableContent(any(XmlDocument.class), any(), any());
+        verify(documentContentService).toEditableElement(any(XmlDocument.class), eq(byteContent), eq(articleId), any(), any());
+        verify(documentScreen).refreshContent(displayableContent);
+        verify(documentScreen).refreshElementContent(articleId, displayableArticle);
+        verifyNoMoreInteractions(documentContentService);
+    }
+
+    @Test
+    public void testRefreshDocument_afterElementChange_should_refreshWholeDocument_when_elementRenderingFails() {
+        Content content = mock(Content.class);
+        Source source = mock(Source.class);
+
+        String docRef = "bill_test.xml";
+        byte[] byteContent = new byte[]{1, 2, 3};
+
+        when(source.getSharedBytes()).thenReturn(byteContent);
+        when(content.getSource()).thenReturn(source);
+
+        BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
+        Map<String, String> collaborators = new HashMap<String, String>();
+        collaborators.put("login", "OWNER");
+        final Bill document = getMockedBill(content, "555", "document name", "1.0.0", billMetadata, collaborators);
+
+        String articleId = "7474";
+        String displayableContent = "document displayable content";
+
+        when(httpSession.getAttribute(anyString() + "." + SessionAttribute.BILL_REF.name())).thenReturn(docRef);
+        when(billService.findBillByRef(docRef)).thenReturn(document);
+        when(documentContentService.toEditableContent(isA(XmlDocument.class), any(), any())).thenReturn(displayableContent);
+        when(documentContentService.toEditableElement(isA(XmlDocument.class), eq(byteContent), eq(articleId), any(), any()))
+                .thenThrow(new RuntimeException("Unbound namespace prefix"));
+
+        // DO THE ACTUAL CALLS
+        documentPresenter.refreshDocument(new RefreshDocumentEvent());
+        documentPresenter.refreshDocument(new RefreshDocumentEvent(articleId));
+
+        verify(documentContentService, times(2)).toEditableContent(any(XmlDocument.class), any(), any());
+        verify(documentScreen, times(2)).refreshContent(displayableContent);
+        verify(documentScreen, never()).refreshElementContent(any(), any());
+    }
+
     @Test
     public void testEditArticle_should_showArticleEditor() {
 
@@ -429,7 +503,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
         String versionSeriesId = "1234";
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -462,7 +536,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -505,7 +579,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         entities.add(new Entity("1", "DIGIT.B2", "DIGIT"));
         User user = ModelHelper.buildUser(45L, "login", "name", entities);
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -545,7 +619,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         entities.add(new Entity("1", "DIGIT.B2", "DIGIT"));
         User user = ModelHelper.buildUser(45L, "login", "name", entities);
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -583,7 +657,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
@@ -623,7 +697,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
 
         byte[] originalByteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(originalByteContent);
+        when(source.getSharedBytes()).thenReturn(originalByteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "BL-023", "bill-id", "", "0.0.1");
@@ -659,7 +733,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docId = "555";
         byte[] originalByteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(originalByteContent);
+        when(source.getSharedBytes()).thenReturn(originalByteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -715,7 +789,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -762,7 +836,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docId = "555";
         byte[] originalByteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(originalByteContent);
+        when(source.getSharedBytes()).thenReturn(originalByteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -795,7 +869,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docId = "555";
         byte[] originalByteContent = new byte[]{1, 2, 3};
 
-        when(source.getBytes()).thenReturn(originalByteContent);
+        when(source.getSharedBytes()).thenReturn(originalByteContent);
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -851,7 +925,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -896,7 +970,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         String docRef = "bill_test.xml";
         String docId = "555";
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
@@ -950,7 +1024,7 @@ public class DocumentPresenterTest extends LeosPresenterTest {
         List<String> elementIdList = new ArrayList<String>();
         elementIdList.add(articleId);
 
-        when(source.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(source.getSharedBytes()).thenReturn(new byte[]{1, 2, 3});
         when(content.getSource()).thenReturn(source);
 
         BillMetadata billMetadata =new BillMetadata("", "REGULATION", "", "BL-000.xml", "EN", "", "bill-id", "", "0.0.1");
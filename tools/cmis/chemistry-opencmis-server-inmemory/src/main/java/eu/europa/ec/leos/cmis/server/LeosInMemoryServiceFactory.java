@@ -89,7 +89,12 @@ public class LeosInMemoryServiceFactory extends InMemoryServiceFactoryImpl {
     @Override
     public void init(Map<String, String> parameters) {
         super.init(parameters);
-        loadRepository(parameters);
+        String repositoryId = parameters.get(ConfigConstants.REPOSITORY_ID);
+        if (isRecovered(repositoryId)) {
+            LOG.info("LEOS CMIS repository [id={}] was loaded from disk, skipping configured resources.", repositoryId);
+        } else {
+            loadRepository(parameters);
+        }
     }
 
     private void loadRepository(Map<String, String> parameters) {
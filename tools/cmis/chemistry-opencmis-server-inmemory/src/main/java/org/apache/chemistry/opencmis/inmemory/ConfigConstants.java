@@ -48,6 +48,10 @@ public final class ConfigConstants {
     public static final String CLEAN_REPOSITORY_INTERVAL = "InMemoryServer.CleanIntervalMinutes";
     public static final String DEPLOYMENT_TIME = "InMemoryServer.DeploymentTime";
     public static final String PARSER_MODE = "InMemoryServer.ParserMode";
+    public static final String INDEXED_PROPERTIES = "InMemoryServer.IndexedProperties";
+    public static final String PERSISTENCE_DIR = "InMemoryServer.PersistenceDir";
+    public static final String PERSISTENCE_FLUSH_INTERVAL = "InMemoryServer.PersistenceFlushIntervalMillis";
+    public static final String PERSISTENCE_SNAPSHOT_THRESHOLD = "InMemoryServer.PersistenceSnapshotThreshold";
 
     private ConfigConstants() {
     }
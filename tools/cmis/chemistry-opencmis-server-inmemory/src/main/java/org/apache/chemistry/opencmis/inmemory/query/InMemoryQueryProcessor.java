@@ -26,11 +26,15 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.antlr.runtime.tree.Tree;
@@ -56,6 +60,7 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreIndex;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
 import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
@@ -75,7 +80,9 @@ import org.slf4j.LoggerFactory;
  * conditions are checked against the data contained in the central hash map
  * with all objects. In a first pass one time setup is performed, in a custom
  * walk across the query expression tree an object is checked if it matches. In
- * case of a match it is appended to a list of matching objects.
+ * case of a match it is appended to a list of matching objects. When the
+ * WHERE clause constrains indexed properties or the folder of the objects, only
+ * the candidates found in the indexes of the object store are checked.
  */
 public class InMemoryQueryProcessor {
 
@@ -128,10 +135,17 @@ public class InMemoryQueryProcessor {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
+        // iterate over the candidate objects and check for each if the query
+        // matches, all the objects are candidates if no index applies
+        Collection<String> objectIds = findCandidateIds();
+        if (null == objectIds) {
+            objectIds = ((ObjectStoreImpl) objectStore).getIds();
+        }
+        for (String objectId : objectIds) {
             StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            if (null != so) {
+                match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            }
         }
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
@@ -140,6 +154,21 @@ public class InMemoryQueryProcessor {
         return objList;
     }
 
+    /**
+     * Find the objects that may match the WHERE clause of the processed query
+     * using the indexes of the object store.
+     * 
+     * @return ids of the candidate objects, null if all objects must be checked
+     */
+    public Set<String> findCandidateIds() {
+        if (null == whereTree) {
+            return null;
+        }
+        IndexPlanningWalker planner = new IndexPlanningWalker(objStore.getIndex());
+        planner.walkPredicate(whereTree);
+        return planner.getCandidateIds(whereTree);
+    }
+
     /**
      * Process a query.
      * 
@@ -705,6 +734,233 @@ public class InMemoryQueryProcessor {
 
     }
 
+    /**
+     * Walks the WHERE clause to collect, for each predicate that can be answered
+     * by an index, the ids of the objects that may satisfy it. AND and OR
+     * combine the candidates of their operands, any other predicate leaves the
+     * candidates unrestricted. The candidates are a superset of the matches,
+     * each one is still evaluated by the {@link InMemoryWhereClauseWalker}.
+     */
+    public class IndexPlanningWalker extends AbstractPredicateWalker {
+
+        private final ObjectStoreIndex index;
+        private final Map<Tree, Set<String>> candidates = new IdentityHashMap<Tree, Set<String>>();
+
+        public IndexPlanningWalker(ObjectStoreIndex index) {
+            this.index = index;
+        }
+
+        public Set<String> getCandidateIds(Tree node) {
+            return candidates.get(node);
+        }
+
+        @Override
+        public Boolean walkNot(Tree opNode, Tree node) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkAnd(Tree opNode, Tree leftNode, Tree rightNode) {
+            walkPredicate(leftNode);
+            walkPredicate(rightNode);
+            Set<String> left = candidates.get(leftNode);
+            Set<String> right = candidates.get(rightNode);
+            if (null == left || null == right) {
+                record(opNode, null == left ? right : left);
+            } else {
+                Set<String> smaller = left.size() < right.size() ? left : right;
+                Set<String> intersection = new HashSet<String>(smaller);
+                intersection.retainAll(smaller == left ? right : left);
+                record(opNode, intersection);
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkOr(Tree opNode, Tree leftNode, Tree rightNode) {
+            walkPredicate(leftNode);
+            walkPredicate(rightNode);
+            Set<String> left = candidates.get(leftNode);
+            Set<String> right = candidates.get(rightNode);
+            if (null != left && null != right) {
+                Set<String> union = new HashSet<String>(left);
+                union.addAll(right);
+                record(opNode, union);
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            ColumnReference colRef = getIndexedColumn(leftNode, Cardinality.SINGLE);
+            if (null != colRef) {
+                Object literal = walkExpr(rightNode);
+                if (colRef.getPropertyDefinition().getPropertyType() == PropertyType.STRING && literal instanceof String) {
+                    // string comparisons are done on the unescaped literal
+                    literal = StringUtil.unescape((String) literal, null);
+                }
+                if (literal instanceof String) {
+                    record(opNode, index.getIds(colRef.getPropertyId(), Collections.singletonList(literal)));
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkNotEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkGreaterThan(Tree opNode, Tree leftNode, Tree rightNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkGreaterOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkLessThan(Tree opNode, Tree leftNode, Tree rightNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkLessOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkIn(Tree opNode, Tree colNode, Tree listNode) {
+            ColumnReference colRef = getIndexedColumn(colNode, Cardinality.SINGLE);
+            if (null != colRef) {
+                record(opNode, index.getIds(colRef.getPropertyId(), (List<?>) walkExpr(listNode)));
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkNotIn(Tree opNode, Tree colNode, Tree listNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkInAny(Tree opNode, Tree colNode, Tree listNode) {
+            ColumnReference colRef = getIndexedColumn(colNode, Cardinality.MULTI);
+            if (null != colRef) {
+                record(opNode, index.getIds(colRef.getPropertyId(), (List<?>) walkExpr(listNode)));
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkNotInAny(Tree opNode, Tree colNode, Tree listNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkEqAny(Tree opNode, Tree literalNode, Tree colNode) {
+            ColumnReference colRef = getIndexedColumn(colNode, Cardinality.MULTI);
+            if (null != colRef) {
+                record(opNode, index.getIds(colRef.getPropertyId(), Collections.singletonList(walkExpr(literalNode))));
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkIsNull(Tree opNode, Tree colNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkIsNotNull(Tree opNode, Tree colNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkLike(Tree opNode, Tree colNode, Tree stringNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkNotLike(Tree opNode, Tree colNode, Tree stringNode) {
+            return false;
+        }
+
+        @Override
+        public Boolean walkInFolder(Tree opNode, Tree qualNode, Tree paramNode) {
+            if (null != qualNode) {
+                getTableReference(qualNode);
+            }
+            Object lit = walkExpr(paramNode);
+            if (lit instanceof String) {
+                record(opNode, index.getChildIds((String) lit));
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean walkInTree(Tree opNode, Tree qualNode, Tree paramNode) {
+            if (null != qualNode) {
+                getTableReference(qualNode);
+            }
+            Object lit = walkExpr(paramNode);
+            if (lit instanceof String) {
+                record(opNode, index.getDescendantIds((String) lit, objStore));
+            }
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextAnd(Tree node) {
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextOr(Tree node) {
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextMinus(Tree node) {
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextWord(Tree node) {
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextPhrase(Tree node) {
+            return false;
+        }
+
+        private ColumnReference getIndexedColumn(Tree colNode, Cardinality cardinality) {
+            CmisSelector sel = queryObj.getColumnReference(colNode.getTokenStartIndex());
+            if (!(sel instanceof ColumnReference)) {
+                return null;
+            }
+            ColumnReference colRef = (ColumnReference) sel;
+            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+            if (null == pd || pd.getCardinality() != cardinality || !index.isIndexed(colRef.getPropertyId())) {
+                return null;
+            }
+            // only values compared as they are stored can be looked up
+            PropertyType propType = pd.getPropertyType();
+            boolean textual = propType == PropertyType.STRING || propType == PropertyType.ID
+                    || propType == PropertyType.HTML || propType == PropertyType.URI;
+            return textual ? colRef : null;
+        }
+
+        private void record(Tree node, Set<String> ids) {
+            if (null != ids) {
+                candidates.put(node, ids);
+            }
+        }
+    }
+
     private boolean hasParent(StoredObject objInFolder, String folderId, String user) {
         List<String> parents = objStore.getParentIds(objInFolder, user);
 
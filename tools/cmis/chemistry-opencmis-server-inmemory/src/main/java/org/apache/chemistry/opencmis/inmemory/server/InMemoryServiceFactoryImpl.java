@@ -59,6 +59,7 @@ import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
 import org.apache.chemistry.opencmis.inmemory.content.ObjectGenerator;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerFactory;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
 import org.apache.chemistry.opencmis.server.async.impl.AbstractAsyncServiceFactory;
@@ -128,7 +129,7 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
 
         boolean created = initStorageManager(parameters);
 
-        if (created) {
+        if (created && !isRecovered(parameters.get(ConfigConstants.REPOSITORY_ID))) {
             fillRepositoryIfConfigured(parameters);
         }
 
@@ -190,6 +191,9 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
         if (null != cleanManager) {
             cleanManager.stopCleanRepositoryJob();
         }
+        if (storeManager instanceof StoreManagerImpl) {
+            ((StoreManagerImpl) storeManager).close();
+        }
 
         super.destroy();
     }
@@ -198,6 +202,15 @@ public class InMemoryServiceFactoryImpl extends AbstractAsyncServiceFactory {
         return storeManager;
     }
 
+    /**
+     * @return true if the repository was loaded from disk on startup instead
+     *         of being created empty
+     */
+    protected boolean isRecovered(String repositoryId) {
+        ObjectStore objStore = storeManager.getObjectStore(repositoryId);
+        return objStore instanceof ObjectStoreImpl && ((ObjectStoreImpl) objStore).isRecovered();
+    }
+
     private boolean initStorageManager(Map<String, String> parameters) {
         // initialize in-memory management
         boolean created = false;
@@ -114,6 +114,7 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
         boolean major = (null == majorParam ? true : majorParam);
 
         verDoc.checkIn(major, properties, ((Content)so).getContent(), checkinComment, policies, user);
+        objStore.reindexObject(so);
         if (null != properties && null != properties.getProperties()) {
             // rename:
             PropertyData<?> pd = properties.getProperties().get(PropertyIds.NAME);
@@ -334,6 +334,16 @@ public interface ObjectStore {
      */
     void updateObject(StoredObject so, Map<String, PropertyData<?>> properties, String user);
 
+    /**
+     * Refresh the secondary indexes and the persisted state of an object that
+     * was modified without going through the store (e.g. on check-in or when a
+     * policy is applied).
+     * 
+     * @param so
+     *            object that was modified
+     */
+    void reindexObject(StoredObject so);
+
     /**
      * get the path of this folder (for folder in CMIS path is unique).
      * 
@@ -25,6 +25,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -36,7 +37,9 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentExcep
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ContentStreamDataImpl implements LastModifiedContentStream {
+public class ContentStreamDataImpl implements LastModifiedContentStream, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private static final int SIZE_KB = 1024;
 
@@ -18,6 +18,9 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,12 +43,16 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
  */
 public class DocumentVersionImpl extends StoredObjectImpl implements DocumentVersion, MultiFiling {
 
+    private static final long serialVersionUID = 1L;
+
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
 
     private ContentStream fContent;
-    private final VersionedDocumentImpl fContainer; // the document this version
-                                                    // belongs to
+    // the document this version belongs to, persisted by id so that each
+    // version is written on its own
+    private transient VersionedDocumentImpl fContainer;
+    private transient String fRestoredContainerId;
     private String fComment; // checkin comment
     private boolean fIsMajor;
     private boolean fIsPwc; // true if this is the PWC
@@ -304,4 +311,27 @@ public class DocumentVersionImpl extends StoredObjectImpl implements DocumentVer
         fContainer.removeParentId(parentId);
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(fContainer.getId());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        fRestoredContainerId = (String) in.readObject();
+    }
+
+    /**
+     * @return the id of the version series read with this version, null if it
+     *         was not read from a snapshot or journal
+     */
+    String getRestoredContainerId() {
+        return fRestoredContainerId;
+    }
+
+    void restoreContainer(VersionedDocumentImpl container) {
+        fContainer = container;
+        fRestoredContainerId = null;
+    }
+
 }
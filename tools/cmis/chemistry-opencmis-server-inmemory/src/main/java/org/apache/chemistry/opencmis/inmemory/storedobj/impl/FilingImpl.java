@@ -26,6 +26,8 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.MultiFiling;
 
 public class FilingImpl extends StoredObjectImpl implements Fileable, MultiFiling {
 
+    private static final long serialVersionUID = 1L;
+
     private List<String> parentIds = new ArrayList<String>(1);
 
     FilingImpl() {
@@ -18,11 +18,13 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -100,6 +102,8 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private static final Logger LOG = LoggerFactory.getLogger(ObjectStoreImpl.class.getName());
     private static final int FIRST_ID = 100;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000L;
+    private static final long DEFAULT_SNAPSHOT_THRESHOLD = 10000L;
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
 
@@ -128,27 +132,116 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private final Lock fLock = new ReentrantLock();
 
+    /**
+     * Secondary indexes by property value and by parent folder.
+     */
+    private final ObjectStoreIndex fIndex = new ObjectStoreIndex(getIndexedPropertyIds());
+
+    /**
+     * Snapshot and journal on disk, null if persistence is not configured.
+     */
+    private final ObjectStoreJournal fJournal;
+    private boolean fRecovered = false;
+    private long fRelinkMillis = 0;
+
     private final String fRepositoryId;
     private FolderImpl fRootFolder = null;
 
     public ObjectStoreImpl(String repositoryId) {
         fRepositoryId = repositoryId;
-        createRootFolder();
+        fJournal = createJournal(repositoryId);
+        if (!recover()) {
+            createRootFolder();
+        }
+        if (null != fJournal) {
+            fJournal.start();
+        }
+    }
+
+    private ObjectStoreJournal createJournal(String repositoryId) {
+        String directory = ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.PERSISTENCE_DIR);
+        if (null == directory || directory.trim().length() == 0) {
+            return null;
+        }
+        Long flushInterval = ConfigurationSettings
+                .getConfigurationValueAsLong(ConfigConstants.PERSISTENCE_FLUSH_INTERVAL);
+        Long snapshotThreshold = ConfigurationSettings
+                .getConfigurationValueAsLong(ConfigConstants.PERSISTENCE_SNAPSHOT_THRESHOLD);
+        return new ObjectStoreJournal(this, new File(directory.trim(), repositoryId),
+                null == flushInterval ? DEFAULT_FLUSH_INTERVAL_MILLIS : flushInterval,
+                null == snapshotThreshold ? DEFAULT_SNAPSHOT_THRESHOLD : snapshotThreshold);
+    }
+
+    private boolean recover() {
+        if (null == fJournal) {
+            return false;
+        }
+        try {
+            if (fJournal.recover()) {
+                long start = System.currentTimeMillis();
+                relinkVersions();
+                for (Map.Entry<String, StoredObject> entry : fStoredObjectMap.entrySet()) {
+                    fIndex.index(entry.getKey(), entry.getValue());
+                }
+                fRelinkMillis = System.currentTimeMillis() - start;
+                LOG.info("Relinked versions and indexed " + fStoredObjectMap.size() + " recovered objects in "
+                        + fRelinkMillis + " ms.");
+                fRecovered = null != fRootFolder;
+            }
+        } catch (IOException e) {
+            throw new CmisStorageException("Failed to recover repository " + fRepositoryId + ": " + e.getMessage(), e);
+        }
+        return fRecovered;
+    }
+
+    private static List<String> getIndexedPropertyIds() {
+        List<String> propertyIds = new ArrayList<String>();
+        String configured = ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.INDEXED_PROPERTIES);
+        if (null != configured) {
+            for (String propertyId : configured.split(",")) {
+                propertyId = propertyId.trim();
+                if (propertyId.startsWith("cmis:")) {
+                    // system properties are not read from the property map
+                    LOG.warn("Property " + propertyId + " cannot be indexed, only custom properties are supported.");
+                } else if (propertyId.length() > 0) {
+                    propertyIds.add(propertyId);
+                }
+            }
+        }
+        return propertyIds;
     }
 
     private static synchronized Integer getNextId() {
         return nextUnusedId++;
     }
 
+    private static synchronized void raiseNextId(String usedId) {
+        try {
+            nextUnusedId = Math.max(nextUnusedId, Integer.parseInt(usedId) + 1);
+        } catch (NumberFormatException e) {
+            // not generated by getNextId()
+        }
+    }
+
     private synchronized Integer getNextAclId() {
         return nextUnusedAclId++;
     }
 
-    private void lock() {
+    private synchronized void raiseNextAclId(int usedAclId) {
+        nextUnusedAclId = Math.max(nextUnusedAclId, usedAclId + 1);
+    }
+
+    private void markDirty(String id) {
+        if (null != fJournal) {
+            fJournal.markDirty(id);
+        }
+    }
+
+    void lock() {
         fLock.lock();
     }
 
-    private void unlock() {
+    void unlock() {
         fLock.unlock();
     }
 
@@ -210,18 +303,18 @@ public class ObjectStoreImpl implements ObjectStore {
                 otherVersionsExists = false;
                 List<DocumentVersion> allVers = parentDoc.getAllVersions();
                 for (DocumentVersion ver : allVers) {
-                    fStoredObjectMap.remove(ver.getId());
+                    removeObject(ver.getId());
                 }
             } else {
-                fStoredObjectMap.remove(objectId);
+                removeObject(objectId);
                 otherVersionsExists = parentDoc.deleteVersion(vers);
             }
 
             if (!otherVersionsExists) {
-                fStoredObjectMap.remove(parentDoc.getId());
+                removeObject(parentDoc.getId());
             }
         } else {
-            fStoredObjectMap.remove(objectId);
+            removeObject(objectId);
         }
     }
 
@@ -230,8 +323,14 @@ public class ObjectStoreImpl implements ObjectStore {
         // check if update or create
         if (null == id) {
             id = getNextId().toString();
+            if (so instanceof DocumentVersion) {
+                // the series persists the ids of its versions
+                markDirty(((DocumentVersion) so).getParentDocument().getId());
+            }
         }
         fStoredObjectMap.put(id, so);
+        fIndex.index(id, so);
+        markDirty(id);
         return id;
     }
 
@@ -240,7 +339,12 @@ public class ObjectStoreImpl implements ObjectStore {
     }
 
     void removeObject(String id) {
-        fStoredObjectMap.remove(id);
+        StoredObject so = fStoredObjectMap.remove(id);
+        fIndex.remove(id);
+        markDirty(id);
+        if (so instanceof DocumentVersion) {
+            markDirty(((DocumentVersion) so).getParentDocument().getId());
+        }
     }
 
     public Set<String> getIds() {
@@ -248,6 +352,158 @@ public class ObjectStoreImpl implements ObjectStore {
         return entries;
     }
 
+    public ObjectStoreIndex getIndex() {
+        return fIndex;
+    }
+
+    public ObjectStoreJournal getJournal() {
+        return fJournal;
+    }
+
+    /**
+     * @return true if the content of the store was loaded from disk on startup
+     */
+    public boolean isRecovered() {
+        return fRecovered;
+    }
+
+    /**
+     * Write all changes to disk and stop persisting the store.
+     */
+    public void close() {
+        if (null != fJournal) {
+            fJournal.close();
+        }
+    }
+
+    List<InMemoryAcl> getAcls() {
+        lock();
+        try {
+            return new ArrayList<InMemoryAcl>(fAcls);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * @return time taken on startup to link the recovered versions to their
+     *         series and to index the recovered objects, in ms
+     */
+    public long getRelinkMillis() {
+        return fRelinkMillis;
+    }
+
+    // versions and series are read as separate objects, they are linked and
+    // indexed once the snapshot and journal are replayed
+    void restoreObject(StoredObject so) {
+        fStoredObjectMap.put(so.getId(), so);
+        raiseNextId(so.getId());
+        if (so instanceof FolderImpl && null == ((FolderImpl) so).getParentId()) {
+            fRootFolder = (FolderImpl) so;
+        }
+    }
+
+    void restoreRemoval(String id) {
+        fStoredObjectMap.remove(id);
+    }
+
+    private void relinkVersions() {
+        Map<String, List<DocumentVersionImpl>> versionsBySeries = new HashMap<String, List<DocumentVersionImpl>>();
+        for (StoredObject so : fStoredObjectMap.values()) {
+            if (so instanceof DocumentVersionImpl) {
+                DocumentVersionImpl ver = (DocumentVersionImpl) so;
+                List<DocumentVersionImpl> versions = versionsBySeries.get(ver.getRestoredContainerId());
+                if (null == versions) {
+                    versions = new ArrayList<DocumentVersionImpl>();
+                    versionsBySeries.put(ver.getRestoredContainerId(), versions);
+                }
+                versions.add(ver);
+            }
+        }
+        for (Map.Entry<String, List<DocumentVersionImpl>> entry : versionsBySeries.entrySet()) {
+            StoredObject series = fStoredObjectMap.get(entry.getKey());
+            if (!(series instanceof VersionedDocumentImpl)) {
+                LOG.warn("Discarding " + entry.getValue().size() + " recovered versions of missing version series "
+                        + entry.getKey() + ".");
+                for (DocumentVersionImpl ver : entry.getValue()) {
+                    fStoredObjectMap.remove(ver.getId());
+                }
+                continue;
+            }
+            VersionedDocumentImpl doc = (VersionedDocumentImpl) series;
+            // order of the series, versions written after the last record of
+            // the series come last
+            final List<String> order = null == doc.getRestoredVersionIds() ? Collections.<String> emptyList()
+                    : doc.getRestoredVersionIds();
+            List<DocumentVersionImpl> versions = entry.getValue();
+            Collections.sort(versions, new Comparator<DocumentVersionImpl>() {
+                @Override
+                public int compare(DocumentVersionImpl first, DocumentVersionImpl second) {
+                    int result = Integer.compare(position(first), position(second));
+                    return result != 0 ? result : Long.compare(numericId(first), numericId(second));
+                }
+
+                private int position(DocumentVersionImpl ver) {
+                    int position = order.indexOf(ver.getId());
+                    return position == -1 ? Integer.MAX_VALUE : position;
+                }
+            });
+            for (DocumentVersionImpl ver : versions) {
+                ver.restoreContainer(doc);
+            }
+            doc.restoreVersions(new ArrayList<DocumentVersion>(versions));
+        }
+        for (StoredObject so : fStoredObjectMap.values()) {
+            if (so instanceof VersionedDocumentImpl && null != ((VersionedDocumentImpl) so).getRestoredVersionIds()) {
+                // series without any recovered version
+                ((VersionedDocumentImpl) so).restoreVersions(Collections.<DocumentVersion> emptyList());
+            }
+        }
+    }
+
+    private static long numericId(StoredObject so) {
+        try {
+            return Long.parseLong(so.getId());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    void restoreAcl(InMemoryAcl acl) {
+        lock();
+        try {
+            for (int i = 0; i < fAcls.size(); i++) {
+                if (fAcls.get(i).getId() == acl.getId()) {
+                    fAcls.set(i, acl);
+                    return;
+                }
+            }
+            fAcls.add(acl);
+            raiseNextAclId(acl.getId());
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void reindexObject(StoredObject so) {
+        if (so instanceof DocumentVersion) {
+            so = ((DocumentVersion) so).getParentDocument();
+        }
+        if (fStoredObjectMap.containsKey(so.getId())) {
+            fIndex.index(so.getId(), so);
+            markDirty(so.getId());
+        }
+        // versions are filed in the folders of their series
+        if (so instanceof VersionedDocument) {
+            for (DocumentVersion ver : ((VersionedDocument) so).getAllVersions()) {
+                if (fStoredObjectMap.containsKey(ver.getId())) {
+                    fIndex.index(ver.getId(), ver);
+                }
+            }
+        }
+    }
+
     /**
      * Clear repository and remove all data.
      */
@@ -255,8 +511,16 @@ public class ObjectStoreImpl implements ObjectStore {
     public void clear() {
         lock();
         fStoredObjectMap.clear();
+        fIndex.clear();
         storeObject(fRootFolder);
         unlock();
+        if (null != fJournal) {
+            try {
+                fJournal.snapshot();
+            } catch (IOException e) {
+                throw new CmisStorageException("Failed to write snapshot of repository " + fRepositoryId, e);
+            }
+        }
     }
 
     @Override
@@ -364,6 +628,7 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != policies) {
             doc.setAppliedPolicies(policies);
         }
+        fIndex.index(doc.getId(), doc);
         id = storeObject(version);
         version.setId(id);
         applyAcl(doc, addACEs, removeACEs);
@@ -450,6 +715,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public void deleteVersion(DocumentVersion version) {
         StoredObject found = fStoredObjectMap.remove(version.getId());
+        fIndex.remove(version.getId());
+        markDirty(version.getId());
+        markDirty(version.getParentDocument().getId());
 
         if (null == found) {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
@@ -476,6 +744,8 @@ public class ObjectStoreImpl implements ObjectStore {
         // update system properties and secondary object type ids
         so.updateSystemBasePropertiesWhenModified(properties, user);
         properties.remove(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+        fIndex.index(so.getId(), so);
+        markDirty(so.getId());
     }
 
     @Override
@@ -656,7 +926,7 @@ public class ObjectStoreImpl implements ObjectStore {
             throw new CmisConstraintException("Cannot delete folder with id:  " + folderId + ". Folder is not empty.");
         }
 
-        fStoredObjectMap.remove(folderId);
+        removeObject(folderId);
     }
 
     @Override
@@ -681,7 +951,7 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private List<Fileable> getChildren(Folder folder, String user, boolean usePwc) {
         List<Fileable> children = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : fIndex.getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
             if (obj instanceof Fileable) {
                 Fileable pathObj = (Fileable) obj;
@@ -711,9 +981,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public ChildrenResult getFolderChildren(Folder folder, int maxItems, int skipCount, String user) {
         List<Fileable> folderChildren = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : fIndex.getChildIds(folder.getId())) {
             StoredObject obj = getObject(id);
-            if (hasReadAccess(user, obj) && obj instanceof Folder) {
+            if (obj instanceof Folder && hasReadAccess(user, obj)) {
                 Folder childFolder = (Folder) obj;
                 if (childFolder.getParentIds().contains(folder.getId())) {
                     folderChildren.add(childFolder);
@@ -745,6 +1015,7 @@ public class ObjectStoreImpl implements ObjectStore {
             } else if (so instanceof FolderImpl) {
                 ((FolderImpl) so).setParentId(newParent.getId());
             }
+            reindexObject(so);
         } finally {
             unlock();
         }
@@ -770,6 +1041,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             so.setName(newName);
+            markDirty(so.getId());
         } finally {
             unlock();
         }
@@ -892,6 +1164,9 @@ public class ObjectStoreImpl implements ObjectStore {
                 aclId = getNextAclId();
                 acl.setId(aclId);
                 fAcls.add(acl);
+                if (null != fJournal) {
+                    fJournal.aclAdded(acl);
+                }
             }
         } finally {
             unlock();
@@ -901,12 +1176,14 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private Acl applyAcl(StoredObject so, Acl acl) {
         int aclId = setAcl((StoredObjectImpl) so, acl);
+        markDirty(so.getId());
         return getAcl(aclId);
     }
 
     private Acl applyAcl(StoredObject so, Acl addAces, Acl removeAces) {
         int aclId = getAclId((StoredObjectImpl) so, addAces, removeAces);
         ((StoredObjectImpl) so).setAclId(aclId);
+        markDirty(so.getId());
         return getAcl(aclId);
     }
 
@@ -1023,10 +1300,12 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private void addParentIntern(MultiFiling so, Folder parent) {
         so.addParentId(parent.getId());
+        reindexObject(so);
     }
 
     private void removeParentIntern(MultiFiling so, Folder parent) {
         so.removeParentId(parent.getId());
+        reindexObject(so);
     }
 
     private static void sortFolderList(List<? extends StoredObject> list) {
@@ -1092,6 +1371,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             content.setContent(newContent);
+            markDirty(so.getId());
             return newContent;
 
         } else {
@@ -1114,6 +1394,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     throw new CmisStorageException("Failed to append content: IO Exception", e);
                 }
             }
+            markDirty(so.getId());
         } else {
             throw new CmisInvalidArgumentException("Cannot set content, object does not implement interface Content.");
         }
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Secondary indexes of an object store: the ids of the objects by value of a
+ * set of configured custom properties and the ids of the objects by parent
+ * folder. The indexes are maintained by the object store when objects are
+ * stored, updated, filed or removed. They only narrow the objects a query or a
+ * children lookup has to look at, the conditions are still checked on each
+ * candidate.
+ */
+public class ObjectStoreIndex {
+
+    private final Set<String> fIndexedPropertyIds;
+    private final Map<String, Map<Object, Set<String>>> fValueIndex = new HashMap<String, Map<Object, Set<String>>>();
+    private final Map<String, Set<String>> fChildIndex = new HashMap<String, Set<String>>();
+    private final Map<String, IndexEntry> fEntries = new HashMap<String, IndexEntry>();
+
+    private static class IndexEntry {
+        private final Map<String, Set<Object>> values = new HashMap<String, Set<Object>>();
+        private final Set<String> parentIds = new HashSet<String>();
+    }
+
+    public ObjectStoreIndex(Collection<String> indexedPropertyIds) {
+        fIndexedPropertyIds = new HashSet<String>(indexedPropertyIds);
+        for (String propertyId : fIndexedPropertyIds) {
+            fValueIndex.put(propertyId, new HashMap<Object, Set<String>>());
+        }
+    }
+
+    public boolean isIndexed(String propertyId) {
+        return fIndexedPropertyIds.contains(propertyId);
+    }
+
+    /**
+     * Index an object under its current property values and parents, replacing
+     * what was indexed for it before.
+     * 
+     * @param id
+     *            id of the object
+     * @param so
+     *            object to index
+     */
+    public synchronized void index(String id, StoredObject so) {
+        remove(id);
+        IndexEntry entry = new IndexEntry();
+        Map<String, PropertyData<?>> properties = so.getProperties();
+        if (null != properties) {
+            for (String propertyId : fIndexedPropertyIds) {
+                PropertyData<?> pd = properties.get(propertyId);
+                if (null != pd && null != pd.getValues()) {
+                    Set<Object> values = new HashSet<Object>();
+                    for (Object value : pd.getValues()) {
+                        if (null != value) {
+                            values.add(value);
+                            add(fValueIndex.get(propertyId), value, id);
+                        }
+                    }
+                    entry.values.put(propertyId, values);
+                }
+            }
+        }
+        if (so instanceof Filing) {
+            List<String> parentIds = ((Filing) so).getParentIds();
+            if (null != parentIds) {
+                for (String parentId : parentIds) {
+                    entry.parentIds.add(parentId);
+                    add(fChildIndex, parentId, id);
+                }
+            }
+        }
+        fEntries.put(id, entry);
+    }
+
+    /**
+     * Remove an object from the indexes.
+     * 
+     * @param id
+     *            id of the object
+     */
+    public synchronized void remove(String id) {
+        IndexEntry entry = fEntries.remove(id);
+        if (null == entry) {
+            return;
+        }
+        for (Map.Entry<String, Set<Object>> values : entry.values.entrySet()) {
+            Map<Object, Set<String>> index = fValueIndex.get(values.getKey());
+            for (Object value : values.getValue()) {
+                removeFrom(index, value, id);
+            }
+        }
+        for (String parentId : entry.parentIds) {
+            removeFrom(fChildIndex, parentId, id);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Map<Object, Set<String>> index : fValueIndex.values()) {
+            index.clear();
+        }
+        fChildIndex.clear();
+        fEntries.clear();
+    }
+
+    /**
+     * Get the ids of the objects having one of the given values for a
+     * property.
+     * 
+     * @param propertyId
+     *            id of an indexed property
+     * @param values
+     *            values to look up
+     * @return ids of the matching objects, null if the property is not indexed
+     */
+    public synchronized Set<String> getIds(String propertyId, Collection<?> values) {
+        Map<Object, Set<String>> index = fValueIndex.get(propertyId);
+        if (null == index) {
+            return null;
+        }
+        Set<String> ids = new HashSet<String>();
+        for (Object value : values) {
+            Set<String> found = index.get(value);
+            if (null != found) {
+                ids.addAll(found);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Get the ids of the objects filed in a folder.
+     * 
+     * @param folderId
+     *            id of the folder
+     * @return ids of the children
+     */
+    public synchronized Set<String> getChildIds(String folderId) {
+        Set<String> children = fChildIndex.get(folderId);
+        return null == children ? Collections.<String> emptySet() : new HashSet<String>(children);
+    }
+
+    /**
+     * Get the ids of the objects filed in a folder or in one of its sub
+     * folders.
+     * 
+     * @param folderId
+     *            id of the folder
+     * @param store
+     *            store to tell the folders apart
+     * @return ids of the descendants
+     */
+    public synchronized Set<String> getDescendantIds(String folderId, ObjectStoreImpl store) {
+        Set<String> descendants = new HashSet<String>();
+        Deque<String> folderIds = new ArrayDeque<String>();
+        folderIds.add(folderId);
+        while (!folderIds.isEmpty()) {
+            Set<String> children = fChildIndex.get(folderIds.poll());
+            if (null != children) {
+                for (String childId : children) {
+                    if (descendants.add(childId) && store.getObject(childId) instanceof Folder) {
+                        folderIds.add(childId);
+                    }
+                }
+            }
+        }
+        return descendants;
+    }
+
+    private static <K> void add(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = index.get(key);
+        if (null == ids) {
+            ids = new HashSet<String>();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = index.get(key);
+        if (null != ids) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
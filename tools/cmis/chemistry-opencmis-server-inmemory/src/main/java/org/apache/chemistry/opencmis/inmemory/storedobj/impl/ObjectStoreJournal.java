@@ -0,0 +1,533 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable storage of an object store in a local directory: a snapshot of the
+ * whole store and an append-only journal of the objects changed since. The
+ * store marks objects as dirty when they change, a background thread writes
+ * their current state to the journal and forces it to disk at a fixed
+ * interval. Once the journal holds enough records it is compacted into a new
+ * snapshot. On startup the snapshot is memory-mapped and loaded, then the
+ * journal is replayed on top of it up to the last complete record.
+ * <p>
+ * Snapshot and journal carry a generation number. A journal is only replayed
+ * on top of the snapshot of the same generation, so after a crash during
+ * compaction a journal already contained in a newer snapshot is ignored.
+ * <p>
+ * Objects are written with Java serialization, each version as its own record
+ * and its series with the ids of its versions only. The state of the changed
+ * objects is serialized under the lock of the store and written to disk
+ * afterwards. Type definitions are not persisted, they are created by the type
+ * creator on every startup.
+ */
+public class ObjectStoreJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectStoreJournal.class.getName());
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String JOURNAL_FILE = "journal.dat";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x434D4953;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    private static final byte PUT_OBJECT = 1;
+    private static final byte REMOVE_OBJECT = 2;
+    private static final byte PUT_ACL = 3;
+
+    private final ObjectStoreImpl fStore;
+    private final File fDirectory;
+    private final long fFlushIntervalMillis;
+    private final long fSnapshotThreshold;
+
+    private final Set<String> fDirtyIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Queue<InMemoryAcl> fNewAcls = new ConcurrentLinkedQueue<InMemoryAcl>();
+
+    private ScheduledExecutorService fFlusher;
+    private FileChannel fJournal;
+    private long fGeneration;
+    private long fJournalRecords;
+    private long fRecoveredRecords;
+    private long fRecoveryMillis;
+    private long fSnapshotLoadMillis;
+    private long fJournalReplayMillis;
+
+    public ObjectStoreJournal(ObjectStoreImpl store, File directory, long flushIntervalMillis, long snapshotThreshold) {
+        fStore = store;
+        fDirectory = directory;
+        fFlushIntervalMillis = flushIntervalMillis;
+        fSnapshotThreshold = snapshotThreshold;
+    }
+
+    /**
+     * Load the snapshot and replay the journal into the store, then open the
+     * journal for appending.
+     * 
+     * @return true if any object or Acl was recovered
+     */
+    public synchronized boolean recover() throws IOException {
+        if (!fDirectory.isDirectory() && !fDirectory.mkdirs()) {
+            throw new IOException("Cannot create directory " + fDirectory);
+        }
+        long start = System.currentTimeMillis();
+        File snapshotFile = new File(fDirectory, SNAPSHOT_FILE);
+        File journalFile = new File(fDirectory, JOURNAL_FILE);
+        long snapshotRecords = 0;
+        long journalRecords = 0;
+        long validLength = -1;
+
+        fGeneration = 0;
+        fSnapshotLoadMillis = 0;
+        fJournalReplayMillis = 0;
+        if (snapshotFile.isFile()) {
+            ByteBuffer buffer = map(snapshotFile);
+            fGeneration = readHeader(buffer, snapshotFile);
+            snapshotRecords = replay(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IOException("Snapshot " + snapshotFile + " is damaged at offset " + buffer.position());
+            }
+            fSnapshotLoadMillis = System.currentTimeMillis() - start;
+        }
+        if (journalFile.isFile() && journalFile.length() >= FILE_HEADER_SIZE) {
+            ByteBuffer buffer = map(journalFile);
+            long generation = readHeader(buffer, journalFile);
+            if (generation == fGeneration) {
+                long replayStart = System.currentTimeMillis();
+                journalRecords = replay(buffer);
+                fJournalReplayMillis = System.currentTimeMillis() - replayStart;
+                validLength = buffer.position();
+                if (buffer.hasRemaining()) {
+                    LOG.warn("Discarding incomplete journal tail of " + buffer.remaining() + " bytes in "
+                            + journalFile + ".");
+                }
+            } else {
+                LOG.info("Ignoring journal " + journalFile + " of generation " + generation
+                        + ", it is contained in snapshot generation " + fGeneration + ".");
+            }
+        }
+        openJournal(journalFile, validLength);
+        fJournalRecords = journalRecords;
+
+        fRecoveredRecords = snapshotRecords + journalRecords;
+        fRecoveryMillis = System.currentTimeMillis() - start;
+        if (fRecoveredRecords > 0) {
+            LOG.info("Recovered " + fStore.getObjectCount() + " objects from " + fDirectory + " in "
+                    + fRecoveryMillis + " ms: " + snapshotRecords + " snapshot records loaded in "
+                    + fSnapshotLoadMillis + " ms, " + journalRecords + " journal records replayed in "
+                    + fJournalReplayMillis + " ms (" + fRecoveredRecords * 1000 / Math.max(1, fRecoveryMillis)
+                    + " records/s).");
+        }
+        return fRecoveredRecords > 0;
+    }
+
+    /**
+     * Start writing the changes to the journal in the background.
+     */
+    public synchronized void start() {
+        fFlusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "InMemoryServer-journal-" + fDirectory.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        fFlusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    LOG.error("Failed to write journal in " + fDirectory, e);
+                }
+            }
+        }, fFlushIntervalMillis, fFlushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background writer and compact the journal into a snapshot, so
+     * that the next startup only has to load the snapshot.
+     */
+    public synchronized void close() {
+        if (null != fFlusher) {
+            fFlusher.shutdown();
+            fFlusher = null;
+        }
+        if (null == fJournal) {
+            return;
+        }
+        try {
+            writeChanges();
+            fJournal.force(false);
+            snapshot();
+        } catch (IOException e) {
+            LOG.error("Failed to write snapshot in " + fDirectory, e);
+        } finally {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Record that an object was created, modified or removed. Its state at the
+     * time of the next flush is written to the journal.
+     * 
+     * @param id
+     *            id of the object
+     */
+    public void markDirty(String id) {
+        if (null != id) {
+            fDirtyIds.add(id);
+        }
+    }
+
+    /**
+     * Record that an Acl was added to the store.
+     * 
+     * @param acl
+     *            new Acl
+     */
+    public void aclAdded(InMemoryAcl acl) {
+        fNewAcls.add(acl);
+    }
+
+    /**
+     * Write the pending changes to the journal and force it to disk. Compacts
+     * the journal if it holds enough records.
+     */
+    public synchronized void flush() throws IOException {
+        if (null == fJournal) {
+            return;
+        }
+        if (writeChanges() > 0) {
+            fJournal.force(false);
+        }
+        if (fJournalRecords >= fSnapshotThreshold) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Write the whole store to a new snapshot and start an empty journal.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (null == fJournal) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long generation = fGeneration + 1;
+        File snapshotFile = new File(fDirectory, SNAPSHOT_FILE);
+        File tempFile = new File(fDirectory, SNAPSHOT_FILE + TEMP_SUFFIX);
+        List<Record> records = new ArrayList<Record>();
+        fStore.lock();
+        try {
+            for (InMemoryAcl acl : fStore.getAcls()) {
+                records.add(new Record(PUT_ACL, serialize(acl)));
+            }
+            for (String id : new ArrayList<String>(fStore.getIds())) {
+                StoredObject so = fStore.getObject(id);
+                if (null != so) {
+                    addObject(records, id, so);
+                }
+            }
+        } finally {
+            fStore.unlock();
+        }
+
+        FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            writeHeader(channel, generation);
+            for (Record record : records) {
+                writeRecord(channel, record.fType, record.fPayload);
+            }
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        fGeneration = generation;
+        resetJournal();
+        LOG.info("Wrote snapshot of " + records.size() + " records to " + snapshotFile + " in "
+                + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    public long getRecoveredRecords() {
+        return fRecoveredRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return fRecoveryMillis;
+    }
+
+    /**
+     * @return time taken on startup to map and load the snapshot, in ms
+     */
+    public long getSnapshotLoadMillis() {
+        return fSnapshotLoadMillis;
+    }
+
+    /**
+     * @return time taken on startup to replay the journal, in ms
+     */
+    public long getJournalReplayMillis() {
+        return fJournalReplayMillis;
+    }
+
+    /**
+     * @return number of records written to the journal since the last snapshot
+     */
+    public synchronized long getJournalRecords() {
+        return fJournalRecords;
+    }
+
+    private long writeChanges() throws IOException {
+        List<Record> records = new ArrayList<Record>();
+        // the state is taken under the lock of the store, consistent with the
+        // changes made under this lock, and written to disk once released
+        fStore.lock();
+        try {
+            InMemoryAcl acl = fNewAcls.poll();
+            while (null != acl) {
+                records.add(new Record(PUT_ACL, serialize(acl)));
+                acl = fNewAcls.poll();
+            }
+
+            // objects changed meanwhile are marked again and go to the next
+            // flush
+            List<String> ids = new ArrayList<String>(fDirtyIds);
+            fDirtyIds.removeAll(ids);
+            for (String id : ids) {
+                StoredObject so = fStore.getObject(id);
+                if (null == so) {
+                    records.add(new Record(REMOVE_OBJECT, id.getBytes(StandardCharsets.UTF_8)));
+                } else {
+                    addObject(records, id, so);
+                }
+            }
+        } finally {
+            fStore.unlock();
+        }
+
+        for (Record record : records) {
+            writeRecord(fJournal, record.fType, record.fPayload);
+        }
+        fJournalRecords += records.size();
+        return records.size();
+    }
+
+    private void addObject(List<Record> records, String id, StoredObject so) throws IOException {
+        if (!id.equals(so.getId())) {
+            // still being created, the id is assigned after storing the object
+            fDirtyIds.add(id);
+            return;
+        }
+        try {
+            records.add(new Record(PUT_OBJECT, serialize(so)));
+        } catch (NotSerializableException e) {
+            LOG.error("Cannot write object " + id + " to the journal.", e);
+        } catch (RuntimeException e) {
+            // modified outside of the lock of the store while serializing, it
+            // is written with the next flush
+            fDirtyIds.add(id);
+        }
+    }
+
+    private long replay(ByteBuffer buffer) throws IOException {
+        long records = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            if (length < 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            apply(type, payload);
+            records++;
+        }
+        return records;
+    }
+
+    private void apply(byte type, byte[] payload) throws IOException {
+        switch (type) {
+        case PUT_OBJECT:
+            fStore.restoreObject((StoredObject) deserialize(payload));
+            break;
+        case REMOVE_OBJECT:
+            fStore.restoreRemoval(new String(payload, StandardCharsets.UTF_8));
+            break;
+        case PUT_ACL:
+            fStore.restoreAcl((InMemoryAcl) deserialize(payload));
+            break;
+        default:
+            throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private void openJournal(File journalFile, long validLength) throws IOException {
+        if (validLength < 0) {
+            resetJournal();
+        } else {
+            fJournal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE);
+            fJournal.truncate(validLength);
+            fJournal.position(validLength);
+        }
+    }
+
+    private void resetJournal() throws IOException {
+        closeJournal();
+        fJournal = FileChannel.open(new File(fDirectory, JOURNAL_FILE).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeHeader(fJournal, fGeneration);
+        fJournal.force(true);
+        fJournalRecords = 0;
+    }
+
+    private void closeJournal() {
+        if (null != fJournal) {
+            try {
+                fJournal.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close journal in " + fDirectory, e);
+            }
+            fJournal = null;
+        }
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static long readHeader(ByteBuffer buffer, File file) throws IOException {
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("File " + file + " is not a repository snapshot or journal.");
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("File " + file + " has unsupported format version " + version + ".");
+        }
+        return buffer.getLong();
+    }
+
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation);
+        buffer.flip();
+        write(channel, buffer);
+    }
+
+    private static void writeRecord(FileChannel channel, byte type, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload);
+        buffer.flip();
+        write(channel, buffer);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(object);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] payload) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload));
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot read journal record: " + e.getMessage(), e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static final class Record {
+        private final byte fType;
+        private final byte[] fPayload;
+
+        private Record(byte type, byte[] payload) {
+            fType = type;
+            fPayload = payload;
+        }
+    }
+}
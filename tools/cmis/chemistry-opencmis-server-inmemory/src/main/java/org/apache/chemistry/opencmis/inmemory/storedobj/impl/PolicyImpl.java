@@ -29,6 +29,8 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.Policy;
 
 public class PolicyImpl extends StoredObjectImpl implements Policy {
 
+    private static final long serialVersionUID = 1L;
+
     public PolicyImpl() {
         super();
     }
@@ -117,6 +117,18 @@ public class StoreManagerImpl implements StoreManager {
         return (ObjectStoreImpl) fMapRepositoryToObjectStore.get(repositoryId);
     }
 
+    /**
+     * Write all changes of the object stores to disk, if persistence is
+     * configured.
+     */
+    public void close() {
+        for (ObjectStore objStore : fMapRepositoryToObjectStore.values()) {
+            if (objStore instanceof ObjectStoreImpl) {
+                ((ObjectStoreImpl) objStore).close();
+            }
+        }
+    }
+
     public StoreManagerImpl() {
         fObjectFactory = new BindingsObjectFactoryImpl();
     }
@@ -18,6 +18,9 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -36,9 +39,14 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
 
 public class VersionedDocumentImpl extends FilingImpl implements VersionedDocument {
 
+    private static final long serialVersionUID = 1L;
+
     private boolean fIsCheckedOut;
     private String fCheckedOutUser;
-    private final List<DocumentVersion> fVersions;
+    // the versions are persisted as their own objects, the series only keeps
+    // their ids
+    private transient List<DocumentVersion> fVersions;
+    private transient List<String> fRestoredVersionIds;
 
     public VersionedDocumentImpl() {
         super();
@@ -247,4 +255,34 @@ public class VersionedDocumentImpl extends FilingImpl implements VersionedDocume
 
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        ArrayList<String> versionIds = new ArrayList<String>(fVersions.size());
+        for (DocumentVersion ver : fVersions) {
+            versionIds.add(ver.getId());
+        }
+        out.writeObject(versionIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        fRestoredVersionIds = (List<String>) in.readObject();
+        fVersions = new ArrayList<DocumentVersion>();
+    }
+
+    /**
+     * @return the ids of the versions read with this series, in version order,
+     *         null if it was not read from a snapshot or journal
+     */
+    List<String> getRestoredVersionIds() {
+        return fRestoredVersionIds;
+    }
+
+    void restoreVersions(List<DocumentVersion> versions) {
+        fVersions.clear();
+        fVersions.addAll(versions);
+        fRestoredVersionIds = null;
+    }
+
 }
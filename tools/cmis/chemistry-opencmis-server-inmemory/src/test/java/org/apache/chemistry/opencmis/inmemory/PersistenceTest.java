@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Document;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recovery of an object store from its snapshot and journal on disk.
+ */
+public class PersistenceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceTest.class);
+    private static final String TEST_REPOSITORY_ID = "TestRepositoryId";
+    private static final String USER = "user";
+    private static final String CONTENT = "Some content";
+
+    private File fDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        fDirectory = File.createTempFile("inmemory", "");
+        fDirectory.delete();
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ConfigConstants.PERSISTENCE_DIR, fDirectory.getAbsolutePath());
+        // only flush explicitly
+        parameters.put(ConfigConstants.PERSISTENCE_FLUSH_INTERVAL, "3600000");
+        ConfigurationSettings.init(parameters);
+    }
+
+    @After
+    public void tearDown() {
+        delete(fDirectory);
+    }
+
+    @Test
+    public void testNewStoreIsNotRecovered() {
+        ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        assertFalse(store.isRecovered());
+        assertNotNull(store.getRootFolder());
+        store.close();
+    }
+
+    @Test
+    public void testRecoverFromJournal() throws IOException {
+        ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        String rootId = store.getRootFolder().getId();
+        Folder f1 = createFolder(store, "Folder 1", store.getRootFolder());
+        createFolder(store, "Folder 1.1", f1);
+        Folder f2 = createFolder(store, "Folder 2", store.getRootFolder());
+        store.rename(f2, "Folder B", USER);
+        Folder f3 = createFolder(store, "Folder 3", store.getRootFolder());
+        store.deleteObject(f3.getId(), true, USER);
+        Document doc = createDocument(store, "Document 1", f1);
+        store.getJournal().flush();
+        long objectCount = store.getObjectCount();
+
+        // not closed, the state is only in the journal
+        ObjectStoreImpl recovered = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        assertTrue(recovered.isRecovered());
+        assertEquals(objectCount, recovered.getObjectCount());
+        assertEquals(rootId, recovered.getRootFolder().getId());
+        assertNotNull(recovered.getObjectByPath("/Folder 1/Folder 1.1", USER));
+        assertNotNull(recovered.getObjectByPath("/Folder B", USER));
+        assertNull(recovered.getObjectByPath("/Folder 2", USER));
+        assertNull(recovered.getObjectByPath("/Folder 3", USER));
+        assertEquals(CONTENT, readContent(recovered, doc.getId()));
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverFromSnapshot() {
+        ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        Folder f1 = createFolder(store, "Folder 1", store.getRootFolder());
+        Document doc = createDocument(store, "Document 1", f1);
+        store.close();
+
+        long start = System.currentTimeMillis();
+        ObjectStoreImpl recovered = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        LOG.debug("Recovered " + recovered.getObjectCount() + " objects in " + (System.currentTimeMillis() - start)
+                + " ms.");
+        assertTrue(recovered.isRecovered());
+        assertEquals(store.getObjectCount(), recovered.getObjectCount());
+        assertEquals(CONTENT, readContent(recovered, doc.getId()));
+        recovered.close();
+    }
+
+    @Test
+    public void testIgnoreIncompleteJournalTail() throws IOException {
+        ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        createFolder(store, "Folder 1", store.getRootFolder());
+        store.getJournal().flush();
+
+        // a record that was not completely written before a crash
+        FileOutputStream out = new FileOutputStream(new File(new File(fDirectory, TEST_REPOSITORY_ID),
+                "journal.dat"), true);
+        try {
+            out.write(new byte[] { 0, 0, 1, 0, 0, 0 });
+        } finally {
+            out.close();
+        }
+
+        ObjectStoreImpl recovered = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        assertTrue(recovered.isRecovered());
+        assertNotNull(recovered.getObjectByPath("/Folder 1", USER));
+        createFolder(recovered, "Folder 2", recovered.getRootFolder());
+        recovered.getJournal().flush();
+
+        ObjectStoreImpl recoveredAgain = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        assertNotNull(recoveredAgain.getObjectByPath("/Folder 2", USER));
+        recoveredAgain.close();
+    }
+
+    @Test
+    public void testRecoverVersionsFromSeparateRecords() throws IOException {
+        ObjectStoreImpl store = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        DocumentVersion first = createVersionedDocument(store, "Document 1", store.getRootFolder());
+        VersionedDocument series = first.getParentDocument();
+        DocumentVersion second = addVersion(store, series);
+        DocumentVersion third = addVersion(store, series);
+        store.getJournal().flush();
+
+        // a changed version is written on its own, not with its series
+        long records = store.getJournal().getJournalRecords();
+        store.getJournal().markDirty(second.getId());
+        store.getJournal().flush();
+        assertEquals(records + 1, store.getJournal().getJournalRecords());
+
+        ObjectStoreImpl recovered = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+        LOG.debug("Recovered " + recovered.getObjectCount() + " objects, snapshot loaded in "
+                + recovered.getJournal().getSnapshotLoadMillis() + " ms, journal replayed in "
+                + recovered.getJournal().getJournalReplayMillis() + " ms, versions relinked in "
+                + recovered.getRelinkMillis() + " ms.");
+        assertTrue(recovered.isRecovered());
+        VersionedDocument recoveredSeries = (VersionedDocument) recovered.getObjectById(series.getId());
+        List<DocumentVersion> versions = recoveredSeries.getAllVersions();
+        assertEquals(3, versions.size());
+        assertEquals(first.getId(), versions.get(0).getId());
+        assertEquals(second.getId(), versions.get(1).getId());
+        assertEquals(third.getId(), versions.get(2).getId());
+        for (DocumentVersion version : versions) {
+            assertSame(recoveredSeries, version.getParentDocument());
+            assertSame(version, recovered.getObjectById(version.getId()));
+        }
+        assertEquals(CONTENT, readContent(recovered, first.getId()));
+        recovered.close();
+    }
+
+    private static Folder createFolder(ObjectStoreImpl store, String name, Folder parent) {
+        return store.createFolder(name, null, USER, parent, null, null, null);
+    }
+
+    private static Document createDocument(ObjectStoreImpl store, String name, Folder parent) {
+        return store.createDocument(createProperties(name), USER, parent, createContentStream(name), null, null,
+                null);
+    }
+
+    private static DocumentVersion createVersionedDocument(ObjectStoreImpl store, String name, Folder parent) {
+        return store.createVersionedDocument(name, createProperties(name), USER, parent, null, null, null,
+                createContentStream(name), VersioningState.MAJOR);
+    }
+
+    private static DocumentVersion addVersion(ObjectStoreImpl store, VersionedDocument series) {
+        DocumentVersion version = series.addVersion(VersioningState.MAJOR, USER);
+        version.setId(store.storeObject(version));
+        return version;
+    }
+
+    private static Map<String, PropertyData<?>> createProperties(String name) {
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+        properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID,
+                BaseTypeId.CMIS_DOCUMENT.value()));
+        return properties;
+    }
+
+    private static ContentStreamImpl createContentStream(String name) {
+        byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        return new ContentStreamImpl(name, BigInteger.valueOf(content.length), "text/plain",
+                new ByteArrayInputStream(content));
+    }
+
+    private static String readContent(ObjectStoreImpl store, String id) {
+        StoredObject so = store.getObjectById(id);
+        assertNotNull(so);
+        try {
+            InputStream in = store.getContent(so, 0, -1).getStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                out.write(buffer, 0, len);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.inmemory.AbstractServiceTest;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.ec.leos.cmis.types.LeosPrimaryTypesTypeSystemCreator;
+
+/**
+ * Measures the LEOS queries on leos:xml documents with and without property indexes.
+ * The benchmark seeds 10 000 and 100 000 documents, it only runs with -Dopencmis.inmemory.queryBenchmark=true.
+ */
+public class IndexedQueryBenchmarkTest extends AbstractServiceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedQueryBenchmarkTest.class);
+
+    private static final String BENCHMARK_PROPERTY = "opencmis.inmemory.queryBenchmark";
+    private static final String INDEXED_PROPERTIES = "metadata:ref, leos:category, leos:collaborators";
+    private static final int[] DOCUMENT_COUNTS = { 10000, 100000 };
+    private static final int DOCUMENTS_PER_PACKAGE = 10;
+    private static final int USERS = 500;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 20;
+
+    private boolean indexed;
+
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        if (indexed) {
+            parameters.put(ConfigConstants.INDEXED_PROPERTIES, INDEXED_PROPERTIES);
+        }
+    }
+
+    @Test
+    public void benchmarkQueries() {
+        Assume.assumeTrue("Run with -D" + BENCHMARK_PROPERTY + "=true", Boolean.getBoolean(BENCHMARK_PROPERTY));
+        for (int documentCount : DOCUMENT_COUNTS) {
+            for (boolean withIndexes : new boolean[] { false, true }) {
+                benchmark(documentCount, withIndexes);
+            }
+        }
+    }
+
+    private void benchmark(int documentCount, boolean withIndexes) {
+        indexed = withIndexes;
+        setTypeCreatorClass(LeosPrimaryTypesTypeSystemCreator.class.getName());
+        setUp();
+        try {
+            long start = System.nanoTime();
+            String packageId = createDocuments(documentCount);
+            LOG.info("{} documents created in {} ms, indexes {}", documentCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), withIndexes ? "on" : "off");
+
+            String ref = "ref-" + (documentCount / 2);
+            measure(documentCount, withIndexes, "SELECT * FROM leos:xml WHERE metadata:ref = '" + ref + "'", 1);
+            measure(documentCount, withIndexes, "SELECT * FROM leos:xml WHERE ANY leos:collaborators IN ('user-7::OWNER')",
+                    documentCount / USERS);
+            measure(documentCount, withIndexes, "SELECT * FROM leos:xml WHERE IN_TREE('" + packageId + "')",
+                    DOCUMENTS_PER_PACKAGE);
+        } finally {
+            tearDown();
+        }
+    }
+
+    /**
+     * Creates the documents in packages of DOCUMENTS_PER_PACKAGE documents, each document with its own reference
+     * and one of USERS owners, and returns the id of the package in the middle of the workspace.
+     */
+    private String createDocuments(int documentCount) {
+        String workspaceId = createFolder("workspace", fRootFolderId, BaseTypeId.CMIS_FOLDER.value());
+        String middlePackageId = null;
+        String packageId = null;
+        for (int i = 0; i < documentCount; i++) {
+            if (i % DOCUMENTS_PER_PACKAGE == 0) {
+                packageId = createFolder("package-" + i, workspaceId, BaseTypeId.CMIS_FOLDER.value());
+                if (i / DOCUMENTS_PER_PACKAGE == documentCount / DOCUMENTS_PER_PACKAGE / 2) {
+                    middlePackageId = packageId;
+                }
+            }
+            List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+            properties.add(fFactory.createPropertyIdData(PropertyIds.NAME, "document-" + i));
+            properties.add(fFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, "leos:xml"));
+            properties.add(fFactory.createPropertyStringData("leos:category", i % DOCUMENTS_PER_PACKAGE == 0 ? "PROPOSAL" : "ANNEX"));
+            properties.add(fFactory.createPropertyStringData("metadata:ref", "ref-" + i));
+            properties.add(fFactory.createPropertyStringData("leos:collaborators",
+                    Arrays.asList("user-" + (i % USERS) + "::OWNER", "reviewer-" + (i % 50) + "::REVIEWER")));
+            fObjSvc.createDocument(fRepositoryId, fFactory.createPropertiesData(properties), packageId, null,
+                    VersioningState.MAJOR, null, null, null, null);
+        }
+        return middlePackageId;
+    }
+
+    private void measure(int documentCount, boolean withIndexes, String statement, int expectedCount) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertEquals(statement, expectedCount, query(statement).getNumItems().intValue());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            query(statement);
+        }
+        long averageMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / MEASURED_RUNS;
+        LOG.info("{} documents, indexes {}: {} us per query [{}]", documentCount, withIndexes ? "on" : "off",
+                averageMicros, statement);
+    }
+
+    private ObjectList query(String statement) {
+        return fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(DOCUMENTS_PER_PACKAGE * 100L), null, null);
+    }
+}